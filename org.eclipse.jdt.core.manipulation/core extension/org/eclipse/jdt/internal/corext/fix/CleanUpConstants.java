@@ -1102,6 +1102,19 @@ public class CleanUpConstants {
 	 */
 	public static final String SHOW_CLEAN_UP_WIZARD= "cleanup.showwizard"; //$NON-NLS-1$
 
+	/**
+	 * The number of worker threads used to parse compilation units and compute clean up fixes
+	 * when executing the Clean Up Action. <code>1</code> processes all compilation units on the
+	 * calling thread, a value smaller than <code>1</code> uses one worker per available processor.<br>
+	 * <br>
+	 * Possible values: Integer value<br>
+	 * Default value: <code><b>1</b></code><br>
+	 * <br>
+	 * 
+	 * @since 1.11
+	 */
+	public static final String CLEAN_UP_PARALLELISM= "cleanup.parallelism"; //$NON-NLS-1$
+
 	/**
 	 * A key to a serialized string in the <code>InstanceScope</code> containing all the profiles.<br>
 	 * Following code snippet can load the profiles:
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,7 +13,7 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.refactoring.typeconstraints.types;
 
-import java.util.Map;
+import java.util.BitSet;
 
 import org.eclipse.core.runtime.Assert;
 
@@ -22,10 +22,37 @@ import org.eclipse.jdt.core.dom.ITypeBinding;
 
 
 public abstract class HierarchyType extends TType {
+
+	/**
+	 * The ids of the proper super types of a hierarchy type. Generic,
+	 * parameterized and raw super types are additionally recorded by the id of
+	 * their erasure, since they are type equivalent to the other two kinds of
+	 * types with the same erasure.
+	 */
+	private static final class SuperTypeIds {
+		final TypeIdSet fAll;
+		final TypeIdSet fGenericErasures;
+		final TypeIdSet fParameterizedErasures;
+		final TypeIdSet fRawErasures;
+
+		SuperTypeIds(TypeIdSet all, TypeIdSet genericErasures, TypeIdSet parameterizedErasures, TypeIdSet rawErasures) {
+			fAll= all;
+			fGenericErasures= genericErasures;
+			fParameterizedErasures= parameterizedErasures;
+			fRawErasures= rawErasures;
+		}
+	}
+
 	private HierarchyType fSuperclass;
 	private HierarchyType[] fInterfaces;
 	private IType fJavaElementType;
 
+	/**
+	 * The transitive super types, computed on first use. Computing them twice
+	 * in concurrent threads yields equal sets, so no lock is needed.
+	 */
+	private volatile SuperTypeIds fSuperTypeIds;
+
 	protected HierarchyType(TypeEnvironment environment) {
 		super(environment);
 	}
@@ -62,19 +89,70 @@ public abstract class HierarchyType extends TType {
 
 	public boolean isSubType(HierarchyType other) {
 		if (getEnvironment() == other.getEnvironment()) {
-			Map<TypeTuple, Boolean> cache= getEnvironment().getSubTypeCache();
-			TypeTuple key= new TypeTuple(this, other);
-			Boolean value= cache.get(key);
-			if (value != null)
-				return value.booleanValue();
-			boolean isSub= doIsSubType(other);
-			value= Boolean.valueOf(isSub);
-			cache.put(key, value);
-			return isSub;
+			SuperTypeIds superTypeIds= getSuperTypeIds();
+			if (superTypeIds.fAll.contains(other.getTypeId()))
+				return true;
+			switch (other.getKind()) {
+				case GENERIC_TYPE:
+					return containsErasure(superTypeIds.fParameterizedErasures, superTypeIds.fRawErasures, other);
+				case PARAMETERIZED_TYPE:
+					return containsErasure(superTypeIds.fGenericErasures, superTypeIds.fRawErasures, other);
+				case RAW_TYPE:
+					return containsErasure(superTypeIds.fGenericErasures, superTypeIds.fParameterizedErasures, other);
+				default:
+					return false;
+			}
 		}
 		return doIsSubType(other);
 	}
 
+	private static boolean containsErasure(TypeIdSet first, TypeIdSet second, HierarchyType other) {
+		int erasureId= other.getErasure().getTypeId();
+		return first.contains(erasureId) || second.contains(erasureId);
+	}
+
+	private SuperTypeIds getSuperTypeIds() {
+		SuperTypeIds result= fSuperTypeIds;
+		if (result == null) {
+			BitSet all= new BitSet();
+			BitSet genericErasures= new BitSet();
+			BitSet parameterizedErasures= new BitSet();
+			BitSet rawErasures= new BitSet();
+			if (fSuperclass != null)
+				fSuperclass.addTo(all, genericErasures, parameterizedErasures, rawErasures);
+			for (int i= 0; i < fInterfaces.length; i++)
+				fInterfaces[i].addTo(all, genericErasures, parameterizedErasures, rawErasures);
+			result= new SuperTypeIds(TypeIdSet.create(all), TypeIdSet.create(genericErasures), TypeIdSet.create(parameterizedErasures), TypeIdSet.create(rawErasures));
+			fSuperTypeIds= result;
+		}
+		return result;
+	}
+
+	/**
+	 * Adds this type and its super types to the given sets.
+	 */
+	private void addTo(BitSet all, BitSet genericErasures, BitSet parameterizedErasures, BitSet rawErasures) {
+		all.set(getTypeId());
+		switch (getKind()) {
+			case GENERIC_TYPE:
+				genericErasures.set(getErasure().getTypeId());
+				break;
+			case PARAMETERIZED_TYPE:
+				parameterizedErasures.set(getErasure().getTypeId());
+				break;
+			case RAW_TYPE:
+				rawErasures.set(getErasure().getTypeId());
+				break;
+			default:
+				break;
+		}
+		SuperTypeIds superTypeIds= getSuperTypeIds();
+		superTypeIds.fAll.addTo(all);
+		superTypeIds.fGenericErasures.addTo(genericErasures);
+		superTypeIds.fParameterizedErasures.addTo(parameterizedErasures);
+		superTypeIds.fRawErasures.addTo(rawErasures);
+	}
+
 	private boolean doIsSubType(HierarchyType other) {
 		if (fSuperclass != null && (other.isTypeEquivalentTo(fSuperclass) || fSuperclass.doIsSubType(other)))
 			return true;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,10 +13,6 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.refactoring.typeconstraints.types;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-
 import org.eclipse.core.runtime.Assert;
 
 import org.eclipse.jdt.core.dom.ITypeBinding;
@@ -71,6 +67,10 @@ public abstract class TType {
 	protected static final TType[] EMPTY_TYPE_ARRAY= new TType[0];
 
 	private TypeEnvironment fEnvironment;
+	/**
+	 * The id of this type, or -1 if it has not been assigned yet
+	 */
+	private volatile int fTypeId= -1;
 	private String fBindingKey;
 	private int fModifiers;
 	private int fFlags;
@@ -133,6 +133,27 @@ public abstract class TType {
 		}
 	}
 
+	/**
+	 * Returns the id of this type. Within the type's environment, types have
+	 * the same id if and only if they are equal. The ids of an environment are
+	 * dense, starting at 0.
+	 * <p>
+	 * The id is assigned on first use, since the equality of a type is only
+	 * known after it has been initialized.
+	 * </p>
+	 *
+	 * @return the type id
+	 * @since 1.11
+	 */
+	final int getTypeId() {
+		int id= fTypeId;
+		if (id == -1) {
+			id= fEnvironment.getTypeId(this);
+			fTypeId= id;
+		}
+		return id;
+	}
+
 	/**
 	 * Returns the type's environment
 	 *
@@ -517,16 +538,8 @@ public abstract class TType {
 	 * 		was not created with rememberSubtypes == true
 	 */
 	public TType[] getSubTypes() throws IllegalStateException {
-		Map<TType, ArrayList<TType>> subTypes= fEnvironment.getSubTypes();
-		if (subTypes == null)
-			throw new IllegalStateException("This TypeEnvironment does not remember subtypes"); //$NON-NLS-1$
-		List<TType> subtypes= subTypes.get(this);
-		if (subtypes == null)
-			return EMPTY_TYPE_ARRAY;
-		else
-			return subtypes.toArray(new TType[subtypes.size()]);
+		return fEnvironment.getSubTypes(this);
 	}
-
 	/**
 	 * Answer <code>true</code> if the receiver of this method can be assigned
 	 * to the argument lhs (e.g lhs= this is a valid assignment).
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.refactoring.typeconstraints.types;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * An immutable set of type ids, see {@link TType#getTypeId()}.
+ * <p>
+ * The set is a compressed bit set which only stores the words of the bit set
+ * that are not zero, together with their indices. The super types of a type
+ * have ids that are spread over the whole type environment, so most words of
+ * an uncompressed bit set would be empty.
+ * </p>
+ *
+ * @since 1.11
+ */
+final class TypeIdSet {
+
+	static final TypeIdSet EMPTY= new TypeIdSet(new int[0], new long[0]);
+
+	/**
+	 * The indices of the non-zero words, sorted
+	 */
+	private final int[] fIndices;
+
+	private final long[] fWords;
+
+	private TypeIdSet(int[] indices, long[] words) {
+		fIndices= indices;
+		fWords= words;
+	}
+
+	/**
+	 * Creates a set which contains the bits of the given bit set.
+	 *
+	 * @param bits the type ids
+	 * @return the new set
+	 */
+	static TypeIdSet create(BitSet bits) {
+		if (bits.isEmpty())
+			return EMPTY;
+		long[] words= bits.toLongArray();
+		int count= 0;
+		for (int i= 0; i < words.length; i++) {
+			if (words[i] != 0)
+				count++;
+		}
+		int[] compressedIndices= new int[count];
+		long[] compressedWords= new long[count];
+		int next= 0;
+		for (int i= 0; i < words.length; i++) {
+			if (words[i] != 0) {
+				compressedIndices[next]= i;
+				compressedWords[next]= words[i];
+				next++;
+			}
+		}
+		return new TypeIdSet(compressedIndices, compressedWords);
+	}
+
+	/**
+	 * @param id a type id
+	 * @return <code>true</code> if this set contains the given id
+	 */
+	boolean contains(int id) {
+		int index= Arrays.binarySearch(fIndices, id >>> 6);
+		return index >= 0 && (fWords[index] & (1L << id)) != 0;
+	}
+
+	/**
+	 * Adds all ids of this set to the given bit set.
+	 *
+	 * @param bits the bit set to add to
+	 */
+	void addTo(BitSet bits) {
+		for (int i= 0; i < fIndices.length; i++) {
+			int offset= fIndices[i] << 6;
+			for (long word= fWords[i]; word != 0; word&= word - 1)
+				bits.set(offset + Long.numberOfTrailingZeros(word));
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,9 +13,11 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.util;
 
-import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 
@@ -26,17 +28,32 @@ import org.eclipse.jdt.core.JavaModelException;
 
 /**
  * A thread-safe cache for super type hierarchies.
+ * <p>
+ * Cached hierarchies are indexed by all the types they contain, so lookups are
+ * hash based and do not lock. Adding and evicting hierarchies is synchronized
+ * on a single lock rather than on striped locks: it only happens after a
+ * hierarchy has been built, which takes far longer than the bookkeeping, and
+ * finding the least recently used hierarchy has to see all of them.
+ * The cache is bounded by the number of hierarchies and by the total number of
+ * types in all hierarchies, which can be configured with the system properties
+ * <code>org.eclipse.jdt.ui.superTypeHierarchyCacheSize</code> and
+ * <code>org.eclipse.jdt.ui.superTypeHierarchyCacheTypes</code>. A hierarchy is
+ * removed as soon as it changes.
+ * </p>
  */
 // @see JDTUIHelperClasses
 public class SuperTypeHierarchyCache {
 
 	private static class HierarchyCacheEntry implements ITypeHierarchyChangedListener {
 
-		private ITypeHierarchy fTypeHierarchy;
-		private long fLastAccess;
+		private volatile ITypeHierarchy fTypeHierarchy;
+		private final IType[] fTypes;
+		private volatile long fLastAccess;
+		private final Map<IType, MethodOverrideTester> fMethodOverrideTesters= new ConcurrentHashMap<>();
 
 		public HierarchyCacheEntry(ITypeHierarchy hierarchy) {
 			fTypeHierarchy= hierarchy;
+			fTypes= hierarchy.getAllTypes();
 			fTypeHierarchy.addTypeHierarchyChangedListener(this);
 			markAsAccessed();
 		}
@@ -50,6 +67,22 @@ public class SuperTypeHierarchyCache {
 			return fTypeHierarchy;
 		}
 
+		public IType[] getTypes() {
+			return fTypes;
+		}
+
+		/**
+		 * @return the weight of this entry, i.e. the number of types in the
+		 *         hierarchy
+		 */
+		public int getWeight() {
+			return fTypes.length;
+		}
+
+		public MethodOverrideTester getMethodOverrideTester(IType type, ITypeHierarchy hierarchy) {
+			return fMethodOverrideTesters.computeIfAbsent(type, t -> new MethodOverrideTester(t, hierarchy));
+		}
+
 		public void markAsAccessed() {
 			fLastAccess= System.currentTimeMillis();
 		}
@@ -59,10 +92,12 @@ public class SuperTypeHierarchyCache {
 		}
 
 		public void dispose() {
-			if (fTypeHierarchy != null) {
-				fTypeHierarchy.removeTypeHierarchyChangedListener(this);
+			ITypeHierarchy hierarchy= fTypeHierarchy;
+			if (hierarchy != null) {
+				hierarchy.removeTypeHierarchyChangedListener(this);
 				fTypeHierarchy= null;
 			}
+			fMethodOverrideTesters.clear();
 		}
 
 		@Override
@@ -73,13 +108,34 @@ public class SuperTypeHierarchyCache {
 	}
 
 
-	private static final int CACHE_SIZE= 8;
+	/**
+	 * The maximal number of cached hierarchies
+	 */
+	private static final int CACHE_SIZE= Math.max(1, Integer.getInteger("org.eclipse.jdt.ui.superTypeHierarchyCacheSize", 64).intValue()); //$NON-NLS-1$
+
+	/**
+	 * The maximal total number of types in all cached hierarchies
+	 */
+	private static final int CACHE_WEIGHT= Math.max(1, Integer.getInteger("org.eclipse.jdt.ui.superTypeHierarchyCacheTypes", 10000).intValue()); //$NON-NLS-1$
+
+	/**
+	 * The cached hierarchies, keyed by the types they contain
+	 */
+	private static final Map<IType, HierarchyCacheEntry> fgTypeIndex= new ConcurrentHashMap<>();
+
+	/**
+	 * All cached hierarchies, guarded by itself for modifications
+	 */
+	private static final Set<HierarchyCacheEntry> fgHierarchyCache= ConcurrentHashMap.newKeySet();
 
-	private static ArrayList<HierarchyCacheEntry> fgHierarchyCache= new ArrayList<>(CACHE_SIZE);
-	private static Map<IType, MethodOverrideTester> fgMethodOverrideTesterCache= new LRUMap<>(CACHE_SIZE);
+	/**
+	 * The total weight of all cached hierarchies, guarded by {@link #fgHierarchyCache}
+	 */
+	private static int fgCacheWeight= 0;
 
-	private static int fgCacheHits= 0;
-	private static int fgCacheMisses= 0;
+	private static final AtomicInteger fgCacheHits= new AtomicInteger();
+	private static final AtomicInteger fgCacheMisses= new AtomicInteger();
+	private static final AtomicInteger fgCacheEvictions= new AtomicInteger();
 
 	/**
 	 * Returns a super type hierarchy that contains the given type.
@@ -97,32 +153,13 @@ public class SuperTypeHierarchyCache {
 	}
 
 	public static MethodOverrideTester getMethodOverrideTester(IType type) throws JavaModelException {
-		MethodOverrideTester test= null;
-		synchronized (fgMethodOverrideTesterCache) {
-			test= fgMethodOverrideTesterCache.get(type);
-		}
-		if (test == null) {
-			ITypeHierarchy hierarchy= getTypeHierarchy(type); // don't nest the locks
-			synchronized (fgMethodOverrideTesterCache) {
-				test= fgMethodOverrideTesterCache.get(type); // test again after waiting a long time for 'getTypeHierarchy'
-				if (test == null) {
-					test= new MethodOverrideTester(type, hierarchy);
-					fgMethodOverrideTesterCache.put(type, test);
-				}
-			}
-		}
-		return test;
-	}
-
-	private static void removeMethodOverrideTester(ITypeHierarchy hierarchy) {
-		synchronized (fgMethodOverrideTesterCache) {
-			for (Iterator<MethodOverrideTester> iter= fgMethodOverrideTesterCache.values().iterator(); iter.hasNext();) {
-				MethodOverrideTester curr= iter.next();
-				if (curr.getTypeHierarchy().equals(hierarchy)) {
-					iter.remove();
-				}
-			}
+		ITypeHierarchy hierarchy= getTypeHierarchy(type);
+		HierarchyCacheEntry entry= fgTypeIndex.get(type);
+		if (entry != null && entry.getTypeHierarchy() == hierarchy) {
+			return entry.getMethodOverrideTester(type, hierarchy);
 		}
+		// the hierarchy has been removed from the cache in the meantime
+		return new MethodOverrideTester(type, hierarchy);
 	}
 
 	/**
@@ -140,43 +177,43 @@ public class SuperTypeHierarchyCache {
 	public static ITypeHierarchy getTypeHierarchy(IType type, IProgressMonitor progressMonitor) throws JavaModelException {
 		ITypeHierarchy hierarchy= findTypeHierarchyInCache(type);
 		if (hierarchy == null) {
-			fgCacheMisses++;
+			fgCacheMisses.incrementAndGet();
 			hierarchy= type.newSupertypeHierarchy(progressMonitor);
 			addTypeHierarchyToCache(hierarchy);
 		} else {
-			fgCacheHits++;
+			fgCacheHits.incrementAndGet();
 		}
 		return hierarchy;
 	}
 
 	private static void addTypeHierarchyToCache(ITypeHierarchy hierarchy) {
 		synchronized (fgHierarchyCache) {
-			int nEntries= fgHierarchyCache.size();
-			if (nEntries >= CACHE_SIZE) {
-				// find obsolete entries or remove entry that was least recently accessed
-				HierarchyCacheEntry oldest= null;
-				ArrayList<HierarchyCacheEntry> obsoleteHierarchies= new ArrayList<>(CACHE_SIZE);
-				for (int i= 0; i < nEntries; i++) {
-					HierarchyCacheEntry entry= fgHierarchyCache.get(i);
-					ITypeHierarchy curr= entry.getTypeHierarchy();
-					if (!curr.exists() || hierarchy.contains(curr.getType())) {
-						obsoleteHierarchies.add(entry);
-					} else {
-						if (oldest == null || entry.getLastAccess() < oldest.getLastAccess()) {
-							oldest= entry;
-						}
-					}
+			HierarchyCacheEntry newEntry= new HierarchyCacheEntry(hierarchy);
+			IType[] types= newEntry.getTypes();
+			// remove obsolete entries and entries whose focus type is contained in the new hierarchy
+			for (Iterator<HierarchyCacheEntry> iter= fgHierarchyCache.iterator(); iter.hasNext();) {
+				HierarchyCacheEntry entry= iter.next();
+				ITypeHierarchy curr= entry.getTypeHierarchy();
+				if (curr == null || !curr.exists() || hierarchy.contains(curr.getType())) {
+					removeHierarchyEntryFromCache(entry);
 				}
-				if (!obsoleteHierarchies.isEmpty()) {
-					for (int i= 0; i < obsoleteHierarchies.size(); i++) {
-						removeHierarchyEntryFromCache(obsoleteHierarchies.get(i));
+			}
+			fgHierarchyCache.add(newEntry);
+			fgCacheWeight+= newEntry.getWeight();
+			for (int i= 0; i < types.length; i++) {
+				fgTypeIndex.put(types[i], newEntry);
+			}
+			// remove entries that were least recently accessed
+			while (fgHierarchyCache.size() > 1 && (fgHierarchyCache.size() > CACHE_SIZE || fgCacheWeight > CACHE_WEIGHT)) {
+				HierarchyCacheEntry oldest= null;
+				for (HierarchyCacheEntry entry : fgHierarchyCache) {
+					if (entry != newEntry && (oldest == null || entry.getLastAccess() < oldest.getLastAccess())) {
+						oldest= entry;
 					}
-				} else if (oldest != null) {
-					removeHierarchyEntryFromCache(oldest);
 				}
+				removeHierarchyEntryFromCache(oldest);
+				fgCacheEvictions.incrementAndGet();
 			}
-			HierarchyCacheEntry newEntry= new HierarchyCacheEntry(hierarchy);
-			fgHierarchyCache.add(newEntry);
 		}
 	}
 
@@ -192,28 +229,30 @@ public class SuperTypeHierarchyCache {
 
 
 	private static ITypeHierarchy findTypeHierarchyInCache(IType type) {
-		synchronized (fgHierarchyCache) {
-			for (int i= fgHierarchyCache.size() - 1; i>= 0; i--) {
-				HierarchyCacheEntry curr= fgHierarchyCache.get(i);
-				ITypeHierarchy hierarchy= curr.getTypeHierarchy();
-				if (!hierarchy.exists()) {
-					removeHierarchyEntryFromCache(curr);
-				} else {
-					if (hierarchy.contains(type)) {
-						curr.markAsAccessed();
-						return hierarchy;
-					}
-				}
-			}
+		HierarchyCacheEntry entry= fgTypeIndex.get(type);
+		if (entry == null) {
+			return null;
 		}
-		return null;
+		ITypeHierarchy hierarchy= entry.getTypeHierarchy();
+		if (hierarchy == null || !hierarchy.exists()) {
+			removeHierarchyEntryFromCache(entry);
+			return null;
+		}
+		entry.markAsAccessed();
+		return hierarchy;
 	}
 
 	private static void removeHierarchyEntryFromCache(HierarchyCacheEntry entry) {
 		synchronized (fgHierarchyCache) {
-			removeMethodOverrideTester(entry.getTypeHierarchy());
+			if (!fgHierarchyCache.remove(entry)) {
+				return;
+			}
+			fgCacheWeight-= entry.getWeight();
+			IType[] types= entry.getTypes();
+			for (int i= 0; i < types.length; i++) {
+				fgTypeIndex.remove(types[i], entry);
+			}
 			entry.dispose();
-			fgHierarchyCache.remove(entry);
 		}
 	}
 
@@ -223,7 +262,7 @@ public class SuperTypeHierarchyCache {
 	 * @return Returns a int
 	 */
 	public static int getCacheHits() {
-		return fgCacheHits;
+		return fgCacheHits.get();
 	}
 
 	/**
@@ -231,6 +270,15 @@ public class SuperTypeHierarchyCache {
 	 * @return Returns a int
 	 */
 	public static int getCacheMisses() {
-		return fgCacheMisses;
+		return fgCacheMisses.get();
+	}
+
+	/**
+	 * Gets the number of times a hierarchy was removed from the cache to make room for another
+	 * one. Used for testing.
+	 * @return Returns a int
+	 */
+	public static int getCacheEvictions() {
+		return fgCacheEvictions.get();
 	}
 }
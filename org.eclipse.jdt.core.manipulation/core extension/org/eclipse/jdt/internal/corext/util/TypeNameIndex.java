@@ -0,0 +1,490 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.TypeNameMatch;
+import org.eclipse.jdt.core.search.TypeNameMatchRequestor;
+
+import org.eclipse.jdt.internal.core.manipulation.JavaManipulationPlugin;
+import org.eclipse.jdt.internal.corext.CorextMessages;
+
+/**
+ * An in-memory index of the names of all types in the workspace, so that
+ * looking up types by the prefix of their simple name does not have to query
+ * the search engine.
+ * <p>
+ * The index is filled by a background job with one search for all type names.
+ * It is kept up to date with the Java element deltas: the types of changed
+ * compilation units are read again, the types of a package fragment root whose
+ * packages or archive have changed are searched again, and the whole index is
+ * rebuilt when a classpath changes. While the index is not ready, clients have
+ * to fall back to the search engine.
+ * </p>
+ * <p>
+ * The types of each package fragment root are kept in an immutable array which
+ * is sorted by the simple names ignoring case, so that all types with a name
+ * prefix are found by binary search. Updates replace the array of a root, so
+ * lookups do not lock.
+ * </p>
+ * <p>
+ * The accessibility of the types is the one reported by the search in the
+ * workspace scope, it is not computed again for the scope of a lookup.
+ * </p>
+ * <p>
+ * Keeping the index costs a search of the whole workspace and a listener for
+ * all Java element deltas, so it is only created by the user interface, see
+ * {@link #getDefault()}, and removed again by {@link #shutdown()}. Headless
+ * clients use {@link #getExisting()} and the search engine if there is no
+ * index.
+ * </p>
+ *
+ * @since 1.11
+ */
+public class TypeNameIndex implements IElementChangedListener {
+
+	/**
+	 * Flags of a project or package fragment root delta which require the
+	 * whole index to be rebuilt
+	 */
+	private static final int REBUILD_FLAGS= IJavaElementDelta.F_OPENED
+			| IJavaElementDelta.F_CLOSED
+			| IJavaElementDelta.F_CLASSPATH_CHANGED
+			| IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED
+			| IJavaElementDelta.F_ADDED_TO_CLASSPATH
+			| IJavaElementDelta.F_REMOVED_FROM_CLASSPATH;
+
+	/**
+	 * Flags of a compilation unit or type delta which may change the types of
+	 * the compilation unit
+	 */
+	private static final int TYPE_FLAGS= IJavaElementDelta.F_MODIFIERS
+			| IJavaElementDelta.F_MOVED_FROM
+			| IJavaElementDelta.F_MOVED_TO
+			| IJavaElementDelta.F_PRIMARY_WORKING_COPY;
+
+	private static final Comparator<TypeNameMatch> NAME_COMPARATOR= (m1, m2) -> String.CASE_INSENSITIVE_ORDER.compare(m1.getSimpleTypeName(), m2.getSimpleTypeName());
+
+	private static TypeNameIndex fgInstance;
+
+	/**
+	 * The types of one package fragment root, sorted by their simple names,
+	 * ignoring case.
+	 */
+	private static final class RootEntry {
+
+		static final RootEntry EMPTY= new RootEntry(new TypeNameMatch[0]);
+
+		final TypeNameMatch[] fMatches;
+
+		RootEntry(TypeNameMatch[] matches) {
+			Arrays.sort(matches, NAME_COMPARATOR);
+			fMatches= matches;
+		}
+
+		/**
+		 * @param name a name or name prefix
+		 * @return the index of the first type whose simple name is not less
+		 *         than the given name, ignoring case
+		 */
+		int indexOf(String name) {
+			int low= 0;
+			int high= fMatches.length;
+			while (low < high) {
+				int middle= (low + high) >>> 1;
+				if (String.CASE_INSENSITIVE_ORDER.compare(fMatches[middle].getSimpleTypeName(), name) < 0)
+					low= middle + 1;
+				else
+					high= middle;
+			}
+			return low;
+		}
+
+		/**
+		 * Returns a copy of this entry in which the types of the given
+		 * compilation unit have been replaced.
+		 *
+		 * @param unit the primary compilation unit
+		 * @param types the new types of the compilation unit
+		 * @return the new entry
+		 */
+		RootEntry replace(ICompilationUnit unit, List<TypeNameMatch> types) {
+			List<TypeNameMatch> matches= new ArrayList<>(fMatches.length + types.size());
+			for (int i= 0; i < fMatches.length; i++) {
+				if (!unit.equals(fMatches[i].getType().getCompilationUnit()))
+					matches.add(fMatches[i]);
+			}
+			matches.addAll(types);
+			return new RootEntry(matches.toArray(new TypeNameMatch[matches.size()]));
+		}
+	}
+
+	private class UpdateJob extends Job {
+
+		UpdateJob() {
+			super(CorextMessages.TypeNameIndex_update_job);
+			setSystem(true);
+			setPriority(Job.DECORATE);
+		}
+
+		@Override
+		public boolean belongsTo(Object family) {
+			return family == TypeNameIndex.this;
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			try {
+				update(monitor);
+			} catch (OperationCanceledException e) {
+				return Status.CANCEL_STATUS;
+			} catch (JavaModelException e) {
+				JavaManipulationPlugin.log(e);
+			}
+			return Status.OK_STATUS;
+		}
+	}
+
+	private final UpdateJob fUpdateJob= new UpdateJob();
+
+	/**
+	 * The indexed package fragment roots by their path, or <code>null</code>
+	 * if the index has not been built yet
+	 */
+	private volatile Map<IPath, RootEntry> fRoots;
+
+	private boolean fRebuild;
+
+	/**
+	 * Package fragment roots to be searched again, by their path
+	 */
+	private final Map<IPath, IPackageFragmentRoot> fPendingRoots= new LinkedHashMap<>();
+
+	/**
+	 * Compilation units whose types are to be read again. The keys are the
+	 * primary compilation units, the values the compilation units or working
+	 * copies to read.
+	 */
+	private final Map<ICompilationUnit, ICompilationUnit> fPendingUnits= new LinkedHashMap<>();
+
+	/**
+	 * Incremented whenever a rebuild or the search of a root is requested, so
+	 * that an update does not mark the index as ready while there are requests
+	 * it has not seen
+	 */
+	private int fGeneration;
+
+	private TypeNameIndex() {
+		JavaCore.addElementChangedListener(this);
+	}
+
+	/**
+	 * Returns the shared index and creates it if necessary. The index is built
+	 * in the background when it is created. This method is only to be called
+	 * by the user interface; headless clients use {@link #getExisting()}.
+	 *
+	 * @return the shared index
+	 */
+	public static synchronized TypeNameIndex getDefault() {
+		if (fgInstance == null) {
+			fgInstance= new TypeNameIndex();
+			fgInstance.rebuild();
+		}
+		return fgInstance;
+	}
+
+	/**
+	 * Returns the shared index if it has been created.
+	 *
+	 * @return the shared index, or <code>null</code> if no index has been
+	 *         created
+	 */
+	public static synchronized TypeNameIndex getExisting() {
+		return fgInstance;
+	}
+
+	/**
+	 * Removes the shared index, if any, so that it does not listen to Java
+	 * element deltas anymore.
+	 */
+	public static synchronized void shutdown() {
+		if (fgInstance != null) {
+			JavaCore.removeElementChangedListener(fgInstance);
+			fgInstance.fUpdateJob.cancel();
+			fgInstance= null;
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the index contains the types of all package
+	 *         fragment roots and no root is waiting to be searched again
+	 */
+	public synchronized boolean isReady() {
+		return fRoots != null && !fRebuild && fPendingRoots.isEmpty();
+	}
+
+	/**
+	 * Reports all types in the given scope whose simple name starts with the
+	 * given prefix, ignoring case. The types are not reported in any
+	 * particular order.
+	 *
+	 * @param prefix the prefix of the simple names, may be empty
+	 * @param scope the scope of the types
+	 * @param requestor receives the matching types
+	 * @param monitor the progress monitor, or <code>null</code>
+	 * @return <code>false</code> if the index is not ready and nothing has
+	 *         been reported, so that the search engine must be used instead
+	 * @throws OperationCanceledException if the monitor has been canceled
+	 */
+	public boolean findTypes(String prefix, IJavaSearchScope scope, Consumer<TypeNameMatch> requestor, IProgressMonitor monitor) {
+		if (!isReady())
+			return false;
+		boolean isWorkspaceScope= scope.equals(SearchEngine.createWorkspaceScope());
+		for (RootEntry entry : fRoots.values()) {
+			if (monitor != null && monitor.isCanceled())
+				throw new OperationCanceledException();
+			TypeNameMatch[] matches= entry.fMatches;
+			for (int i= entry.indexOf(prefix); i < matches.length && matches[i].getSimpleTypeName().regionMatches(true, 0, prefix, 0, prefix.length()); i++) {
+				if (isWorkspaceScope || scope.encloses(matches[i].getType()))
+					requestor.accept(matches[i]);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reports all types in the given scope with one of the given simple names.
+	 *
+	 * @param simpleNames the simple names of the types
+	 * @param scope the scope of the types
+	 * @param requestor receives the matching types
+	 * @param monitor the progress monitor, or <code>null</code>
+	 * @return <code>false</code> if the index is not ready and nothing has
+	 *         been reported, so that the search engine must be used instead
+	 * @throws OperationCanceledException if the monitor has been canceled
+	 */
+	public boolean findTypes(Collection<String> simpleNames, IJavaSearchScope scope, Consumer<TypeNameMatch> requestor, IProgressMonitor monitor) {
+		if (!isReady())
+			return false;
+		for (String simpleName : simpleNames) {
+			for (RootEntry entry : fRoots.values()) {
+				if (monitor != null && monitor.isCanceled())
+					throw new OperationCanceledException();
+				TypeNameMatch[] matches= entry.fMatches;
+				for (int i= entry.indexOf(simpleName); i < matches.length && matches[i].getSimpleTypeName().equalsIgnoreCase(simpleName); i++) {
+					if (simpleName.equals(matches[i].getSimpleTypeName()) && scope.encloses(matches[i].getType()))
+						requestor.accept(matches[i]);
+				}
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void elementChanged(ElementChangedEvent event) {
+		synchronized (this) {
+			processDelta(event.getDelta());
+			if (!fRebuild && fPendingRoots.isEmpty() && fPendingUnits.isEmpty())
+				return;
+		}
+		fUpdateJob.schedule();
+	}
+
+	private void rebuild() {
+		synchronized (this) {
+			fRebuild= true;
+			fGeneration++;
+		}
+		fUpdateJob.schedule();
+	}
+
+	private void processDelta(IJavaElementDelta delta) {
+		IJavaElement element= delta.getElement();
+		switch (element.getElementType()) {
+			case IJavaElement.JAVA_MODEL:
+				break;
+			case IJavaElement.JAVA_PROJECT:
+			case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+				if (delta.getKind() != IJavaElementDelta.CHANGED || (delta.getFlags() & REBUILD_FLAGS) != 0) {
+					fRebuild= true;
+					fGeneration++;
+					return;
+				}
+				if ((delta.getFlags() & IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED) != 0) {
+					addPendingRoot((IPackageFragmentRoot) element);
+					return;
+				}
+				break;
+			case IJavaElement.PACKAGE_FRAGMENT:
+				if (delta.getKind() != IJavaElementDelta.CHANGED) {
+					addPendingRoot((IPackageFragmentRoot) element.getParent());
+					return;
+				}
+				break;
+			case IJavaElement.COMPILATION_UNIT:
+				ICompilationUnit unit= (ICompilationUnit) element;
+				if (unit.getOwner() == null && affectsTypes(delta))
+					fPendingUnits.put(unit.getPrimary(), unit);
+				return;
+			case IJavaElement.CLASS_FILE:
+				addPendingRoot((IPackageFragmentRoot) element.getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT));
+				return;
+			default:
+				return;
+		}
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++)
+			processDelta(children[i]);
+	}
+
+	private void addPendingRoot(IPackageFragmentRoot root) {
+		fPendingRoots.put(root.getPath(), root);
+		fGeneration++;
+	}
+
+	private static boolean affectsTypes(IJavaElementDelta delta) {
+		int kind= delta.getKind();
+		int flags= delta.getFlags();
+		if (kind != IJavaElementDelta.CHANGED || (flags & TYPE_FLAGS) != 0)
+			return true;
+		if (delta.getElement().getElementType() == IJavaElement.COMPILATION_UNIT
+				&& (flags & IJavaElementDelta.F_CONTENT) != 0 && (flags & IJavaElementDelta.F_FINE_GRAINED) == 0)
+			return true;
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++) {
+			int type= children[i].getElement().getElementType();
+			if ((type == IJavaElement.TYPE || type == IJavaElement.COMPILATION_UNIT) && affectsTypes(children[i]))
+				return true;
+		}
+		return false;
+	}
+
+	private void update(IProgressMonitor monitor) throws JavaModelException {
+		boolean rebuild;
+		List<IPackageFragmentRoot> roots;
+		Map<ICompilationUnit, ICompilationUnit> units;
+		int generation;
+		synchronized (this) {
+			rebuild= fRebuild;
+			roots= new ArrayList<>(fPendingRoots.values());
+			units= new LinkedHashMap<>(fPendingUnits);
+			fPendingUnits.clear();
+			generation= fGeneration;
+		}
+
+		Map<IPath, RootEntry> newRoots;
+		if (rebuild) {
+			newRoots= search(SearchEngine.createWorkspaceScope(), monitor);
+		} else {
+			newRoots= new HashMap<>(fRoots);
+			for (IPackageFragmentRoot root : roots) {
+				newRoots.remove(root.getPath());
+				if (root.exists())
+					newRoots.putAll(search(SearchEngine.createJavaSearchScope(new IJavaElement[] { root }), monitor));
+			}
+		}
+		for (Iterator<Map.Entry<ICompilationUnit, ICompilationUnit>> iter= units.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry<ICompilationUnit, ICompilationUnit> entry= iter.next();
+			ICompilationUnit primary= entry.getKey();
+			IPath rootPath= primary.getParent().getParent().getPath();
+			RootEntry rootEntry= newRoots.get(rootPath);
+			newRoots.put(rootPath, (rootEntry != null ? rootEntry : RootEntry.EMPTY).replace(primary, getTypes(primary, entry.getValue())));
+		}
+
+		synchronized (this) {
+			fRoots= newRoots;
+			if (generation == fGeneration) {
+				fRebuild= false;
+				fPendingRoots.clear();
+			}
+		}
+	}
+
+	private static Map<IPath, RootEntry> search(IJavaSearchScope scope, IProgressMonitor monitor) throws JavaModelException {
+		final Map<IPath, List<TypeNameMatch>> matches= new HashMap<>();
+		TypeNameMatchRequestor requestor= new TypeNameMatchRequestor() {
+			@Override
+			public void acceptTypeNameMatch(TypeNameMatch match) {
+				IPath path= match.getPackageFragmentRoot().getPath();
+				List<TypeNameMatch> list= matches.get(path);
+				if (list == null) {
+					list= new ArrayList<>();
+					matches.put(path, list);
+				}
+				list.add(match);
+			}
+		};
+		new SearchEngine().searchAllTypeNames(null, 0, null, 0, IJavaSearchConstants.TYPE, scope, requestor, IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, monitor);
+
+		Map<IPath, RootEntry> roots= new HashMap<>(matches.size() * 2);
+		for (Map.Entry<IPath, List<TypeNameMatch>> entry : matches.entrySet()) {
+			List<TypeNameMatch> list= entry.getValue();
+			roots.put(entry.getKey(), new RootEntry(list.toArray(new TypeNameMatch[list.size()])));
+		}
+		return roots;
+	}
+
+	/**
+	 * Reads the types of a compilation unit.
+	 *
+	 * @param primary the primary compilation unit
+	 * @param unit the compilation unit or working copy to read
+	 * @return the types, or an empty list if the compilation unit does not
+	 *         exist anymore
+	 * @throws JavaModelException if the compilation unit cannot be read
+	 */
+	private static List<TypeNameMatch> getTypes(ICompilationUnit primary, ICompilationUnit unit) throws JavaModelException {
+		if (!unit.isWorkingCopy())
+			unit= primary;
+		List<TypeNameMatch> types= new ArrayList<>();
+		if (unit.exists()) {
+			IType[] allTypes= unit.getAllTypes();
+			for (int i= 0; i < allTypes.length; i++) {
+				IType type= allTypes[i];
+				if (!type.isAnonymous() && !type.isLocal())
+					types.add(SearchEngine.createTypeNameMatch((IType) type.getPrimaryElement(), type.getFlags()));
+			}
+		}
+		return types;
+	}
+}
@@ -69,6 +69,12 @@ public class JUnitLaunchConfigurationConstants {
 
 	public static final String ATTR_FAILURES_NAMES= JUnitCorePlugin.PLUGIN_ID+".FAILURENAMES"; //$NON-NLS-1$
 
+	/**
+	 * Boolean attribute, <code>true</code> to run fast and recently failed tests first, based on
+	 * the {@link org.eclipse.jdt.internal.junit.model.TestRunHistory}.
+	 */
+	public static final String ATTR_PRIORITIZE_BY_HISTORY= JUnitCorePlugin.PLUGIN_ID + ".PRIORITIZE_BY_HISTORY"; //$NON-NLS-1$
+
 	public static final String ATTR_TEST_RUNNER_KIND= JUnitCorePlugin.PLUGIN_ID+".TEST_KIND"; //$NON-NLS-1$
 
 	public static final String ATTR_TEST_HAS_INCLUDE_TAGS= JUnitCorePlugin.PLUGIN_ID + ".HAS_INCLUDE_TAGS"; //$NON-NLS-1$
@@ -84,6 +90,18 @@ public class JUnitLaunchConfigurationConstants {
 	 */
 	public static final String ATTR_TEST_UNIQUE_ID= JUnitCorePlugin.PLUGIN_ID + ".TEST_UNIQUE_ID"; //$NON-NLS-1$
 
+	/**
+	 * The number of VMs the test classes of a JUnit 5 launch are distributed to, or 1 to run all
+	 * tests in a single VM.
+	 */
+	public static final String ATTR_SHARD_COUNT= JUnitCorePlugin.PLUGIN_ID + ".SHARD_COUNT"; //$NON-NLS-1$
+
+	/**
+	 * Comma-separated list of the ports of all VMs of a sharded test run. Set on the launch in
+	 * addition to {@link #ATTR_PORT}, which is the port of the first VM.
+	 */
+	public static final String ATTR_SHARD_PORTS= JUnitCorePlugin.PLUGIN_ID + ".SHARD_PORTS"; //$NON-NLS-1$
+
 	public static ITestKind getTestRunnerKind(ILaunchConfiguration launchConfiguration) {
 		try {
 			String loaderId = launchConfiguration.getAttribute(JUnitLaunchConfigurationConstants.ATTR_TEST_RUNNER_KIND, (String) null);
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.launcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.core.IType;
+
+import org.eclipse.jdt.internal.junit.JUnitCorePlugin;
+
+/**
+ * Splits the test classes of a launch into shards that are run in separate
+ * VMs. The shards are balanced by the durations of the test classes in the
+ * test run history.
+ */
+public class TestShards {
+
+	/**
+	 * Duration assumed for a test class if no previous duration is known
+	 */
+	private static final double DEFAULT_DURATION= 1.0d;
+
+	private TestShards() {
+	}
+
+	/**
+	 * Splits the given test types into at most <code>shardCount</code>
+	 * non-empty shards with similar total durations. Types are assigned
+	 * longest first to the shard with the smallest total duration.
+	 *
+	 * @param types the test types
+	 * @param shardCount the requested number of shards
+	 * @param durations the known durations in seconds, keyed by fully
+	 *            qualified type name
+	 * @return the shards
+	 */
+	public static IType[][] split(IType[] types, int shardCount, Map<String, Double> durations) {
+		int count= Math.min(shardCount, types.length);
+		double defaultDuration= DEFAULT_DURATION;
+		if (!durations.isEmpty()) {
+			double total= 0;
+			for (Double duration : durations.values())
+				total+= duration.doubleValue();
+			defaultDuration= Math.max(total / durations.size(), Double.MIN_VALUE);
+		}
+
+		IType[] sorted= types.clone();
+		Map<IType, Double> typeDurations= new HashMap<>();
+		for (int i= 0; i < sorted.length; i++) {
+			Double duration= durations.get(sorted[i].getFullyQualifiedName('.'));
+			typeDurations.put(sorted[i], duration != null ? duration : Double.valueOf(defaultDuration));
+		}
+		Arrays.sort(sorted, (t1, t2) -> typeDurations.get(t2).compareTo(typeDurations.get(t1)));
+
+		List<List<IType>> shards= new ArrayList<>(count);
+		double[] totals= new double[count];
+		for (int i= 0; i < count; i++)
+			shards.add(new ArrayList<>());
+		for (int i= 0; i < sorted.length; i++) {
+			int lightest= 0;
+			for (int j= 1; j < count; j++) {
+				if (totals[j] < totals[lightest])
+					lightest= j;
+			}
+			shards.get(lightest).add(sorted[i]);
+			totals[lightest]+= typeDurations.get(sorted[i]).doubleValue();
+		}
+
+		IType[][] result= new IType[count][];
+		for (int i= 0; i < count; i++)
+			result[i]= shards.get(i).toArray(new IType[shards.get(i).size()]);
+		return result;
+	}
+
+	/**
+	 * Returns the durations of the test classes in the test run history. The
+	 * durations are read from the history rather than from the test run
+	 * sessions, so that sessions which have been swapped to disk are not loaded
+	 * again.
+	 *
+	 * @return the durations in seconds, keyed by fully qualified class name
+	 */
+	public static Map<String, Double> getPreviousDurations() {
+		return JUnitCorePlugin.getModel().getTestRunHistory().getClassDurations();
+	}
+}
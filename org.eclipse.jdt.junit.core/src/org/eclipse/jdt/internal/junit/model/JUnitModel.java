@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -125,16 +125,25 @@ public final class JUnitModel {
 			if (portStr == null)
 				return;
 			try {
-				final int port= Integer.parseInt(portStr);
+				int[] ports;
+				String shardPortsStr= launch.getAttribute(JUnitLaunchConfigurationConstants.ATTR_SHARD_PORTS);
+				if (shardPortsStr != null) {
+					String[] shardPorts= shardPortsStr.split(","); //$NON-NLS-1$
+					ports= new int[shardPorts.length];
+					for (int i= 0; i < shardPorts.length; i++)
+						ports[i]= Integer.parseInt(shardPorts[i]);
+				} else {
+					ports= new int[] { Integer.parseInt(portStr) };
+				}
 				fTrackedLaunches.remove(launch);
-				connectTestRunner(launch, javaProject, port);
+				connectTestRunner(launch, javaProject, ports);
 			} catch (NumberFormatException e) {
 				return;
 			}
 		}
 
-		private void connectTestRunner(ILaunch launch, IJavaProject javaProject, int port) {
-			TestRunSession testRunSession= new TestRunSession(launch, javaProject, port);
+		private void connectTestRunner(ILaunch launch, IJavaProject javaProject, int[] ports) {
+			TestRunSession testRunSession= new TestRunSession(launch, javaProject, ports);
 			addTestRunSession(testRunSession);
 			
 			for (TestRunListener listener : JUnitCorePlugin.getDefault().getNewTestRunListeners()) {
@@ -255,6 +264,7 @@ public final class JUnitModel {
 	 */
 	private final LinkedList<TestRunSession> fTestRunSessions= new LinkedList<>();
 	private final ILaunchListener fLaunchListener= new JUnitLaunchListener();
+	private TestRunHistory fTestRunHistory;
 
 	/**
 	 * Starts the model (called by the {@link JUnitCorePlugin} on startup).
@@ -301,6 +311,11 @@ public final class JUnitModel {
 		ILaunchManager launchManager= DebugPlugin.getDefault().getLaunchManager();
 		launchManager.removeLaunchListener(fLaunchListener);
 
+		synchronized (this) {
+			if (fTestRunHistory != null)
+				fTestRunHistory.save();
+		}
+
 		File historyDirectory= JUnitCorePlugin.getHistoryDirectory();
 		File[] swapFiles= historyDirectory.listFiles();
 		if (swapFiles != null) {
@@ -341,6 +356,16 @@ public final class JUnitModel {
 		return new ArrayList<>(fTestRunSessions);
 	}
 
+	/**
+	 * @return the durations and failure rates of the test cases of past test
+	 *         runs
+	 */
+	public synchronized TestRunHistory getTestRunHistory() {
+		if (fTestRunHistory == null)
+			fTestRunHistory= new TestRunHistory();
+		return fTestRunHistory;
+	}
+
 	/**
 	 * Adds the given {@link TestRunSession} and notifies all registered
 	 * {@link ITestRunSessionListener}s.
@@ -15,16 +15,25 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.junit.model;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.PushbackReader;
+import java.net.ProtocolException;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.eclipse.core.runtime.ISafeRunnable;
 import org.eclipse.core.runtime.SafeRunner;
@@ -45,6 +54,14 @@ public class RemoteTestRunnerClient {
 			JUnitCorePlugin.log(exception);
 		}
 	}
+
+	/**
+	 * A notification of a test run listener about a single event.
+	 */
+	private interface ListenerNotification {
+		void sendTo(ITestRunListener2 listener);
+	}
+
 	/**
 	 * A simple state machine to process requests from the RemoteTestRunner
 	 */
@@ -228,6 +245,16 @@ public class RemoteTestRunnerClient {
 	private int fPort= -1;
 	private PrintWriter fWriter;
 	private PushbackReader fPushbackReader;
+	/**
+	 * The input stream if the RemoteTestRunner uses the binary protocol
+	 */
+	private DataInputStream fBinaryInput;
+	/**
+	 * Notifications collected while processing a frame of the binary protocol,
+	 * or <code>null</code> if listeners are notified immediately. Only accessed
+	 * by the {@link ServerConnection} thread, which processes all messages.
+	 */
+	private List<ListenerNotification> fPendingNotifications;
 	private String fLastLineDelimiter;
 	/**
 	 * The protocol version
@@ -248,6 +275,11 @@ public class RemoteTestRunnerClient {
 
 	private boolean fDebug= false;
 
+	/**
+	 * The size of the buffer of the socket input stream
+	 */
+	private static final int INPUT_BUFFER_SIZE= 64 * 1024;
+
 	/**
 	 * Reads the message stream from the RemoteTestRunner
 	 */
@@ -266,17 +298,29 @@ public class RemoteTestRunnerClient {
 					System.out.println("Creating server socket "+fServerPort); //$NON-NLS-1$
 				fServerSocket= new ServerSocket(fServerPort);
 				fSocket= fServerSocket.accept();
-				fPushbackReader= new PushbackReader(new BufferedReader(new InputStreamReader(fSocket.getInputStream(), StandardCharsets.UTF_8)));
+				InputStream input= new BufferedInputStream(fSocket.getInputStream(), INPUT_BUFFER_SIZE);
 				fWriter= new PrintWriter(new OutputStreamWriter(fSocket.getOutputStream(), StandardCharsets.UTF_8), true);
-				String message;
-				while(fPushbackReader != null && (message= readMessage(fPushbackReader)) != null)
-					receiveMessage(message);
+				if (isBinaryProtocol(input)) {
+					fBinaryInput= new DataInputStream(input);
+					fPendingNotifications= new ArrayList<>();
+					while (fBinaryInput != null && readFrame(fBinaryInput))
+						flushNotifications();
+				} else {
+					fPushbackReader= new PushbackReader(new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)));
+					String message;
+					while(fPushbackReader != null && (message= readMessage(fPushbackReader)) != null)
+						receiveMessage(message);
+				}
 			} catch (SocketException e) {
 				notifyTestRunTerminated();
+			} catch (ProtocolException e) {
+				JUnitCorePlugin.log(e);
+				notifyTestRunTerminated();
 			} catch (IOException e) {
 				JUnitCorePlugin.log(e);
 				// fall through
 			}
+			flushNotifications();
 			shutDown();
 		}
 	}
@@ -326,6 +370,13 @@ public class RemoteTestRunnerClient {
 			}
 		} catch(IOException e) {
 		}
+		try {
+			if (fBinaryInput != null) {
+				fBinaryInput.close();
+				fBinaryInput= null;
+			}
+		} catch(IOException e) {
+		}
 		try {
 			if (fSocket != null) {
 				fSocket.close();
@@ -376,6 +427,121 @@ public class RemoteTestRunnerClient {
 	    fCurrentState= fCurrentState.readMessage(message);
 	}
 
+	/**
+	 * Checks whether the stream starts with the header of the binary protocol
+	 * with a supported version. If not, the stream is reset to its start.
+	 *
+	 * @param input the input stream, must support mark and reset
+	 * @return <code>true</code> if the binary protocol is used
+	 * @throws IOException if reading from the stream fails
+	 */
+	private boolean isBinaryProtocol(InputStream input) throws IOException {
+		input.mark(8);
+		byte[] header= new byte[8];
+		int length= 0;
+		int read;
+		while (length < header.length && (read= input.read(header, length, header.length - length)) != -1)
+			length+= read;
+		if (length == header.length) {
+			ByteBuffer buffer= ByteBuffer.wrap(header);
+			if (buffer.getInt() == MessageIds.BINARY_PROTOCOL_MAGIC) {
+				int version= buffer.getInt();
+				if (version >= 1 && version <= MessageIds.BINARY_PROTOCOL_VERSION) {
+					fVersion= "v2"; //$NON-NLS-1$
+					return true;
+				}
+			}
+		}
+		input.reset();
+		return false;
+	}
+
+	/**
+	 * Reads a frame of the binary protocol and processes its messages.
+	 *
+	 * @param input the input stream
+	 * @return <code>false</code> if the end of the stream has been reached
+	 * @throws ProtocolException if the frame is malformed
+	 * @throws IOException if reading from the stream fails
+	 */
+	private boolean readFrame(DataInputStream input) throws IOException {
+		int length;
+		try {
+			length= input.readInt();
+		} catch (EOFException e) {
+			return false;
+		}
+		if (length < 4 || length > MessageIds.BINARY_PROTOCOL_MAX_FRAME_LENGTH)
+			throw new ProtocolException("Invalid frame length " + length); //$NON-NLS-1$
+		byte[] frame= new byte[length];
+		input.readFully(frame);
+		ByteBuffer buffer= ByteBuffer.wrap(frame);
+		int count= buffer.getInt();
+		fLastLineDelimiter= "\n"; //$NON-NLS-1$
+		try {
+			for (int i= 0; i < count; i++) {
+				int id= buffer.get() & 0xFF;
+				if (id >= MessageIds.BINARY_MESSAGE_HEADERS.length)
+					throw new ProtocolException("Unknown message id " + id); //$NON-NLS-1$
+				int size= buffer.getInt();
+				String payload= new String(frame, buffer.position(), size, StandardCharsets.UTF_8);
+				buffer.position(buffer.position() + size);
+				receiveMessage(id == 0 ? payload : MessageIds.BINARY_MESSAGE_HEADERS[id] + payload);
+			}
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+			throw new ProtocolException("Truncated frame of length " + length); //$NON-NLS-1$
+		}
+		return true;
+	}
+
+	/**
+	 * Sends the notification to the listeners, or collects it if the listeners
+	 * are notified once per frame.
+	 *
+	 * @param notification the notification
+	 */
+	private void notifyListeners(final ListenerNotification notification) {
+		if (fPendingNotifications != null) {
+			fPendingNotifications.add(notification);
+			return;
+		}
+		for (int i= 0; i < fListeners.length; i++) {
+			final ITestRunListener2 listener= fListeners[i];
+			SafeRunner.run(new ListenerSafeRunnable() {
+				@Override
+				public void run() {
+					notification.sendTo(listener);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Sends the collected notifications to the listeners, running a single
+	 * safe runnable per listener.
+	 */
+	private void flushNotifications() {
+		if (fPendingNotifications == null || fPendingNotifications.isEmpty())
+			return;
+		final ListenerNotification[] notifications= fPendingNotifications.toArray(new ListenerNotification[fPendingNotifications.size()]);
+		fPendingNotifications.clear();
+		for (int i= 0; i < fListeners.length; i++) {
+			final ITestRunListener2 listener= fListeners[i];
+			SafeRunner.run(new ListenerSafeRunnable() {
+				@Override
+				public void run() {
+					for (int j= 0; j < notifications.length; j++) {
+						try {
+							notifications[j].sendTo(listener);
+						} catch (RuntimeException e) {
+							handleException(e);
+						}
+					}
+				}
+			});
+		}
+	}
+
 	private void scanOldReranMessage(String arg) {
 		// OLD V1 format
 		// format: className" "testName" "status
@@ -456,27 +622,31 @@ public class RemoteTestRunnerClient {
 	}
 
 	private void notifyTestReran(final String testId, final String className, final String testName, final int statusCode, final String trace) {
-		for (int i= 0; i < fListeners.length; i++) {
-			final ITestRunListener2 listener= fListeners[i];
-			SafeRunner.run(new ListenerSafeRunnable() {
-				@Override
-				public void run() {
-					listener.testReran(testId,
-								className, testName, statusCode, trace,
-								nullifyEmpty(fExpectedResult), nullifyEmpty(fActualResult));
-				}
-			});
-		}
+		final String expected= nullifyEmpty(fExpectedResult);
+		final String actual= nullifyEmpty(fActualResult);
+		notifyListeners(new ListenerNotification() {
+			@Override
+			public void sendTo(ITestRunListener2 listener) {
+				listener.testReran(testId,
+							className, testName, statusCode, trace,
+							expected, actual);
+			}
+		});
 	}
 
-	private void notifyTestTreeEntry(final String treeEntry) {
-		for (int i= 0; i < fListeners.length; i++) {
-			ITestRunListener2 listener= fListeners[i];
-			if (!hasTestId())
-				listener.testTreeEntry(fakeTestId(treeEntry));
-			else
-				listener.testTreeEntry(treeEntry);
+	private void notifyTestTreeEntry(String treeEntry) {
+		final String entry= hasTestId() ? treeEntry : fakeTestId(treeEntry);
+		if (fPendingNotifications == null) {
+			for (int i= 0; i < fListeners.length; i++)
+				fListeners[i].testTreeEntry(entry);
+			return;
 		}
+		notifyListeners(new ListenerNotification() {
+			@Override
+			public void sendTo(ITestRunListener2 listener) {
+				listener.testTreeEntry(entry);
+			}
+		});
 	}
 
 	private String fakeTestId(String treeEntry) {
@@ -489,88 +659,75 @@ public class RemoteTestRunnerClient {
 	private void notifyTestRunStopped(final long elapsedTime) {
 		if (JUnitCorePlugin.isStopped())
 			return;
-		for (int i= 0; i < fListeners.length; i++) {
-			final ITestRunListener2 listener= fListeners[i];
-			SafeRunner.run(new ListenerSafeRunnable() {
-				@Override
-				public void run() {
-					listener.testRunStopped(elapsedTime);
-				}
-			});
-		}
+		notifyListeners(new ListenerNotification() {
+			@Override
+			public void sendTo(ITestRunListener2 listener) {
+				listener.testRunStopped(elapsedTime);
+			}
+		});
 	}
 
 	private void testRunEnded(final long elapsedTime) {
 		if (JUnitCorePlugin.isStopped())
 			return;
-		for (int i= 0; i < fListeners.length; i++) {
-			final ITestRunListener2 listener= fListeners[i];
-			SafeRunner.run(new ListenerSafeRunnable() {
-				@Override
-				public void run() {
-					listener.testRunEnded(elapsedTime);
-				}
-			});
-		}
+		notifyListeners(new ListenerNotification() {
+			@Override
+			public void sendTo(ITestRunListener2 listener) {
+				listener.testRunEnded(elapsedTime);
+			}
+		});
 	}
 
-	private void notifyTestEnded(final String test) {
+	private void notifyTestEnded(String test) {
 		if (JUnitCorePlugin.isStopped())
 			return;
-		for (int i= 0; i < fListeners.length; i++) {
-			final ITestRunListener2 listener= fListeners[i];
-			SafeRunner.run(new ListenerSafeRunnable() {
-				@Override
-				public void run() {
-					String s[]= extractTestId(test);
-					listener.testEnded(s[0], s[1]);
-				}
-			});
-		}
+		final String s[]= extractTestId(test);
+		notifyListeners(new ListenerNotification() {
+			@Override
+			public void sendTo(ITestRunListener2 listener) {
+				listener.testEnded(s[0], s[1]);
+			}
+		});
 	}
 
-	private void notifyTestStarted(final String test) {
+	private void notifyTestStarted(String test) {
 		if (JUnitCorePlugin.isStopped())
 			return;
-		for (int i= 0; i < fListeners.length; i++) {
-			final ITestRunListener2 listener= fListeners[i];
-			SafeRunner.run(new ListenerSafeRunnable() {
-				@Override
-				public void run() {
-					String s[]= extractTestId(test);
-					listener.testStarted(s[0], s[1]);
-				}
-			});
-		}
+		final String s[]= extractTestId(test);
+		notifyListeners(new ListenerNotification() {
+			@Override
+			public void sendTo(ITestRunListener2 listener) {
+				listener.testStarted(s[0], s[1]);
+			}
+		});
 	}
 
 	private void notifyTestRunStarted(final int count) {
 		if (JUnitCorePlugin.isStopped())
 			return;
-		for (int i= 0; i < fListeners.length; i++) {
-			final ITestRunListener2 listener= fListeners[i];
-			SafeRunner.run(new ListenerSafeRunnable() {
-				@Override
-				public void run() {
-					listener.testRunStarted(count);
-				}
-			});
-		}
+		notifyListeners(new ListenerNotification() {
+			@Override
+			public void sendTo(ITestRunListener2 listener) {
+				listener.testRunStarted(count);
+			}
+		});
 	}
 
 	private void notifyTestFailed() {
 		if (JUnitCorePlugin.isStopped())
 			return;
-		for (int i= 0; i < fListeners.length; i++) {
-			final ITestRunListener2 listener= fListeners[i];
-			SafeRunner.run(new ListenerSafeRunnable() {
-				@Override
-				public void run() {
-			        listener.testFailed(fFailureKind, fFailedTestId,
-			        		fFailedTest, fFailedTrace.toString(), nullifyEmpty(fExpectedResult), nullifyEmpty(fActualResult));
-				}
-			});
-		}
+		final int failureKind= fFailureKind;
+		final String failedTestId= fFailedTestId;
+		final String failedTest= fFailedTest;
+		final String trace= fFailedTrace.toString();
+		final String expected= nullifyEmpty(fExpectedResult);
+		final String actual= nullifyEmpty(fActualResult);
+		notifyListeners(new ListenerNotification() {
+			@Override
+			public void sendTo(ITestRunListener2 listener) {
+				listener.testFailed(failureKind, failedTestId, failedTest, trace, expected, actual);
+			}
+		});
 	}
 
 	/**
@@ -602,15 +759,12 @@ public class RemoteTestRunnerClient {
 		// fix for 77771 RemoteTestRunnerClient doing work after junit shutdown [JUnit]
 		if (JUnitCorePlugin.isStopped())
 			return;
-		for (int i= 0; i < fListeners.length; i++) {
-			final ITestRunListener2 listener= fListeners[i];
-			SafeRunner.run(new ListenerSafeRunnable() {
-				@Override
-				public void run() {
-					listener.testRunTerminated();
-				}
-			});
-		}
+		notifyListeners(new ListenerNotification() {
+			@Override
+			public void sendTo(ITestRunListener2 listener) {
+				listener.testRunTerminated();
+			}
+		});
 	}
 
 	public void rerunTest(String testId, String className, String testName) {
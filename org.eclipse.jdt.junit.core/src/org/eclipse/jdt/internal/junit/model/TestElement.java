@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -316,6 +316,23 @@ public abstract class TestElement implements ITestElement {
 		setStatus(status);
 	}
 
+	/**
+	 * Restores the status of this element from a {@link TestRunSessionStore}.
+	 * In contrast to {@link #setStatus(Status, String, String, String)}, the
+	 * time and the parent are not updated.
+	 *
+	 * @param status the status
+	 * @param trace the failure trace, or <code>null</code>
+	 * @param expected the expected value, or <code>null</code>
+	 * @param actual the actual value, or <code>null</code>
+	 */
+	void restoreStatus(Status status, String trace, String expected, String actual) {
+		fStatus= status;
+		fTrace= trace;
+		fExpected= expected;
+		fActual= actual;
+	}
+
 	public Status getStatus() {
 		return fStatus;
 	}
@@ -0,0 +1,358 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+
+import org.eclipse.jdt.internal.junit.BasicElementLabels;
+import org.eclipse.jdt.internal.junit.JUnitCorePlugin;
+import org.eclipse.jdt.internal.junit.Messages;
+import org.eclipse.jdt.internal.junit.model.TestElement.Status;
+
+/**
+ * Durations and failure rates of the test cases of past test runs.
+ * <p>
+ * The history is updated whenever a test case of a {@link TestRunSession} ends
+ * and is written to the state location of the plug-in when the session is
+ * finished. It is used to run tests which are fast and have recently failed
+ * before other tests, see
+ * {@link org.eclipse.jdt.internal.junit.launcher.JUnitLaunchConfigurationConstants#ATTR_PRIORITIZE_BY_HISTORY}.
+ * </p>
+ * <pre>
+ * file:  magic, version, run count, entry count, entry*
+ * entry: test name, class name, duration, failure rate, last run
+ * </pre>
+ */
+public class TestRunHistory {
+
+	private static final String FILE_NAME= "testRunHistory.bin"; //$NON-NLS-1$
+
+	private static final int MAGIC= 0x4A554854; // "JUHT"
+
+	private static final int VERSION= 1;
+
+	/**
+	 * The maximal number of test cases in the history. If the history grows
+	 * larger, the test cases which have not been run for the longest time are
+	 * removed.
+	 */
+	private static final int MAX_ENTRIES= 20000;
+
+	/**
+	 * The weight of the latest result in the moving averages of duration and
+	 * failure rate
+	 */
+	private static final float LATEST_WEIGHT= 0.3f;
+
+	/**
+	 * The failure rate assumed for test cases which have not failed recently
+	 */
+	private static final float MIN_FAILURE_RATE= 0.01f;
+
+	private static final class Entry {
+		final String fClassName;
+		float fDuration;
+		float fFailureRate;
+		int fLastRun;
+
+		Entry(String className, float duration, float failureRate, int lastRun) {
+			fClassName= className;
+			fDuration= duration;
+			fFailureRate= failureRate;
+			fLastRun= lastRun;
+		}
+
+		/**
+		 * @return the expected time until this test reveals a failure, lower
+		 *         values are run first
+		 */
+		float getScore() {
+			return fDuration / Math.max(fFailureRate, MIN_FAILURE_RATE);
+		}
+	}
+
+	/**
+	 * Records the finished test cases of one session.
+	 */
+	private final class Recorder implements ITestSessionListener {
+
+		private final int fRun;
+
+		Recorder(int run) {
+			fRun= run;
+		}
+
+		@Override
+		public void sessionStarted() {
+			// do nothing
+		}
+
+		@Override
+		public void sessionEnded(long elapsedTime) {
+			save();
+		}
+
+		@Override
+		public void sessionStopped(long elapsedTime) {
+			save();
+		}
+
+		@Override
+		public void sessionTerminated() {
+			save();
+		}
+
+		@Override
+		public void testAdded(TestElement testElement) {
+			// do nothing
+		}
+
+		@Override
+		public void runningBegins() {
+			// do nothing
+		}
+
+		@Override
+		public void testStarted(TestCaseElement testCaseElement) {
+			// do nothing
+		}
+
+		@Override
+		public void testEnded(TestCaseElement testCaseElement) {
+			record(testCaseElement, fRun);
+		}
+
+		@Override
+		public void testFailed(TestElement testElement, Status status, String trace, String expected, String actual) {
+			// recorded when the test ends
+		}
+
+		@Override
+		public void testReran(TestCaseElement testCaseElement, Status status, String trace, String expectedResult, String actualResult) {
+			// ignore
+		}
+
+		@Override
+		public boolean acceptsSwapToDisk() {
+			return true;
+		}
+	}
+
+	private final File fFile;
+
+	/**
+	 * The history entries keyed by test name, or <code>null</code> if not
+	 * loaded yet
+	 */
+	private Map<String, Entry> fEntries;
+
+	private int fRunCount;
+
+	private boolean fDirty;
+
+	/**
+	 * Creates a history which is stored in the state location of the plug-in.
+	 */
+	public TestRunHistory() {
+		this(JUnitCorePlugin.getDefault().getStateLocation().append(FILE_NAME).toFile());
+	}
+
+	/**
+	 * Creates a history which is stored in the given file.
+	 *
+	 * @param file the file of the history
+	 */
+	public TestRunHistory(File file) {
+		fFile= file;
+	}
+
+	/**
+	 * Returns a listener which records the test cases of a session in this
+	 * history.
+	 *
+	 * @return a new session listener
+	 */
+	public synchronized ITestSessionListener createRecorder() {
+		getEntries();
+		return new Recorder(++fRunCount);
+	}
+
+	synchronized void record(TestCaseElement testCase, int run) {
+		Status status= testCase.getStatus();
+		if (testCase.isIgnored() || status.isNotRun())
+			return;
+		boolean failed= status.isErrorOrFailure();
+		double elapsed= testCase.getElapsedTimeInSeconds();
+		if (Double.isNaN(elapsed) && !failed)
+			return;
+		String testName= testCase.getTestName();
+		Entry entry= getEntries().get(testName);
+		if (entry == null) {
+			fEntries.put(testName, new Entry(testCase.getClassName(), Double.isNaN(elapsed) ? 0f : (float) elapsed, failed ? 1f : 0f, run));
+		} else {
+			// the time of failed tests may not be known yet when they end
+			if (!Double.isNaN(elapsed))
+				entry.fDuration+= LATEST_WEIGHT * ((float) elapsed - entry.fDuration);
+			entry.fFailureRate+= LATEST_WEIGHT * ((failed ? 1f : 0f) - entry.fFailureRate);
+			entry.fLastRun= run;
+		}
+		fDirty= true;
+	}
+
+	/**
+	 * Returns the durations of the test classes in the history. The durations of
+	 * the test cases of nested classes are added to their top level class.
+	 *
+	 * @return the durations in seconds, keyed by fully qualified name of the top
+	 *         level class
+	 */
+	public synchronized Map<String, Double> getClassDurations() {
+		Map<String, Double> durations= new HashMap<>();
+		for (Entry entry : getEntries().values()) {
+			String className= entry.fClassName;
+			int nested= className.indexOf('$');
+			if (nested != -1)
+				className= className.substring(0, nested);
+			Double previous= durations.get(className);
+			durations.put(className, Double.valueOf(previous != null ? previous.doubleValue() + entry.fDuration : entry.fDuration));
+		}
+		return durations;
+	}
+
+	/**
+	 * Writes the names of all test cases and test classes in the history to a
+	 * temporary file, one name per line. Fast test cases which have recently
+	 * failed come first. The classes are ordered by the total duration of their
+	 * test cases and their highest failure rate.
+	 *
+	 * @return the absolute path of the file
+	 * @throws CoreException if the file cannot be written
+	 */
+	public synchronized String createPriorityFile() throws CoreException {
+		Map<String, Entry> entries= getEntries();
+		Map<String, Entry> classes= new HashMap<>();
+		for (Entry entry : entries.values()) {
+			Entry classEntry= classes.get(entry.fClassName);
+			if (classEntry == null) {
+				classes.put(entry.fClassName, new Entry(entry.fClassName, entry.fDuration, entry.fFailureRate, entry.fLastRun));
+			} else {
+				classEntry.fDuration+= entry.fDuration;
+				classEntry.fFailureRate= Math.max(classEntry.fFailureRate, entry.fFailureRate);
+			}
+		}
+		List<Map.Entry<String, Entry>> sorted= new ArrayList<>(entries.size() + classes.size());
+		sorted.addAll(classes.entrySet());
+		sorted.addAll(entries.entrySet());
+		Collections.sort(sorted, (e1, e2) -> Float.compare(e1.getValue().getScore(), e2.getValue().getScore()));
+
+		File file= null;
+		try {
+			file= File.createTempFile("testPriorities", ".txt"); //$NON-NLS-1$ //$NON-NLS-2$
+			file.deleteOnExit();
+			try (BufferedWriter bw= new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+				for (Map.Entry<String, Entry> entry : sorted) {
+					bw.write(entry.getKey());
+					bw.newLine();
+				}
+			}
+			return file.getAbsolutePath();
+		} catch (IOException e) {
+			throw createError(ModelMessages.TestRunHistory_could_not_write, file, e);
+		}
+	}
+
+	/**
+	 * Writes the history if it has changed since it was last written. Errors are
+	 * logged.
+	 */
+	public synchronized void save() {
+		if (!fDirty)
+			return;
+		if (fEntries.size() > MAX_ENTRIES) {
+			List<Map.Entry<String, Entry>> sorted= new ArrayList<>(fEntries.entrySet());
+			Collections.sort(sorted, (e1, e2) -> e2.getValue().fLastRun - e1.getValue().fLastRun);
+			for (Map.Entry<String, Entry> entry : sorted.subList(MAX_ENTRIES, sorted.size()))
+				fEntries.remove(entry.getKey());
+		}
+		try (DataOutputStream out= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fFile)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(fRunCount);
+			out.writeInt(fEntries.size());
+			for (Map.Entry<String, Entry> entry : fEntries.entrySet()) {
+				Entry value= entry.getValue();
+				out.writeUTF(entry.getKey());
+				out.writeUTF(value.fClassName);
+				out.writeFloat(value.fDuration);
+				out.writeFloat(value.fFailureRate);
+				out.writeInt(value.fLastRun);
+			}
+			fDirty= false;
+		} catch (IOException e) {
+			JUnitCorePlugin.log(createError(ModelMessages.TestRunHistory_could_not_write, fFile, e));
+		}
+	}
+
+	private Map<String, Entry> getEntries() {
+		if (fEntries == null) {
+			fEntries= new HashMap<>();
+			if (fFile.isFile())
+				load();
+		}
+		return fEntries;
+	}
+
+	private void load() {
+		try (DataInputStream in= new DataInputStream(new BufferedInputStream(new FileInputStream(fFile)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				return;
+			int runCount= in.readInt();
+			int count= in.readInt();
+			for (int i= 0; i < count; i++) {
+				String testName= in.readUTF();
+				String className= in.readUTF();
+				fEntries.put(testName, new Entry(className, in.readFloat(), in.readFloat(), in.readInt()));
+			}
+			fRunCount= Math.max(fRunCount, runCount);
+		} catch (IOException e) {
+			fEntries.clear();
+			JUnitCorePlugin.log(createError(ModelMessages.TestRunHistory_could_not_read, fFile, e));
+		}
+	}
+
+	private static CoreException createError(String message, File file, IOException e) {
+		return new CoreException(new org.eclipse.core.runtime.Status(IStatus.ERROR,
+				JUnitCorePlugin.getPluginId(),
+				Messages.format(message, file == null ? "" : BasicElementLabels.getPathLabel(file)), //$NON-NLS-1$
+				e));
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -30,7 +30,10 @@ import org.eclipse.jdt.junit.model.ITestRunSession;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.ListenerList;
+import org.eclipse.core.runtime.jobs.Job;
 
 import org.eclipse.debug.core.DebugPlugin;
 import org.eclipse.debug.core.ILaunch;
@@ -54,6 +57,13 @@ import org.eclipse.jdt.internal.junit.runner.MessageIds;
  */
 public class TestRunSession implements ITestRunSession {
 
+	/**
+	 * Time in milliseconds that the other VMs of a sharded test run may take to
+	 * connect after the first VM has started its test run. VMs that have not
+	 * connected by then are treated as terminated.
+	 */
+	private static final long SHARD_CONNECT_TIMEOUT= 60000;
+
 	/**
 	 * The launch, or <code>null</code> iff this session was run externally.
 	 */
@@ -71,6 +81,11 @@ public class TestRunSession implements ITestRunSession {
 	 */
 	private RemoteTestRunnerClient fTestRunnerClient;
 
+	/**
+	 * Test runner clients of the other VMs of a sharded test run, or <code>null</code>.
+	 */
+	private RemoteTestRunnerClient[] fShardRunnerClients;
+
 	private final ListenerList<ITestSessionListener> fSessionListeners;
 
 	/**
@@ -84,7 +99,14 @@ public class TestRunSession implements ITestRunSession {
 	private Result fTestResult;
 
 	/**
-	 * Map from testId to testElement.
+	 * The store the test tree has been swapped out to, or <code>null</code> if
+	 * the session has never been swapped out or has been modified since. See
+	 * {@link #invalidateStore()}.
+	 */
+	private TestRunSessionStore fStore;
+
+	/**
+	 * Map from testId to testElement. Guarded by <code>this</code>.
 	 */
 	private HashMap<String, TestElement> fIdToTest;
 
@@ -176,7 +198,21 @@ public class TestRunSession implements ITestRunSession {
 
 
 	public TestRunSession(ILaunch launch, IJavaProject project, int port) {
+		this(launch, project, new int[] { port });
+	}
+
+	/**
+	 * Creates a test run session that listens to the given ports. If more than
+	 * one port is given, the tests are run by several VMs, and their results
+	 * are merged into this session.
+	 *
+	 * @param launch the launch
+	 * @param project may be <code>null</code>
+	 * @param ports the ports of the test runner VMs
+	 */
+	public TestRunSession(ILaunch launch, IJavaProject project, int[] ports) {
 		Assert.isNotNull(launch);
+		Assert.isTrue(ports.length > 0);
 
 		fLaunch= launch;
 		fProject= project;
@@ -194,25 +230,31 @@ public class TestRunSession implements ITestRunSession {
 		fIdToTest= new HashMap<>();
 
 		fTestRunnerClient= new RemoteTestRunnerClient();
-		fTestRunnerClient.startListening(new ITestRunListener2[] { new TestSessionNotifier() }, port);
+		if (ports.length == 1) {
+			fTestRunnerClient.startListening(new ITestRunListener2[] { new TestSessionNotifier() }, ports[0]);
+		} else {
+			ShardedTestRun shardedTestRun= new ShardedTestRun(ports.length);
+			fTestRunnerClient.startListening(new ITestRunListener2[] { new ShardNotifier(shardedTestRun, 0) }, ports[0]);
+			fShardRunnerClients= new RemoteTestRunnerClient[ports.length - 1];
+			for (int i= 1; i < ports.length; i++) {
+				fShardRunnerClients[i - 1]= new RemoteTestRunnerClient();
+				fShardRunnerClients[i - 1].startListening(new ITestRunListener2[] { new ShardNotifier(shardedTestRun, i) }, ports[i]);
+			}
+		}
 
 		final ILaunchManager launchManager= DebugPlugin.getDefault().getLaunchManager();
 		launchManager.addLaunchListener(new ILaunchesListener2() {
 			@Override
 			public void launchesTerminated(ILaunch[] launches) {
 				if (Arrays.asList(launches).contains(fLaunch)) {
-					if (fTestRunnerClient != null) {
-						fTestRunnerClient.stopWaiting();
-					}
+					stopWaiting();
 					launchManager.removeLaunchListener(this);
 				}
 			}
 			@Override
 			public void launchesRemoved(ILaunch[] launches) {
 				if (Arrays.asList(launches).contains(fLaunch)) {
-					if (fTestRunnerClient != null) {
-						fTestRunnerClient.stopWaiting();
-					}
+					stopWaiting();
 					launchManager.removeLaunchListener(this);
 				}
 			}
@@ -225,9 +267,21 @@ public class TestRunSession implements ITestRunSession {
 		});
 
 		fSessionListeners= new ListenerList<>();
+		addTestSessionListener(JUnitCorePlugin.getModel().getTestRunHistory().createRecorder());
 		addTestSessionListener(new TestRunListenerAdapter(this));
 	}
 
+	private void stopWaiting() {
+		if (fTestRunnerClient != null) {
+			fTestRunnerClient.stopWaiting();
+		}
+		RemoteTestRunnerClient[] shardRunnerClients= fShardRunnerClients;
+		if (shardRunnerClients != null) {
+			for (int i= 0; i < shardRunnerClients.length; i++)
+				shardRunnerClients[i].stopWaiting();
+		}
+	}
+
 	void reset() {
 		fStartedCount= 0;
 		fFailureCount= 0;
@@ -368,12 +422,15 @@ public class TestRunSession implements ITestRunSession {
 		}
 
 		try {
-			File swapFile= getSwapFile();
-
-			JUnitModel.exportTestRunSession(this, swapFile);
+			if (fStore == null) {
+				TestRunSessionStore store= new TestRunSessionStore(getSwapFile());
+				store.write(this, fTestRoot);
+				fStore= store;
+			}
 			fTestResult= fTestRoot.getTestResult(true);
 			fTestRoot= null;
 			fTestRunnerClient= null;
+			fShardRunnerClients= null;
 			fIdToTest= new HashMap<>();
 			fIncompleteTestSuites= null;
 			fFactoryTestSuites= null;
@@ -391,16 +448,21 @@ public class TestRunSession implements ITestRunSession {
 	}
 
 
-	public void removeSwapFile() {
-		File swapFile= getSwapFile();
-		if (swapFile.exists())
-			swapFile.delete();
+	public synchronized void removeSwapFile() {
+		if (fStore != null) {
+			fStore.delete();
+			fStore= null;
+		} else {
+			File swapFile= getSwapFile();
+			if (swapFile.exists())
+				swapFile.delete();
+		}
 	}
 
 	private File getSwapFile() throws IllegalStateException {
 		File historyDir= JUnitCorePlugin.getHistoryDirectory();
 		String isoTime= new SimpleDateFormat("yyyyMMdd-HHmmss.SSS").format(new Date(getStartTime())); //$NON-NLS-1$
-		String swapFileName= isoTime + ".xml"; //$NON-NLS-1$
+		String swapFileName= isoTime + ".bin"; //$NON-NLS-1$
 		return new File(historyDir, swapFileName);
 	}
 
@@ -409,24 +471,52 @@ public class TestRunSession implements ITestRunSession {
 		if (fTestRoot != null)
 			return;
 
-		try {
-			JUnitModel.importIntoTestRunSession(getSwapFile(), this);
-		} catch (IllegalStateException e) {
-			JUnitCorePlugin.log(e);
+		if (fStore == null) {
 			fTestRoot= new TestRoot(this);
 			fTestResult= null;
+			return;
+		}
+		try {
+			fTestRoot= fStore.readRoot(this);
 		} catch (CoreException e) {
 			JUnitCorePlugin.log(e);
+			fStore= null;
 			fTestRoot= new TestRoot(this);
 			fTestResult= null;
 		}
 	}
 
+	/**
+	 * Loads the children of the given suite from the swap file.
+	 *
+	 * @param suite a suite of this session
+	 */
+	synchronized void loadChildren(TestSuiteElement suite) {
+		if (!suite.hasUnloadedChildren())
+			return;
+		try {
+			if (fStore != null) {
+				TestElement[] children= fStore.readChildren(suite);
+				for (int i= 0; i < children.length; i++)
+					fIdToTest.put(children[i].getId(), children[i]);
+			}
+		} catch (CoreException e) {
+			JUnitCorePlugin.log(e);
+		} finally {
+			suite.setUnloadedChildren(0, -1);
+		}
+	}
+
 	public void stopTestRun() {
 		if (isRunning() || ! isKeptAlive())
 			fIsStopped= true;
 		if (fTestRunnerClient != null)
 			fTestRunnerClient.stopTest();
+		RemoteTestRunnerClient[] shardRunnerClients= fShardRunnerClients;
+		if (shardRunnerClients != null) {
+			for (int i= 0; i < shardRunnerClients.length; i++)
+				shardRunnerClients[i].stopTest();
+		}
 	}
 
 	/**
@@ -467,6 +557,7 @@ public class TestRunSession implements ITestRunSession {
 	 */
 	public boolean rerunTest(String testId, String className, String testName) {
 		if (isKeptAlive()) {
+			invalidateStore();
 			Status status= ((TestCaseElement) getTestElement(testId)).getStatus();
 			if (status == Status.ERROR) {
 				fErrorCount--;
@@ -479,14 +570,33 @@ public class TestRunSession implements ITestRunSession {
 		return false;
 	}
 
-	public TestElement getTestElement(String id) {
+	public synchronized TestElement getTestElement(String id) {
+		TestElement testElement= fIdToTest.get(id);
+		if (testElement == null && fStore != null)
+			testElement= loadTestElement(id);
+		return testElement;
+	}
+
+	private synchronized TestElement loadTestElement(String id) {
+		if (fTestRoot == null || fStore == null)
+			return null;
+		try {
+			String parentId= fStore.findParentId(id);
+			if (parentId == null)
+				return null;
+			TestElement parent= fTestRoot.getId().equals(parentId) ? fTestRoot : getTestElement(parentId);
+			if (parent instanceof TestSuiteElement)
+				loadChildren((TestSuiteElement) parent);
+		} catch (CoreException e) {
+			JUnitCorePlugin.log(e);
+		}
 		return fIdToTest.get(id);
 	}
 
-	private TestElement addTreeEntry(String treeEntry) {
+	private TestElement addTreeEntry(String treeEntry, String idPrefix) {
 		// format: testId","testName","isSuite","testcount","isDynamicTest","parentId","displayName","parameterTypes
 		int index0= treeEntry.indexOf(',');
-		String id= treeEntry.substring(0, index0);
+		String id= idPrefix + treeEntry.substring(0, index0);
 
 		StringBuffer testNameBuffer= new StringBuffer(100);
 		int index1= scanTestName(treeEntry, index0 + 1, testNameBuffer);
@@ -522,6 +632,8 @@ public class TestRunSession implements ITestRunSession {
 			parentId= treeEntry.substring(index4 + 1, index5);
 			if (parentId.equals("-1")) { //$NON-NLS-1$
 				parentId= null;
+			} else {
+				parentId= idPrefix + parentId;
 			}
 
 			int index6= scanTestName(treeEntry, index5 + 1, displayNameBuffer);
@@ -585,7 +697,10 @@ public class TestRunSession implements ITestRunSession {
 		} else {
 			testElement= new TestCaseElement(parent, id, testName, displayName, isDynamicTest, parameterTypes, uniqueId);
 		}
-		fIdToTest.put(id, testElement);
+		synchronized (this) {
+			invalidateStore();
+			fIdToTest.put(id, testElement);
+		}
 		return testElement;
 	}
 
@@ -682,7 +797,11 @@ public class TestRunSession implements ITestRunSession {
 
 		@Override
 		public void testTreeEntry(String description) {
-			TestElement testElement= addTreeEntry(description);
+			testTreeEntry(description, ""); //$NON-NLS-1$
+		}
+
+		protected void testTreeEntry(String description, String idPrefix) {
+			TestElement testElement= addTreeEntry(description, idPrefix);
 
 			for (ITestSessionListener listener : fSessionListeners) {
 				listener.testAdded(testElement);
@@ -808,6 +927,143 @@ public class TestRunSession implements ITestRunSession {
 		}
 	}
 
+	/**
+	 * State shared by the {@link ShardNotifier}s of a sharded test run.
+	 */
+	private static class ShardedTestRun {
+		public final int fShardCount;
+		public int fStartedShards;
+		public int fFinishedShards;
+		public long fElapsedTime;
+		public boolean fStopped;
+		public boolean fTerminated;
+
+		public ShardedTestRun(int shardCount) {
+			fShardCount= shardCount;
+		}
+	}
+
+	/**
+	 * A {@link TestSessionNotifier} for one VM of a sharded test run. The events
+	 * of all VMs are serialized, the test ids of each VM are prefixed with its
+	 * shard index, and the session is only started and ended once.
+	 */
+	private class ShardNotifier extends TestSessionNotifier {
+
+		private final ShardedTestRun fShardedTestRun;
+		private final String fIdPrefix;
+
+		/**
+		 * The suites of this VM's test tree for which additional children are expected.
+		 */
+		private List<IncompleteTestSuite> fShardIncompleteTestSuites= new ArrayList<>();
+		private List<IncompleteTestSuite> fShardFactoryTestSuites= new ArrayList<>();
+
+		public ShardNotifier(ShardedTestRun shardedTestRun, int shardIndex) {
+			fShardedTestRun= shardedTestRun;
+			fIdPrefix= shardIndex + ":"; //$NON-NLS-1$
+		}
+
+		@Override
+		public void testRunStarted(int testCount) {
+			synchronized (fShardedTestRun) {
+				if (fShardedTestRun.fStartedShards++ == 0) {
+					super.testRunStarted(testCount);
+					fShardIncompleteTestSuites= fIncompleteTestSuites;
+					fShardFactoryTestSuites= fFactoryTestSuites;
+					scheduleConnectTimeout();
+				} else {
+					fTotalCount+= testCount;
+				}
+			}
+		}
+
+		private void scheduleConnectTimeout() {
+			Job job= new Job("Sharded test run connect timeout") { //$NON-NLS-1$
+				@Override
+				protected IStatus run(IProgressMonitor monitor) {
+					// only closes the server sockets of clients that are not connected yet
+					stopWaiting();
+					return org.eclipse.core.runtime.Status.OK_STATUS;
+				}
+			};
+			job.setSystem(true);
+			job.schedule(SHARD_CONNECT_TIMEOUT);
+		}
+
+		@Override
+		public void testRunEnded(long elapsedTime) {
+			synchronized (fShardedTestRun) {
+				shardFinished(elapsedTime);
+			}
+		}
+
+		@Override
+		public void testRunStopped(long elapsedTime) {
+			synchronized (fShardedTestRun) {
+				fShardedTestRun.fStopped= true;
+				shardFinished(elapsedTime);
+			}
+		}
+
+		@Override
+		public void testRunTerminated() {
+			synchronized (fShardedTestRun) {
+				fShardedTestRun.fTerminated= true;
+				shardFinished(0);
+			}
+		}
+
+		private void shardFinished(long elapsedTime) {
+			fShardedTestRun.fElapsedTime= Math.max(fShardedTestRun.fElapsedTime, elapsedTime);
+			if (++fShardedTestRun.fFinishedShards < fShardedTestRun.fShardCount)
+				return;
+			if (fShardedTestRun.fTerminated)
+				super.testRunTerminated();
+			else if (fShardedTestRun.fStopped)
+				super.testRunStopped(fShardedTestRun.fElapsedTime);
+			else
+				super.testRunEnded(fShardedTestRun.fElapsedTime);
+		}
+
+		@Override
+		public void testTreeEntry(String description) {
+			synchronized (fShardedTestRun) {
+				fIncompleteTestSuites= fShardIncompleteTestSuites;
+				fFactoryTestSuites= fShardFactoryTestSuites;
+				testTreeEntry(description, fIdPrefix);
+			}
+		}
+
+		@Override
+		public void testStarted(String testId, String testName) {
+			synchronized (fShardedTestRun) {
+				super.testStarted(fIdPrefix + testId, testName);
+			}
+		}
+
+		@Override
+		public void testEnded(String testId, String testName) {
+			synchronized (fShardedTestRun) {
+				super.testEnded(fIdPrefix + testId, testName);
+			}
+		}
+
+		@Override
+		public void testFailed(int statusCode, String testId, String testName, String trace, String expected, String actual) {
+			synchronized (fShardedTestRun) {
+				super.testFailed(statusCode, fIdPrefix + testId, testName, trace, expected, actual);
+			}
+		}
+
+		@Override
+		public void testReran(String testId, String className, String testName, int statusCode, String trace, String expectedResult, String actualResult) {
+			synchronized (fShardedTestRun) {
+				super.testReran(fIdPrefix + testId, className, testName, statusCode, trace, expectedResult, actualResult);
+			}
+		}
+	}
+
 	private static class IncompleteTestSuite {
 		public TestSuiteElement fTestSuiteElement;
 		public int fOutstandingChildren;
@@ -819,6 +1075,7 @@ public class TestRunSession implements ITestRunSession {
 	}
 
 	public void registerTestFailureStatus(TestElement testElement, Status status, String trace, String expected, String actual) {
+		invalidateStore();
 		testElement.setStatus(status, trace, expected, actual);
 		if (!testElement.isAssumptionFailure()) {
 			if (status.isError()) {
@@ -830,6 +1087,7 @@ public class TestRunSession implements ITestRunSession {
 	}
 
 	public void registerTestEnded(TestElement testElement, boolean completed) {
+		invalidateStore();
 		if (testElement instanceof TestCaseElement) {
 			fTotalCount++;
 			if (! completed) {
@@ -849,9 +1107,30 @@ public class TestRunSession implements ITestRunSession {
 	}
 
 	private void setStatus(TestElement testElement, Status status) {
+		invalidateStore();
 		testElement.setStatus(status);
 	}
 
+	/**
+	 * Drops the store when the session is modified after it has been swapped in again, such that
+	 * the next {@link #swapOut()} writes the modified tree instead of keeping the stale store. The
+	 * children that have not been loaded yet are read from the store before it is dropped.
+	 */
+	private synchronized void invalidateStore() {
+		if (fStore == null)
+			return;
+		if (fTestRoot != null)
+			loadAllChildren(fTestRoot);
+		fStore= null;
+	}
+
+	private static void loadAllChildren(TestSuiteElement suite) {
+		for (ITestElement child : suite.getChildren()) {
+			if (child instanceof TestSuiteElement)
+				loadAllChildren((TestSuiteElement) child);
+		}
+	}
+
 	public TestElement[] getAllFailedTestElements() {
 		ArrayList<ITestElement> failures= new ArrayList<>();
 		addFailures(failures, getTestRoot());
@@ -865,6 +1144,9 @@ public class TestRunSession implements ITestRunSession {
 		}
 		if (testElement instanceof TestSuiteElement) {
 			TestSuiteElement testSuiteElement= (TestSuiteElement) testElement;
+			// the status of a suite read from the swap file includes its children, so only load them if they can contain failures
+			if (testSuiteElement.hasUnloadedChildren() && testResult != Result.ERROR && testResult != Result.FAILURE)
+				return;
 			ITestElement[] children= testSuiteElement.getChildren();
 			for (int i= 0; i < children.length; i++) {
 				addFailures(failures, children[i]);
@@ -0,0 +1,438 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jdt.junit.model.ITestElement;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+
+import org.eclipse.jdt.internal.junit.BasicElementLabels;
+import org.eclipse.jdt.internal.junit.JUnitCorePlugin;
+import org.eclipse.jdt.internal.junit.Messages;
+import org.eclipse.jdt.internal.junit.model.TestElement.Status;
+
+/**
+ * Binary swap file of a {@link TestRunSession}.
+ * <p>
+ * The file starts with a header containing the counters of the session and the
+ * state of the test root. The children of each suite are stored in a block of
+ * consecutive records, and each suite record points to the block of its own
+ * children, so that the test tree can be loaded one suite at a time. The file
+ * ends with an index which is sorted by test id and maps each id to the id of
+ * its parent.
+ * </p>
+ * <pre>
+ * header: magic, version, counters, root status, root children status,
+ *         root time, root children count, root children offset, index offset
+ * block:  element record*
+ * record: kind, id, name, display name, unique id, parameter types, status,
+ *         flags, time, trace, expected, actual
+ *         [, children status, children count, children offset]   (suites only)
+ * index:  (id, parent id)*, entry count, entry offset*
+ * </pre>
+ */
+public class TestRunSessionStore {
+
+	private static final class CountingOutputStream extends FilterOutputStream {
+
+		private long fCount;
+
+		public CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			fCount++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			fCount+= len;
+		}
+
+		public long getCount() {
+			return fCount;
+		}
+	}
+
+	private static final class IndexEntry implements Comparable<IndexEntry> {
+
+		private final String fId;
+		private final String fParentId;
+
+		public IndexEntry(String id, String parentId) {
+			fId= id;
+			fParentId= parentId;
+		}
+
+		@Override
+		public int compareTo(IndexEntry other) {
+			return fId.compareTo(other.fId);
+		}
+	}
+
+	private static final int MAGIC= 0x4A555352;
+
+	private static final int VERSION= 1;
+
+	/**
+	 * Size of the header: magic, version, six counters, two status codes,
+	 * the root time, the root children count and two offsets
+	 */
+	private static final int HEADER_SIZE= 4 + 4 + 6 * 4 + 2 + 8 + 4 + 8 + 8;
+
+	private static final int BUFFER_SIZE= 64 * 1024;
+
+	private static final byte KIND_TEST_CASE= 0;
+	private static final byte KIND_TEST_SUITE= 1;
+
+	private static final byte FLAG_ASSUMPTION_FAILED= 1;
+	private static final byte FLAG_IGNORED= 2;
+	private static final byte FLAG_DYNAMIC_TEST= 4;
+
+	private static final Status[] STATUS_CODES= { Status.OK, Status.ERROR, Status.FAILURE, Status.RUNNING, Status.NOT_RUN, Status.RUNNING_ERROR, Status.RUNNING_FAILURE };
+
+	private final File fFile;
+
+	private long fIndexOffset= -1;
+
+	/**
+	 * @param file the swap file
+	 */
+	public TestRunSessionStore(File file) {
+		fFile= file;
+	}
+
+	public File getFile() {
+		return fFile;
+	}
+
+	/**
+	 * Writes the given test run session to the swap file. The complete test tree
+	 * is loaded if necessary.
+	 *
+	 * @param session the test run session
+	 * @param root the test root of the session
+	 * @throws CoreException if the swap file could not be written
+	 */
+	public void write(TestRunSession session, TestRoot root) throws CoreException {
+		List<IndexEntry> index= new ArrayList<>();
+		try {
+			long rootChildrenOffset;
+			int rootChildrenCount;
+			try (CountingOutputStream counter= new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(fFile), BUFFER_SIZE))) {
+				DataOutputStream out= new DataOutputStream(counter);
+				out.write(new byte[HEADER_SIZE]);
+				rootChildrenCount= root.getChildren().length;
+				rootChildrenOffset= writeBlock(out, counter, root, index);
+				Collections.sort(index);
+				long[] entryOffsets= new long[index.size()];
+				for (int i= 0; i < entryOffsets.length; i++) {
+					IndexEntry entry= index.get(i);
+					entryOffsets[i]= counter.getCount();
+					writeString(out, entry.fId);
+					writeString(out, entry.fParentId);
+				}
+				fIndexOffset= counter.getCount();
+				out.writeInt(entryOffsets.length);
+				for (int i= 0; i < entryOffsets.length; i++)
+					out.writeLong(entryOffsets[i]);
+				out.flush();
+			}
+			try (RandomAccessFile header= new RandomAccessFile(fFile, "rw")) { //$NON-NLS-1$
+				header.writeInt(MAGIC);
+				header.writeInt(VERSION);
+				header.writeInt(session.getTotalCount());
+				header.writeInt(session.getStartedCount());
+				header.writeInt(session.getFailureCount());
+				header.writeInt(session.getErrorCount());
+				header.writeInt(session.getIgnoredCount());
+				header.writeInt(session.getAssumptionFailureCount());
+				header.writeByte(getStatusCode(root.getSuiteStatus()));
+				header.writeByte(getStatusCode(root.getChildrenStatus()));
+				header.writeDouble(root.fTime);
+				header.writeInt(rootChildrenCount);
+				header.writeLong(rootChildrenOffset);
+				header.writeLong(fIndexOffset);
+			}
+		} catch (IOException e) {
+			fIndexOffset= -1;
+			throw new CoreException(new org.eclipse.core.runtime.Status(IStatus.ERROR,
+					JUnitCorePlugin.getPluginId(),
+					Messages.format(ModelMessages.JUnitModel_could_not_write, BasicElementLabels.getPathLabel(fFile)),
+					e));
+		}
+	}
+
+	/**
+	 * Writes the blocks of all descendant suites of the given suite, followed
+	 * by the block of its children.
+	 *
+	 * @return the offset of the block of the children of <code>suite</code>
+	 */
+	private static long writeBlock(DataOutputStream out, CountingOutputStream counter, TestSuiteElement suite, List<IndexEntry> index) throws IOException {
+		ITestElement[] children= suite.getChildren();
+		long[] childrenOffsets= new long[children.length];
+		for (int i= 0; i < children.length; i++) {
+			if (children[i] instanceof TestSuiteElement)
+				childrenOffsets[i]= writeBlock(out, counter, (TestSuiteElement) children[i], index);
+		}
+		long offset= counter.getCount();
+		for (int i= 0; i < children.length; i++) {
+			TestElement child= (TestElement) children[i];
+			writeElement(out, child, childrenOffsets[i]);
+			index.add(new IndexEntry(child.getId(), suite.getId()));
+		}
+		return offset;
+	}
+
+	private static void writeElement(DataOutputStream out, TestElement element, long childrenOffset) throws IOException {
+		boolean isSuite= element instanceof TestSuiteElement;
+		out.writeByte(isSuite ? KIND_TEST_SUITE : KIND_TEST_CASE);
+		writeString(out, element.getId());
+		writeString(out, element.getTestName());
+		writeString(out, element.getDisplayName());
+		writeString(out, element.getUniqueId());
+		String[] parameterTypes= element.getParameterTypes();
+		if (parameterTypes == null) {
+			out.writeInt(-1);
+		} else {
+			out.writeInt(parameterTypes.length);
+			for (int i= 0; i < parameterTypes.length; i++)
+				writeString(out, parameterTypes[i]);
+		}
+		int flags= 0;
+		if (element.isAssumptionFailure())
+			flags|= FLAG_ASSUMPTION_FAILED;
+		if (isSuite) {
+			out.writeByte(getStatusCode(((TestSuiteElement) element).getSuiteStatus()));
+		} else {
+			TestCaseElement testCase= (TestCaseElement) element;
+			if (testCase.isIgnored())
+				flags|= FLAG_IGNORED;
+			if (testCase.isDynamicTest())
+				flags|= FLAG_DYNAMIC_TEST;
+			out.writeByte(getStatusCode(testCase.getStatus()));
+		}
+		out.writeByte(flags);
+		out.writeDouble(element.fTime);
+		writeString(out, element.getTrace());
+		writeString(out, element.getExpected());
+		writeString(out, element.getActual());
+		if (isSuite) {
+			TestSuiteElement suite= (TestSuiteElement) element;
+			out.writeByte(getStatusCode(suite.getChildrenStatus()));
+			out.writeInt(suite.getChildren().length);
+			out.writeLong(childrenOffset);
+		}
+	}
+
+	/**
+	 * Reads the header of the swap file and creates the test root of the
+	 * given session. Only the top-level elements are loaded; the children of
+	 * suites are loaded by {@link #readChildren(TestSuiteElement)}.
+	 *
+	 * @param session the test run session whose counters are restored
+	 * @return the test root
+	 * @throws CoreException if the swap file could not be read
+	 */
+	public TestRoot readRoot(TestRunSession session) throws CoreException {
+		try (DataInputStream in= new DataInputStream(new BufferedInputStream(new FileInputStream(fFile), HEADER_SIZE))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				throw new IOException("Invalid test run session store"); //$NON-NLS-1$
+			session.fTotalCount= in.readInt();
+			session.fStartedCount= in.readInt();
+			session.fFailureCount= in.readInt();
+			session.fErrorCount= in.readInt();
+			session.fIgnoredCount= in.readInt();
+			session.fAssumptionFailureCount= in.readInt();
+			TestRoot root= new TestRoot(session);
+			root.restoreStatus(getStatus(in.readByte()), null, null, null);
+			root.setChildrenStatus(getStatus(in.readByte()));
+			root.fTime= in.readDouble();
+			int childrenCount= in.readInt();
+			long childrenOffset= in.readLong();
+			fIndexOffset= in.readLong();
+			root.setUnloadedChildren(childrenCount, childrenOffset);
+			return root;
+		} catch (IOException e) {
+			throw createReadError(e);
+		}
+	}
+
+	/**
+	 * Loads the children of the given suite. The caller is responsible for
+	 * marking the children of the suite as loaded.
+	 *
+	 * @param suite a suite with unloaded children
+	 * @return the loaded children
+	 * @throws CoreException if the swap file could not be read
+	 */
+	public TestElement[] readChildren(TestSuiteElement suite) throws CoreException {
+		int count= suite.getUnloadedChildrenCount();
+		TestElement[] children= new TestElement[count];
+		try (FileInputStream stream= new FileInputStream(fFile)) {
+			stream.getChannel().position(suite.getUnloadedChildrenOffset());
+			DataInputStream in= new DataInputStream(new BufferedInputStream(stream, BUFFER_SIZE));
+			for (int i= 0; i < count; i++)
+				children[i]= readElement(in, suite);
+		} catch (IOException e) {
+			throw createReadError(e);
+		}
+		return children;
+	}
+
+	private static TestElement readElement(DataInput in, TestSuiteElement parent) throws IOException {
+		byte kind= in.readByte();
+		String id= readString(in);
+		String testName= readString(in);
+		String displayName= readString(in);
+		String uniqueId= readString(in);
+		String[] parameterTypes= null;
+		int parameterCount= in.readInt();
+		if (parameterCount >= 0) {
+			parameterTypes= new String[parameterCount];
+			for (int i= 0; i < parameterCount; i++)
+				parameterTypes[i]= readString(in);
+		}
+		Status status= getStatus(in.readByte());
+		byte flags= in.readByte();
+		double time= in.readDouble();
+		String trace= readString(in);
+		String expected= readString(in);
+		String actual= readString(in);
+
+		TestElement element;
+		if (kind == KIND_TEST_SUITE) {
+			Status childrenStatus= getStatus(in.readByte());
+			int childrenCount= in.readInt();
+			long childrenOffset= in.readLong();
+			TestSuiteElement suite= new TestSuiteElement(parent, id, testName, childrenCount, displayName, parameterTypes, uniqueId);
+			suite.setChildrenStatus(childrenStatus);
+			suite.setUnloadedChildren(childrenCount, childrenOffset);
+			element= suite;
+		} else if (kind == KIND_TEST_CASE) {
+			TestCaseElement testCase= new TestCaseElement(parent, id, testName, displayName, (flags & FLAG_DYNAMIC_TEST) != 0, parameterTypes, uniqueId);
+			testCase.setIgnored((flags & FLAG_IGNORED) != 0);
+			element= testCase;
+		} else {
+			throw new IOException("Invalid test element kind: " + kind); //$NON-NLS-1$
+		}
+		element.restoreStatus(status, trace, expected, actual);
+		element.setAssumptionFailed((flags & FLAG_ASSUMPTION_FAILED) != 0);
+		element.fTime= time;
+		return element;
+	}
+
+	/**
+	 * Looks up the id of the parent of the given test element in the index.
+	 *
+	 * @param id the id of a test element
+	 * @return the id of the parent element, or <code>null</code> if the
+	 *         element is not contained in the swap file
+	 * @throws CoreException if the swap file could not be read
+	 */
+	public String findParentId(String id) throws CoreException {
+		if (fIndexOffset < 0)
+			return null;
+		try (RandomAccessFile file= new RandomAccessFile(fFile, "r")) { //$NON-NLS-1$
+			file.seek(fIndexOffset);
+			int low= 0;
+			int high= file.readInt() - 1;
+			while (low <= high) {
+				int mid= (low + high) >>> 1;
+				file.seek(fIndexOffset + 4 + 8L * mid);
+				file.seek(file.readLong());
+				int comparison= readString(file).compareTo(id);
+				if (comparison < 0)
+					low= mid + 1;
+				else if (comparison > 0)
+					high= mid - 1;
+				else
+					return readString(file);
+			}
+			return null;
+		} catch (IOException e) {
+			throw createReadError(e);
+		}
+	}
+
+	/**
+	 * Deletes the swap file.
+	 */
+	public void delete() {
+		fIndexOffset= -1;
+		if (fFile.exists())
+			fFile.delete();
+	}
+
+	private CoreException createReadError(IOException e) {
+		return new CoreException(new org.eclipse.core.runtime.Status(IStatus.ERROR,
+				JUnitCorePlugin.getPluginId(),
+				Messages.format(ModelMessages.JUnitModel_could_not_read, BasicElementLabels.getPathLabel(fFile)),
+				e));
+	}
+
+	private static void writeString(DataOutputStream out, String string) throws IOException {
+		if (string == null) {
+			out.writeInt(-1);
+		} else {
+			byte[] bytes= string.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	private static String readString(DataInput in) throws IOException {
+		int length= in.readInt();
+		if (length < 0)
+			return null;
+		byte[] bytes= new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static byte getStatusCode(Status status) {
+		for (byte i= 0; i < STATUS_CODES.length; i++) {
+			if (STATUS_CODES[i] == status)
+				return i;
+		}
+		return -1;
+	}
+
+	private static Status getStatus(byte code) {
+		return code >= 0 && code < STATUS_CODES.length ? STATUS_CODES[code] : null;
+	}
+}
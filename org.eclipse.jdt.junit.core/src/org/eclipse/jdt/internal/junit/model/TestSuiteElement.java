@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -18,6 +18,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.eclipse.jdt.junit.model.ITestElement;
+import org.eclipse.jdt.junit.model.ITestRunSession;
 import org.eclipse.jdt.junit.model.ITestSuiteElement;
 
 
@@ -26,6 +27,17 @@ public class TestSuiteElement extends TestElement implements ITestSuiteElement {
 	private List<TestElement> fChildren;
 	private Status fChildrenStatus;
 
+	/**
+	 * The number of children which have not been loaded from the
+	 * {@link TestRunSessionStore} yet.
+	 */
+	private volatile int fUnloadedChildrenCount;
+
+	/**
+	 * The offset of the unloaded children in the {@link TestRunSessionStore}.
+	 */
+	private long fUnloadedChildrenOffset= -1;
+
 	public TestSuiteElement(TestSuiteElement parent, String id, String testName, int childrenCount, String displayName, String[] parameterTypes, String uniqueId) {
 		super(parent, id, testName, displayName, parameterTypes, uniqueId);
 		fChildren= new ArrayList<>(childrenCount);
@@ -47,9 +59,45 @@ public class TestSuiteElement extends TestElement implements ITestSuiteElement {
 
 	@Override
 	public ITestElement[] getChildren() {
+		if (fUnloadedChildrenCount > 0) {
+			ITestRunSession session= getTestRunSession();
+			if (session instanceof TestRunSession)
+				((TestRunSession) session).loadChildren(this);
+		}
 		return fChildren.toArray(new ITestElement[fChildren.size()]);
 	}
 
+	/**
+	 * Returns whether this suite has children. Unlike {@link #getChildren()},
+	 * this does not load the children from the {@link TestRunSessionStore}.
+	 *
+	 * @return <code>true</code> iff this suite has children
+	 */
+	public boolean hasChildren() {
+		return fUnloadedChildrenCount > 0 || !fChildren.isEmpty();
+	}
+
+	/**
+	 * @return <code>true</code> iff the children of this suite have not been
+	 *         loaded from the {@link TestRunSessionStore} yet
+	 */
+	public boolean hasUnloadedChildren() {
+		return fUnloadedChildrenCount > 0;
+	}
+
+	int getUnloadedChildrenCount() {
+		return fUnloadedChildrenCount;
+	}
+
+	long getUnloadedChildrenOffset() {
+		return fUnloadedChildrenOffset;
+	}
+
+	void setUnloadedChildren(int count, long offset) {
+		fUnloadedChildrenOffset= offset;
+		fUnloadedChildrenCount= count;
+	}
+
 	public void addChild(TestElement child) {
 		fChildren.add(child);
 	}
@@ -90,6 +138,14 @@ public class TestSuiteElement extends TestElement implements ITestSuiteElement {
 		return super.getStatus();
 	}
 
+	Status getChildrenStatus() {
+		return fChildrenStatus;
+	}
+
+	void setChildrenStatus(Status status) {
+		fChildrenStatus= status;
+	}
+
 	public void childChangedStatus(TestElement child, Status childStatus) {
 		int childCount= fChildren.size();
 		if (child == fChildren.get(0) && childStatus.isRunning()) {
@@ -70,6 +70,7 @@ import org.eclipse.jdt.internal.junit.launcher.ITestKind;
 import org.eclipse.jdt.internal.junit.launcher.JUnitLaunchConfigurationConstants;
 import org.eclipse.jdt.internal.junit.launcher.JUnitRuntimeClasspathEntry;
 import org.eclipse.jdt.internal.junit.launcher.TestKindRegistry;
+import org.eclipse.jdt.internal.junit.launcher.TestShards;
 import org.eclipse.jdt.internal.junit.util.CoreTestSearchEngine;
 import org.eclipse.jdt.internal.junit.util.IJUnitStatusConstants;
 
@@ -96,6 +97,16 @@ public class JUnitLaunchConfigurationDelegate extends AbstractJavaLaunchConfigur
 	private int fPort;
 	private IJavaElement[] fTestElements;
 
+	/**
+	 * The ports of all VMs of a sharded test run, or <code>null</code>.
+	 */
+	private int[] fShardPorts;
+
+	/**
+	 * The test types run by each VM of a sharded test run, or <code>null</code>.
+	 */
+	private IJavaElement[][] fShards;
+
 	private static final String DEFAULT= "<default>"; //$NON-NLS-1$
 
 	@Override
@@ -166,80 +177,91 @@ public class JUnitLaunchConfigurationDelegate extends AbstractJavaLaunchConfigur
 				} else {
 					fTestElements= evaluateTests(configuration, new SubProgressMonitor(monitor, 1));
 				}
+				evaluateShards(configuration, launch, new SubProgressMonitor(monitor, 0));
 			}
 
-			String mainTypeName= verifyMainTypeName(configuration);
-			
-
-			File workingDir = verifyWorkingDirectory(configuration);
-			String workingDirName = null;
-			if (workingDir != null) {
-				workingDirName= workingDir.getAbsolutePath();
-			}
-
-			// Environment variables
-			String[] envp= getEnvironment(configuration);
+			runConfig= createVMRunnerConfiguration(configuration, mode);
 
-			ArrayList<String> vmArguments= new ArrayList<>();
-			ArrayList<String> programArguments= new ArrayList<>();
-			collectExecutionArguments(configuration, vmArguments, programArguments);
-			vmArguments.addAll(Arrays.asList(DebugPlugin.parseArguments(getVMArguments(configuration, mode))));
-			if (JavaRuntime.isModularProject(javaProject)) {
-				vmArguments.add("--add-modules=ALL-MODULE-PATH"); //$NON-NLS-1$
+			// check for cancellation
+			if (monitor.isCanceled()) {
+				return null;
 			}
+		}finally {
+			// done the verification phase
+			monitor.worked(1);
+		}
+		return runConfig;
+	}
 
-			// VM-specific attributes
-			Map<String, Object> vmAttributesMap= getVMSpecificAttributesMap(configuration);
-
-			// Classpath and modulepath
-			String[][] classpathAndModulepath= getClasspathAndModulepath(configuration);
-			String[] classpath= classpathAndModulepath[0];
-			String[] modulepath= classpathAndModulepath[1];
-
-			if (TestKindRegistry.JUNIT5_TEST_KIND_ID.equals(getTestRunnerKind(configuration).getId())) {
-				if (!configuration.getAttribute(JUnitLaunchConfigurationConstants.ATTR_DONT_ADD_MISSING_JUNIT5_DEPENDENCY, false)) {
-					if (!Arrays.stream(classpath).anyMatch(s -> s.contains("junit-platform-launcher") || s.contains("org.junit.platform.launcher"))) { //$NON-NLS-1$ //$NON-NLS-2$
-						try {
-							JUnitRuntimeClasspathEntry x= new JUnitRuntimeClasspathEntry("org.junit.platform.launcher", null); //$NON-NLS-1$
-							String entryString= new ClasspathLocalizer(Platform.inDevelopmentMode()).entryString(x);
-							int length= classpath.length;
-							System.arraycopy(classpath, 0, classpath= new String[length + 1], 0, length);
-							classpath[length]= entryString;
-						} catch (IOException | URISyntaxException e) {
-							throw new CoreException(new Status(IStatus.ERROR, JUnitCorePlugin.CORE_PLUGIN_ID, IStatus.ERROR, "", e)); //$NON-NLS-1$
-						}
+	/**
+	 * Creates the configuration of the VM running the tests in {@link #fTestElements} and
+	 * connecting to {@link #fPort}.
+	 */
+	private VMRunnerConfiguration createVMRunnerConfiguration(ILaunchConfiguration configuration, String mode) throws CoreException {
+		IJavaProject javaProject= getJavaProject(configuration);
+		String mainTypeName= verifyMainTypeName(configuration);
+		
+
+		File workingDir = verifyWorkingDirectory(configuration);
+		String workingDirName = null;
+		if (workingDir != null) {
+			workingDirName= workingDir.getAbsolutePath();
+		}
+
+		// Environment variables
+		String[] envp= getEnvironment(configuration);
+
+		ArrayList<String> vmArguments= new ArrayList<>();
+		ArrayList<String> programArguments= new ArrayList<>();
+		collectExecutionArguments(configuration, vmArguments, programArguments);
+		vmArguments.addAll(Arrays.asList(DebugPlugin.parseArguments(getVMArguments(configuration, mode))));
+		if (JavaRuntime.isModularProject(javaProject)) {
+			vmArguments.add("--add-modules=ALL-MODULE-PATH"); //$NON-NLS-1$
+		}
+
+		// VM-specific attributes
+		Map<String, Object> vmAttributesMap= getVMSpecificAttributesMap(configuration);
+
+		// Classpath and modulepath
+		String[][] classpathAndModulepath= getClasspathAndModulepath(configuration);
+		String[] classpath= classpathAndModulepath[0];
+		String[] modulepath= classpathAndModulepath[1];
+
+		if (TestKindRegistry.JUNIT5_TEST_KIND_ID.equals(getTestRunnerKind(configuration).getId())) {
+			if (!configuration.getAttribute(JUnitLaunchConfigurationConstants.ATTR_DONT_ADD_MISSING_JUNIT5_DEPENDENCY, false)) {
+				if (!Arrays.stream(classpath).anyMatch(s -> s.contains("junit-platform-launcher") || s.contains("org.junit.platform.launcher"))) { //$NON-NLS-1$ //$NON-NLS-2$
+					try {
+						JUnitRuntimeClasspathEntry x= new JUnitRuntimeClasspathEntry("org.junit.platform.launcher", null); //$NON-NLS-1$
+						String entryString= new ClasspathLocalizer(Platform.inDevelopmentMode()).entryString(x);
+						int length= classpath.length;
+						System.arraycopy(classpath, 0, classpath= new String[length + 1], 0, length);
+						classpath[length]= entryString;
+					} catch (IOException | URISyntaxException e) {
+						throw new CoreException(new Status(IStatus.ERROR, JUnitCorePlugin.CORE_PLUGIN_ID, IStatus.ERROR, "", e)); //$NON-NLS-1$
 					}
 				}
 			}
+		}
 
-			// Create VM config
-			runConfig= new VMRunnerConfiguration(mainTypeName, classpath);
-			runConfig.setVMArguments(vmArguments.toArray(new String[vmArguments.size()]));
-			runConfig.setProgramArguments(programArguments.toArray(new String[programArguments.size()]));
-			runConfig.setEnvironment(envp);
-			runConfig.setWorkingDirectory(workingDirName);
-			runConfig.setVMSpecificAttributesMap(vmAttributesMap);
-
-			if (!JavaRuntime.isModularConfiguration(configuration)) {
-				// Bootpath
-				runConfig.setBootClassPath(getBootpath(configuration));
-			} else {
-				// module path
-				runConfig.setModulepath(modulepath);
-				if (!configuration.getAttribute(IJavaLaunchConfigurationConstants.ATTR_DEFAULT_MODULE_CLI_OPTIONS, true)) {
-					runConfig.setOverrideDependencies(configuration.getAttribute(IJavaLaunchConfigurationConstants.ATTR_MODULE_CLI_OPTIONS, "")); //$NON-NLS-1$
-				} else {
-					runConfig.setOverrideDependencies(getModuleCLIOptions(configuration));
-				}
-			}
+		// Create VM config
+		VMRunnerConfiguration runConfig= new VMRunnerConfiguration(mainTypeName, classpath);
+		runConfig.setVMArguments(vmArguments.toArray(new String[vmArguments.size()]));
+		runConfig.setProgramArguments(programArguments.toArray(new String[programArguments.size()]));
+		runConfig.setEnvironment(envp);
+		runConfig.setWorkingDirectory(workingDirName);
+		runConfig.setVMSpecificAttributesMap(vmAttributesMap);
 
-			// check for cancellation
-			if (monitor.isCanceled()) {
-				return null;
+		if (!JavaRuntime.isModularConfiguration(configuration)) {
+			// Bootpath
+			runConfig.setBootClassPath(getBootpath(configuration));
+		} else {
+			// module path
+			runConfig.setModulepath(modulepath);
+			if (!configuration.getAttribute(IJavaLaunchConfigurationConstants.ATTR_DEFAULT_MODULE_CLI_OPTIONS, true)) {
+				runConfig.setOverrideDependencies(configuration.getAttribute(IJavaLaunchConfigurationConstants.ATTR_MODULE_CLI_OPTIONS, "")); //$NON-NLS-1$
+			} else {
+				runConfig.setOverrideDependencies(getModuleCLIOptions(configuration));
 			}
-		}finally {
-			// done the verification phase
-			monitor.worked(1);
 		}
 		return runConfig;
 	}
@@ -265,16 +287,80 @@ public class JUnitLaunchConfigurationDelegate extends AbstractJavaLaunchConfigur
 			// Launch the configuration - 1 unit of work
 			runner.run(runConfig, launch, monitor);
 
+			// Launch the remaining VMs of a sharded test run
+			if (fShards != null) {
+				String vmMode= mode.equals(JUnitLaunchConfigurationConstants.MODE_RUN_QUIETLY_MODE) ? ILaunchManager.RUN_MODE : mode;
+				for (int i= 1; i < fShards.length && !monitor.isCanceled(); i++) {
+					fPort= fShardPorts[i];
+					fTestElements= fShards[i];
+					runner.run(createVMRunnerConfiguration(configuration, vmMode), launch, monitor);
+				}
+			}
+
 			// check for cancellation
 			if (monitor.isCanceled()) {
 				return;
 			}
 		} finally {
 			fTestElements= null;
+			fShards= null;
+			fShardPorts= null;
 			monitor.done();
 		}
 	}
 
+	/**
+	 * Distributes the test types of a JUnit 5 launch to several VMs if the launch configuration
+	 * requests it. The types are balanced by their durations in the last run of the configuration.
+	 * Afterwards, {@link #fTestElements} contains the types of the first VM.
+	 */
+	private void evaluateShards(ILaunchConfiguration configuration, ILaunch launch, IProgressMonitor monitor) throws CoreException {
+		fShards= null;
+		fShardPorts= null;
+		int shardCount= configuration.getAttribute(JUnitLaunchConfigurationConstants.ATTR_SHARD_COUNT, 1);
+		if (shardCount <= 1 || fKeepAlive)
+			return;
+		if (!configuration.getAttribute(JUnitLaunchConfigurationConstants.ATTR_TEST_UNIQUE_ID, "").trim().isEmpty()) //$NON-NLS-1$
+			return;
+
+		IJavaElement[] testElements= fTestElements;
+		if (testElements.length == 1 && !(testElements[0] instanceof IType) && !(testElements[0] instanceof IMethod))
+			testElements= evaluateTests(configuration, monitor);
+		if (testElements.length < 2)
+			return;
+		IType[] types= new IType[testElements.length];
+		for (int i= 0; i < testElements.length; i++) {
+			if (!(testElements[i] instanceof IType))
+				return;
+			types[i]= (IType) testElements[i];
+		}
+
+		IType[][] shards= TestShards.split(types, shardCount, TestShards.getPreviousDurations());
+		int[] ports= new int[shards.length];
+		ports[0]= fPort;
+		StringBuilder portsString= new StringBuilder(String.valueOf(fPort));
+		for (int i= 1; i < ports.length; i++) {
+			int port;
+			do {
+				port= evaluatePort();
+			} while (contains(ports, i, port));
+			ports[i]= port;
+			portsString.append(',').append(port);
+		}
+		launch.setAttribute(JUnitLaunchConfigurationConstants.ATTR_SHARD_PORTS, portsString.toString());
+		fShards= shards;
+		fShardPorts= ports;
+		fTestElements= shards[0];
+	}
+
+	private static boolean contains(int[] values, int length, int value) {
+		for (int i= 0; i < length; i++) {
+			if (values[i] == value)
+				return true;
+		}
+		return false;
+	}
+
 	private int evaluatePort() throws CoreException {
 		int port= SocketUtil.findFreePort();
 		if (port == -1) {
@@ -415,6 +501,13 @@ public class JUnitLaunchConfigurationDelegate extends AbstractJavaLaunchConfigur
 		programArguments.add("-port"); //$NON-NLS-1$
 		programArguments.add(String.valueOf(fPort));
 
+		/*
+		 * Runtimes that don't know the binary protocol ignore this argument and keep
+		 * sending line-based messages; RemoteTestRunnerClient detects the protocol
+		 * from the start of the stream.
+		 */
+		programArguments.add("-binaryprotocol"); //$NON-NLS-1$
+
 		if (fKeepAlive)
 			programArguments.add(0, "-keepalive"); //$NON-NLS-1$
 
@@ -467,6 +560,11 @@ public class JUnitLaunchConfigurationDelegate extends AbstractJavaLaunchConfigur
 			programArguments.add(testFailureNames);
 		}
 
+		if (configuration.getAttribute(JUnitLaunchConfigurationConstants.ATTR_PRIORITIZE_BY_HISTORY, false)) {
+			programArguments.add("-testpriorities"); //$NON-NLS-1$
+			programArguments.add(JUnitCorePlugin.getModel().getTestRunHistory().createPriorityFile());
+		}
+
 		String uniqueId= configuration.getAttribute(JUnitLaunchConfigurationConstants.ATTR_TEST_UNIQUE_ID, ""); //$NON-NLS-1$
 		if (!uniqueId.trim().isEmpty()) {
 			programArguments.add("-uniqueId"); //$NON-NLS-1$
@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.runner;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes messages of the RemoteTestRunner using the binary protocol.
+ * <p>
+ * Messages are collected in frames. A frame is written when it exceeds
+ * {@link #MAX_FRAME_SIZE}, when a message ending a test run or a rerun is
+ * written, and otherwise every {@link #FLUSH_INTERVAL} milliseconds by a
+ * background thread, so that the client receives many messages at once
+ * instead of one message per flush.
+ * </p>
+ *
+ * @see MessageIds#BINARY_MESSAGE_HEADERS
+ */
+public class BinaryMessageWriter {
+
+	/**
+	 * The size of a frame after which it is written
+	 */
+	private static final int MAX_FRAME_SIZE= 64 * 1024;
+
+	/**
+	 * The maximum number of characters of a message, such that a frame holding
+	 * a single message never exceeds {@link MessageIds#BINARY_PROTOCOL_MAX_FRAME_LENGTH}
+	 */
+	private static final int MAX_MESSAGE_LENGTH= (MessageIds.BINARY_PROTOCOL_MAX_FRAME_LENGTH - 16) / 3;
+
+	/**
+	 * The interval in milliseconds in which pending messages are written
+	 */
+	private static final long FLUSH_INTERVAL= 100;
+
+	/**
+	 * The stream to write frames to
+	 */
+	private final DataOutputStream fOutput;
+
+	/**
+	 * The current frame
+	 */
+	private final ByteArrayOutputStream fFrame= new ByteArrayOutputStream(MAX_FRAME_SIZE + 1024);
+
+	/**
+	 * Stream writing to the current frame
+	 */
+	private final DataOutputStream fFrameOutput= new DataOutputStream(fFrame);
+
+	/**
+	 * The number of messages in the current frame
+	 */
+	private int fCount= 0;
+
+	/**
+	 * Have frames been written since the output was flushed?
+	 */
+	private boolean fDirty= false;
+
+	/**
+	 * Has the writer been closed?
+	 */
+	private boolean fClosed= false;
+
+	/**
+	 * Creates a binary message writer and writes the protocol header.
+	 *
+	 * @param stream the stream to write to
+	 * @throws IOException if the header cannot be written
+	 */
+	public BinaryMessageWriter(OutputStream stream) throws IOException {
+		fOutput= new DataOutputStream(new BufferedOutputStream(stream, MAX_FRAME_SIZE));
+		fOutput.writeInt(MessageIds.BINARY_PROTOCOL_MAGIC);
+		fOutput.writeInt(MessageIds.BINARY_PROTOCOL_VERSION);
+		fOutput.flush();
+		Thread flusher= new Thread("BinaryMessageFlusher") { //$NON-NLS-1$
+			public void run() {
+				flushPeriodically();
+			}
+		};
+		flusher.setDaemon(true);
+		flusher.start();
+	}
+
+	/**
+	 * Writes the given message to the current frame.
+	 *
+	 * @param message the message as defined by {@link MessageIds}
+	 * @throws IOException if a frame cannot be written
+	 */
+	public synchronized void writeMessage(String message) throws IOException {
+		if (fClosed)
+			return;
+		int id= getMessageId(message);
+		String payload= id == 0 ? message : message.substring(MessageIds.MSG_HEADER_LENGTH);
+		if (payload.length() > MAX_MESSAGE_LENGTH)
+			payload= payload.substring(0, MAX_MESSAGE_LENGTH);
+		byte[] bytes= payload.getBytes("UTF-8"); //$NON-NLS-1$
+		if (fFrame.size() + 5 + bytes.length > MessageIds.BINARY_PROTOCOL_MAX_FRAME_LENGTH - 4)
+			writeFrame();
+		fFrameOutput.writeByte(id);
+		fFrameOutput.writeInt(bytes.length);
+		fFrameOutput.write(bytes);
+		fCount++;
+		String header= MessageIds.BINARY_MESSAGE_HEADERS[id];
+		if (MessageIds.TEST_RUN_END.equals(header) || MessageIds.TEST_STOPPED.equals(header) || MessageIds.TEST_RERAN.equals(header))
+			flush();
+		else if (fFrame.size() >= MAX_FRAME_SIZE)
+			writeFrame();
+	}
+
+	/**
+	 * Writes the current frame and flushes the underlying stream.
+	 *
+	 * @throws IOException if the frame cannot be written
+	 */
+	public synchronized void flush() throws IOException {
+		if (fClosed)
+			return;
+		writeFrame();
+		if (fDirty) {
+			fOutput.flush();
+			fDirty= false;
+		}
+	}
+
+	/**
+	 * Writes the pending messages and closes the writer.
+	 *
+	 * @throws IOException if the pending messages cannot be written
+	 */
+	public synchronized void close() throws IOException {
+		if (fClosed)
+			return;
+		try {
+			flush();
+		} finally {
+			fClosed= true;
+			notifyAll();
+			fOutput.close();
+		}
+	}
+
+	private void writeFrame() throws IOException {
+		if (fCount == 0)
+			return;
+		fOutput.writeInt(fFrame.size() + 4);
+		fOutput.writeInt(fCount);
+		fFrame.writeTo(fOutput);
+		fFrame.reset();
+		fCount= 0;
+		fDirty= true;
+	}
+
+	private synchronized void flushPeriodically() {
+		while (!fClosed) {
+			try {
+				wait(FLUSH_INTERVAL);
+				flush();
+			} catch (InterruptedException e) {
+				return;
+			} catch (IOException e) {
+				fClosed= true;
+			}
+		}
+	}
+
+	private static int getMessageId(String message) {
+		if (message.length() >= MessageIds.MSG_HEADER_LENGTH && message.charAt(0) == '%') {
+			for (int i= 1; i < MessageIds.BINARY_MESSAGE_HEADERS.length; i++) {
+				if (message.startsWith(MessageIds.BINARY_MESSAGE_HEADERS[i]))
+					return i;
+			}
+		}
+		return 0;
+	}
+}
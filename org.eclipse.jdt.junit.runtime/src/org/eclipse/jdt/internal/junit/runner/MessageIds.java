@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -131,6 +131,49 @@ public class MessageIds {
 	 */
 	public static final String TEST_RERUN=	">RERUN  "; //$NON-NLS-1$
 
+	/**
+	 * Magic number sent by the RemoteTestRunner as the first four bytes of the
+	 * stream if it uses the binary protocol. The binary protocol is requested
+	 * with the <code>-binaryprotocol</code> argument; clients fall back to the
+	 * line-based protocol if the stream does not start with this number.
+	 */
+	public static final int BINARY_PROTOCOL_MAGIC= 0x004A5542;
+
+	/**
+	 * The version of the binary protocol, sent after the magic number.
+	 */
+	public static final int BINARY_PROTOCOL_VERSION= 1;
+
+	/**
+	 * The maximum length of a frame of the binary protocol. Clients treat
+	 * longer frames as a corrupt stream and terminate the test run.
+	 */
+	public static final int BINARY_PROTOCOL_MAX_FRAME_LENGTH= 64 * 1024 * 1024;
+
+	/**
+	 * Message headers of the binary protocol, indexed by message id.
+	 * <p>
+	 * The binary protocol sends frames of the form
+	 * <code>length count (id payload)*</code>, where <code>length</code> is
+	 * the number of bytes following it, <code>count</code> the number of
+	 * messages in the frame, <code>id</code> a byte indexing this array and
+	 * <code>payload</code> the UTF-8 encoded remainder of the message,
+	 * prefixed by its length. Id 0 denotes a message without header, whose
+	 * payload is the whole message.
+	 * </p>
+	 */
+	public static final String[] BINARY_MESSAGE_HEADERS= {
+		null,
+		TRACE_START, TRACE_END,
+		EXPECTED_START, EXPECTED_END,
+		ACTUAL_START, ACTUAL_END,
+		RTRACE_START, RTRACE_END,
+		TEST_RUN_START, TEST_START, TEST_END,
+		TEST_ERROR, TEST_FAILED,
+		TEST_RUN_END, TEST_STOPPED,
+		TEST_RERAN, TEST_TREE
+	};
+
 	/**
 	 * MessageFormat to encode test method identifiers:
 	 * testMethod(testClass)
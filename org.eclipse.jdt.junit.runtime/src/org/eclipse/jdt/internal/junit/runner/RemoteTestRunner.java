@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -90,6 +90,15 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	 * Print writer for sending messages
 	 */
 	private PrintWriter fWriter;
+	/**
+	 * Writer for sending messages using the binary protocol,
+	 * or <code>null</code> if the line-based protocol is used
+	 */
+	private BinaryMessageWriter fBinaryWriter;
+	/**
+	 * Use the binary protocol if connected to a socket?
+	 */
+	private boolean fBinaryProtocol= false;
 	/**
 	 * Reader for incoming messages
 	 */
@@ -130,6 +139,8 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 
 	private String[] fFailureNames;
 
+	private TestHistoryPrioritizer fHistoryPrioritizer;
+
 	private ITestLoader fLoader;
 
 	private MessageSender fSender;
@@ -200,6 +211,7 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	 * -host: the host to connect to default local host
 	 * -port: the port to connect to, mandatory argument
 	 * -keepalive: keep the process alive after a test run
+	 * -binaryprotocol: send messages using the binary protocol
      * </pre>
      */
 	public static void main(String[] args) {
@@ -284,6 +296,15 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 				}
 				i++;
 
+			} else if (args[i].toLowerCase().equals("-testpriorities")) { //$NON-NLS-1$
+				String testPrioritiesFile= args[i+1];
+				try {
+					readPriorities(testPrioritiesFile);
+				} catch (IOException e) {
+					throw new IllegalArgumentException("Cannot read testpriorities file.");		 //$NON-NLS-1$
+				}
+				i++;
+
 			} else if(args[i].toLowerCase().equals("-port")) { //$NON-NLS-1$
 				fPort= Integer.parseInt(args[i+1]);
 				i++;
@@ -299,6 +320,9 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 			else if(args[i].toLowerCase().equals("-keepalive")) { //$NON-NLS-1$
 				fKeepAlive= true;
 			}
+			else if(args[i].toLowerCase().equals("-binaryprotocol")) { //$NON-NLS-1$
+				fBinaryProtocol= true;
+			}
 			else if(args[i].toLowerCase().equals("-debugging") || args[i].toLowerCase().equals("-debug")){ //$NON-NLS-1$ //$NON-NLS-2$
 			    fDebugMode= true;
 
@@ -447,6 +471,34 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 		}
 	}
 
+	private void readPriorities(String testPrioritiesFile) throws IOException {
+		BufferedReader br= new BufferedReader(new InputStreamReader(new FileInputStream(new File(testPrioritiesFile)), "UTF-8")); //$NON-NLS-1$
+		try {
+			String line;
+			Vector list= new Vector();
+			while ((line= br.readLine()) != null) {
+				list.add(line);
+			}
+			fHistoryPrioritizer= new TestHistoryPrioritizer((String[]) list.toArray(new String[list.size()]));
+			if (fDebugMode)
+				System.out.println("Priorities: " + list.size()); //$NON-NLS-1$
+		}
+		finally {
+			br.close();
+		}
+	}
+
+	/**
+	 * Returns the prioritizer which orders tests by the history of previous
+	 * test runs.
+	 *
+	 * @return the prioritizer, or <code>null</code> if tests should not be
+	 *         ordered by their history
+	 */
+	public TestHistoryPrioritizer getHistoryPrioritizer() {
+		return fHistoryPrioritizer;
+	}
+
 	/**
 	 * Connects to the remote ports and runs the tests.
 	 */
@@ -522,6 +574,10 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	 * @param execution executor
 	 */
 	public void runTests(String[] testClassNames, String testName, TestExecution execution) {
+		if (fHistoryPrioritizer != null && testClassNames.length > 1) {
+			testClassNames= (String[]) testClassNames.clone();
+			fHistoryPrioritizer.sortClassNames(testClassNames);
+		}
 		ITestReference[] suites= fLoader.loadTests(loadClasses(testClassNames), testName, fFailureNames, fPackageNames, fIncludeExcludeTags, fUniqueId, this);
 
 		// count all testMethods and inform ITestRunListeners
@@ -653,11 +709,15 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 		for (int i= 1; i < 20; i++) {
 			try{
 				fClientSocket= new Socket(fHost, fPort);
-				try {
-				    fWriter= new PrintWriter(new BufferedWriter(new OutputStreamWriter(fClientSocket.getOutputStream(), "UTF-8")), false/*true*/); //$NON-NLS-1$
-	            } catch (UnsupportedEncodingException e1) {
-	                fWriter= new PrintWriter(new BufferedWriter(new OutputStreamWriter(fClientSocket.getOutputStream())), false/*true*/);
-	            }
+				if (fBinaryProtocol) {
+					fBinaryWriter= new BinaryMessageWriter(fClientSocket.getOutputStream());
+				} else {
+					try {
+					    fWriter= new PrintWriter(new BufferedWriter(new OutputStreamWriter(fClientSocket.getOutputStream(), "UTF-8")), false/*true*/); //$NON-NLS-1$
+		            } catch (UnsupportedEncodingException e1) {
+		                fWriter= new PrintWriter(new BufferedWriter(new OutputStreamWriter(fClientSocket.getOutputStream())), false/*true*/);
+		            }
+				}
 				try {
 				    fReader= new BufferedReader(new InputStreamReader(fClientSocket.getInputStream(), "UTF-8")); //$NON-NLS-1$
                 } catch (UnsupportedEncodingException e1) {
@@ -686,6 +746,15 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 			fWriter.close();
 			fWriter= null;
 		}
+		if (fBinaryWriter != null) {
+			try {
+				fBinaryWriter.close();
+			} catch (IOException e) {
+				if (fDebugMode)
+					e.printStackTrace();
+			}
+			fBinaryWriter= null;
+		}
 		try {
 			if (fReaderThread != null)   {
 				// interrupt reader thread so that we don't block on close
@@ -717,6 +786,15 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	 * @see org.eclipse.jdt.internal.junit.runner.MessageSender#sendMessage(java.lang.String)
 	 */
 	public void sendMessage(String msg) {
+		if (fBinaryWriter != null) {
+			try {
+				fBinaryWriter.writeMessage(msg);
+			} catch (IOException e) {
+				if (fDebugMode)
+					e.printStackTrace();
+			}
+			return;
+		}
 		if(fWriter == null)
 			return;
 		fWriter.println(msg);
@@ -756,7 +834,9 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	}
 
 	public void flush() {
-	    fWriter.flush();
+		// the binary writer flushes periodically and after the end of a run
+		if (fWriter != null)
+			fWriter.flush();
 	}
 
 	public void runTests(TestExecution execution) {
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jdt.internal.junit.runner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Vector;
+
+import junit.extensions.TestDecorator;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Orders tests by their position in a list of test and class names which is
+ * computed from the history of previous test runs, so that tests which are
+ * fast and have recently failed run first.
+ * <p>
+ * A suite is ranked by its own name or, if its name is not in the list, by its
+ * best ranked test. Tests which are not in the list have not been run before
+ * and come first. The order of tests with the same rank is kept.
+ * </p>
+ */
+public class TestHistoryPrioritizer implements ITestPrioritizer {
+
+	/**
+	 * Rank of tests which are not in the priority list
+	 */
+	public static final int UNKNOWN= -1;
+
+	private final HashMap fRanks;
+
+	/**
+	 * @param priorities test and class names, highest priority first
+	 */
+	public TestHistoryPrioritizer(String[] priorities) {
+		fRanks= new HashMap(priorities.length * 2);
+		for (int i= priorities.length - 1; i >= 0; i--)
+			fRanks.put(priorities[i], new Integer(i));
+	}
+
+	/**
+	 * @param name the name of a test or a test class
+	 * @return the rank of the given test, lower ranks are run first, or
+	 *         {@link #UNKNOWN}
+	 */
+	public int getRank(String name) {
+		Integer rank= (Integer) fRanks.get(name);
+		return rank == null ? UNKNOWN : rank.intValue();
+	}
+
+	/**
+	 * Sorts the given class names by their rank.
+	 *
+	 * @param classNames the names of the test classes to run
+	 */
+	public void sortClassNames(String[] classNames) {
+		Arrays.sort(classNames, new Comparator() {
+			public int compare(Object o1, Object o2) {
+				return compareRanks(getRank((String) o1), getRank((String) o2));
+			}
+		});
+	}
+
+	public Test prioritize(Test suite) {
+		doPrioritize(suite);
+		return suite;
+	}
+
+	/**
+	 * Sorts the given test and all its descendants.
+	 *
+	 * @param test the test to sort
+	 * @return the rank of the test
+	 */
+	private int doPrioritize(Test test) {
+		if (test instanceof TestCase)
+			return getRank(test.toString());
+		if (test instanceof TestDecorator)
+			return doPrioritize(((TestDecorator) test).getTest());
+		if (!(test instanceof TestSuite))
+			return UNKNOWN;
+
+		TestSuite suite= (TestSuite) test;
+		final Map ranks= new IdentityHashMap();
+		int best= Integer.MAX_VALUE;
+		for (Enumeration e= suite.tests(); e.hasMoreElements();) {
+			Test child= (Test) e.nextElement();
+			int rank= doPrioritize(child);
+			ranks.put(child, new Integer(rank));
+			if (compareRanks(rank, best) < 0)
+				best= rank;
+		}
+		Vector tests= (Vector) FailuresFirstPrioritizer.getField(suite, "fTests"); //$NON-NLS-1$
+		if (tests != null) {
+			Collections.sort(tests, new Comparator() {
+				public int compare(Object o1, Object o2) {
+					return compareRanks(((Integer) ranks.get(o1)).intValue(), ((Integer) ranks.get(o2)).intValue());
+				}
+			});
+		}
+		int rank= suite.getName() != null ? getRank(suite.getName()) : UNKNOWN;
+		if (rank != UNKNOWN || best == Integer.MAX_VALUE)
+			return rank;
+		return best;
+	}
+
+	/**
+	 * Compares two ranks. {@link #UNKNOWN} comes before all other ranks.
+	 *
+	 * @param rank1 the first rank
+	 * @param rank2 the second rank
+	 * @return a negative number, zero, or a positive number as the first rank
+	 *         comes before, together with, or after the second rank
+	 */
+	public static int compareRanks(int rank1, int rank2) {
+		return rank1 < rank2 ? -1 : (rank1 == rank2 ? 0 : 1);
+	}
+}
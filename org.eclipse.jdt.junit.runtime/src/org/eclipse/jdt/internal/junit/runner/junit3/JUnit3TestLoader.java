@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2017 IBM Corporation and others.
+ * Copyright (c) 2006, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -32,6 +32,7 @@ import org.eclipse.jdt.internal.junit.runner.ITestReference;
 import org.eclipse.jdt.internal.junit.runner.JUnitMessages;
 import org.eclipse.jdt.internal.junit.runner.NullPrioritizer;
 import org.eclipse.jdt.internal.junit.runner.RemoteTestRunner;
+import org.eclipse.jdt.internal.junit.runner.TestHistoryPrioritizer;
 
 public class JUnit3TestLoader implements ITestLoader {
 	private static final String SUITE_METHODNAME= "suite"; //$NON-NLS-1$
@@ -48,10 +49,13 @@ public class JUnit3TestLoader implements ITestLoader {
 			prioritizer= new FailuresFirstPrioritizer(failureNames);
 		else
 			prioritizer= new NullPrioritizer();
+		TestHistoryPrioritizer historyPrioritizer= listener != null ? listener.getHistoryPrioritizer() : null;
 
 		for (int i= 0; i < suites.length; i++) {
 			Class testClassName= testClasses[i];
 			Test test= getTest(testClassName, testName, listener);
+			if (historyPrioritizer != null)
+				historyPrioritizer.prioritize(test);
 			prioritizer.prioritize(test);
 			suites[i]= new JUnit3TestReference(test);
 		}
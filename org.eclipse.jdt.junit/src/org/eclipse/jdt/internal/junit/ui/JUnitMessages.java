@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -138,6 +138,8 @@ public final class JUnitMessages extends NLS {
 
 	public static String JUnitLaunchConfigurationTab_label_keeprunning;
 
+	public static String JUnitLaunchConfigurationTab_label_prioritize;
+
 	public static String JUnitLaunchConfigurationTab_label_method;
 
 	public static String JUnitLaunchConfigurationTab_label_oneTest;
@@ -172,6 +174,8 @@ public final class JUnitMessages extends NLS {
 	public static String JUnitLaunchConfigurationTab_addtag_label;
 	
 	public static String JUnitLaunchConfigurationTab_addtag_text;
+
+	public static String JUnitLaunchConfigurationTab_shards_label;
 	
 	public static String JUnitLaunchConfigurationTab_includetag_checkbox_label;
 	
@@ -35,6 +35,7 @@ import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Spinner;
 import org.eclipse.swt.widgets.Text;
 
 import org.eclipse.core.runtime.CoreException;
@@ -138,11 +139,17 @@ import org.eclipse.jdt.internal.ui.wizards.TypedViewerFilter;
  */
 public class JUnitLaunchConfigurationTab extends AbstractLaunchConfigurationTab {
 
+	/**
+	 * The maximal number of VMs to distribute the tests to
+	 */
+	private static final int MAX_SHARD_COUNT= 64;
+
 	// Project UI widgets
 	private Label fProjLabel;
 	private Text fProjText;
 	private Button fProjButton;
 	private Button fKeepRunning;
+	private Button fPrioritizeByHistory;
 
 	// Test class UI widgets
 	private Text fTestText;
@@ -164,6 +171,9 @@ public class JUnitLaunchConfigurationTab extends AbstractLaunchConfigurationTab
 	private Label fIncludeExcludeTagsLabel;
 	private Button fIncludeExcludeTagsButton;
 
+	private Label fShardCountLabel;
+	private Spinner fShardCountSpinner;
+
 	private ComboViewer fTestLoaderViewer;
 
 	private ILaunchConfiguration fLaunchConfiguration;
@@ -196,12 +206,14 @@ public class JUnitLaunchConfigurationTab extends AbstractLaunchConfigurationTab
 		createSpacer(comp);
 
 		createTagsGroup(comp);
+		createShardGroup(comp);
 		createSpacer(comp);
 
 		createTestLoaderGroup(comp);
 		createSpacer(comp);
 
 		createKeepAliveGroup(comp);
+		createPrioritizeGroup(comp);
 		Dialog.applyDialogFont(comp);
 		PlatformUI.getWorkbench().getHelpSystem().setHelp(getControl(), IJUnitHelpContextIds.LAUNCH_CONFIGURATION_DIALOG_JUNIT_MAIN_TAB);
 		validatePage();
@@ -233,6 +245,27 @@ public class JUnitLaunchConfigurationTab extends AbstractLaunchConfigurationTab
 		fIncludeExcludeTagsButton.setLayoutData(gd);
 	}
 
+	private void createShardGroup(Composite comp) {
+		GridData gd;
+
+		fShardCountLabel= new Label(comp, SWT.NONE);
+		fShardCountLabel.setText(JUnitMessages.JUnitLaunchConfigurationTab_shards_label);
+		gd= new GridData();
+		gd.horizontalSpan= 1;
+		fShardCountLabel.setLayoutData(gd);
+		fShardCountSpinner= new Spinner(comp, SWT.BORDER);
+		fShardCountSpinner.setValues(1, 1, MAX_SHARD_COUNT, 0, 1, 4);
+		fShardCountSpinner.addModifyListener(new ModifyListener() {
+			@Override
+			public void modifyText(ModifyEvent evt) {
+				updateLaunchConfigurationDialog();
+			}
+		});
+		gd= new GridData();
+		gd.horizontalSpan= 1;
+		fShardCountSpinner.setLayoutData(gd);
+	}
+
 	private void createTestLoaderGroup(Composite comp) {
 		Label loaderLabel= new Label(comp, SWT.NONE);
 		loaderLabel.setText(JUnitMessages.JUnitLaunchConfigurationTab_Test_Loader);
@@ -271,6 +304,8 @@ public class JUnitLaunchConfigurationTab extends AbstractLaunchConfigurationTab
 				if (first instanceof ITestKind) {
 					boolean isJUnit5= TestKindRegistry.JUNIT5_TEST_KIND_ID.equals(((ITestKind) first).getId());
 					fIncludeExcludeTagsButton.setEnabled(isJUnit5);
+					fShardCountLabel.setEnabled(isJUnit5);
+					fShardCountSpinner.setEnabled(isJUnit5);
 				}
 			}
 		}
@@ -461,6 +496,22 @@ public class JUnitLaunchConfigurationTab extends AbstractLaunchConfigurationTab
 		fKeepRunning.setLayoutData(gd);
 	}
 
+	private void createPrioritizeGroup(Composite comp) {
+		GridData gd;
+		fPrioritizeByHistory= new Button(comp, SWT.CHECK);
+		fPrioritizeByHistory.addSelectionListener(new SelectionAdapter() {
+			@Override
+			public void widgetSelected(SelectionEvent e) {
+				updateLaunchConfigurationDialog();
+			}
+		});
+		fPrioritizeByHistory.setText(JUnitMessages.JUnitLaunchConfigurationTab_label_prioritize);
+		gd= new GridData();
+		gd.horizontalAlignment= GridData.FILL;
+		gd.horizontalSpan= 2;
+		fPrioritizeByHistory.setLayoutData(gd);
+	}
+
 	private static Image createImage(String path) {
 		return JUnitPlugin.getImageDescriptor(path).createImage();
 	}
@@ -481,6 +532,8 @@ public class JUnitLaunchConfigurationTab extends AbstractLaunchConfigurationTab
 		else
 			updateTestTypeFromConfig(config);
 		updateKeepRunning(config);
+		updatePrioritizeByHistory(config);
+		updateShardCount(config);
 		updateTestLoaderFromConfig(config);
 
 		validatePage();
@@ -514,6 +567,24 @@ public class JUnitLaunchConfigurationTab extends AbstractLaunchConfigurationTab
 		fKeepRunning.setSelection(running);
 	}
 
+	private void updatePrioritizeByHistory(ILaunchConfiguration config) {
+		boolean prioritize= false;
+		try {
+			prioritize= config.getAttribute(JUnitLaunchConfigurationConstants.ATTR_PRIORITIZE_BY_HISTORY, false);
+		} catch (CoreException ce) {
+		}
+		fPrioritizeByHistory.setSelection(prioritize);
+	}
+
+	private void updateShardCount(ILaunchConfiguration config) {
+		int shardCount= 1;
+		try {
+			shardCount= config.getAttribute(JUnitLaunchConfigurationConstants.ATTR_SHARD_COUNT, 1);
+		} catch (CoreException ce) {
+		}
+		fShardCountSpinner.setSelection(shardCount);
+	}
+
 	private void updateProjectFromConfig(ILaunchConfiguration config) {
 		String projectName= ""; //$NON-NLS-1$
 		try {
@@ -576,6 +647,13 @@ public class JUnitLaunchConfigurationTab extends AbstractLaunchConfigurationTab
 			config.setAttribute(JUnitLaunchConfigurationConstants.ATTR_TEST_NAME, fTestMethodText.getText());
 		}
 		config.setAttribute(JUnitLaunchConfigurationConstants.ATTR_KEEPRUNNING, fKeepRunning.getSelection());
+		config.setAttribute(JUnitLaunchConfigurationConstants.ATTR_PRIORITIZE_BY_HISTORY, fPrioritizeByHistory.getSelection());
+		int shardCount= fShardCountSpinner.getSelection();
+		if (shardCount > 1) {
+			config.setAttribute(JUnitLaunchConfigurationConstants.ATTR_SHARD_COUNT, shardCount);
+		} else {
+			config.removeAttribute(JUnitLaunchConfigurationConstants.ATTR_SHARD_COUNT);
+		}
 		try {
 			mapResources(config);
 		} catch (CoreException e) {
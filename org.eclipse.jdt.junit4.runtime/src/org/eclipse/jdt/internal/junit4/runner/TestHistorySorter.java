@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jdt.internal.junit4.runner;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.runner.Description;
+
+import org.eclipse.jdt.internal.junit.runner.TestHistoryPrioritizer;
+
+/**
+ * Comparator for descriptions to sort according to the history of previous test runs.
+ * A description is ranked by its display name or, if that is unknown, by its best
+ * ranked child.
+ *
+ * @see TestHistoryPrioritizer
+ */
+public class TestHistorySorter implements Comparator<Description> {
+
+	private final TestHistoryPrioritizer fPrioritizer;
+
+	private final Map<Description, Integer> fRanks= new HashMap<Description, Integer>();
+
+	/**
+	 * Creates a sorter.
+	 *
+	 * @param prioritizer the prioritizer providing the ranks of tests
+	 */
+	public TestHistorySorter(TestHistoryPrioritizer prioritizer) {
+		fPrioritizer= prioritizer;
+	}
+
+	public int compare(Description d1, Description d2) {
+		return TestHistoryPrioritizer.compareRanks(getRank(d1), getRank(d2));
+	}
+
+	private int getRank(Description d) {
+		Integer cached= fRanks.get(d);
+		if (cached != null)
+			return cached.intValue();
+		int rank= fPrioritizer.getRank(d.getDisplayName());
+		if (rank == TestHistoryPrioritizer.UNKNOWN && !d.getChildren().isEmpty()) {
+			rank= Integer.MAX_VALUE;
+			for (Description child : d.getChildren())
+				rank= Math.min(rank, getRank(child));
+		}
+		fRanks.put(d, Integer.valueOf(rank));
+		return rank;
+	}
+}
@@ -0,0 +1,281 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+import org.eclipse.jdt.text.tests.performance.EditorTestHelper;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.core.resources.IFile;
+
+import org.eclipse.text.tests.Accessor;
+
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.source.Annotation;
+import org.eclipse.jface.text.source.SourceViewer;
+import org.eclipse.jface.text.source.projection.ProjectionAnnotation;
+import org.eclipse.jface.text.source.projection.ProjectionAnnotationModel;
+import org.eclipse.jface.text.source.projection.ProjectionViewer;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IType;
+
+import org.eclipse.jdt.ui.text.folding.DefaultJavaFoldingStructureProvider;
+import org.eclipse.jdt.ui.text.folding.IJavaFoldingStructureProvider;
+
+import org.eclipse.jdt.internal.ui.javaeditor.JavaEditor;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests that the {@link DefaultJavaFoldingStructureProvider} computes the same folding regions
+ * when it updates the changed members only as when it recomputes the whole folding structure.
+ */
+public class FoldingTest extends TestCase {
+
+	private static final String CU_CONTENTS=
+		"/**\n" +
+		" * Header.\n" +
+		" */\n" +
+		"package p;\n" +
+		"\n" +
+		"import java.util.ArrayList;\n" +
+		"import java.util.List;\n" +
+		"\n" +
+		"/**\n" +
+		" * The type.\n" +
+		" */\n" +
+		"public class A {\n" +
+		"    /**\n" +
+		"     * The field.\n" +
+		"     */\n" +
+		"    List<String> fField= new ArrayList<>();\n" +
+		"\n" +
+		"    /**\n" +
+		"     * First.\n" +
+		"     */\n" +
+		"    void first() {\n" +
+		"        int i= 0;\n" +
+		"    }\n" +
+		"\n" +
+		"    void second() {\n" +
+		"        Runnable r= new Runnable() {\n" +
+		"            public void run() {\n" +
+		"            }\n" +
+		"        };\n" +
+		"    }\n" +
+		"\n" +
+		"    class Inner {\n" +
+		"        /**\n" +
+		"         * Inner method.\n" +
+		"         */\n" +
+		"        void inner() {\n" +
+		"        }\n" +
+		"    }\n" +
+		"\n" +
+		"    void third() {\n" +
+		"    }\n" +
+		"}\n";
+
+	/**
+	 * Records the elements for which it computes the folding structure. Unless incremental update
+	 * is enabled, it recomputes the whole folding structure on every change, since it is a subclass.
+	 */
+	private static class RecordingProvider extends DefaultJavaFoldingStructureProvider {
+
+		final List<IJavaElement> fElements= Collections.synchronizedList(new ArrayList<IJavaElement>());
+
+		private final boolean fIncremental;
+
+		RecordingProvider(boolean incremental) {
+			fIncremental= incremental;
+		}
+
+		@Override
+		protected boolean isIncrementalUpdateSupported() {
+			return fIncremental;
+		}
+
+		@Override
+		protected void computeFoldingStructure(IJavaElement element, FoldingStructureComputationContext ctx) {
+			fElements.add(element);
+			super.computeFoldingStructure(element, ctx);
+		}
+
+		void enable() {
+			handleProjectionEnabled();
+		}
+	}
+
+	private IJavaProject fProject;
+
+	private JavaEditor fEditor;
+
+	private IDocument fDocument;
+
+	private RecordingProvider fProvider;
+
+	public static Test suite() {
+		return new TestSuite(FoldingTest.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fProject= JavaProjectHelper.createJavaProject(getName(), "bin");
+		JavaProjectHelper.addRTJar(fProject);
+		IPackageFragment fragment= JavaProjectHelper.addSourceContainer(fProject, "src").createPackageFragment("p", true, null);
+		ICompilationUnit unit= fragment.createCompilationUnit("A.java", CU_CONTENTS, true, new NullProgressMonitor());
+		fEditor= (JavaEditor) EditorTestHelper.openInEditor((IFile) unit.getResource(), true);
+		assertNotNull(fEditor);
+		fDocument= fEditor.getDocumentProvider().getDocument(fEditor.getEditorInput());
+		assertEquals(CU_CONTENTS, fDocument.get());
+		reconcile();
+		assertFalse(getFoldingRegions().isEmpty());
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (fProvider != null) {
+			fProvider.uninstall();
+			fProvider= null;
+		}
+		EditorTestHelper.closeEditor(fEditor);
+		fEditor= null;
+		JavaProjectHelper.delete(fProject);
+		fProject= null;
+	}
+
+	private void reconcile() {
+		SourceViewer viewer= EditorTestHelper.getSourceViewer(fEditor);
+		EditorTestHelper.forceReconcile(viewer);
+		assertTrue(EditorTestHelper.joinReconciler(viewer, 0, 10000, 100));
+		EditorTestHelper.runEventQueue(100);
+	}
+
+	private IJavaFoldingStructureProvider getProvider() {
+		if (fProvider != null)
+			return fProvider;
+		IJavaFoldingStructureProvider provider= fEditor.getAdapter(IJavaFoldingStructureProvider.class);
+		assertNotNull(provider);
+		return provider;
+	}
+
+	/**
+	 * Returns the folding regions of the editor, sorted by offset.
+	 */
+	private List<String> getFoldingRegions() {
+		ProjectionAnnotationModel model= ((ProjectionViewer) fEditor.getViewer()).getProjectionAnnotationModel();
+		List<String> regions= new ArrayList<>();
+		for (Iterator<Annotation> iter= model.getAnnotationIterator(); iter.hasNext();) {
+			Annotation annotation= iter.next();
+			Position position= model.getPosition(annotation);
+			if (!(annotation instanceof ProjectionAnnotation) || ((ProjectionAnnotation) annotation).isMarkedDeleted() || position == null)
+				continue;
+			Accessor accessor= new Accessor(annotation, annotation.getClass());
+			IJavaElement element= (IJavaElement) accessor.invoke("getElement", new Object[0]);
+			boolean comment= ((Boolean) accessor.invoke("isComment", new Object[0])).booleanValue();
+			regions.add(String.format("%05d:%d %s%s", position.getOffset(), position.getLength(), comment ? "comment of " : "", element.getHandleIdentifier()));
+		}
+		Collections.sort(regions);
+		return regions;
+	}
+
+	/**
+	 * Replaces text of the document, reconciles and asserts that the updated folding regions are
+	 * the ones of a recomputation of the whole folding structure.
+	 */
+	private void replace(String text, int offsetInText, int length, String replacement) throws Exception {
+		int offset= fDocument.get().indexOf(text);
+		assertTrue(text, offset != -1);
+		fDocument.replace(offset + offsetInText, length, replacement);
+		reconcile();
+
+		List<String> updated= getFoldingRegions();
+		getProvider().initialize();
+		assertEquals(getFoldingRegions(), updated);
+	}
+
+	public void testChangedMethodBody() throws Exception {
+		replace("int i= 0;\n", 10, 0, "        i++;\n        i--;\n");
+		replace("i++;\n", 0, 5, "");
+		replace("public void run() {\n", 20, 0, "                System.out.println();\n");
+	}
+
+	public void testChangedComment() throws Exception {
+		replace(" * Inner method.\n", 17, 0, "         * More.\n         *\n");
+		replace(" * First.\n", 10, 0, "     * More.\n");
+		replace(" * The field.\n", 0, 14, "");
+	}
+
+	public void testChangedMethodSignature() throws Exception {
+		replace("void first() {\n", 11, 0, "int j");
+		replace("void third() {\n", 0, 0, "public ");
+	}
+
+	public void testAddedAndRemovedMembers() throws Exception {
+		replace("    void third() {\n", 0, 0, "    void fourth() {\n    }\n\n");
+		replace("    void inner() {\n", 0, 0, "        void inner2() {\n        }\n");
+		replace("    void second() {\n", 0, 0, "    /**\n     * New.\n     */\n");
+		replace("    void fourth() {\n    }\n\n", 0, 27, "");
+	}
+
+	public void testChangedHeader() throws Exception {
+		replace(" * Header.\n", 11, 0, " * More.\n");
+		replace(" * The type.\n", 13, 0, " * More.\n");
+	}
+
+	private IType installRecordingProvider(boolean incremental) throws Exception {
+		IJavaFoldingStructureProvider original= getProvider();
+		original.uninstall();
+		fProvider= new RecordingProvider(incremental);
+		fProvider.install(fEditor, (ProjectionViewer) fEditor.getViewer());
+		fProvider.enable();
+		IType type= fProject.findType("p.A");
+		assertTrue(fProvider.fElements.contains(type.getMethod("third", new String[0])));
+		fProvider.fElements.clear();
+		return type;
+	}
+
+	public void testFullUpdateInSubclass() throws Exception {
+		IType type= installRecordingProvider(false);
+		replace("int i= 0;\n", 10, 0, "        i++;\n");
+		// the whole structure is recomputed on the change of first()
+		assertTrue(fProvider.fElements.toString(), fProvider.fElements.contains(type.getMethod("third", new String[0])));
+		assertTrue(fProvider.fElements.toString(), fProvider.fElements.contains(type.getType("Inner")));
+	}
+
+	public void testIncrementalUpdateInSubclass() throws Exception {
+		IType type= installRecordingProvider(true);
+		IJavaElement first= type.getMethod("first", new String[0]);
+		IJavaElement third= type.getMethod("third", new String[0]);
+		int offset= fDocument.get().indexOf("int i= 0;\n");
+		fDocument.replace(offset + 10, 0, "        i++;\n");
+		reconcile();
+		// only first() is recomputed
+		assertTrue(fProvider.fElements.toString(), fProvider.fElements.contains(first));
+		assertFalse(fProvider.fElements.toString(), fProvider.fElements.contains(third));
+	}
+}
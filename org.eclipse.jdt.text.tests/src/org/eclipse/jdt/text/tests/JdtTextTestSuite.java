@@ -15,6 +15,8 @@
 package org.eclipse.jdt.text.tests;
 
 import org.eclipse.jdt.text.tests.contentassist.ContentAssistTestSuite;
+import org.eclipse.jdt.text.tests.spelling.CompiledWordListTest;
+import org.eclipse.jdt.text.tests.spelling.IncrementalSpellingTest;
 import org.eclipse.jdt.text.tests.spelling.SpellCheckEngineTestCase;
 import org.eclipse.jdt.text.tests.templates.TemplatesTestSuite;
 
@@ -60,6 +62,8 @@ public class JdtTextTestSuite {
 				});
 		suite.addTest(BracketInserterTest.suite());
 		suite.addTest(new JUnit4TestAdapter(SpellCheckEngineTestCase.class));
+		suite.addTest(new JUnit4TestAdapter(CompiledWordListTest.class));
+		suite.addTest(new JUnit4TestAdapter(IncrementalSpellingTest.class));
 		suite.addTest(SemanticHighlightingTest.suite());
 		suite.addTest(AutoboxingSemanticHighlightingTest.suite());
 		suite.addTest(NewForLoopJavaContextTest.suite());
@@ -71,6 +75,7 @@ public class JdtTextTestSuite {
 		suite.addTest(IndentActionTest.suite());
 		suite.addTest(TemplatesTestSuite.suite());
 		suite.addTest(JavaElementPrefixPatternMatcherTest.suite());
+		suite.addTest(FoldingTest.suite());
 		//$JUnit-END$
 
 		return suite;
@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests.contentassist;
+
+import java.util.List;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+import org.eclipse.jdt.text.tests.performance.EditorTestHelper;
+
+import org.eclipse.swt.graphics.Point;
+
+import org.eclipse.text.tests.Accessor;
+
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.contentassist.ContentAssistant;
+import org.eclipse.jface.text.contentassist.ICompletionProposal;
+import org.eclipse.jface.text.source.ISourceViewer;
+import org.eclipse.jface.text.source.SourceViewer;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+
+import org.eclipse.jdt.ui.text.java.ContentAssistInvocationContext;
+import org.eclipse.jdt.ui.text.java.JavaContentAssistInvocationContext;
+
+import org.eclipse.jdt.internal.ui.javaeditor.EditorUtility;
+import org.eclipse.jdt.internal.ui.javaeditor.JavaEditor;
+import org.eclipse.jdt.internal.ui.text.java.CompletionProposalCategory;
+import org.eclipse.jdt.internal.ui.text.java.CompletionProposalComputerRegistry;
+import org.eclipse.jdt.internal.ui.text.java.ContentAssistProcessor;
+import org.eclipse.jdt.internal.ui.text.java.JavaCompletionProcessor;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests content assist categories whose computers do not require the UI thread.
+ */
+public class BackgroundCompletionTest extends TestCase {
+
+	private static final Class<BackgroundCompletionTest> THIS= BackgroundCompletionTest.class;
+
+	/**
+	 * The default latency budget of content assist in milliseconds
+	 */
+	private static final long BUDGET= 1000;
+
+	public static Test suite() {
+		return new CompletionTestSetup(new TestSuite(THIS));
+	}
+
+	private ICompilationUnit fCU;
+
+	private JavaEditor fEditor;
+
+	private int fOffset;
+
+	@Override
+	protected void setUp() throws Exception {
+		String contents= "package test1;\npublic class Background {\n    void m() {\n        \n    }\n}\n";
+		fCU= CompletionTestSetup.getAnonymousTestPackage().createCompilationUnit("Background.java", contents, true, null);
+		fOffset= contents.indexOf("        \n") + 8;
+		fEditor= (JavaEditor) EditorUtility.openInEditor(fCU);
+		BackgroundProposalComputer.reset();
+		BackgroundProposalComputer.fgEnabled= true;
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		BackgroundProposalComputer.reset();
+		if (fEditor != null) {
+			EditorTestHelper.closeEditor(fEditor);
+			fEditor= null;
+		}
+		if (fCU != null) {
+			JavaProjectHelper.delete(fCU);
+			fCU= null;
+		}
+		JavaProjectHelper.emptyDisplayLoop();
+	}
+
+	private JavaCompletionProcessor createProcessor() {
+		JavaCompletionProcessor processor= new JavaCompletionProcessor(fEditor, new ContentAssistant(), IDocument.DEFAULT_CONTENT_TYPE);
+		// Must ensure same setup of the processor as when using via UI
+		Accessor accessor= new Accessor(processor, ContentAssistProcessor.class);
+		accessor.invoke("setCategoryIteration", new Object[0]);
+		accessor.set("fRepetition", 0);
+		return processor;
+	}
+
+	private static int countBackgroundProposals(ICompletionProposal[] proposals) {
+		int count= 0;
+		for (int i= 0; i < proposals.length; i++) {
+			if (BackgroundProposalComputer.PROPOSAL.equals(proposals[i].getDisplayString()))
+				count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the proposals shown in the proposal popup of the content assistant.
+	 */
+	private static ICompletionProposal[] getShownProposals(ContentAssistant assistant) {
+		Object popup= new Accessor(assistant, ContentAssistant.class).get("fProposalPopup");
+		ICompletionProposal[] proposals= (ICompletionProposal[]) new Accessor(popup, popup.getClass()).get("fFilteredProposals");
+		return proposals != null ? proposals : new ICompletionProposal[0];
+	}
+
+	public void testComputedInBackground() throws Exception {
+		ICompletionProposal[] proposals= createProcessor().computeCompletionProposals(fEditor.getViewer(), fOffset);
+		assertEquals(2, countBackgroundProposals(proposals));
+		assertEquals(2, BackgroundProposalComputer.fgThreads.size());
+		for (Thread thread : BackgroundProposalComputer.fgThreads)
+			assertNotSame(Thread.currentThread(), thread);
+	}
+
+	public void testBuiltInCategoriesInBackground() throws Exception {
+		String[] ids= { "org.eclipse.jdt.ui.javaAllProposalCategory", "org.eclipse.jdt.ui.javaTypeProposalCategory", "org.eclipse.jdt.ui.javaNoTypeProposalCategory", "org.eclipse.jdt.ui.templateProposalCategory" };
+		List<CompletionProposalCategory> categories= CompletionProposalComputerRegistry.getDefault().getProposalCategories();
+		for (String id : ids) {
+			CompletionProposalCategory category= null;
+			for (CompletionProposalCategory cat : categories) {
+				if (id.equals(cat.getId()))
+					category= cat;
+			}
+			assertNotNull(id, category);
+			assertFalse(id, category.requiresUIThread(IDocument.DEFAULT_CONTENT_TYPE));
+		}
+	}
+
+	public void testContextPerCategory() throws Exception {
+		fEditor.getViewer().setSelectedRange(fOffset, 0);
+		createProcessor().computeCompletionProposals(fEditor.getViewer(), fOffset);
+		assertEquals(2, BackgroundProposalComputer.fgContexts.size());
+		ContentAssistInvocationContext context1= BackgroundProposalComputer.fgContexts.get(0);
+		ContentAssistInvocationContext context2= BackgroundProposalComputer.fgContexts.get(1);
+		assertNotSame(context1, context2);
+
+		// the contexts have been initialized in the UI thread
+		assertEquals(fCU, ((JavaContentAssistInvocationContext) context1).getCompilationUnit());
+		assertEquals(fCU, ((JavaContentAssistInvocationContext) context2).getCompilationUnit());
+		assertEquals(fOffset, context1.getInvocationOffset());
+		assertEquals("", context1.computeIdentifierPrefix().toString());
+
+		// the computers get the selected range from a snapshot
+		assertEquals(2, BackgroundProposalComputer.fgSelectedRanges.size());
+		assertEquals(new Point(fOffset, 0), BackgroundProposalComputer.fgSelectedRanges.get(0));
+		assertEquals(new Point(fOffset, 0), BackgroundProposalComputer.fgSelectedRanges.get(1));
+	}
+
+	public void testBudgetExceeded() throws Exception {
+		BackgroundProposalComputer.fgDelay= 20 * BUDGET;
+		JavaCompletionProcessor processor= createProcessor();
+		long start= System.currentTimeMillis();
+		ICompletionProposal[] proposals= processor.computeCompletionProposals(fEditor.getViewer(), fOffset);
+		assertTrue(System.currentTimeMillis() - start < 10 * BUDGET);
+		assertEquals(0, countBackgroundProposals(proposals));
+
+		// the computers go on computing the late proposals
+		assertTrue(BackgroundProposalComputer.fgCanceledMonitors.isEmpty());
+
+		// until content assist is invoked again: the monitors of both categories are canceled, so that the computers stop
+		processor.computeCompletionProposals(fEditor.getViewer(), fOffset);
+		long end= System.currentTimeMillis() + 5 * BUDGET;
+		while (BackgroundProposalComputer.fgCanceledMonitors.size() < 2 && System.currentTimeMillis() < end)
+			Thread.sleep(10);
+		assertEquals(2, BackgroundProposalComputer.fgCanceledMonitors.size());
+		assertNotSame(BackgroundProposalComputer.fgCanceledMonitors.get(0), BackgroundProposalComputer.fgCanceledMonitors.get(1));
+	}
+
+	public void testBudgetExceededThenComputed() throws Exception {
+		BackgroundProposalComputer.fgDelay= 20 * BUDGET;
+		createProcessor().computeCompletionProposals(fEditor.getViewer(), fOffset);
+
+		BackgroundProposalComputer.fgDelay= 0;
+		ICompletionProposal[] proposals= createProcessor().computeCompletionProposals(fEditor.getViewer(), fOffset);
+		assertEquals(2, countBackgroundProposals(proposals));
+	}
+
+	public void testLateProposalsMerged() throws Exception {
+		BackgroundProposalComputer.fgDelay= 2 * BUDGET;
+		ISourceViewer viewer= fEditor.getViewer();
+		ContentAssistant assistant= (ContentAssistant) new Accessor(viewer, SourceViewer.class).get("fContentAssistant");
+		viewer.setSelectedRange(fOffset, 0);
+		assistant.showPossibleCompletions();
+		assertEquals(0, countBackgroundProposals(getShownProposals(assistant)));
+		assertTrue(getShownProposals(assistant).length > 0);
+
+		// the late proposals are added to the open popup
+		long end= System.currentTimeMillis() + 10 * BUDGET;
+		while (countBackgroundProposals(getShownProposals(assistant)) < 2 && System.currentTimeMillis() < end)
+			EditorTestHelper.runEventQueue(10);
+		assertEquals(2, countBackgroundProposals(getShownProposals(assistant)));
+	}
+}
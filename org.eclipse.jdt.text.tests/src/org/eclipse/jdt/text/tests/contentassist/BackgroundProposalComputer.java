@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests.contentassist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.widgets.Display;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import org.eclipse.jface.text.contentassist.ICompletionProposal;
+import org.eclipse.jface.text.contentassist.IContextInformation;
+
+import org.eclipse.jdt.ui.text.java.ContentAssistInvocationContext;
+import org.eclipse.jdt.ui.text.java.IJavaCompletionProposalComputer;
+
+import org.eclipse.jdt.internal.ui.text.java.ContentAssistProcessor;
+import org.eclipse.jdt.internal.ui.text.java.JavaCompletionProposal;
+
+/**
+ * A proposal computer which does not require the UI thread. It is contributed to two
+ * categories and only computes proposals while {@link BackgroundCompletionTest} runs.
+ */
+public class BackgroundProposalComputer implements IJavaCompletionProposalComputer {
+
+	public static final String PROPOSAL= "background";
+
+	static volatile boolean fgEnabled;
+
+	/**
+	 * The time in milliseconds which the computer waits unless it is canceled or the time is
+	 * reset
+	 */
+	static volatile long fgDelay;
+
+	static final List<ContentAssistInvocationContext> fgContexts= Collections.synchronizedList(new ArrayList<ContentAssistInvocationContext>());
+
+	static final List<Thread> fgThreads= Collections.synchronizedList(new ArrayList<Thread>());
+
+	static final List<IProgressMonitor> fgCanceledMonitors= Collections.synchronizedList(new ArrayList<IProgressMonitor>());
+
+	static final List<Point> fgSelectedRanges= Collections.synchronizedList(new ArrayList<Point>());
+
+	static void reset() {
+		fgEnabled= false;
+		fgDelay= 0;
+		fgContexts.clear();
+		fgThreads.clear();
+		fgCanceledMonitors.clear();
+		fgSelectedRanges.clear();
+	}
+
+	@Override
+	public void sessionStarted() {
+	}
+
+	@Override
+	public List<ICompletionProposal> computeCompletionProposals(ContentAssistInvocationContext context, IProgressMonitor monitor) {
+		if (!fgEnabled)
+			return Collections.emptyList();
+		fgContexts.add(context);
+		fgThreads.add(Thread.currentThread());
+		if (Display.getCurrent() != null)
+			return Collections.emptyList();
+		fgSelectedRanges.add(ContentAssistProcessor.getSelectedRange(context.getViewer()));
+
+		long start= System.currentTimeMillis();
+		while (System.currentTimeMillis() < start + fgDelay) {
+			if (monitor.isCanceled()) {
+				fgCanceledMonitors.add(monitor);
+				return Collections.emptyList();
+			}
+			try {
+				Thread.sleep(10);
+			} catch (InterruptedException e) {
+				return Collections.emptyList();
+			}
+		}
+		int offset= context.getInvocationOffset();
+		return Collections.<ICompletionProposal> singletonList(new JavaCompletionProposal(PROPOSAL, offset, 0, null, PROPOSAL, 0));
+	}
+
+	@Override
+	public List<IContextInformation> computeContextInformation(ContentAssistInvocationContext context, IProgressMonitor monitor) {
+		return Collections.emptyList();
+	}
+
+	@Override
+	public String getErrorMessage() {
+		return null;
+	}
+
+	@Override
+	public void sessionEnded() {
+	}
+}
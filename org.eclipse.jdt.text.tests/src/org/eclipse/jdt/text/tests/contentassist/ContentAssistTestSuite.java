@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2017 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -42,6 +42,7 @@ public class ContentAssistTestSuite {
 		suite.addTest(CodeCompletionTest.suite());
 		suite.addTest(CodeCompletionTest18.suite());
 		suite.addTest(ContinuousTypingCompletionTest.suite());
+		suite.addTest(BackgroundCompletionTest.suite());
 		//$JUnit-END$
 
 		return suite;
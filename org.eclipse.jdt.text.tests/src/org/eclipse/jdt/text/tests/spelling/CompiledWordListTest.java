@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests.spelling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.eclipse.jdt.internal.ui.text.spelling.engine.AbstractSpellDictionary;
+
+/**
+ * Tests compiling, reusing and recompiling the word lists of spell dictionaries.
+ */
+public class CompiledWordListTest {
+
+	private static class FileDictionary extends AbstractSpellDictionary {
+
+		private final URL fURL;
+
+		public FileDictionary(File file) throws MalformedURLException {
+			fURL= file.toURI().toURL();
+		}
+
+		@Override
+		protected URL getURL() {
+			return fURL;
+		}
+
+		@Override
+		protected String getEncoding() {
+			return "UTF-8";
+		}
+
+		@Override
+		public void addWord(String word) {
+			hashWord(word);
+		}
+
+		public File getCompiledFile() {
+			return AbstractSpellDictionary.getCompiledFile(fURL);
+		}
+	}
+
+	private final List<File> fFiles= new ArrayList<>();
+
+	private final List<FileDictionary> fDictionaries= new ArrayList<>();
+
+	@After
+	public void tearDown() throws Exception {
+		for (FileDictionary dictionary : fDictionaries) {
+			dictionary.unload();
+			dictionary.getCompiledFile().delete();
+		}
+		for (File file : fFiles)
+			file.delete();
+	}
+
+	private File createWordList(String... words) throws IOException {
+		File file= File.createTempFile("words", ".txt");
+		fFiles.add(file);
+		writeWordList(file, words);
+		return file;
+	}
+
+	private static void writeWordList(File file, String... words) throws IOException {
+		StringBuffer buf= new StringBuffer();
+		for (String word : words)
+			buf.append(word).append('\n');
+		Files.write(file.toPath(), buf.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private FileDictionary createDictionary(File wordList) throws MalformedURLException {
+		FileDictionary dictionary= new FileDictionary(wordList);
+		fDictionaries.add(dictionary);
+		return dictionary;
+	}
+
+	@Test
+	public void testCompiledOnFirstLoad() throws Exception {
+		FileDictionary dictionary= createDictionary(createWordList("truck", "track", "wagon"));
+		File compiled= dictionary.getCompiledFile();
+		assertNotNull(compiled);
+		assertFalse(compiled.exists());
+
+		assertTrue(dictionary.isCorrect("truck"));
+		assertTrue(dictionary.isCorrect("track"));
+		assertTrue(dictionary.isCorrect("wagon"));
+		assertFalse(dictionary.isCorrect("lorry"));
+		assertTrue(compiled.isFile());
+	}
+
+	@Test
+	public void testReusedWhenUnchanged() throws Exception {
+		File wordList= createWordList("truck", "track", "wagon");
+		FileDictionary dictionary= createDictionary(wordList);
+		assertTrue(dictionary.isCorrect("truck"));
+		File compiled= dictionary.getCompiledFile();
+		assertTrue(compiled.setLastModified(10000));
+
+		FileDictionary reloaded= createDictionary(wordList);
+		assertTrue(reloaded.isCorrect("truck"));
+		assertTrue(reloaded.isCorrect("track"));
+		assertTrue(reloaded.isCorrect("wagon"));
+		assertFalse(reloaded.isCorrect("lorry"));
+		// the compiled word list has been read, not written again
+		assertEquals(10000, compiled.lastModified());
+	}
+
+	@Test
+	public void testRecompiledWhenChanged() throws Exception {
+		File wordList= createWordList("truck", "track", "wagon");
+		assertTrue(createDictionary(wordList).isCorrect("truck"));
+
+		long modified= wordList.lastModified();
+		writeWordList(wordList, "lorry", "van");
+		assertTrue(wordList.setLastModified(modified + 2000));
+
+		FileDictionary reloaded= createDictionary(wordList);
+		assertTrue(reloaded.isCorrect("lorry"));
+		assertTrue(reloaded.isCorrect("van"));
+		assertFalse(reloaded.isCorrect("truck"));
+	}
+
+	@Test
+	public void testAddedWords() throws Exception {
+		File wordList= createWordList("truck", "track", "wagon");
+		assertTrue(createDictionary(wordList).isCorrect("truck"));
+
+		FileDictionary reloaded= createDictionary(wordList);
+		assertFalse(reloaded.isCorrect("lorry"));
+		reloaded.addWord("lorry");
+		reloaded.addWord("trucks");
+		assertTrue(reloaded.isCorrect("lorry"));
+		assertTrue(reloaded.isCorrect("trucks"));
+		assertTrue(reloaded.isCorrect("truck"));
+	}
+
+	@Test
+	public void testFilePerURL() throws Exception {
+		FileDictionary dictionary1= createDictionary(createWordList("truck"));
+		FileDictionary dictionary2= createDictionary(createWordList("lorry"));
+		assertFalse(dictionary1.getCompiledFile().equals(dictionary2.getCompiledFile()));
+		// the SHA-1 digest of the URL
+		assertTrue(dictionary1.getCompiledFile().getName().matches("[0-9a-f]{40}\\.dictionary\\.bin"));
+
+		assertTrue(dictionary1.isCorrect("truck"));
+		assertTrue(dictionary2.isCorrect("lorry"));
+		assertFalse(dictionary1.isCorrect("lorry"));
+		assertFalse(dictionary2.isCorrect("truck"));
+	}
+
+	@Test
+	public void testMappedAfterFileDeleted() throws Exception {
+		FileDictionary dictionary= createDictionary(createWordList("truck", "track", "wagon"));
+		assertTrue(dictionary.isCorrect("truck"));
+
+		// the mapping stays valid when the file is deleted, on the platforms which allow it
+		dictionary.getCompiledFile().delete();
+		assertTrue(dictionary.isCorrect("track"));
+		assertFalse(dictionary.isCorrect("trick"));
+	}
+}
@@ -0,0 +1,229 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests.spelling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.Region;
+
+import org.eclipse.ui.texteditor.spelling.ISpellingProblemCollector;
+import org.eclipse.ui.texteditor.spelling.SpellingProblem;
+
+import org.eclipse.jdt.ui.PreferenceConstants;
+import org.eclipse.jdt.ui.text.IJavaPartitions;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+import org.eclipse.jdt.internal.ui.text.spelling.JavaSpellingEngine;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.AbstractSpellDictionary;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.DefaultSpellChecker;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.ISpellCheckIterator;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.ISpellChecker;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.ISpellEventListener;
+
+/**
+ * Tests the incremental spell checking of {@link JavaSpellingEngine} and the word
+ * cache of {@link DefaultSpellChecker} against checking everything again.
+ */
+public class IncrementalSpellingTest {
+
+	private static class CountingDictionary extends AbstractSpellDictionary {
+
+		int fLookups;
+
+		@Override
+		protected URL getURL() {
+			return null;
+		}
+
+		@Override
+		public boolean acceptsWords() {
+			return true;
+		}
+
+		@Override
+		public void addWord(String word) {
+			hashWord(word);
+		}
+
+		@Override
+		public boolean isCorrect(String word) {
+			fLookups++;
+			return super.isCorrect(word);
+		}
+	}
+
+	private static class CountingChecker extends DefaultSpellChecker {
+
+		int fExecutions;
+
+		public CountingChecker() {
+			super(PreferenceConstants.getPreferenceStore(), Locale.US);
+		}
+
+		@Override
+		public void execute(ISpellEventListener listener, ISpellCheckIterator iterator) {
+			fExecutions++;
+			super.execute(listener, iterator);
+		}
+	}
+
+	private static class TestEngine extends JavaSpellingEngine {
+
+		List<String> check(IDocument document, ISpellChecker checker) {
+			final List<String> problems= new ArrayList<>();
+			ISpellingProblemCollector collector= new ISpellingProblemCollector() {
+				@Override
+				public void accept(SpellingProblem problem) {
+					problems.add(problem.getOffset() + ":" + problem.getLength());
+				}
+				@Override
+				public void beginCollecting() {
+				}
+				@Override
+				public void endCollecting() {
+				}
+			};
+			check(document, new IRegion[] { new Region(0, document.getLength()) }, checker, collector, null);
+			return problems;
+		}
+	}
+
+	private static final String[] WORDS= { "a", "here", "class", "another", "comment", "more", "text" };
+
+	private CountingDictionary fDictionary;
+
+	private CountingChecker fChecker;
+
+	@Before
+	public void setUp() throws Exception {
+		fDictionary= new CountingDictionary();
+		for (int i= 0; i < WORDS.length; i++)
+			fDictionary.addWord(WORDS[i]);
+		fChecker= new CountingChecker();
+		fChecker.addDictionary(fDictionary);
+	}
+
+	private static IDocument createDocument(String content) {
+		IDocument document= new Document(content);
+		JavaPlugin.getDefault().getJavaTextTools().setupJavaDocumentPartitioner(document, IJavaPartitions.JAVA_PARTITIONING);
+		return document;
+	}
+
+	private List<String> checkFully(IDocument document) {
+		CountingChecker checker= new CountingChecker();
+		checker.addDictionary(fDictionary);
+		return new TestEngine().check(document, checker);
+	}
+
+	@Test
+	public void testWordCache() {
+		assertTrue(fChecker.isCorrect("comment"));
+		assertFalse(fChecker.isCorrect("trukc"));
+		int lookups= fDictionary.fLookups;
+		assertTrue(fChecker.isCorrect("comment"));
+		assertFalse(fChecker.isCorrect("trukc"));
+		assertEquals(lookups, fDictionary.fLookups);
+	}
+
+	@Test
+	public void testWordCacheAfterChanges() {
+		assertFalse(fChecker.isCorrect("lorry"));
+		fDictionary.addWord("lorry");
+		assertTrue(fChecker.isCorrect("lorry"));
+
+		assertFalse(fChecker.isCorrect("van"));
+		fChecker.addWord("van");
+		assertTrue(fChecker.isCorrect("van"));
+
+		assertFalse(fChecker.isCorrect("truck"));
+		fChecker.ignoreWord("truck");
+		assertTrue(fChecker.isCorrect("truck"));
+		fChecker.checkWord("truck");
+		assertFalse(fChecker.isCorrect("truck"));
+
+		fChecker.removeDictionary(fDictionary);
+		assertFalse(fChecker.isCorrect("lorry"));
+		fChecker.addDictionary(fDictionary);
+		assertTrue(fChecker.isCorrect("lorry"));
+	}
+
+	@Test
+	public void testUnchangedPartitions() {
+		IDocument document= createDocument("/** a trukc here */\nclass A {\n\t// another commnt\n}\n");
+		TestEngine engine= new TestEngine();
+		List<String> problems= engine.check(document, fChecker);
+		assertEquals(2, problems.size());
+		assertEquals(2, fChecker.fExecutions);
+
+		assertEquals(problems, engine.check(document, fChecker));
+		assertEquals(2, fChecker.fExecutions);
+	}
+
+	@Test
+	public void testChangedPartition() throws Exception {
+		IDocument document= createDocument("/** a trukc here */\nclass A {\n\t// another commnt\n}\n");
+		TestEngine engine= new TestEngine();
+		engine.check(document, fChecker);
+		int executions= fChecker.fExecutions;
+
+		// moves the Javadoc comment and changes the line comment
+		document.replace(0, 0, "// more text\n");
+		document.replace(document.get().indexOf("commnt"), 0, "more ");
+		List<String> problems= engine.check(document, fChecker);
+		assertEquals(executions + 2, fChecker.fExecutions);
+		assertEquals(checkFully(document), problems);
+		assertEquals(2, problems.size());
+	}
+
+	@Test
+	public void testRemovedProblem() throws Exception {
+		IDocument document= createDocument("/** a trukc here */\nclass A {\n\t// another commnt\n}\n");
+		TestEngine engine= new TestEngine();
+		engine.check(document, fChecker);
+
+		int offset= document.get().indexOf("commnt");
+		document.replace(offset, 6, "comment");
+		List<String> problems= engine.check(document, fChecker);
+		assertEquals(checkFully(document), problems);
+		assertEquals(1, problems.size());
+	}
+
+	@Test
+	public void testDictionaryChanged() {
+		IDocument document= createDocument("/** a trukc here */\nclass A {\n\t// another commnt\n}\n");
+		TestEngine engine= new TestEngine();
+		engine.check(document, fChecker);
+		int executions= fChecker.fExecutions;
+
+		// all partitions are checked again after the words have changed
+		fDictionary.addWord("trukc");
+		List<String> problems= engine.check(document, fChecker);
+		assertEquals(executions + 2, fChecker.fExecutions);
+		assertEquals(checkFully(document), problems);
+		assertEquals(1, problems.size());
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -86,6 +86,8 @@ public class AllRefactoringTests {
 
 		//--types
 		suite.addTest(RenameTypeTests.suite());
+		suite.addTest(RenameTextualMatchesTests.suite());
+		suite.addTest(RefactoringSearchEngineTests.suite());
 		suite.addTest(RenameTypeParameterTests.suite());
 		suite.addTest(ChangeTypeRefactoringTests.suite());
 		suite.addTest(ChangeTypeRefactoringTests17.suite());
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.refactoring;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import org.eclipse.core.resources.IResource;
+
+import org.eclipse.ltk.core.refactoring.RefactoringStatus;
+
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchMatch;
+import org.eclipse.jdt.core.search.SearchPattern;
+
+import org.eclipse.jdt.internal.corext.refactoring.CollectingSearchRequestor;
+import org.eclipse.jdt.internal.corext.refactoring.RefactoringSearchEngine;
+import org.eclipse.jdt.internal.corext.refactoring.SearchResultGroup;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests that searching several patterns at once finds the same matches as
+ * searching the patterns one after the other.
+ */
+public class RefactoringSearchEngineTests extends RefactoringTest {
+
+	private static final Class<RefactoringSearchEngineTests> clazz= RefactoringSearchEngineTests.class;
+
+	public RefactoringSearchEngineTests(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new RefactoringTestSetup(new TestSuite(clazz));
+	}
+
+	public static Test setUpTest(Test someTest) {
+		return new RefactoringTestSetup(someTest);
+	}
+
+	private IType createTypes() throws Exception {
+		IType fred= createCU(getPackageP(), "Fred.java",
+				"package p;\npublic class Fred {\n    public Fred() {\n    }\n    public Fred(int i) {\n    }\n    void m() {\n    }\n}\n").getType("Fred");
+		for (int i= 0; i < 10; i++) {
+			String source= "package p;\nclass U" + i + " extends Fred {\n    U" + i + "() {\n        super(" + i + ");\n        m();\n    }\n"
+					+ "    Fred create() {\n        return new Fred();\n    }\n}\n";
+			createCU(getPackageP(), "U" + i + ".java", source);
+		}
+		return fred;
+	}
+
+	private SearchPattern[] createPatterns(IType fred) {
+		IMethod constructor= fred.getMethod("Fred", new String[0]);
+		IMethod intConstructor= fred.getMethod("Fred", new String[] { "I" });
+		IMethod m= fred.getMethod("m", new String[0]);
+		return new SearchPattern[] {
+				SearchPattern.createPattern(constructor, IJavaSearchConstants.REFERENCES),
+				SearchPattern.createPattern(intConstructor, IJavaSearchConstants.REFERENCES),
+				SearchPattern.createPattern(m, IJavaSearchConstants.REFERENCES),
+				SearchPattern.createPattern(fred, IJavaSearchConstants.REFERENCES) };
+	}
+
+	private IJavaSearchScope createScope() {
+		return SearchEngine.createJavaSearchScope(new IJavaElement[] { getRoot() });
+	}
+
+	private static void addMatches(Map<IResource, Set<String>> result, SearchResultGroup[] groups) {
+		for (int i= 0; i < groups.length; i++) {
+			Set<String> matches= result.get(groups[i].getResource());
+			if (matches == null) {
+				matches= new HashSet<>();
+				result.put(groups[i].getResource(), matches);
+			}
+			SearchMatch[] searchResults= groups[i].getSearchResults();
+			for (int j= 0; j < searchResults.length; j++)
+				matches.add(searchResults[j].getOffset() + ":" + searchResults[j].getLength());
+		}
+	}
+
+	private Map<IResource, Set<String>> searchOneByOne(SearchPattern[] patterns) throws Exception {
+		Map<IResource, Set<String>> result= new HashMap<>();
+		for (int i= 0; i < patterns.length; i++)
+			addMatches(result, RefactoringSearchEngine.search(patterns[i], createScope(), new NullProgressMonitor(), new RefactoringStatus()));
+		return result;
+	}
+
+	private Map<IResource, Set<String>> searchAtOnce(SearchPattern[] patterns) throws Exception {
+		SearchResultGroup[] groups= RefactoringSearchEngine.search(patterns, null, createScope(), new CollectingSearchRequestor(), new NullProgressMonitor(), new RefactoringStatus());
+		Set<IResource> resources= new HashSet<>();
+		for (int i= 0; i < groups.length; i++)
+			assertTrue("one group per compilation unit", resources.add(groups[i].getResource()));
+		Map<IResource, Set<String>> result= new HashMap<>();
+		addMatches(result, groups);
+		return result;
+	}
+
+	public void testSeveralPatterns() throws Exception {
+		SearchPattern[] patterns= createPatterns(createTypes());
+		Map<IResource, Set<String>> expected= searchOneByOne(patterns);
+		assertEquals(10, expected.size());
+		assertEquals(expected, searchAtOnce(patterns));
+	}
+
+	public void testSinglePattern() throws Exception {
+		SearchPattern[] patterns= createPatterns(createTypes());
+		for (int i= 0; i < patterns.length; i++) {
+			SearchPattern[] pattern= new SearchPattern[] { patterns[i] };
+			assertEquals(searchOneByOne(pattern), searchAtOnce(pattern));
+		}
+	}
+
+	public void testOnWorkerThread() throws Exception {
+		final SearchPattern[] patterns= createPatterns(createTypes());
+		Map<IResource, Set<String>> expected= searchOneByOne(patterns);
+		// the patterns are searched on the worker itself, since it must not wait for other workers
+		Map<IResource, Set<String>> actual= JavaPlugin.getDefault().getWorkerPool().submit(new Callable<Map<IResource, Set<String>>>() {
+			@Override
+			public Map<IResource, Set<String>> call() throws Exception {
+				return searchAtOnce(patterns);
+			}
+		}).get();
+		assertEquals(expected, actual);
+	}
+
+	public void testCanceled() throws Exception {
+		SearchPattern[] patterns= createPatterns(createTypes());
+		NullProgressMonitor monitor= new NullProgressMonitor();
+		monitor.setCanceled(true);
+		try {
+			RefactoringSearchEngine.search(patterns, null, createScope(), new CollectingSearchRequestor(), monitor, new RefactoringStatus());
+			fail("search was supposed to be canceled");
+		} catch (OperationCanceledException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.refactoring;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.Callable;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+
+import org.eclipse.ltk.core.refactoring.Change;
+import org.eclipse.ltk.core.refactoring.Refactoring;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.refactoring.IJavaRefactorings;
+import org.eclipse.jdt.core.refactoring.descriptors.RenameJavaElementDescriptor;
+
+import org.eclipse.jdt.internal.core.refactoring.descriptors.RefactoringSignatureDescriptorFactory;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the update of textual occurrences by rename refactorings, which scans the compilation
+ * units in scope concurrently and reads files which are not open directly.
+ */
+public class RenameTextualMatchesTests extends RefactoringTest {
+
+	private static final Class<RenameTextualMatchesTests> clazz= RenameTextualMatchesTests.class;
+
+	public RenameTextualMatchesTests(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new RefactoringTestSetup(new TestSuite(clazz));
+	}
+
+	public static Test setUpTest(Test someTest) {
+		return new RefactoringTestSetup(someTest);
+	}
+
+	private IType createFred() throws Exception {
+		return createCU(getPackageP(), "Fred.java", "package p;\npublic class Fred {\n}\n").getType("Fred");
+	}
+
+	private static String getSource(String className, String text) {
+		return "package p;\n/** " + text + " */\nclass " + className + " {\n    String s= \"" + text + "\";\n}\n";
+	}
+
+	private Refactoring createRenameRefactoring(IType type, String newName) throws Exception {
+		RenameJavaElementDescriptor descriptor= RefactoringSignatureDescriptorFactory.createRenameJavaElementDescriptor(IJavaRefactorings.RENAME_TYPE);
+		descriptor.setJavaElement(type);
+		descriptor.setNewName(newName);
+		descriptor.setUpdateReferences(true);
+		descriptor.setUpdateTextualOccurrences(true);
+		return createRefactoring(descriptor);
+	}
+
+	private ICompilationUnit createFile(String className, String text, String charset) throws Exception {
+		IFile file= ((IFolder) getPackageP().getResource()).getFile(className + ".java");
+		file.create(new ByteArrayInputStream(getSource(className, text).getBytes(charset)), true, null);
+		file.setCharset(charset, null);
+		return JavaCore.createCompilationUnitFrom(file);
+	}
+
+	public void testManyUnits() throws Exception {
+		IType fred= createFred();
+		ICompilationUnit[] cus= new ICompilationUnit[40];
+		for (int i= 0; i < cus.length; i++) {
+			String text= i % 2 == 0 ? "see Fred and Fredo" : "see Wilma";
+			cus[i]= createCU(getPackageP(), "U" + i + ".java", getSource("U" + i, text));
+		}
+
+		assertEquals("was supposed to pass", null, performRefactoring(createRenameRefactoring(fred, "Barney")));
+
+		for (int i= 0; i < cus.length; i++) {
+			String text= i % 2 == 0 ? "see Barney and Fredo" : "see Wilma";
+			assertEqualLines(cus[i].getElementName(), getSource("U" + i, text), cus[i].getSource());
+		}
+	}
+
+	public void testUnsavedChanges() throws Exception {
+		IType fred= createFred();
+		ICompilationUnit cu= createCU(getPackageP(), "U.java", getSource("U", "see Wilma"));
+		cu.becomeWorkingCopy(null);
+		try {
+			cu.getBuffer().setContents(getSource("U", "see Fred"));
+			assertTrue(cu.hasUnsavedChanges());
+
+			assertEquals("was supposed to pass", null, performRefactoring(createRenameRefactoring(fred, "Barney")));
+
+			assertEqualLines(getSource("U", "see Barney"), cu.getBuffer().getContents());
+		} finally {
+			cu.discardWorkingCopy();
+		}
+	}
+
+	public void testSingleByteCharset() throws Exception {
+		IType fred= createFred();
+		ICompilationUnit cu= createFile("U", "Gr\u00fc\u00dfe an Fred", "ISO-8859-1");
+
+		assertEquals("was supposed to pass", null, performRefactoring(createRenameRefactoring(fred, "Barney")));
+
+		assertEqualLines(getSource("U", "Gr\u00fc\u00dfe an Barney"), cu.getSource());
+	}
+
+	public void testUtf16() throws Exception {
+		IType fred= createFred();
+		ICompilationUnit cu= createFile("U", "\u00bfFred?", "UTF-16");
+
+		assertEquals("was supposed to pass", null, performRefactoring(createRenameRefactoring(fred, "Barney")));
+
+		assertEqualLines(getSource("U", "\u00bfBarney?"), cu.getSource());
+	}
+
+	public void testOnWorkerThread() throws Exception {
+		IType fred= createFred();
+		ICompilationUnit[] cus= new ICompilationUnit[8];
+		for (int i= 0; i < cus.length; i++)
+			cus[i]= createCU(getPackageP(), "U" + i + ".java", getSource("U" + i, "see Fred"));
+
+		final Refactoring refactoring= createRenameRefactoring(fred, "Barney");
+		// the units are scanned on the worker itself, since it must not wait for other workers
+		Change change= JavaPlugin.getDefault().getWorkerPool().submit(new Callable<Change>() {
+			@Override
+			public Change call() throws Exception {
+				assertTrue(refactoring.checkAllConditions(new NullProgressMonitor()).isOK());
+				return refactoring.createChange(new NullProgressMonitor());
+			}
+		}).get();
+		performChange(change);
+
+		for (int i= 0; i < cus.length; i++)
+			assertEqualLines(cus[i].getElementName(), getSource("U" + i, "see Barney"), cus[i].getSource());
+	}
+}
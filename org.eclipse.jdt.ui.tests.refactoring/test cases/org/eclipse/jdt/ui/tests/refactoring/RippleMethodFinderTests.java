@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,7 +16,10 @@ package org.eclipse.jdt.ui.tests.refactoring;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
@@ -27,7 +30,11 @@ import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IMethod;
 import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.ITypeHierarchy;
 
+import org.eclipse.jdt.internal.corext.refactoring.base.ReferencesInBinaryContext;
+import org.eclipse.jdt.internal.corext.refactoring.rename.RippleMethodCache;
 import org.eclipse.jdt.internal.corext.refactoring.rename.RippleMethodFinder2;
 
 import org.eclipse.jdt.ui.tests.refactoring.infra.AbstractCUTestCase;
@@ -88,12 +95,56 @@ public class RippleMethodFinderTests extends AbstractCUTestCase {
 			start++;
 		}
 
+		Set<IMethod> expected= new HashSet<>(rippleMethods);
 		IMethod[] result= RippleMethodFinder2.getRelatedMethods(target, new NullProgressMonitor(), null);
 		for (int i= 0; i < result.length; i++) {
 			IMethod method= result[i];
 			assertTrue("method not found: " + method, rippleMethods.remove(method));
 		}
 		assertEquals("found wrong ripple methods: " + rippleMethods, 0, rippleMethods.size());
+
+		// the second search takes the ripple methods from the cache
+		RippleMethodCache cache= new RippleMethodCache();
+		try {
+			assertEquals(expected, getRelatedMethods(target, cache));
+			assertEquals(expected, getRelatedMethods(target, cache));
+		} finally {
+			cache.dispose();
+		}
+	}
+
+	private static Set<IMethod> getRelatedMethods(IMethod method, RippleMethodCache cache) throws Exception {
+		ReferencesInBinaryContext binaryRefs= new ReferencesInBinaryContext("");
+		return new HashSet<>(Arrays.asList(RippleMethodFinder2.getRelatedMethods(method, binaryRefs, new NullProgressMonitor(), null, cache)));
+	}
+
+	public void testCacheInvalidatedOnChange() throws Exception {
+		IPackageFragment pack= RefactoringTestSetup.getPackageP();
+		ICompilationUnit cu= createCU(pack, "Cached.java",
+				"package p;\ninterface ICached {\n    void m();\n}\nclass Cached implements ICached {\n    public void m() {\n    }\n}\n");
+		ICompilationUnit added= null;
+		RippleMethodCache cache= new RippleMethodCache();
+		try {
+			IType type= cu.getType("Cached");
+			IMethod target= type.getMethod("m", new String[0]);
+			IMethod interfaceMethod= cu.getType("ICached").getMethod("m", new String[0]);
+			Set<IMethod> expected= new HashSet<>(Arrays.asList(target, interfaceMethod));
+			assertEquals(expected, getRelatedMethods(target, cache));
+			ITypeHierarchy hierarchy= cache.getHierarchy(type, null, new NullProgressMonitor());
+			assertSame(hierarchy, cache.getHierarchy(type, null, new NullProgressMonitor()));
+
+			// the cache is cleared when a type is added to the hierarchy
+			added= createCU(pack, "CachedToo.java", "package p;\nclass CachedToo implements ICached {\n    public void m() {\n    }\n}\n");
+			expected.add(added.getType("CachedToo").getMethod("m", new String[0]));
+			assertEquals(expected, getRelatedMethods(target, cache));
+			assertNotSame(hierarchy, cache.getHierarchy(type, null, new NullProgressMonitor()));
+			assertEquals(expected, getRelatedMethods(target, null));
+		} finally {
+			cache.dispose();
+			if (added != null)
+				added.delete(true, null);
+			cu.delete(true, null);
+		}
 	}
 
 	public void test1() throws Exception {
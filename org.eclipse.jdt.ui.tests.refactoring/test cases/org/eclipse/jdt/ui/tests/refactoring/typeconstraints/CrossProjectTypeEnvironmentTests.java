@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.refactoring.typeconstraints;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.FieldDeclaration;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+
+import org.eclipse.jdt.internal.corext.dom.IASTSharedValues;
+import org.eclipse.jdt.internal.corext.refactoring.typeconstraints.types.TType;
+import org.eclipse.jdt.internal.corext.refactoring.typeconstraints.types.TypeEnvironment;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests assignments between types which a single {@link TypeEnvironment} has created
+ * from the bindings of two projects, where the second project requires the first.
+ */
+public class CrossProjectTypeEnvironmentTests extends TestCase {
+
+	private static final Class<CrossProjectTypeEnvironmentTests> THIS= CrossProjectTypeEnvironmentTests.class;
+
+	/**
+	 * The field types which are declared in both projects. The first ones are
+	 * declared in the first project, the last two are JRE types.
+	 */
+	private static final String FIELDS=
+		"    Base<String> a;\n" +
+		"    Base<Integer> b;\n" +
+		"    Base c;\n" +
+		"    I<String> d;\n" +
+		"    I e;\n" +
+		"    Sub f;\n" +
+		"    Object g;\n" +
+		"    java.util.List<String> h;\n" +
+		"    java.util.ArrayList<String> i;\n";
+
+	private static final int SOURCE_TYPES= 6;
+
+	private IJavaProject fProject1;
+
+	private IJavaProject fProject2;
+
+	public static Test suite() {
+		return new TestSuite(THIS);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fProject1= JavaProjectHelper.createJavaProject("TypeEnvironment1", "bin");
+		JavaProjectHelper.addRTJar(fProject1);
+		IPackageFragmentRoot root1= JavaProjectHelper.addSourceContainer(fProject1, "src");
+		IPackageFragment p= root1.createPackageFragment("p", true, null);
+		p.createCompilationUnit("I.java", "package p;\npublic interface I<T> {\n}\n", true, null);
+		p.createCompilationUnit("Base.java", "package p;\npublic class Base<T> implements I<T> {\n}\n", true, null);
+		p.createCompilationUnit("Sub.java", "package p;\npublic class Sub extends Base<String> {\n}\n", true, null);
+		p.createCompilationUnit("Fields1.java", "package p;\npublic class Fields1 {\n" + FIELDS + "}\n", true, null);
+
+		fProject2= JavaProjectHelper.createJavaProject("TypeEnvironment2", "bin");
+		JavaProjectHelper.addRTJar(fProject2);
+		JavaProjectHelper.addRequiredProject(fProject2, fProject1);
+		IPackageFragmentRoot root2= JavaProjectHelper.addSourceContainer(fProject2, "src");
+		IPackageFragment q= root2.createPackageFragment("q", true, null);
+		q.createCompilationUnit("Other.java", "package q;\npublic class Other extends p.Sub implements java.io.Serializable {\n}\n", true, null);
+		q.createCompilationUnit("Fields2.java", "package q;\nimport p.*;\npublic class Fields2 {\n" + FIELDS + "    Other o;\n}\n", true, null);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		JavaProjectHelper.delete(fProject2);
+		JavaProjectHelper.delete(fProject1);
+	}
+
+	private static ITypeBinding[] getFieldTypes(IJavaProject project, String typeName) throws Exception {
+		ICompilationUnit unit= project.findType(typeName).getCompilationUnit();
+		ASTParser parser= ASTParser.newParser(IASTSharedValues.SHARED_AST_LEVEL);
+		parser.setProject(project);
+		parser.setResolveBindings(true);
+		parser.setSource(unit);
+		CompilationUnit node= (CompilationUnit) parser.createAST(null);
+		final List<ITypeBinding> result= new ArrayList<>();
+		node.accept(new ASTVisitor() {
+			@Override
+			public boolean visit(FieldDeclaration declaration) {
+				VariableDeclarationFragment fragment= (VariableDeclarationFragment) declaration.fragments().get(0);
+				result.add(fragment.resolveBinding().getType());
+				return false;
+			}
+		});
+		return result.toArray(new ITypeBinding[result.size()]);
+	}
+
+	private static TType[] create(TypeEnvironment environment, ITypeBinding[] bindings) {
+		TType[] result= new TType[bindings.length];
+		for (int i= 0; i < bindings.length; i++)
+			result[i]= environment.create(bindings[i]);
+		return result;
+	}
+
+	public void testSourceTypes() throws Exception {
+		ITypeBinding[] bindings1= getFieldTypes(fProject1, "p.Fields1");
+		ITypeBinding[] bindings2= getFieldTypes(fProject2, "q.Fields2");
+		TypeEnvironment environment= new TypeEnvironment();
+		TType[] types1= create(environment, bindings1);
+		TType[] types2= create(environment, bindings2);
+
+		for (int i= 0; i < SOURCE_TYPES; i++)
+			assertEquals(types1[i].getPrettySignature(), types1[i], types2[i]);
+
+		// the second project sees all types, so its bindings tell the expected results
+		for (int i= 0; i < SOURCE_TYPES + 1; i++) {
+			for (int j= 0; j < SOURCE_TYPES + 1; j++) {
+				String message= types2[i].getPrettySignature() + " to " + types2[j].getPrettySignature();
+				boolean expected= bindings2[i].isAssignmentCompatible(bindings2[j]);
+				assertEquals(message, expected, types2[i].canAssignTo(types2[j]));
+				assertEquals(message, expected, types1[i].canAssignTo(types2[j]));
+				assertEquals(message, expected, types2[i].canAssignTo(types1[j]));
+				assertEquals(message, expected, types1[i].canAssignTo(types1[j]));
+			}
+		}
+	}
+
+	public void testSubTypeOfOtherProject() throws Exception {
+		TypeEnvironment environment= new TypeEnvironment();
+		// creates the types of the second project first
+		ITypeBinding[] bindings2= getFieldTypes(fProject2, "q.Fields2");
+		TType[] types2= create(environment, bindings2);
+		TType[] types1= create(environment, getFieldTypes(fProject1, "p.Fields1"));
+		TType other= types2[bindings2.length - 1];
+
+		for (int k= 0; k < 2; k++) {
+			assertTrue(other.canAssignTo(types1[0])); // Base<String>
+			assertFalse(other.canAssignTo(types1[1])); // Base<Integer>
+			assertTrue(other.canAssignTo(types1[2])); // Base
+			assertTrue(other.canAssignTo(types1[3])); // I<String>
+			assertTrue(other.canAssignTo(types1[4])); // I
+			assertTrue(other.canAssignTo(types1[5])); // Sub
+			assertTrue(other.canAssignTo(types1[6])); // Object
+			assertFalse(types1[0].canAssignTo(other));
+		}
+	}
+
+	public void testLibraryTypes() throws Exception {
+		TypeEnvironment environment= new TypeEnvironment();
+		TType[] types1= create(environment, getFieldTypes(fProject1, "p.Fields1"));
+		TType[] types2= create(environment, getFieldTypes(fProject2, "q.Fields2"));
+		TType list1= types1[SOURCE_TYPES + 1];
+		TType arrayList1= types1[SOURCE_TYPES + 2];
+		TType list2= types2[SOURCE_TYPES + 1];
+		TType arrayList2= types2[SOURCE_TYPES + 2];
+
+		assertTrue(arrayList1.canAssignTo(list1));
+		assertTrue(arrayList2.canAssignTo(list2));
+		// the JRE types of the two projects come from different class path entries
+		assertFalse(list1.equals(list2));
+		assertFalse(arrayList1.canAssignTo(list2));
+		assertFalse(arrayList2.canAssignTo(list1));
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2017 IBM Corporation and others.
+ * Copyright (c) 2007, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -27,6 +27,8 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.StringTokenizer;
 
+import javax.xml.parsers.SAXParserFactory;
+
 import org.eclipse.jdt.junit.JUnitCore;
 import org.eclipse.jdt.junit.TestRunListener;
 import org.eclipse.jdt.junit.model.ITestCaseElement;
@@ -52,6 +54,10 @@ import org.eclipse.jdt.core.IPackageFragmentRoot;
 import org.eclipse.jdt.core.IType;
 
 import org.eclipse.jdt.internal.junit.model.JUnitModel;
+import org.eclipse.jdt.internal.junit.model.TestCaseElement;
+import org.eclipse.jdt.internal.junit.model.TestElement;
+import org.eclipse.jdt.internal.junit.model.TestElement.Status;
+import org.eclipse.jdt.internal.junit.model.TestRunHandler;
 import org.eclipse.jdt.internal.junit.model.TestRunSession;
 import org.eclipse.jdt.internal.junit.model.TestSuiteElement;
 
@@ -248,10 +254,71 @@ public class AbstractTestRunSessionSerializationTests extends TestCase {
 		File expectedFile= JavaTestPlugin.getDefault().getFileInPlugin(expectedPath);
 		String expected= getContents(new FileInputStream(expectedFile));
 		runExportImport(aTestCase, expected);
+		runSwapOutSwapIn(expectedFile);
 
 		runImportAntResult(test);
 	}
 
+	private static TestRunSession parseTestRunSession(File file) throws Exception {
+		TestRunHandler handler= new TestRunHandler();
+		SAXParserFactory.newInstance().newSAXParser().parse(file, handler);
+		return handler.getTestRunSession();
+	}
+
+	/*
+	 * Swaps a session out to the binary store and checks that it is read back lazily and completely.
+	 */
+	private void runSwapOutSwapIn(File file) throws Exception {
+		TestRunSession expected= parseTestRunSession(file);
+		TestRunSession swapped= parseTestRunSession(file);
+		ByteArrayOutputStream before= new ByteArrayOutputStream();
+		JUnitModel.exportTestRunSession(swapped, before);
+		try {
+			swapped.swapOut();
+			ITestElement[] expectedChildren= expected.getTestRoot().getChildren();
+			ITestElement[] children= swapped.getTestRoot().getChildren();
+			assertEquals(expectedChildren.length, children.length);
+			for (int i= 0; i < children.length; i++) {
+				if (children[i] instanceof TestSuiteElement) {
+					boolean hasChildren= ((ITestSuiteElement) expectedChildren[i]).getChildren().length > 0;
+					assertEquals(hasChildren, ((TestSuiteElement) children[i]).hasUnloadedChildren());
+					assertEquals(hasChildren, ((TestSuiteElement) children[i]).hasChildren());
+				}
+			}
+			assertEqualSessions(expected, swapped);
+
+			// the store is reused when the loaded session is swapped out again
+			swapped.swapOut();
+			ByteArrayOutputStream after= new ByteArrayOutputStream();
+			JUnitModel.exportTestRunSession(swapped, after);
+			assertEquals(before.toString("UTF-8"), after.toString("UTF-8"));
+
+			// a modification after the session has been swapped in again is not lost
+			TestCaseElement testCase= findTestCase(swapped.getTestRoot());
+			if (testCase != null) {
+				swapped.registerTestFailureStatus(testCase, Status.FAILURE, "modified", null, null);
+				swapped.swapOut();
+				swapped.getTestRoot();
+				TestElement loaded= swapped.getTestElement(testCase.getId());
+				assertEquals(Status.FAILURE, loaded.getStatus());
+				assertTrue(loaded.getTrace().endsWith("modified"));
+			}
+		} finally {
+			swapped.removeSwapFile();
+		}
+	}
+
+	private static TestCaseElement findTestCase(TestSuiteElement suite) {
+		for (ITestElement child : suite.getChildren()) {
+			if (child instanceof TestCaseElement)
+				return (TestCaseElement) child;
+			TestCaseElement testCase= findTestCase((TestSuiteElement) child);
+			if (testCase != null)
+				return testCase;
+		}
+		return null;
+	}
+
 	private void runImportAntResult(String test) throws CoreException {
 		Path testPath= new Path(JUnitWorkspaceTestSetup.getProjectPath() + "ant/result/TEST-pack." + test + ".xml");
 		File testFile= JavaTestPlugin.getDefault().getFileInPlugin(testPath);
@@ -0,0 +1,264 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.junit.tests;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jdt.internal.junit.model.ITestRunListener2;
+import org.eclipse.jdt.internal.junit.model.RemoteTestRunnerClient;
+import org.eclipse.jdt.internal.junit.runner.BinaryMessageWriter;
+import org.eclipse.jdt.internal.junit.runner.MessageIds;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests that messages written with the binary protocol of the RemoteTestRunner are
+ * decoded by the {@link RemoteTestRunnerClient} into the same notifications as messages
+ * of the line-based protocol.
+ */
+public class BinaryProtocolTest extends TestCase {
+
+	private static final long TIMEOUT= 10000;
+
+	private static final String TEST_ID= "1";
+
+	private static final String TEST_NAME= "testFoo(p.FooTest)";
+
+	private static final String TRACE= "junit.framework.AssertionFailedError: expected:<1> but was:<2>\n\tat p.FooTest.testFoo(FooTest.java:10)";
+
+	private static class RecordingListener implements ITestRunListener2 {
+		private final List<String> fEvents= new ArrayList<>();
+
+		private boolean fDone;
+
+		private synchronized void record(String event, boolean done) {
+			fEvents.add(event);
+			fDone|= done;
+			notifyAll();
+		}
+
+		synchronized List<String> waitForEvents() throws InterruptedException {
+			long end= System.currentTimeMillis() + TIMEOUT;
+			while (!fDone && System.currentTimeMillis() < end)
+				wait(end - System.currentTimeMillis());
+			assertTrue("Test run has not ended: " + fEvents, fDone);
+			return fEvents;
+		}
+
+		@Override
+		public void testRunStarted(int testCount) {
+			record("started " + testCount, false);
+		}
+
+		@Override
+		public void testRunEnded(long elapsedTime) {
+			record("ended " + elapsedTime, true);
+		}
+
+		@Override
+		public void testRunStopped(long elapsedTime) {
+			record("stopped " + elapsedTime, true);
+		}
+
+		@Override
+		public void testStarted(String testId, String testName) {
+			record("testStarted " + testId + " " + testName, false);
+		}
+
+		@Override
+		public void testEnded(String testId, String testName) {
+			record("testEnded " + testId + " " + testName, false);
+		}
+
+		@Override
+		public void testRunTerminated() {
+			record("terminated", true);
+		}
+
+		@Override
+		public void testTreeEntry(String description) {
+			record("tree " + description, false);
+		}
+
+		@Override
+		public void testFailed(int status, String testId, String testName, String trace, String expected, String actual) {
+			record("testFailed " + status + " " + testId + " " + testName + " " + trace + " " + expected + " " + actual, false);
+		}
+
+		@Override
+		public void testReran(String testId, String testClass, String testName, int status, String trace, String expected, String actual) {
+			record("testReran " + testId, false);
+		}
+	}
+
+	private RemoteTestRunnerClient fClient;
+
+	private RecordingListener fListener;
+
+	private Socket fSocket;
+
+	@Override
+	protected void setUp() throws Exception {
+		int port;
+		try (ServerSocket socket= new ServerSocket(0)) {
+			port= socket.getLocalPort();
+		}
+		fListener= new RecordingListener();
+		fClient= new RemoteTestRunnerClient();
+		fClient.startListening(new ITestRunListener2[] { fListener }, port);
+		long end= System.currentTimeMillis() + TIMEOUT;
+		while (fSocket == null) {
+			try {
+				fSocket= new Socket("localhost", port);
+			} catch (ConnectException e) {
+				if (System.currentTimeMillis() > end)
+					throw e;
+				Thread.sleep(20);
+			}
+		}
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fSocket.close();
+		fClient.stopWaiting();
+	}
+
+	private static String[] getMessages() {
+		return new String[] {
+				MessageIds.TEST_RUN_START + "1 v2",
+				MessageIds.TEST_TREE + TEST_ID + "," + TEST_NAME + ",false,1,false,-1," + TEST_NAME + ",,",
+				MessageIds.TEST_START + TEST_ID + "," + TEST_NAME,
+				MessageIds.TEST_FAILED + TEST_ID + "," + TEST_NAME,
+				MessageIds.EXPECTED_START,
+				"1",
+				MessageIds.EXPECTED_END,
+				MessageIds.ACTUAL_START,
+				"2",
+				MessageIds.ACTUAL_END,
+				MessageIds.TRACE_START,
+				TRACE,
+				MessageIds.TRACE_END,
+				MessageIds.TEST_END + TEST_ID + "," + TEST_NAME,
+				MessageIds.TEST_RUN_END + "42"
+		};
+	}
+
+	private static List<String> getExpectedEvents() {
+		return Arrays.asList(
+				"started 1",
+				"tree " + TEST_ID + "," + TEST_NAME + ",false,1,false,-1," + TEST_NAME + ",,",
+				"testStarted " + TEST_ID + " " + TEST_NAME,
+				"testFailed " + ITestRunListener2.STATUS_FAILURE + " " + TEST_ID + " " + TEST_NAME + " " + TRACE + "\n 1 2",
+				"testEnded " + TEST_ID + " " + TEST_NAME,
+				"ended 42");
+	}
+
+	public void testBinaryProtocol() throws Exception {
+		BinaryMessageWriter writer= new BinaryMessageWriter(fSocket.getOutputStream());
+		String[] messages= getMessages();
+		for (int i= 0; i < messages.length; i++)
+			writer.writeMessage(messages[i]);
+		writer.flush();
+		assertEquals(getExpectedEvents(), fListener.waitForEvents());
+	}
+
+	public void testManyFrames() throws Exception {
+		BinaryMessageWriter writer= new BinaryMessageWriter(fSocket.getOutputStream());
+		int count= 5000;
+		writer.writeMessage(MessageIds.TEST_RUN_START + count + " v2");
+		for (int i= 0; i < count; i++) {
+			writer.writeMessage(MessageIds.TEST_START + i + ",test" + i + "(p.FooTest)");
+			writer.writeMessage(MessageIds.TEST_END + i + ",test" + i + "(p.FooTest)");
+		}
+		writer.writeMessage(MessageIds.TEST_RUN_END + "1");
+		List<String> events= fListener.waitForEvents();
+		assertEquals(2 * count + 2, events.size());
+		assertEquals("testStarted 4711 test4711(p.FooTest)", events.get(1 + 2 * 4711));
+		assertEquals("ended 1", events.get(events.size() - 1));
+	}
+
+	public void testLineProtocol() throws Exception {
+		writeLines(fSocket.getOutputStream(), getMessages());
+		assertEquals(getExpectedEvents(), fListener.waitForEvents());
+	}
+
+	public void testUnsupportedVersion() throws Exception {
+		checkUnsupportedVersion(0);
+	}
+
+	public void testNewerVersion() throws Exception {
+		checkUnsupportedVersion(MessageIds.BINARY_PROTOCOL_VERSION + 1);
+	}
+
+	private void checkUnsupportedVersion(int version) throws Exception {
+		OutputStream stream= fSocket.getOutputStream();
+		DataOutputStream output= new DataOutputStream(stream);
+		output.writeInt(MessageIds.BINARY_PROTOCOL_MAGIC);
+		output.writeInt(version);
+		writeLines(stream, new String[] { "", MessageIds.TEST_RUN_START + "0 v2", MessageIds.TEST_RUN_END + "7" });
+		assertEquals(Arrays.asList("started 0", "ended 7"), fListener.waitForEvents());
+	}
+
+	public void testInvalidFrameLength() throws Exception {
+		checkInvalidFrame(MessageIds.BINARY_PROTOCOL_MAX_FRAME_LENGTH + 1, new byte[0]);
+		assertEquals(Arrays.asList("terminated"), fListener.waitForEvents());
+	}
+
+	public void testNegativeFrameLength() throws Exception {
+		checkInvalidFrame(-1, new byte[0]);
+		assertEquals(Arrays.asList("terminated"), fListener.waitForEvents());
+	}
+
+	public void testTruncatedFrame() throws Exception {
+		// the frame announces two messages, but holds only one
+		byte[] payload= (MessageIds.TEST_RUN_START + "0 v2").getBytes(StandardCharsets.UTF_8);
+		ByteBuffer frame= ByteBuffer.allocate(4 + 5 + payload.length);
+		frame.putInt(2);
+		frame.put((byte) 0);
+		frame.putInt(payload.length);
+		frame.put(payload);
+		checkInvalidFrame(frame.capacity(), frame.array());
+		assertEquals(Arrays.asList("started 0", "terminated"), fListener.waitForEvents());
+	}
+
+	private void checkInvalidFrame(int length, byte[] frame) throws Exception {
+		DataOutputStream output= new DataOutputStream(fSocket.getOutputStream());
+		output.writeInt(MessageIds.BINARY_PROTOCOL_MAGIC);
+		output.writeInt(MessageIds.BINARY_PROTOCOL_VERSION);
+		output.writeInt(length);
+		output.write(frame);
+		output.flush();
+	}
+
+	private static void writeLines(OutputStream stream, String[] lines) throws IOException {
+		StringBuilder buffer= new StringBuilder();
+		for (int i= 0; i < lines.length; i++) {
+			buffer.append(lines[i]);
+			buffer.append('\n');
+		}
+		stream.write(buffer.toString().getBytes(StandardCharsets.UTF_8));
+		stream.flush();
+	}
+}
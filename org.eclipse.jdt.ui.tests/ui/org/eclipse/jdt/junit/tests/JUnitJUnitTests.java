@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2017 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -45,6 +45,10 @@ public class JUnitJUnitTests {
 
 		suite.addTestSuite(JUnit3TestFinderTest.class);
 		suite.addTestSuite(JUnit4TestFinderTest.class);
+
+		suite.addTestSuite(BinaryProtocolTest.class);
+		suite.addTestSuite(TestRunHistoryTest.class);
+		suite.addTestSuite(TestShardsTest.class);
 		//$JUnit-END$
 		return suite;
 	}
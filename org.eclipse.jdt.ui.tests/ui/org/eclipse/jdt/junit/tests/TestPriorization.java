@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -21,6 +21,7 @@ import java.util.Iterator;
 import java.util.List;
 
 import org.eclipse.jdt.internal.junit.runner.FailuresFirstPrioritizer;
+import org.eclipse.jdt.internal.junit.runner.TestHistoryPrioritizer;
 
 import junit.extensions.TestDecorator;
 import junit.extensions.TestSetup;
@@ -307,6 +308,81 @@ public class TestPriorization extends TestCase {
 		}
 	}
 
+	public void testHistoryReorder() {
+		// suite
+		//		suite1
+		//			A
+		//			B
+		//			C
+		//		suite2
+		//			D
+		//			E
+		//			F
+		TestSuite suite= new TestSuite();
+		suite.addTest(createSuiteABC());
+		suite.addTest(createSuiteDEF());
+
+		String[] priority= {
+				"testF(org.eclipse.jdt.junit.tests.TestPriorizationSuite2)",
+				"testD(org.eclipse.jdt.junit.tests.TestPriorizationSuite2)",
+				"testE(org.eclipse.jdt.junit.tests.TestPriorizationSuite2)",
+				"testC(org.eclipse.jdt.junit.tests.TestPriorizationSuite1)",
+				"testA(org.eclipse.jdt.junit.tests.TestPriorizationSuite1)",
+				"testB(org.eclipse.jdt.junit.tests.TestPriorizationSuite1)"
+		};
+		Test reordered= new TestHistoryPrioritizer(priority).prioritize(suite);
+		List<String> order= new ArrayList<>();
+		collectOrder(reordered, order);
+
+		String[] expected= {
+				"testF", "testD", "testE", "testC", "testA", "testB",
+		};
+		checkOrder(expected, order);
+	}
+
+	public void testHistoryReorderUnknownFirst() {
+		// suite
+		//		suite1
+		//			A (not in history)
+		//			B
+		//			C
+		//		decorator
+		//			suite2
+		//				D
+		//				E
+		//				F
+		TestSuite suite= new TestSuite();
+		suite.addTest(createSuiteABC());
+		suite.addTest(new TestSetup(createSuiteDEF()) {
+			@Override
+			protected void setUp() throws Exception {
+			}
+		});
+
+		String[] priority= {
+				"testF(org.eclipse.jdt.junit.tests.TestPriorizationSuite2)",
+				"testE(org.eclipse.jdt.junit.tests.TestPriorizationSuite2)",
+				"testD(org.eclipse.jdt.junit.tests.TestPriorizationSuite2)",
+				"testC(org.eclipse.jdt.junit.tests.TestPriorizationSuite1)",
+				"testB(org.eclipse.jdt.junit.tests.TestPriorizationSuite1)"
+		};
+		Test reordered= new TestHistoryPrioritizer(priority).prioritize(suite);
+		List<String> order= new ArrayList<>();
+		collectOrder(reordered, order);
+
+		String[] expected= {
+				"testA", "testC", "testB", "testF", "testE", "testD",
+		};
+		checkOrder(expected, order);
+	}
+
+	public void testHistorySortClassNames() {
+		String[] classNames= { "p.X", "p.Y", "p.Z" };
+		String[] priority= { "p.Z", "p.X" };
+		new TestHistoryPrioritizer(priority).sortClassNames(classNames);
+		checkOrder(new String[] { "p.Y", "p.Z", "p.X" }, Arrays.asList(classNames));
+	}
+
 	private TestSuite createSuiteDEF() {
 		// suite
 		//		D
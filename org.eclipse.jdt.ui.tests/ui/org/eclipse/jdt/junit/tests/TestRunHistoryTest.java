@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.junit.tests;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.internal.junit.model.ITestSessionListener;
+import org.eclipse.jdt.internal.junit.model.TestCaseElement;
+import org.eclipse.jdt.internal.junit.model.TestElement.Status;
+import org.eclipse.jdt.internal.junit.model.TestRunHistory;
+import org.eclipse.jdt.internal.junit.model.TestRunSession;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests recording, saving and loading of the {@link TestRunHistory}.
+ */
+public class TestRunHistoryTest extends TestCase {
+
+	private File fFile;
+
+	private TestRunSession fSession;
+
+	@Override
+	protected void setUp() throws Exception {
+		fFile= File.createTempFile("testRunHistory", ".bin");
+		fFile.delete();
+		fSession= new TestRunSession("TestRunHistoryTest", null);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fFile.delete();
+	}
+
+	private void recordTest(ITestSessionListener recorder, String testName, Status status, double elapsed) {
+		TestCaseElement testCase= new TestCaseElement(fSession.getTestRoot(), testName, testName, null, false, null, null);
+		testCase.setStatus(status);
+		testCase.setElapsedTimeInSeconds(elapsed);
+		recorder.testEnded(testCase);
+	}
+
+	private static List<String> readPriorities(TestRunHistory history) throws Exception {
+		File file= new File(history.createPriorityFile());
+		try {
+			return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+		} finally {
+			file.delete();
+		}
+	}
+
+	public void testSaveAndLoad() throws Exception {
+		TestRunHistory history= new TestRunHistory(fFile);
+		ITestSessionListener recorder= history.createRecorder();
+		recordTest(recorder, "testSlow(p.A)", Status.OK, 4.0);
+		recordTest(recorder, "testFast(p.A)", Status.OK, 0.5);
+		recordTest(recorder, "testFailed(p.B)", Status.FAILURE, 1.0);
+		recorder.sessionEnded(0);
+		assertTrue(fFile.isFile());
+
+		TestRunHistory loaded= new TestRunHistory(fFile);
+		assertEquals(history.getClassDurations(), loaded.getClassDurations());
+		assertEquals(readPriorities(history), readPriorities(loaded));
+		assertEquals(Arrays.asList("p.B", "testFailed(p.B)", "testFast(p.A)", "testSlow(p.A)", "p.A"), readPriorities(loaded));
+	}
+
+	public void testMovingAverage() throws Exception {
+		TestRunHistory history= new TestRunHistory(fFile);
+		ITestSessionListener recorder= history.createRecorder();
+		recordTest(recorder, "testA(p.A)", Status.OK, 10.0);
+		recorder.sessionEnded(0);
+
+		history= new TestRunHistory(fFile);
+		recorder= history.createRecorder();
+		recordTest(recorder, "testA(p.A)", Status.OK, 0.0);
+		recorder.sessionEnded(0);
+
+		Map<String, Double> durations= new TestRunHistory(fFile).getClassDurations();
+		// the latest run has a weight of 0.3
+		assertEquals(7.0, durations.get("p.A").doubleValue(), 0.001);
+	}
+
+	public void testNotRunIsNotRecorded() throws Exception {
+		TestRunHistory history= new TestRunHistory(fFile);
+		ITestSessionListener recorder= history.createRecorder();
+		recordTest(recorder, "testNotRun(p.A)", Status.NOT_RUN, 1.0);
+		recorder.sessionEnded(0);
+		assertFalse(fFile.exists());
+		assertTrue(new TestRunHistory(fFile).getClassDurations().isEmpty());
+	}
+
+	public void testLoadUnknownFormat() throws Exception {
+		try (DataOutputStream out= new DataOutputStream(new FileOutputStream(fFile))) {
+			out.writeInt(0x12345678);
+			out.writeInt(1);
+		}
+		assertTrue(new TestRunHistory(fFile).getClassDurations().isEmpty());
+	}
+}
@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.junit.tests;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+
+import org.eclipse.jdt.internal.junit.launcher.TestShards;
+import org.eclipse.jdt.internal.junit.model.ITestSessionListener;
+import org.eclipse.jdt.internal.junit.model.TestCaseElement;
+import org.eclipse.jdt.internal.junit.model.TestElement.Status;
+import org.eclipse.jdt.internal.junit.model.TestRunHistory;
+import org.eclipse.jdt.internal.junit.model.TestRunSession;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the distribution of test classes to the VMs of a sharded test run.
+ */
+public class TestShardsTest extends TestCase {
+
+	private IType[] createTypes(String... names) {
+		IJavaProject project= JavaCore.create(ResourcesPlugin.getWorkspace().getRoot().getProject("TestShardsTest"));
+		IPackageFragment pack= project.getPackageFragmentRoot(project.getProject()).getPackageFragment("p");
+		IType[] types= new IType[names.length];
+		for (int i= 0; i < names.length; i++)
+			types[i]= pack.getCompilationUnit(names[i] + ".java").getType(names[i]);
+		return types;
+	}
+
+	private static double getTotal(IType[] shard, Map<String, Double> durations) {
+		double total= 0;
+		for (int i= 0; i < shard.length; i++)
+			total+= durations.get(shard[i].getFullyQualifiedName('.')).doubleValue();
+		return total;
+	}
+
+	private static void assertAllAssigned(IType[] types, IType[][] shards) {
+		Set<IType> assigned= new HashSet<>();
+		for (int i= 0; i < shards.length; i++) {
+			assertTrue("empty shard " + i, shards[i].length > 0);
+			for (int j= 0; j < shards[i].length; j++)
+				assertTrue("assigned twice: " + shards[i][j], assigned.add(shards[i][j]));
+		}
+		assertEquals(new HashSet<>(Arrays.asList(types)), assigned);
+	}
+
+	public void testBalanced() {
+		IType[] types= createTypes("A", "B", "C", "D", "E", "F");
+		Map<String, Double> durations= new HashMap<>();
+		durations.put("p.A", Double.valueOf(8));
+		durations.put("p.B", Double.valueOf(7));
+		durations.put("p.C", Double.valueOf(6));
+		durations.put("p.D", Double.valueOf(5));
+		durations.put("p.E", Double.valueOf(4));
+		durations.put("p.F", Double.valueOf(2));
+
+		IType[][] shards= TestShards.split(types, 2, durations);
+		assertEquals(2, shards.length);
+		assertAllAssigned(types, shards);
+		// longest first: A, D, E | B, C, F
+		assertEquals(17d, getTotal(shards[0], durations), 0);
+		assertEquals(15d, getTotal(shards[1], durations), 0);
+	}
+
+	public void testMoreShardsThanTypes() {
+		IType[] types= createTypes("A", "B");
+		IType[][] shards= TestShards.split(types, 4, Collections.<String, Double> emptyMap());
+		assertEquals(2, shards.length);
+		assertAllAssigned(types, shards);
+	}
+
+	public void testUnknownDurations() {
+		IType[] types= createTypes("A", "B", "C", "D");
+		Map<String, Double> durations= new HashMap<>();
+		durations.put("p.A", Double.valueOf(3));
+		durations.put("p.B", Double.valueOf(1));
+
+		// C and D are assumed to take the average of 2 seconds
+		IType[][] shards= TestShards.split(types, 2, durations);
+		assertAllAssigned(types, shards);
+		assertEquals(Arrays.asList(types[0], types[1]), Arrays.asList(shards[0]));
+		assertEquals(2, shards[1].length);
+	}
+
+	public void testDoesNotModifyTypes() {
+		IType[] types= createTypes("A", "B", "C");
+		IType[] copy= types.clone();
+		Map<String, Double> durations= new HashMap<>();
+		durations.put("p.C", Double.valueOf(5));
+		TestShards.split(types, 2, durations);
+		assertEquals(Arrays.asList(copy), Arrays.asList(types));
+	}
+
+	public void testClassDurationsOfNestedClasses() throws Exception {
+		File file= File.createTempFile("testRunHistory", ".bin");
+		try {
+			file.delete();
+			TestRunHistory history= new TestRunHistory(file);
+			ITestSessionListener recorder= history.createRecorder();
+			TestRunSession session= new TestRunSession("TestShardsTest", null);
+			recordTest(recorder, session, "1", "testA(p.Outer)", 1.0);
+			recordTest(recorder, session, "2", "testB(p.Outer$Inner)", 2.0);
+			recordTest(recorder, session, "3", "testC(p.Outer$Inner$Deeper)", 4.0);
+			recordTest(recorder, session, "4", "testD(p.Other)", 0.5);
+
+			Map<String, Double> durations= history.getClassDurations();
+			assertEquals(2, durations.size());
+			assertEquals(7.0, durations.get("p.Outer").doubleValue(), 0.001);
+			assertEquals(0.5, durations.get("p.Other").doubleValue(), 0.001);
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static void recordTest(ITestSessionListener recorder, TestRunSession session, String id, String testName, double elapsed) {
+		TestCaseElement testCase= new TestCaseElement(session.getTestRoot(), id, testName, null, false, null, null);
+		testCase.setStatus(Status.OK);
+		testCase.setElapsedTimeInSeconds(elapsed);
+		recorder.testEnded(testCase);
+	}
+}
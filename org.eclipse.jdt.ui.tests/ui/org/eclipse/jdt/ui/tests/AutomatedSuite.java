@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -24,6 +24,7 @@ import org.eclipse.jdt.ui.tests.browsing.PackagesViewContentProviderTests;
 import org.eclipse.jdt.ui.tests.browsing.PackagesViewContentProviderTests2;
 import org.eclipse.jdt.ui.tests.browsing.PackagesViewDeltaTests;
 import org.eclipse.jdt.ui.tests.buildpath.BuildpathTestSuite;
+import org.eclipse.jdt.ui.tests.callhierarchy.CallHierarchyCacheTest;
 import org.eclipse.jdt.ui.tests.callhierarchy.CallHierarchyContentProviderTest;
 import org.eclipse.jdt.ui.tests.core.CoreTests;
 import org.eclipse.jdt.ui.tests.jarexport.JarExportTests;
@@ -72,6 +73,7 @@ public class AutomatedSuite extends TestSuite {
 		addTest(ContentProviderTests.suite());
 
 		addTest(CallHierarchyContentProviderTest.suite());
+		addTest(CallHierarchyCacheTest.suite());
 
 		addTest(RefactoringTests.suite());
 
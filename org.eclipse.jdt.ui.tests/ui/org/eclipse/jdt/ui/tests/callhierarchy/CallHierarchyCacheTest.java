@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.callhierarchy;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.eclipse.jdt.core.IMember;
+import org.eclipse.jdt.core.IMethod;
+
+import org.eclipse.jdt.internal.corext.callhierarchy.CallHierarchy;
+import org.eclipse.jdt.internal.corext.callhierarchy.CallHierarchyCache;
+import org.eclipse.jdt.internal.corext.callhierarchy.CallerMethodWrapper;
+import org.eclipse.jdt.internal.corext.callhierarchy.MethodWrapper;
+
+/**
+ * Tests caching and prefetching of callers by the {@link CallHierarchyCache}.
+ */
+public class CallHierarchyCacheTest extends TestCase {
+
+    private static final Class<CallHierarchyCacheTest> THIS= CallHierarchyCacheTest.class;
+
+    private CallHierarchyTestHelper helper;
+
+    private CallHierarchyCache fCache;
+
+    public CallHierarchyCacheTest(String name) {
+        super(name);
+    }
+
+    public static Test suite() {
+        return new TestSuite(THIS);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        helper= new CallHierarchyTestHelper();
+        helper.setUp();
+        helper.createSimpleClasses();
+        fCache= CallHierarchyCache.getDefault();
+        fCache.clear();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        fCache.clear();
+        Job.getJobManager().join(fCache, null);
+        helper.tearDown();
+        helper= null;
+    }
+
+    private static CallerMethodWrapper getCallerRoot(IMethod method) {
+        return (CallerMethodWrapper) CallHierarchy.getDefault().getCallerRoots(new IMember[] { method })[0];
+    }
+
+    private MethodWrapper[] getCallers(IMethod method) {
+        return getCallerRoot(method).getCalls(new NullProgressMonitor());
+    }
+
+    public void testCallersAreCached() throws Exception {
+        CallerMethodWrapper root= getCallerRoot(helper.getMethod1());
+        assertFalse(fCache.isCached(root));
+
+        MethodWrapper[] callers= root.getCalls(new NullProgressMonitor());
+        helper.assertCalls(new IMember[] { helper.getMethod2(), helper.getMethod3() }, callers);
+        assertTrue(fCache.isCached(root));
+
+        helper.assertCalls(new IMember[] { helper.getMethod2(), helper.getMethod3() }, getCallers(helper.getMethod1()));
+    }
+
+    public void testChangeClearsCache() throws Exception {
+        CallerMethodWrapper root= getCallerRoot(helper.getMethod1());
+        root.getCalls(new NullProgressMonitor());
+        assertTrue(fCache.isCached(root));
+
+        helper.getType2().createMethod("public void method5() { method1(); }\n", null, true, null);
+        assertFalse(fCache.isCached(root));
+
+        IMethod method5= helper.getType2().getMethod("method5", new String[0]);
+        helper.assertCalls(new IMember[] { helper.getMethod2(), helper.getMethod3(), method5 }, getCallers(helper.getMethod1()));
+    }
+
+    public void testPrefetch() throws Exception {
+        MethodWrapper[] callers= getCallers(helper.getMethod1());
+        Job.getJobManager().join(fCache, null);
+
+        assertEquals(0, fCache.getPrefetchJobCount());
+        for (int i= 0; i < callers.length; i++)
+            assertTrue(callers[i].getName(), fCache.isCached((CallerMethodWrapper) callers[i]));
+    }
+
+    public void testPrefetchAfterCanceledJobs() throws Exception {
+        // canceled prefetch jobs must not keep counting against the maximal number of jobs
+        for (int i= 0; i < 20; i++) {
+            getCallers(helper.getMethod1());
+            fCache.clear();
+        }
+        Job.getJobManager().join(fCache, null);
+        assertEquals(0, fCache.getPrefetchJobCount());
+
+        MethodWrapper[] callers= getCallers(helper.getMethod1());
+        Job.getJobManager().join(fCache, null);
+        for (int i= 0; i < callers.length; i++)
+            assertTrue(callers[i].getName(), fCache.isCached((CallerMethodWrapper) callers[i]));
+    }
+
+    public void testShutdown() throws Exception {
+        getCallers(helper.getMethod1());
+        CallHierarchyCache.shutdown();
+        Job.getJobManager().join(fCache, null);
+        assertEquals(0, fCache.getPrefetchJobCount());
+
+        CallerMethodWrapper root= getCallerRoot(helper.getMethod1());
+        assertFalse(fCache.isCached(root));
+        CallHierarchyCache cache= CallHierarchyCache.getDefault();
+        assertNotSame(fCache, cache);
+        fCache= cache;
+    }
+}
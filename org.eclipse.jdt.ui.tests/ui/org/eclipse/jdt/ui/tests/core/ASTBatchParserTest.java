@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.internal.corext.dom.ASTBatchParser;
+
+public class ASTBatchParserTest extends TestCase {
+
+	private static final long MAX= 1000 * 1000 * 1000;
+
+	private static final long BUDGET= 800 * 1024;
+
+	public static Test suite() {
+		return new TestSuite(ASTBatchParserTest.class);
+	}
+
+	public void testHighUsageHalvesBudget() {
+		assertEquals(BUDGET / 2, ASTBatchParser.computeBudget(BUDGET, BUDGET, MAX * 8 / 10, MAX));
+	}
+
+	public void testLowUsageGrowsBudget() {
+		assertEquals(BUDGET + BUDGET / 2, ASTBatchParser.computeBudget(BUDGET, BUDGET, MAX / 10, MAX));
+	}
+
+	public void testSmallBatchKeepsBudget() {
+		// a batch smaller than half of the budget tells nothing about the budget
+		assertEquals(BUDGET, ASTBatchParser.computeBudget(BUDGET, BUDGET / 4, MAX / 10, MAX));
+	}
+
+	public void testModerateUsageKeepsBudget() {
+		assertEquals(BUDGET, ASTBatchParser.computeBudget(BUDGET, BUDGET, MAX * 6 / 10, MAX));
+	}
+
+	public void testBudgetIsBounded() {
+		long budget= BUDGET;
+		for (int i= 0; i < 100; i++)
+			budget= ASTBatchParser.computeBudget(budget, budget, MAX * 9 / 10, MAX);
+		assertTrue(budget > 0);
+		assertEquals(budget, ASTBatchParser.computeBudget(budget, budget, MAX * 9 / 10, MAX));
+
+		for (int i= 0; i < 100; i++)
+			budget= ASTBatchParser.computeBudget(budget, budget, 0, MAX);
+		assertTrue(budget < Long.MAX_VALUE / 2);
+		assertEquals(budget, ASTBatchParser.computeBudget(budget, budget, 0, MAX));
+	}
+}
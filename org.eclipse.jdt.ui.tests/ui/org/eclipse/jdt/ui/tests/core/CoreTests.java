@@ -39,6 +39,7 @@ public class CoreTests extends TestCase {
 		TestSuite suite= new TestSuite(CoreTests.class.getName());
 		suite.addTest(AddImportTest.suite());
 		suite.addTest(SourceActionTests.suite());
+		suite.addTest(ASTBatchParserTest.suite());
 		suite.addTest(ASTNodesInsertTest.suite());
 		suite.addTest(BindingsNameTest.suite());
 		suite.addTest(CallHierarchyTest.suite());
@@ -63,9 +64,13 @@ public class CoreTests extends TestCase {
 		suite.addTest(PartialASTTest.suite());
 		suite.addTest(ScopeAnalyzerTest.suite());
 		suite.addTest(TemplateStoreTest.suite());
+		suite.addTest(SuperTypeHierarchyCacheTest.suite());
 		suite.addTest(TypeHierarchyTest.suite());
 		suite.addTest(TypeRulesTest.suite());
 		suite.addTest(TypeInfoTest.suite());
+		suite.addTest(TypeNameIndexTest.suite());
+		suite.addTest(ProblemSeverityIndexTest.suite());
+		suite.addTest(JavadocHTMLCacheTest.suite());
 		suite.addTest(StringsTest.suite());
 		suite.addTest(IndentManipulationTest.suite());
 		suite.addTest(SelectionHistoryTest.suite());
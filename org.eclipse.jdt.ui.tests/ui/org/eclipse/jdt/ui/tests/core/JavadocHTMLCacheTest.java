@@ -0,0 +1,229 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IMember;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IType;
+
+import org.eclipse.jdt.internal.ui.text.javadoc.JavadocContentAccess2;
+import org.eclipse.jdt.internal.ui.text.javadoc.JavadocHTMLCache;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests that the {@link JavadocHTMLCache} returns the same HTML as
+ * {@link JavadocContentAccess2}, for members of class folders with attached
+ * source.
+ */
+public class JavadocHTMLCacheTest extends TestCase {
+
+	private static final Class<JavadocHTMLCacheTest> THIS= JavadocHTMLCacheTest.class;
+
+	private static final String BASE=
+		"package p;\n" +
+		"/** The base. */\n" +
+		"public class Base {\n" +
+		"    /** The field. */\n" +
+		"    public int fField;\n" +
+		"    /** Does %s. */\n" +
+		"    public void one() {\n" +
+		"    }\n" +
+		"    /**\n" +
+		"     * Does two.\n" +
+		"     * @param i the int\n" +
+		"     */\n" +
+		"    public void two(int i) {\n" +
+		"    }\n" +
+		"    /**\n" +
+		"     * Does three.\n" +
+		"     * @return the value\n" +
+		"     */\n" +
+		"    public int three() {\n" +
+		"        return 0;\n" +
+		"    }\n" +
+		"}\n";
+
+	private IJavaProject fLibA;
+
+	private IJavaProject fLibB;
+
+	private IJavaProject fProject;
+
+	private File fFolder;
+
+	private JavadocHTMLCache fCache;
+
+	public JavadocHTMLCacheTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(THIS);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fLibA= JavaProjectHelper.createJavaProject("JavadocCacheLibA", "bin");
+		JavaProjectHelper.addRTJar(fLibA);
+		IPackageFragment p= JavaProjectHelper.addSourceContainer(fLibA, "src").createPackageFragment("p", true, null);
+		p.createCompilationUnit("Base.java", String.format(BASE, "one"), true, null);
+		p.createCompilationUnit("Plain.java", "package p;\npublic class Plain {\n    public int fField;\n    public void m() {\n    }\n}\n", true, null);
+
+		fLibB= JavaProjectHelper.createJavaProject("JavadocCacheLibB", "bin");
+		JavaProjectHelper.addRTJar(fLibB);
+		JavaProjectHelper.addRequiredProject(fLibB, fLibA);
+		IPackageFragment q= JavaProjectHelper.addSourceContainer(fLibB, "src").createPackageFragment("q", true, null);
+		q.createCompilationUnit("Sub.java", "package q;\npublic class Sub extends p.Base {\n    @Override\n    public void one() {\n    }\n"
+				+ "    /** {@inheritDoc} */\n    @Override\n    public void two(int i) {\n    }\n}\n", true, null);
+		ResourcesPlugin.getWorkspace().build(IncrementalProjectBuilder.FULL_BUILD, null);
+
+		fProject= JavaProjectHelper.createJavaProject("JavadocCache", "bin");
+		JavaProjectHelper.addRTJar(fProject);
+		addClassFolder(fLibA, "src");
+		addClassFolder(fLibB, "src");
+
+		fFolder= Files.createTempDirectory("javadocCache").toFile();
+		fCache= new JavadocHTMLCache(fFolder, 60 * 1000);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		Job.getJobManager().join(fCache, null);
+		File[] files= fFolder.listFiles();
+		if (files != null) {
+			for (int i= 0; i < files.length; i++)
+				files[i].delete();
+		}
+		fFolder.delete();
+		JavaProjectHelper.delete(fProject);
+		JavaProjectHelper.delete(fLibB);
+		JavaProjectHelper.delete(fLibA);
+	}
+
+	private void addClassFolder(IJavaProject library, String sourceFolder) throws CoreException {
+		IPath classFolder= library.getProject().getFolder("bin").getFullPath();
+		JavaProjectHelper.removeFromClasspath(fProject, classFolder);
+		JavaProjectHelper.addLibrary(fProject, classFolder, library.getProject().getFolder(sourceFolder).getFullPath(), null);
+	}
+
+	private int countFiles() {
+		File[] files= fFolder.listFiles();
+		return files != null ? files.length : 0;
+	}
+
+	private static IMember[] getMembers(IType type) throws CoreException {
+		IJavaElement[] children= type.getChildren();
+		IMember[] members= new IMember[children.length];
+		for (int i= 0; i < children.length; i++)
+			members[i]= (IMember) children[i];
+		return members;
+	}
+
+	public void testContent() throws Exception {
+		IType base= fProject.findType("p.Base");
+		assertNotNull(fCache.getHTMLContent(base, true));
+		assertEquals(JavadocContentAccess2.getHTMLContent(base, true), fCache.getHTMLContent(base, true));
+		IMember[] members= getMembers(base);
+		for (int i= 0; i < members.length; i++) {
+			String expected= JavadocContentAccess2.getHTMLContent(members[i], true);
+			assertEquals(members[i].getElementName(), expected, fCache.getHTMLContent(members[i], true));
+			assertEquals(members[i].getElementName(), expected, fCache.getHTMLContent(members[i], true));
+		}
+	}
+
+	public void testPrefetch() throws Exception {
+		IType base= fProject.findType("p.Base");
+		IMember[] members= getMembers(base);
+		int expected= 0;
+		for (int i= 0; i < members.length; i++) {
+			if (JavadocContentAccess2.getHTMLContent(members[i], true) != null)
+				expected++;
+		}
+		assertEquals(4, expected);
+
+		fCache.getHTMLContent(base.getMethod("one", new String[0]), true);
+		Job.getJobManager().join(fCache, null);
+		assertEquals(expected, countFiles());
+
+		// the members rendered together are read from disk by another cache
+		JavadocHTMLCache cache= new JavadocHTMLCache(fFolder, 60 * 1000);
+		for (int i= 0; i < members.length; i++)
+			assertEquals(members[i].getElementName(), JavadocContentAccess2.getHTMLContent(members[i], true), cache.getHTMLContent(members[i], true));
+		Job.getJobManager().join(cache, null);
+		assertEquals(expected, countFiles());
+	}
+
+	public void testNoContentNotPersisted() throws Exception {
+		IType plain= fProject.findType("p.Plain");
+		assertNull(fCache.getHTMLContent(plain.getField("fField"), true));
+		assertNull(fCache.getHTMLContent(plain.getMethod("m", new String[0]), true));
+		Job.getJobManager().join(fCache, null);
+		assertEquals(0, countFiles());
+	}
+
+	public void testNoContentTimeout() throws Exception {
+		IMethod m= fProject.findType("p.Plain").getMethod("m", new String[0]);
+		JavadocHTMLCache cache= new JavadocHTMLCache(fFolder, 0);
+		assertNull(cache.getHTMLContent(m, true));
+		assertNull(cache.getHTMLContent(m, true));
+		Job.getJobManager().join(cache, null);
+		assertEquals(0, countFiles());
+	}
+
+	public void testInheritedJavadoc() throws Exception {
+		IType sub= fProject.findType("q.Sub");
+		IMethod one= sub.getMethod("one", new String[0]);
+		IMethod two= sub.getMethod("two", new String[] { "I" });
+		String content= fCache.getHTMLContent(one, true);
+		assertEquals(JavadocContentAccess2.getHTMLContent(one, true), content);
+		assertTrue(content, content.indexOf("Does one.") != -1);
+		content= fCache.getHTMLContent(two, true);
+		assertEquals(JavadocContentAccess2.getHTMLContent(two, true), content);
+		assertTrue(content, content.indexOf("Does two.") != -1);
+
+		// changes the source attachment of the library of the super type only
+		IFolder folder= fLibA.getProject().getFolder("src2");
+		folder.create(true, true, null);
+		folder.getFolder("p").create(true, true, null);
+		byte[] source= String.format(BASE, "one again").getBytes(StandardCharsets.UTF_8);
+		folder.getFolder("p").getFile("Base.java").create(new ByteArrayInputStream(source), true, null);
+		addClassFolder(fLibA, "src2");
+
+		one= fProject.findType("q.Sub").getMethod("one", new String[0]);
+		content= fCache.getHTMLContent(one, true);
+		assertEquals(JavadocContentAccess2.getHTMLContent(one, true), content);
+		assertTrue(content, content.indexOf("Does one again.") != -1);
+	}
+}
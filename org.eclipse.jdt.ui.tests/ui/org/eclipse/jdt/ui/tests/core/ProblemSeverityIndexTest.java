@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import java.io.ByteArrayInputStream;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.runtime.CoreException;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.jdt.internal.ui.viewsupport.ProblemSeverityIndex;
+
+/**
+ * Tests the severities of the {@link ProblemSeverityIndex} against searching
+ * the problem markers of the resources.
+ */
+public class ProblemSeverityIndexTest extends TestCase {
+
+	private static final Class<ProblemSeverityIndexTest> THIS= ProblemSeverityIndexTest.class;
+
+	private IProject fProject;
+
+	private IFolder fFolder;
+
+	private IFile fFile1;
+
+	private IFile fFile2;
+
+	private ProblemSeverityIndex fIndex;
+
+	public ProblemSeverityIndexTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(THIS);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		// not a Java project, so that no builder adds markers
+		fProject= ResourcesPlugin.getWorkspace().getRoot().getProject("SeverityIndex");
+		fProject.create(null);
+		fProject.open(null);
+		fFolder= fProject.getFolder("folder");
+		fFolder.create(true, true, null);
+		fFile1= createFile(fFolder, "A.txt");
+		fFile2= createFile(fFolder, "B.txt");
+		fIndex= new ProblemSeverityIndex();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fIndex.dispose();
+		fProject.delete(true, true, null);
+	}
+
+	private static IFile createFile(IFolder folder, String name) throws CoreException {
+		IFile file= folder.getFile(name);
+		file.create(new ByteArrayInputStream(new byte[0]), true, null);
+		return file;
+	}
+
+	private static IMarker createMarker(IResource resource, int severity) throws CoreException {
+		IMarker marker= resource.createMarker(IMarker.PROBLEM);
+		marker.setAttribute(IMarker.SEVERITY, severity);
+		return marker;
+	}
+
+	private void assertSeverities() throws CoreException {
+		IResource[] resources= { fProject, fFolder, fFile1, fFile2 };
+		for (int i= 0; i < resources.length; i++) {
+			IResource resource= resources[i];
+			if (!resource.exists())
+				continue;
+			assertEquals(resource.getName(), resource.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_ZERO), fIndex.findMaxProblemSeverity(resource, IResource.DEPTH_ZERO));
+			assertEquals(resource.getName(), resource.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE), fIndex.findMaxProblemSeverity(resource, IResource.DEPTH_INFINITE));
+		}
+	}
+
+	public void testNoMarkers() throws Exception {
+		assertSeverities();
+		assertEquals(-1, fIndex.findMaxProblemSeverity(fProject, IResource.DEPTH_INFINITE));
+	}
+
+	public void testInitialScan() throws Exception {
+		createMarker(fFile1, IMarker.SEVERITY_WARNING);
+		createMarker(fFile2, IMarker.SEVERITY_INFO);
+		createMarker(fProject, IMarker.SEVERITY_INFO);
+		assertSeverities();
+		assertEquals(IMarker.SEVERITY_WARNING, fIndex.findMaxProblemSeverity(fFolder, IResource.DEPTH_INFINITE));
+		assertEquals(IMarker.SEVERITY_INFO, fIndex.findMaxProblemSeverity(fProject, IResource.DEPTH_ZERO));
+	}
+
+	public void testMarkerDeltas() throws Exception {
+		assertSeverities();
+
+		IMarker error= createMarker(fFile1, IMarker.SEVERITY_ERROR);
+		assertSeverities();
+		assertEquals(IMarker.SEVERITY_ERROR, fIndex.findMaxProblemSeverity(fProject, IResource.DEPTH_INFINITE));
+
+		createMarker(fFile2, IMarker.SEVERITY_WARNING);
+		assertSeverities();
+
+		error.setAttribute(IMarker.SEVERITY, IMarker.SEVERITY_INFO);
+		assertSeverities();
+		assertEquals(IMarker.SEVERITY_WARNING, fIndex.findMaxProblemSeverity(fProject, IResource.DEPTH_INFINITE));
+
+		error.delete();
+		fFile2.deleteMarkers(IMarker.PROBLEM, true, IResource.DEPTH_ZERO);
+		assertSeverities();
+		assertEquals(-1, fIndex.findMaxProblemSeverity(fProject, IResource.DEPTH_INFINITE));
+	}
+
+	public void testMarkersOfScanNotCountedTwice() throws Exception {
+		ResourcesPlugin.getWorkspace().run((IWorkspaceRunnable) monitor -> {
+			createMarker(fFile1, IMarker.SEVERITY_ERROR);
+			// the project is scanned before the delta of the marker is reported
+			assertEquals(IMarker.SEVERITY_ERROR, fIndex.findMaxProblemSeverity(fProject, IResource.DEPTH_INFINITE));
+		}, null);
+		assertSeverities();
+
+		fFile1.deleteMarkers(IMarker.PROBLEM, true, IResource.DEPTH_ZERO);
+		assertSeverities();
+		assertEquals(-1, fIndex.findMaxProblemSeverity(fProject, IResource.DEPTH_INFINITE));
+	}
+
+	public void testAddedAndRemovedResources() throws Exception {
+		createMarker(fFile1, IMarker.SEVERITY_WARNING);
+		assertSeverities();
+
+		ResourcesPlugin.getWorkspace().run((IWorkspaceRunnable) monitor -> {
+			IFolder folder= fFolder.getFolder("sub");
+			folder.create(true, true, null);
+			createMarker(createFile(folder, "C.txt"), IMarker.SEVERITY_ERROR);
+		}, null);
+		assertSeverities();
+		assertEquals(IMarker.SEVERITY_ERROR, fIndex.findMaxProblemSeverity(fFolder, IResource.DEPTH_INFINITE));
+
+		fFolder.getFolder("sub").delete(true, null);
+		assertSeverities();
+		assertEquals(IMarker.SEVERITY_WARNING, fIndex.findMaxProblemSeverity(fFolder, IResource.DEPTH_INFINITE));
+
+		fFile1.delete(true, null);
+		assertSeverities();
+		assertEquals(-1, fIndex.findMaxProblemSeverity(fProject, IResource.DEPTH_INFINITE));
+	}
+
+	public void testClosedProject() throws Exception {
+		createMarker(fFile1, IMarker.SEVERITY_ERROR);
+		assertSeverities();
+
+		fProject.close(null);
+		assertEquals(-1, fIndex.findMaxProblemSeverity(fProject, IResource.DEPTH_INFINITE));
+
+		fProject.open(null);
+		assertSeverities();
+	}
+}
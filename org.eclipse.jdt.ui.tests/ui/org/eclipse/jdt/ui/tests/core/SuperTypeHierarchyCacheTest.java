@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.ITypeHierarchy;
+
+import org.eclipse.jdt.internal.corext.util.MethodOverrideTester;
+import org.eclipse.jdt.internal.corext.util.SuperTypeHierarchyCache;
+
+/**
+ * Tests lookups, invalidation and eviction of the {@link SuperTypeHierarchyCache}.
+ */
+public class SuperTypeHierarchyCacheTest extends TestCase {
+
+	private static final Class<SuperTypeHierarchyCacheTest> THIS= SuperTypeHierarchyCacheTest.class;
+
+	/**
+	 * The default maximal number of cached hierarchies
+	 */
+	private static final int CACHE_SIZE= 64;
+
+	private IJavaProject fJProject1;
+
+	private IPackageFragment fPack;
+
+	public SuperTypeHierarchyCacheTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return setUpTest(new TestSuite(THIS));
+	}
+
+	public static Test setUpTest(Test test) {
+		return new ProjectTestSetup(test);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fJProject1= ProjectTestSetup.getProject();
+		IPackageFragmentRoot root= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+		fPack= root.createPackageFragment("pack", true, null);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		JavaProjectHelper.clear(fJProject1, ProjectTestSetup.getDefaultClasspath());
+	}
+
+	private IType createType(String name, String source) throws Exception {
+		ICompilationUnit cu= fPack.createCompilationUnit(name + ".java", "package pack;\n" + source, true, null);
+		return cu.getType(name);
+	}
+
+	public void testLookupByContainedType() throws Exception {
+		IType typeA= createType("A", "public class A {\n}\n");
+		IType typeB= createType("B", "public class B extends A {\n}\n");
+
+		int misses= SuperTypeHierarchyCache.getCacheMisses();
+		int hits= SuperTypeHierarchyCache.getCacheHits();
+		ITypeHierarchy hierarchy= SuperTypeHierarchyCache.getTypeHierarchy(typeB);
+		assertEquals(misses + 1, SuperTypeHierarchyCache.getCacheMisses());
+		assertTrue(SuperTypeHierarchyCache.hasInCache(typeA));
+
+		// the hierarchy of B also serves A
+		assertSame(hierarchy, SuperTypeHierarchyCache.getTypeHierarchy(typeA));
+		assertSame(hierarchy, SuperTypeHierarchyCache.getTypeHierarchy(typeB));
+		assertEquals(misses + 1, SuperTypeHierarchyCache.getCacheMisses());
+		assertEquals(hits + 2, SuperTypeHierarchyCache.getCacheHits());
+	}
+
+	public void testMethodOverrideTester() throws Exception {
+		IType typeA= createType("A", "public class A {\n    public void foo() {}\n}\n");
+		IType typeB= createType("B", "public class B extends A {\n    public void foo() {}\n}\n");
+
+		MethodOverrideTester tester= SuperTypeHierarchyCache.getMethodOverrideTester(typeB);
+		assertSame(tester, SuperTypeHierarchyCache.getMethodOverrideTester(typeB));
+		assertEquals(typeA.getMethod("foo", new String[0]), tester.findOverriddenMethod(typeB.getMethod("foo", new String[0]), true));
+	}
+
+	public void testRemovedOnChange() throws Exception {
+		IType typeA= createType("A", "public class A {\n}\n");
+		IType typeB= createType("B", "public class B extends A {\n}\n");
+
+		ITypeHierarchy hierarchy= SuperTypeHierarchyCache.getTypeHierarchy(typeB);
+		assertTrue(hierarchy.contains(typeA));
+
+		createType("B", "public class B {\n}\n");
+		assertFalse(SuperTypeHierarchyCache.hasInCache(typeB));
+		assertFalse(SuperTypeHierarchyCache.hasInCache(typeA));
+
+		int misses= SuperTypeHierarchyCache.getCacheMisses();
+		hierarchy= SuperTypeHierarchyCache.getTypeHierarchy(typeB);
+		assertEquals(misses + 1, SuperTypeHierarchyCache.getCacheMisses());
+		assertFalse(hierarchy.contains(typeA));
+	}
+
+	public void testEviction() throws Exception {
+		int count= CACHE_SIZE + 8;
+		StringBuffer buf= new StringBuffer();
+		buf.append("public class C {\n}\n");
+		for (int i= 0; i < count; i++)
+			buf.append("class C" + i + " {\n}\n");
+		ICompilationUnit cu= fPack.createCompilationUnit("C.java", "package pack;\n" + buf.toString(), true, null);
+
+		int evictions= SuperTypeHierarchyCache.getCacheEvictions();
+		for (int i= 0; i < count; i++)
+			SuperTypeHierarchyCache.getTypeHierarchy(cu.getType("C" + i));
+		assertTrue(SuperTypeHierarchyCache.getCacheEvictions() - evictions >= count - CACHE_SIZE);
+
+		int cached= 0;
+		for (int i= 0; i < count; i++) {
+			if (SuperTypeHierarchyCache.hasInCache(cu.getType("C" + i)))
+				cached++;
+		}
+		assertTrue("cached: " + cached, cached <= CACHE_SIZE);
+		// the hierarchy which has just been added is never evicted
+		assertTrue(SuperTypeHierarchyCache.hasInCache(cu.getType("C" + (count - 1))));
+	}
+
+	public void testConcurrentLookups() throws Exception {
+		final IType[] types= new IType[] {
+				createType("A", "public class A {\n}\n"),
+				createType("B", "public class B extends A {\n}\n"),
+				createType("C", "public class C extends B {\n}\n"),
+				createType("D", "public class D extends A {\n}\n")
+		};
+		ExecutorService executor= Executors.newFixedThreadPool(4);
+		try {
+			List<Future<ITypeHierarchy>> futures= new ArrayList<>();
+			for (int i= 0; i < 64; i++) {
+				final IType type= types[i % types.length];
+				futures.add(executor.submit(new Callable<ITypeHierarchy>() {
+					@Override
+					public ITypeHierarchy call() throws Exception {
+						return SuperTypeHierarchyCache.getTypeHierarchy(type);
+					}
+				}));
+			}
+			for (int i= 0; i < futures.size(); i++) {
+				ITypeHierarchy hierarchy= futures.get(i).get();
+				assertTrue(hierarchy.contains(types[i % types.length]));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
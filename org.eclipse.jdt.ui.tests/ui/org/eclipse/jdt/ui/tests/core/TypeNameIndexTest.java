@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.manipulation.OrganizeImportsOperation;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.core.search.TypeNameMatch;
+import org.eclipse.jdt.core.search.TypeNameMatchRequestor;
+
+import org.eclipse.jdt.internal.corext.util.TypeNameIndex;
+
+/**
+ * Tests the lookups of the {@link TypeNameIndex} against the search engine, its
+ * updates from Java element deltas and that headless clients do not create it.
+ */
+public class TypeNameIndexTest extends TestCase {
+
+	private static final Class<TypeNameIndexTest> THIS= TypeNameIndexTest.class;
+
+	private IJavaProject fJProject1;
+
+	private IPackageFragment fPack;
+
+	public TypeNameIndexTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return setUpTest(new TestSuite(THIS));
+	}
+
+	public static Test setUpTest(Test test) {
+		return new ProjectTestSetup(test);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fJProject1= ProjectTestSetup.getProject();
+		IPackageFragmentRoot root= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+		fPack= root.createPackageFragment("pack", true, null);
+		TypeNameIndex.shutdown();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		TypeNameIndex.shutdown();
+		JavaProjectHelper.clear(fJProject1, ProjectTestSetup.getDefaultClasspath());
+	}
+
+	private ICompilationUnit createType(String name, String source) throws Exception {
+		return fPack.createCompilationUnit(name + ".java", "package pack;\n" + source, true, null);
+	}
+
+	private static TypeNameIndex waitUntilReady(TypeNameIndex index) throws Exception {
+		Job.getJobManager().join(index, null);
+		assertTrue(index.isReady());
+		return index;
+	}
+
+	private IJavaSearchScope getScope() {
+		return SearchEngine.createJavaSearchScope(new IJavaElement[] { fJProject1 });
+	}
+
+	private static Set<String> findTypes(TypeNameIndex index, String prefix, IJavaSearchScope scope) {
+		Set<String> names= new HashSet<>();
+		assertTrue(index.findTypes(prefix, scope, match -> names.add(match.getFullyQualifiedName()), null));
+		return names;
+	}
+
+	private static Set<String> searchTypes(String prefix, IJavaSearchScope scope) throws Exception {
+		final Set<String> names= new HashSet<>();
+		TypeNameMatchRequestor requestor= new TypeNameMatchRequestor() {
+			@Override
+			public void acceptTypeNameMatch(TypeNameMatch match) {
+				names.add(match.getFullyQualifiedName());
+			}
+		};
+		new SearchEngine().searchAllTypeNames(null, 0, prefix.toCharArray(), SearchPattern.R_PREFIX_MATCH, IJavaSearchConstants.TYPE, scope, requestor, IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, null);
+		return names;
+	}
+
+	public void testCreatedOnlyByUserInterface() throws Exception {
+		createType("Truck", "public class Truck {\n}\n");
+		ICompilationUnit cu= createType("A", "public class A {\n    List<Truck> trucks;\n}\n");
+		assertNull(TypeNameIndex.getExisting());
+
+		// organize imports searches without creating the index
+		new OrganizeImportsOperation(cu, null, false, true, true, null).run(null);
+		assertNull(TypeNameIndex.getExisting());
+		assertTrue(cu.getImport("java.util.List").exists());
+
+		TypeNameIndex index= TypeNameIndex.getDefault();
+		assertSame(index, TypeNameIndex.getExisting());
+		assertSame(index, TypeNameIndex.getDefault());
+	}
+
+	public void testPrefixLookup() throws Exception {
+		createType("Truck", "public class Truck {\n    public class TruckWheel {\n    }\n}\n");
+		createType("Tractor", "public class Tractor {\n}\n");
+		createType("Lorry", "public class Lorry {\n}\n");
+		TypeNameIndex index= waitUntilReady(TypeNameIndex.getDefault());
+
+		IJavaSearchScope scope= getScope();
+		String[] prefixes= { "Tr", "tr", "Truck", "Lorry", "ArrayL", "Object", "X" };
+		for (int i= 0; i < prefixes.length; i++)
+			assertEquals(prefixes[i], searchTypes(prefixes[i], scope), findTypes(index, prefixes[i], scope));
+		assertTrue(findTypes(index, "Tr", scope).contains("pack.Truck.TruckWheel"));
+	}
+
+	public void testExactLookup() throws Exception {
+		createType("Truck", "public class Truck {\n}\n");
+		TypeNameIndex index= waitUntilReady(TypeNameIndex.getDefault());
+
+		List<String> names= new ArrayList<>();
+		assertTrue(index.findTypes(Collections.singleton("Truck"), getScope(), match -> names.add(match.getFullyQualifiedName()), null));
+		assertEquals(Collections.singletonList("pack.Truck"), names);
+
+		names.clear();
+		assertTrue(index.findTypes(Collections.singleton("truck"), getScope(), match -> names.add(match.getFullyQualifiedName()), null));
+		assertTrue(names.isEmpty());
+	}
+
+	public void testUpdatedFromDeltas() throws Exception {
+		ICompilationUnit cu= createType("Truck", "public class Truck {\n}\n");
+		TypeNameIndex index= waitUntilReady(TypeNameIndex.getDefault());
+		IJavaSearchScope scope= getScope();
+		assertEquals(Collections.singleton("pack.Truck"), findTypes(index, "Tru", scope));
+
+		createType("Trunk", "public class Trunk {\n}\n");
+		waitUntilReady(index);
+		assertEquals(searchTypes("Tru", scope), findTypes(index, "Tru", scope));
+		assertTrue(findTypes(index, "Tru", scope).contains("pack.Trunk"));
+
+		cu.getBuffer().setContents("package pack;\npublic class Truck {\n}\nclass TruckWheel {\n}\n");
+		cu.save(null, true);
+		waitUntilReady(index);
+		assertEquals(searchTypes("Tru", scope), findTypes(index, "Tru", scope));
+		assertTrue(findTypes(index, "Tru", scope).contains("pack.TruckWheel"));
+
+		cu.delete(true, null);
+		waitUntilReady(index);
+		assertEquals(searchTypes("Tru", scope), findTypes(index, "Tru", scope));
+		assertEquals(Collections.singleton("pack.Trunk"), findTypes(index, "Tru", scope));
+	}
+
+	public void testShutdown() throws Exception {
+		TypeNameIndex index= waitUntilReady(TypeNameIndex.getDefault());
+		TypeNameIndex.shutdown();
+		assertNull(TypeNameIndex.getExisting());
+
+		// the removed index does not see changes anymore
+		createType("Truck", "public class Truck {\n}\n");
+		Job.getJobManager().join(index, null);
+		assertTrue(findTypes(index, "Truck", getScope()).isEmpty());
+
+		assertNotSame(index, TypeNameIndex.getDefault());
+	}
+}
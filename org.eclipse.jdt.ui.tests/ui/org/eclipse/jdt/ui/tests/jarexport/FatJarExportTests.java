@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2012 IBM Corporation and others.
+ * Copyright (c) 2007, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -23,7 +23,10 @@ package org.eclipse.jdt.ui.tests.jarexport;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.util.Enumeration;
 import java.util.Map;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -93,6 +96,7 @@ import org.eclipse.jdt.internal.ui.jarpackagerfat.FatJarPackageWizardPage.CopyLi
 import org.eclipse.jdt.internal.ui.jarpackagerfat.FatJarPackageWizardPage.ExtractLibraryHandler;
 import org.eclipse.jdt.internal.ui.jarpackagerfat.FatJarPackageWizardPage.LibraryHandler;
 import org.eclipse.jdt.internal.ui.jarpackagerfat.FatJarPackageWizardPage.PackageLibraryHandler;
+import org.eclipse.jdt.internal.ui.jarpackagerfat.FatJarPackageWizardPage.PackageStoredLibraryHandler;
 import org.eclipse.jdt.internal.ui.jarpackagerfat.FatJarRsrcUrlBuilder;
 import org.eclipse.jdt.internal.ui.util.BusyIndicatorRunnableContext;
 
@@ -171,6 +175,10 @@ public class FatJarExportTests extends TestCase {
 				data= assertFatJarWithLoaderExport(project, testName, compressJar, libraryHandler);
 				break;
 			}
+			case PackageStoredLibraryHandler.ID: {
+				data= assertFatJarWithLoaderExport(project, testName, compressJar, libraryHandler);
+				break;
+			}
 			case CopyLibraryHandler.ID: {
 				data= assertFatJarWithSubfolderExport(project, testName, compressJar, libraryHandler);
 				break;
@@ -252,6 +260,21 @@ public class FatJarExportTests extends TestCase {
 		in.close();
 		assertEquals("loader is a class file", 0xCAFEBABE, magic); //$NON-NLS-1$
 		assertEquals("loader compiled with JDK 1.3.1", "45.3", majorVersion + "." + minorVersion); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertNotNull(generatedArchive.getEntry("org/eclipse/jdt/internal/jarinjarloader/IndexedJarClassLoader.class")); //$NON-NLS-1$
+
+		if (libraryHandler.getID() == PackageStoredLibraryHandler.ID) {
+			// the loader indexes the libraries only if they are stored
+			in= generatedArchive.getInputStream(generatedArchive.getEntry(JarFile.MANIFEST_NAME));
+			Manifest manifest= new Manifest(in);
+			in.close();
+			assertEquals("true", manifest.getMainAttributes().getValue("Rsrc-Indexed-Class-Path")); //$NON-NLS-1$ //$NON-NLS-2$
+			Enumeration<? extends ZipEntry> entries= generatedArchive.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry= entries.nextElement();
+				if (entry.getName().endsWith(".jar")) //$NON-NLS-1$
+					assertEquals(entry.getName(), ZipEntry.STORED, entry.getMethod());
+			}
+		}
 		
 		generatedArchive.close();
 
@@ -458,6 +481,11 @@ public class FatJarExportTests extends TestCase {
 				assertAntScriptPackage(archiveName, antScriptLocation, filesets, zipfilesets);
 				break;
 			}
+			case PackageStoredLibraryHandler.ID: {
+				// the libraries are packaged by the same ANT script
+				assertAntScriptPackage(archiveName, antScriptLocation, filesets, zipfilesets);
+				break;
+			}
 			case CopyLibraryHandler.ID: {
 				assertAntScriptCopy(archiveName, antScriptLocation, filesets, zipfilesets);
 				break;
@@ -862,6 +890,23 @@ public class FatJarExportTests extends TestCase {
 		}
 	}
 
+	public void testExportInternalLib_StoredLibraries() throws Exception {
+		File lib= JavaTestPlugin.getDefault().getFileInPlugin(JavaProjectHelper.MYLIB_STDOUT);
+		IPackageFragmentRoot root= JavaProjectHelper.addLibraryWithImport(fProject, Path.fromOSString(lib.getPath()), null, null);
+
+		try {
+			JarPackageData data= createAndRunFatJar(fProject, getName(), true, new PackageStoredLibraryHandler());
+			assertAntScript(data, antScriptLocation(getName()),
+					new PackageStoredLibraryHandler(),
+					new String[] { "TestSetupProject/bin" },//$NON-NLS-1$
+					new String[] { "rtstubs15.jar", "mylib_stdout.jar" }); //$NON-NLS-1$  //$NON-NLS-2$
+
+			data= createAndRunFatJar(fProject, getName() + "_Uncompressed", false, new PackageStoredLibraryHandler()); //$NON-NLS-1$
+		} finally {
+			JavaProjectHelper.removeFromClasspath(fProject, root.getPath());
+		}
+	}
+
 	public void testExportExternalLib() throws Exception {
 		File lib= JavaTestPlugin.getDefault().getFileInPlugin(JavaProjectHelper.MYLIB_STDOUT);
 		IPackageFragmentRoot root= JavaProjectHelper.addLibrary(fProject, Path.fromOSString(lib.getPath()));
@@ -975,6 +1020,22 @@ public class FatJarExportTests extends TestCase {
 		}
 	}
 	
+	public void testSignedLibs_StoredLibraries() throws Exception {
+		File lib= JavaTestPlugin.getDefault().getFileInPlugin(JavaProjectHelper.MYLIB_SIG);
+		IPackageFragmentRoot root= JavaProjectHelper.addLibraryWithImport(fProject, Path.fromOSString(lib.getPath()), null, null);
+
+		try {
+			// the loader does not index signed libraries, but extracts them
+			JarPackageData data= createAndRunFatJar(fProject, getName(), true, new PackageStoredLibraryHandler());
+			assertAntScript(data, antScriptLocation(getName()),
+					new PackageStoredLibraryHandler(),
+					new String[] { "TestSetupProject/bin" }, //$NON-NLS-1$
+					new String[] { "rtstubs15.jar", "mylib_sig.jar" }); //$NON-NLS-1$  //$NON-NLS-2$
+		} finally {
+			JavaProjectHelper.removeFromClasspath(fProject, root.getPath());
+		}
+	}
+
 	public void testExternalClassFolder() throws Exception {
 		File classFolder= JavaTestPlugin.getDefault().getFileInPlugin(new Path("testresources/externalClassFolder/"));//$NON-NLS-1$
 		assertTrue("class folder not found", classFolder != null && classFolder.exists());//$NON-NLS-1$
@@ -0,0 +1,316 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.jarexport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.jar.JarEntry;
+import java.util.jar.JarInputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+import org.eclipse.jdt.internal.ui.jarpackager.JarArchiveWriter;
+import org.eclipse.jdt.internal.ui.jarpackager.RawZipEntryReader;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Writes archives with the {@link JarArchiveWriter} and reads them back with
+ * {@link ZipFile} and {@link JarInputStream}.
+ */
+public class JarArchiveWriterTests extends TestCase {
+
+	private static final Class<JarArchiveWriterTests> THIS= JarArchiveWriterTests.class;
+
+	/**
+	 * A size above which the writer compresses entries into temporary files
+	 */
+	private static final int LARGE_SIZE= 9 * 1024 * 1024;
+
+	private File fFile;
+
+	private File fSourceFile;
+
+	public static Test suite() {
+		return new TestSuite(THIS);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fFile= File.createTempFile("archive", ".jar");
+		fSourceFile= File.createTempFile("source", ".zip");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fFile.delete();
+		fSourceFile.delete();
+	}
+
+	private static byte[] createContent(int length, long seed) {
+		// compressible, but different for each entry
+		Random random= new Random(seed);
+		byte[] content= new byte[length];
+		for (int i= 0; i < length; i++)
+			content[i]= (byte) ('a' + random.nextInt(4));
+		return content;
+	}
+
+	private static ZipEntry createEntry(String name, int method) {
+		ZipEntry entry= new ZipEntry(name);
+		entry.setMethod(method);
+		entry.setTime(System.currentTimeMillis());
+		return entry;
+	}
+
+	private static Map<String, byte[]> createContents(int count, int length) {
+		Map<String, byte[]> contents= new LinkedHashMap<>();
+		for (int i= 0; i < count; i++)
+			contents.put("p/Entry" + i + ".txt", createContent(length + i % 100, i));
+		return contents;
+	}
+
+	private static byte[] readFully(InputStream stream) throws IOException {
+		ByteArrayOutputStream result= new ByteArrayOutputStream();
+		byte[] buffer= new byte[8192];
+		int count;
+		while ((count= stream.read(buffer)) != -1)
+			result.write(buffer, 0, count);
+		return result.toByteArray();
+	}
+
+	/**
+	 * Asserts that the archive has exactly the given entries, in order, with the given methods.
+	 */
+	private void assertArchive(Map<String, byte[]> expected, int method) throws IOException {
+		try (ZipFile zipFile= new ZipFile(fFile)) {
+			assertEquals(expected.size(), zipFile.size());
+			Enumeration<? extends ZipEntry> entries= zipFile.entries();
+			for (Map.Entry<String, byte[]> expectedEntry : expected.entrySet()) {
+				ZipEntry entry= entries.nextElement();
+				assertEquals(expectedEntry.getKey(), entry.getName());
+				assertEquals(entry.getName(), method, entry.getMethod());
+				byte[] content= expectedEntry.getValue();
+				assertEquals(entry.getName(), content.length, entry.getSize());
+				CRC32 crc= new CRC32();
+				crc.update(content);
+				assertEquals(entry.getName(), crc.getValue(), entry.getCrc());
+				if (method == ZipEntry.STORED)
+					assertEquals(entry.getName(), content.length, entry.getCompressedSize());
+				try (InputStream stream= zipFile.getInputStream(entry)) {
+					assertTrue(entry.getName(), Arrays.equals(content, readFully(stream)));
+				}
+			}
+		}
+		// the local headers are complete, too
+		try (JarInputStream stream= new JarInputStream(new ByteArrayInputStream(Files.readAllBytes(fFile.toPath())))) {
+			for (Map.Entry<String, byte[]> expectedEntry : expected.entrySet()) {
+				JarEntry entry= stream.getNextJarEntry();
+				assertEquals(expectedEntry.getKey(), entry.getName());
+				assertTrue(entry.getName(), Arrays.equals(expectedEntry.getValue(), readFully(stream)));
+			}
+			assertNull(stream.getNextJarEntry());
+		}
+	}
+
+	private void write(Map<String, byte[]> contents, int method, boolean reproducible, boolean streams) throws IOException {
+		JarArchiveWriter writer= new JarArchiveWriter(new FileOutputStream(fFile), reproducible);
+		try {
+			for (Map.Entry<String, byte[]> content : contents.entrySet()) {
+				ZipEntry entry= createEntry(content.getKey(), method);
+				if (streams)
+					writer.putEntry(entry, new ByteArrayInputStream(content.getValue()));
+				else
+					writer.putEntry(entry, content.getValue());
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	public void testDeflated() throws Exception {
+		Map<String, byte[]> contents= createContents(100, 1000);
+		write(contents, ZipEntry.DEFLATED, false, false);
+		assertArchive(contents, ZipEntry.DEFLATED);
+		assertTrue(fFile.length() < 100 * 1000);
+
+		write(contents, ZipEntry.DEFLATED, false, true);
+		assertArchive(contents, ZipEntry.DEFLATED);
+	}
+
+	public void testStored() throws Exception {
+		Map<String, byte[]> contents= createContents(100, 1000);
+		write(contents, ZipEntry.STORED, false, false);
+		assertArchive(contents, ZipEntry.STORED);
+
+		write(contents, ZipEntry.STORED, false, true);
+		assertArchive(contents, ZipEntry.STORED);
+	}
+
+	public void testEmptyEntries() throws Exception {
+		Map<String, byte[]> contents= new LinkedHashMap<>();
+		contents.put("p/", new byte[0]);
+		contents.put("p/Empty.txt", new byte[0]);
+		write(contents, ZipEntry.DEFLATED, false, true);
+		assertArchive(contents, ZipEntry.DEFLATED);
+	}
+
+	public void testLargeEntries() throws Exception {
+		Map<String, byte[]> contents= new LinkedHashMap<>();
+		contents.put("p/Small.txt", createContent(1000, 1));
+		contents.put("p/Large.txt", createContent(LARGE_SIZE, 2));
+		contents.put("p/Last.txt", createContent(1000, 3));
+		write(contents, ZipEntry.DEFLATED, false, true);
+		assertArchive(contents, ZipEntry.DEFLATED);
+
+		write(contents, ZipEntry.STORED, false, true);
+		assertArchive(contents, ZipEntry.STORED);
+	}
+
+	public void testOnWorkerThread() throws Exception {
+		final Map<String, byte[]> contents= createContents(100, 1000);
+		JavaPlugin.getDefault().getWorkerPool().submit(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				write(contents, ZipEntry.DEFLATED, false, false);
+				return null;
+			}
+		}).get();
+		assertArchive(contents, ZipEntry.DEFLATED);
+	}
+
+	public void testManyEntries() throws Exception {
+		// more entries than the ZIP format can count
+		Map<String, byte[]> contents= createContents(70000, 1);
+		write(contents, ZipEntry.STORED, true, false);
+		assertArchive(contents, ZipEntry.STORED);
+	}
+
+	public void testRawCopy() throws Exception {
+		Map<String, byte[]> contents= createContents(20, 1000);
+		contents.put("p/Large.txt", createContent(LARGE_SIZE, 20));
+		try (ZipOutputStream output= new ZipOutputStream(new FileOutputStream(fSourceFile))) {
+			int i= 0;
+			for (Map.Entry<String, byte[]> content : contents.entrySet()) {
+				ZipEntry entry= createEntry(content.getKey(), i++ % 2 == 0 ? ZipEntry.DEFLATED : ZipEntry.STORED);
+				if (entry.getMethod() == ZipEntry.STORED) {
+					CRC32 crc= new CRC32();
+					crc.update(content.getValue());
+					entry.setSize(content.getValue().length);
+					entry.setCrc(crc.getValue());
+				}
+				output.putNextEntry(entry);
+				output.write(content.getValue());
+				output.closeEntry();
+			}
+		}
+		copyRaw(fSourceFile, fFile);
+		assertArchiveContents(contents);
+
+		// copies the copy again
+		File copy= File.createTempFile("copy", ".jar");
+		try {
+			copyRaw(fFile, copy);
+			assertTrue(Arrays.equals(Files.readAllBytes(fFile.toPath()), Files.readAllBytes(copy.toPath())));
+		} finally {
+			copy.delete();
+		}
+	}
+
+	private static void copyRaw(File source, File target) throws IOException {
+		JarArchiveWriter writer= new JarArchiveWriter(new FileOutputStream(target), true);
+		RawZipEntryReader reader= new RawZipEntryReader(source);
+		try (ZipFile zipFile= new ZipFile(source)) {
+			Enumeration<? extends ZipEntry> entries= zipFile.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry= entries.nextElement();
+				byte[] data= reader.readRawData(entry);
+				assertNotNull(entry.getName(), data);
+				assertEquals(entry.getName(), entry.getCompressedSize(), data.length);
+				ZipEntry newEntry= new ZipEntry(entry.getName());
+				newEntry.setMethod(entry.getMethod());
+				newEntry.setSize(entry.getSize());
+				newEntry.setCompressedSize(entry.getCompressedSize());
+				newEntry.setCrc(entry.getCrc());
+				writer.putRawEntry(newEntry, data);
+			}
+		} finally {
+			reader.close();
+			writer.close();
+		}
+	}
+
+	private void assertArchiveContents(Map<String, byte[]> expected) throws IOException {
+		try (ZipFile zipFile= new ZipFile(fFile)) {
+			assertEquals(expected.size(), zipFile.size());
+			for (Map.Entry<String, byte[]> expectedEntry : expected.entrySet()) {
+				ZipEntry entry= zipFile.getEntry(expectedEntry.getKey());
+				try (InputStream stream= zipFile.getInputStream(entry)) {
+					assertTrue(entry.getName(), Arrays.equals(expectedEntry.getValue(), readFully(stream)));
+				}
+			}
+		}
+	}
+
+	public void testReproducible() throws Exception {
+		Map<String, byte[]> contents= createContents(100, 1000);
+		write(contents, ZipEntry.DEFLATED, true, false);
+		byte[] first= Files.readAllBytes(fFile.toPath());
+		Thread.sleep(2500);
+		write(contents, ZipEntry.DEFLATED, true, true);
+		assertTrue(Arrays.equals(first, Files.readAllBytes(fFile.toPath())));
+		assertArchive(contents, ZipEntry.DEFLATED);
+
+		try (ZipFile zipFile= new ZipFile(fFile)) {
+			long time= zipFile.entries().nextElement().getTime();
+			Enumeration<? extends ZipEntry> entries= zipFile.entries();
+			while (entries.hasMoreElements())
+				assertEquals(time, entries.nextElement().getTime());
+		}
+
+		// the times of the entries are used otherwise
+		write(contents, ZipEntry.DEFLATED, false, false);
+		assertFalse(Arrays.equals(first, Files.readAllBytes(fFile.toPath())));
+	}
+
+	public void testDuplicateEntry() throws Exception {
+		JarArchiveWriter writer= new JarArchiveWriter(new FileOutputStream(fFile), false);
+		try {
+			writer.putEntry(createEntry("p/A.txt", ZipEntry.DEFLATED), new byte[1]);
+			writer.putEntry(createEntry("p/A.txt", ZipEntry.STORED), new byte[1]);
+			fail("duplicate entry was written");
+		} catch (ZipException e) {
+			// expected
+		} finally {
+			writer.close();
+		}
+	}
+}
@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.quickfix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IPackageFragment;
+
+import org.eclipse.jdt.internal.corext.fix.CleanUpConstants;
+import org.eclipse.jdt.internal.corext.fix.CleanUpRefactoring;
+import org.eclipse.jdt.internal.corext.fix.CleanUpRegistry;
+
+import org.eclipse.jdt.ui.cleanup.CleanUpContext;
+import org.eclipse.jdt.ui.cleanup.CleanUpRequirements;
+import org.eclipse.jdt.ui.cleanup.ICleanUp;
+import org.eclipse.jdt.ui.cleanup.ICleanUpFix;
+import org.eclipse.jdt.ui.tests.core.ProjectTestSetup;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+import org.eclipse.jdt.internal.ui.fix.AbstractCleanUp;
+import org.eclipse.jdt.internal.ui.fix.ImportsCleanUp;
+import org.eclipse.jdt.internal.ui.fix.LambdaExpressionsCleanUp;
+import org.eclipse.jdt.internal.ui.fix.PotentialProgrammingProblemsCleanUp;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests that the Clean Up Action computes the same changes on worker threads as on the calling
+ * thread.
+ */
+public class CleanUpParallelTest extends CleanUpTestCase {
+
+	private static final Class<CleanUpParallelTest> THIS= CleanUpParallelTest.class;
+
+	private static final int UNIT_COUNT= 64;
+
+	/**
+	 * A clean up which is not declared as thread-safe and records the threads it runs on.
+	 */
+	private static final class RecordingCleanUp extends AbstractCleanUp {
+		final Set<Thread> fThreads= Collections.synchronizedSet(new HashSet<Thread>());
+
+		@Override
+		public CleanUpRequirements getRequirements() {
+			return new CleanUpRequirements(true, false, false, null);
+		}
+
+		@Override
+		public ICleanUpFix createFix(CleanUpContext context) throws CoreException {
+			fThreads.add(Thread.currentThread());
+			return null;
+		}
+	}
+
+	public CleanUpParallelTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return setUpTest(new TestSuite(THIS));
+	}
+
+	public static Test setUpTest(Test test) {
+		return new ProjectTestSetup(test);
+	}
+
+	private ICompilationUnit[] createUnits(String packageName) throws Exception {
+		IPackageFragment pack= fSourceFolder.createPackageFragment(packageName, false, null);
+		ICompilationUnit[] units= new ICompilationUnit[UNIT_COUNT];
+		for (int i= 0; i < UNIT_COUNT; i++) {
+			StringBuffer buf= new StringBuffer();
+			buf.append("package " + packageName + ";\n");
+			buf.append("import java.util.List;\n");
+			buf.append("import java.util.Map;\n");
+			buf.append("public class E" + i + " {\n");
+			buf.append("    public String toString() {\n");
+			buf.append("        if (hashCode() > " + i + ")\n");
+			buf.append("            return \"E" + i + "\";\n");
+			buf.append("        List list= null;\n");
+			buf.append("        return list.toString();\n");
+			buf.append("    }\n");
+			buf.append("}\n");
+			units[i]= pack.createCompilationUnit("E" + i + ".java", buf.toString(), false, null);
+		}
+		return units;
+	}
+
+	private void performRefactoring(ICompilationUnit[] units, int parallelism) throws CoreException {
+		CleanUpRefactoring refactoring= new CleanUpRefactoring();
+		refactoring.setUseOptionsFromProfile(true);
+		refactoring.setParallelism(parallelism);
+		performRefactoring(refactoring, units, createThreadSafeCleanUps());
+	}
+
+	/*
+	 * Fixes are only computed concurrently if all clean ups are thread-safe.
+	 */
+	private static ICleanUp[] createThreadSafeCleanUps() {
+		CleanUpRegistry registry= JavaPlugin.getDefault().getCleanUpRegistry();
+		List<ICleanUp> result= new ArrayList<>();
+		for (ICleanUp cleanUp : registry.createCleanUps()) {
+			if (registry.isThreadSafe(cleanUp))
+				result.add(cleanUp);
+		}
+		return result.toArray(new ICleanUp[result.size()]);
+	}
+
+	public void testParallelEqualsSerial() throws Exception {
+		enable(CleanUpConstants.CONTROL_STATEMENTS_USE_BLOCKS);
+		enable(CleanUpConstants.CONTROL_STATMENTS_USE_BLOCKS_ALWAYS);
+		enable(CleanUpConstants.ADD_MISSING_ANNOTATIONS);
+		enable(CleanUpConstants.ADD_MISSING_ANNOTATIONS_OVERRIDE);
+		enable(CleanUpConstants.ORGANIZE_IMPORTS);
+
+		ICompilationUnit[] serial= createUnits("serial");
+		ICompilationUnit[] parallel= createUnits("parallel");
+
+		performRefactoring(serial, 1);
+		performRefactoring(parallel, 4);
+
+		for (int i= 0; i < UNIT_COUNT; i++) {
+			String expected= serial[i].getBuffer().getContents().replaceFirst("package serial;", "package parallel;");
+			assertEquals(parallel[i].getElementName(), expected, parallel[i].getBuffer().getContents());
+		}
+		assertTrue(serial[0].getBuffer().getContents().indexOf("@Override") != -1);
+	}
+
+	public void testUnsafeCleanUpRunsOnCallingThread() throws Exception {
+		ICompilationUnit[] units= createUnits("unsafe");
+
+		RecordingCleanUp cleanUp= new RecordingCleanUp();
+		assertFalse(JavaPlugin.getDefault().getCleanUpRegistry().isThreadSafe(cleanUp));
+
+		CleanUpRefactoring refactoring= new CleanUpRefactoring();
+		refactoring.setParallelism(4);
+		for (int i= 0; i < units.length; i++)
+			refactoring.addCompilationUnit(units[i]);
+		refactoring.addCleanUp(cleanUp);
+		refactoring.checkAllConditions(new NullProgressMonitor());
+		refactoring.createChange(new NullProgressMonitor());
+
+		assertEquals(Collections.singleton(Thread.currentThread()), cleanUp.fThreads);
+	}
+
+	public void testBuiltInCleanUpsThreadSafety() throws Exception {
+		// these fixes keep state in static fields
+		Set<String> unsafe= new HashSet<>(Arrays.asList(LambdaExpressionsCleanUp.class.getName(), PotentialProgrammingProblemsCleanUp.class.getName()));
+		CleanUpRegistry registry= JavaPlugin.getDefault().getCleanUpRegistry();
+		ICleanUp[] cleanUps= registry.createCleanUps();
+		for (int i= 0; i < cleanUps.length; i++) {
+			String className= cleanUps[i].getClass().getName();
+			assertEquals(className, !unsafe.contains(className), registry.isThreadSafe(cleanUps[i]));
+		}
+		// the attribute of the contribution applies to the clean ups created by the registry only
+		assertFalse(registry.isThreadSafe(new ImportsCleanUp()));
+	}
+}
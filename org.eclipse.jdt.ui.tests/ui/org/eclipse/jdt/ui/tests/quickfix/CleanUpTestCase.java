@@ -89,6 +89,7 @@ public class CleanUpTestCase extends QuickFixTest {
 		suite.addTest(CleanUpAnnotationTest.suite());
 		suite.addTest(SaveParticipantTest.suite());
 		suite.addTest(CleanUpActionTest.suite());
+		suite.addTest(CleanUpParallelTest.suite());
 		suite.addTest(NullAnnotationsCleanUpTest18.suite());
 
 		return suite;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -74,6 +74,7 @@ public class CallHierarchy {
         IPreferenceStore settings = JavaPlugin.getDefault().getPreferenceStore();
 
         settings.setValue(PREF_USE_IMPLEMENTORS, enabled);
+        CallHierarchyCache.getDefault().clear();
     }
     
     public boolean isFilterTestCode() {
@@ -86,6 +87,7 @@ public class CallHierarchy {
         IPreferenceStore settings = JavaPlugin.getDefault().getPreferenceStore();
 
         settings.setValue(PREF_FILTER_TESTCODE, enabled);
+        CallHierarchyCache.getDefault().clear();
     }
 
 
@@ -193,6 +195,7 @@ public class CallHierarchy {
 
     public void setSearchScope(IJavaSearchScope searchScope) {
         this.fSearchScope = searchScope;
+        CallHierarchyCache.getDefault().clear();
     }
 
 	/**
@@ -224,6 +227,7 @@ public class CallHierarchy {
     public void setFilterEnabled(boolean filterEnabled) {
         IPreferenceStore settings = JavaPlugin.getDefault().getPreferenceStore();
         settings.setValue(PREF_USE_FILTERS, filterEnabled);
+        CallHierarchyCache.getDefault().clear();
     }
 
     /**
@@ -241,6 +245,7 @@ public class CallHierarchy {
 
         IPreferenceStore settings = JavaPlugin.getDefault().getPreferenceStore();
         settings.setValue(PREF_FILTERS_LIST, filters);
+        CallHierarchyCache.getDefault().clear();
     }
 
     /**
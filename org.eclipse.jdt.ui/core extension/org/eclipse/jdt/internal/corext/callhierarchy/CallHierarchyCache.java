@@ -0,0 +1,387 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.callhierarchy;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.JavaCore;
+
+/**
+ * Cache for the callers of members, shared by all call hierarchies.
+ * <p>
+ * The cache is cleared whenever Java elements change, since an edit anywhere in
+ * the workspace can add or remove callers of any member, and whenever the
+ * search scope or the filters of the {@link CallHierarchy} change.
+ * </p>
+ * <p>
+ * When the callers of a member have been found, the callers of these callers
+ * are searched in the background, so that expanding the next level of the call
+ * hierarchy does not have to wait for a search. A search for callers which is
+ * already running is not started a second time, but waited for.
+ * </p>
+ */
+public class CallHierarchyCache implements IElementChangedListener {
+
+	/**
+	 * The maximal number of members whose callers are cached
+	 */
+	private static final int MAX_ENTRIES= 500;
+
+	/**
+	 * The maximal number of callers whose own callers are searched in the
+	 * background after a search
+	 */
+	private static final int MAX_PREFETCH= 32;
+
+	/**
+	 * The maximal number of concurrent background searches
+	 */
+	private static final int MAX_PREFETCH_JOBS= Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+	/**
+	 * The interval in milliseconds in which a waiting search checks for
+	 * cancellation
+	 */
+	private static final long WAIT_INTERVAL= 100;
+
+	/**
+	 * Flags of a delta which may change the callers of members
+	 */
+	private static final int CHANGED_FLAGS= IJavaElementDelta.F_CONTENT
+			| IJavaElementDelta.F_MODIFIERS
+			| IJavaElementDelta.F_SUPER_TYPES
+			| IJavaElementDelta.F_OPENED
+			| IJavaElementDelta.F_CLOSED
+			| IJavaElementDelta.F_ADDED_TO_CLASSPATH
+			| IJavaElementDelta.F_REMOVED_FROM_CLASSPATH
+			| IJavaElementDelta.F_CLASSPATH_CHANGED
+			| IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED
+			| IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED
+			| IJavaElementDelta.F_SOURCEATTACHED
+			| IJavaElementDelta.F_SOURCEDETACHED;
+
+	private static CallHierarchyCache fgInstance;
+
+	private class PrefetchJob extends Job {
+
+		PrefetchJob() {
+			super(CallHierarchyMessages.CallHierarchyCache_prefetch_job);
+			setSystem(true);
+			setPriority(Job.DECORATE);
+			// also called for jobs which are canceled before they run
+			addJobChangeListener(new JobChangeAdapter() {
+				@Override
+				public void done(IJobChangeEvent event) {
+					prefetchJobDone();
+				}
+			});
+		}
+
+		@Override
+		public boolean belongsTo(Object family) {
+			return family == CallHierarchyCache.this;
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			while (!monitor.isCanceled()) {
+				CallerMethodWrapper wrapper;
+				String key;
+				CompletableFuture<Map<String, MethodCall>> future;
+				int generation;
+				synchronized (CallHierarchyCache.this) {
+					wrapper= fPrefetchQueue.poll();
+					if (wrapper == null)
+						break;
+					key= wrapper.getCacheKey();
+					if (fResults.containsKey(key) || fPending.containsKey(key))
+						continue;
+					future= new CompletableFuture<>();
+					fPending.put(key, future);
+					generation= fGeneration;
+				}
+				try {
+					search(wrapper, key, future, generation, monitor, null);
+				} catch (OperationCanceledException e) {
+					// a waiting search starts its own search
+				}
+			}
+			return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+		}
+	}
+
+	/**
+	 * The callers of members, keyed by {@link CallerMethodWrapper#getCacheKey()},
+	 * least recently used first
+	 */
+	private final LinkedHashMap<String, Map<String, MethodCall>> fResults= new LinkedHashMap<String, Map<String, MethodCall>>(16, 0.75f, true) {
+		private static final long serialVersionUID= 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Map<String, MethodCall>> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	/**
+	 * The running searches, keyed by {@link CallerMethodWrapper#getCacheKey()}
+	 */
+	private final Map<String, CompletableFuture<Map<String, MethodCall>>> fPending= new HashMap<>();
+
+	/**
+	 * The callers whose own callers are to be searched in the background
+	 */
+	private final LinkedList<CallerMethodWrapper> fPrefetchQueue= new LinkedList<>();
+
+	/**
+	 * The number of prefetch jobs which have been scheduled and are not done yet
+	 */
+	private int fPrefetchJobCount;
+
+	/**
+	 * Incremented whenever the cache is cleared, so that searches which were
+	 * started before do not add their results
+	 */
+	private int fGeneration;
+
+	private CallHierarchyCache() {
+		JavaCore.addElementChangedListener(this);
+	}
+
+	/**
+	 * @return the shared cache
+	 */
+	public static synchronized CallHierarchyCache getDefault() {
+		if (fgInstance == null)
+			fgInstance= new CallHierarchyCache();
+		return fgInstance;
+	}
+
+	/**
+	 * Removes the element changed listener of the shared cache, clears it and
+	 * cancels the background searches.
+	 */
+	public static synchronized void shutdown() {
+		if (fgInstance == null)
+			return;
+		JavaCore.removeElementChangedListener(fgInstance);
+		fgInstance.clear();
+		fgInstance= null;
+	}
+
+	/**
+	 * Returns the callers of the member of the given wrapper. If they are not
+	 * cached, they are searched, or a running search for them is waited for.
+	 *
+	 * @param wrapper the caller method wrapper
+	 * @param monitor the progress monitor, or <code>null</code>
+	 * @param newCalls receives the callers while they are searched, or
+	 *            <code>null</code>
+	 * @return a map from handle identifier ({@link String}) to
+	 *         {@link MethodCall}
+	 * @throws OperationCanceledException if the monitor has been canceled
+	 */
+	Map<String, MethodCall> getCallers(CallerMethodWrapper wrapper, IProgressMonitor monitor, Consumer<MethodCall> newCalls) {
+		String key= wrapper.getCacheKey();
+		while (true) {
+			CompletableFuture<Map<String, MethodCall>> future;
+			int generation;
+			boolean owner= false;
+			synchronized (this) {
+				Map<String, MethodCall> callers= fResults.get(key);
+				if (callers != null)
+					return callers;
+				future= fPending.get(key);
+				if (future == null) {
+					future= new CompletableFuture<>();
+					fPending.put(key, future);
+					owner= true;
+				}
+				generation= fGeneration;
+			}
+			if (owner)
+				return search(wrapper, key, future, generation, monitor, newCalls);
+
+			Map<String, MethodCall> callers= await(future, monitor);
+			if (callers != null)
+				return callers;
+			// the other search has been canceled
+		}
+	}
+
+	/**
+	 * Searches the callers of the callers in the given map in the background.
+	 *
+	 * @param wrapper the wrapper whose callers have been found
+	 * @param callers a map from handle identifier ({@link String}) to
+	 *            {@link MethodCall}
+	 */
+	void prefetch(CallerMethodWrapper wrapper, Map<String, MethodCall> callers) {
+		int count= 0;
+		synchronized (this) {
+			for (Iterator<MethodCall> iter= callers.values().iterator(); iter.hasNext() && count < MAX_PREFETCH;) {
+				CallerMethodWrapper caller= (CallerMethodWrapper) wrapper.createMethodWrapper(iter.next());
+				if (!caller.canHaveChildren() || caller.isRecursive())
+					continue;
+				String key= caller.getCacheKey();
+				if (fResults.containsKey(key) || fPending.containsKey(key))
+					continue;
+				fPrefetchQueue.add(caller);
+				count++;
+			}
+			schedulePrefetchJobs();
+		}
+	}
+
+	private synchronized void schedulePrefetchJobs() {
+		while (fPrefetchJobCount < MAX_PREFETCH_JOBS && fPrefetchJobCount < fPrefetchQueue.size()) {
+			fPrefetchJobCount++;
+			new PrefetchJob().schedule();
+		}
+	}
+
+	private synchronized void prefetchJobDone() {
+		fPrefetchJobCount--;
+		// callers may have been queued after the job found the queue empty
+		schedulePrefetchJobs();
+	}
+
+	/**
+	 * Returns the number of prefetch jobs which have been scheduled and are not
+	 * done yet.
+	 *
+	 * @return the number of prefetch jobs
+	 */
+	public synchronized int getPrefetchJobCount() {
+		return fPrefetchJobCount;
+	}
+
+	/**
+	 * Returns whether the callers of the member of the given wrapper are cached.
+	 *
+	 * @param wrapper the caller method wrapper
+	 * @return <code>true</code> if the callers are cached
+	 */
+	public synchronized boolean isCached(CallerMethodWrapper wrapper) {
+		return fResults.containsKey(wrapper.getCacheKey());
+	}
+
+	/**
+	 * Removes the callers of the member of the given wrapper from the cache.
+	 *
+	 * @param wrapper the caller method wrapper
+	 */
+	public synchronized void remove(CallerMethodWrapper wrapper) {
+		String key= wrapper.getCacheKey();
+		fResults.remove(key);
+		fPending.remove(key);
+	}
+
+	/**
+	 * Removes all callers from the cache and cancels the background searches.
+	 */
+	public void clear() {
+		synchronized (this) {
+			fGeneration++;
+			fResults.clear();
+			fPending.clear();
+			fPrefetchQueue.clear();
+		}
+		Job.getJobManager().cancel(this);
+	}
+
+	@Override
+	public void elementChanged(ElementChangedEvent event) {
+		if (affectsCallers(event.getDelta()))
+			clear();
+	}
+
+	private static boolean affectsCallers(IJavaElementDelta delta) {
+		if (delta.getKind() != IJavaElementDelta.CHANGED || (delta.getFlags() & CHANGED_FLAGS) != 0)
+			return true;
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++) {
+			if (affectsCallers(children[i]))
+				return true;
+		}
+		return false;
+	}
+
+	private Map<String, MethodCall> search(CallerMethodWrapper wrapper, String key, CompletableFuture<Map<String, MethodCall>> future, int generation, IProgressMonitor monitor,
+			Consumer<MethodCall> newCalls) {
+		try {
+			Map<String, MethodCall> callers= Collections.unmodifiableMap(wrapper.searchCallers(monitor, newCalls));
+			synchronized (this) {
+				if (fPending.get(key) == future)
+					fPending.remove(key);
+				if (generation == fGeneration)
+					fResults.put(key, callers);
+			}
+			future.complete(callers);
+			return callers;
+		} catch (RuntimeException e) {
+			synchronized (this) {
+				if (fPending.get(key) == future)
+					fPending.remove(key);
+			}
+			future.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Waits for a search which has been started by another thread.
+	 *
+	 * @param future the result of the other search
+	 * @param monitor the progress monitor, or <code>null</code>
+	 * @return the callers, or <code>null</code> if the other search has failed
+	 * @throws OperationCanceledException if the monitor has been canceled
+	 */
+	private static Map<String, MethodCall> await(CompletableFuture<Map<String, MethodCall>> future, IProgressMonitor monitor) {
+		while (true) {
+			if (monitor != null && monitor.isCanceled())
+				throw new OperationCanceledException();
+			try {
+				return future.get(WAIT_INTERVAL, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				// check for cancellation
+			} catch (ExecutionException e) {
+				return null;
+			} catch (InterruptedException e) {
+				throw new OperationCanceledException();
+			}
+		}
+	}
+}
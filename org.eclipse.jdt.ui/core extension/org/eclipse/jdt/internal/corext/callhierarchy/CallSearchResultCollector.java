@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,6 +16,7 @@ package org.eclipse.jdt.internal.corext.callhierarchy;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import org.eclipse.jdt.core.IClasspathEntry;
 import org.eclipse.jdt.core.IJavaElement;
@@ -30,8 +31,21 @@ class CallSearchResultCollector {
      */
     private Map<String, MethodCall> fCalledMembers;
 
+    /**
+     * Receives the method calls when they are first found, or <code>null</code>.
+     */
+    private final Consumer<MethodCall> fNewCalls;
+
     public CallSearchResultCollector() {
+        this(null);
+    }
+
+    /**
+     * @param newCalls receives each method call when it is first found, or <code>null</code>
+     */
+    public CallSearchResultCollector(Consumer<MethodCall> newCalls) {
         this.fCalledMembers = createCalledMethodsData();
+        this.fNewCalls = newCalls;
     }
 
     /**
@@ -49,14 +63,19 @@ class CallSearchResultCollector {
         if ((member != null) && (calledMember != null)) {
             if (!isIgnored(calledMember)) {
                 MethodCall methodCall = fCalledMembers.get(calledMember.getHandleIdentifier());
+                boolean isNew = methodCall == null;
 
-                if (methodCall == null) {
+                if (isNew) {
                     methodCall = new MethodCall(calledMember);
                     fCalledMembers.put(calledMember.getHandleIdentifier(), methodCall);
                 }
 
                 methodCall.addCallLocation(new CallLocation(member, calledMember, start,
                         end, lineNumber));
+
+                if (isNew && fNewCalls != null) {
+                    fNewCalls.accept(methodCall);
+                }
             }
         }
     }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -18,6 +18,7 @@ package org.eclipse.jdt.internal.corext.callhierarchy;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -98,6 +99,43 @@ public class CallerMethodWrapper extends MethodWrapper {
 	 */
 	@Override
 	protected Map<String, MethodCall> findChildren(IProgressMonitor progressMonitor) {
+		return findChildren(progressMonitor, null);
+	}
+
+	/**
+	 * Returns the callers from the {@link CallHierarchyCache} and starts searching their callers
+	 * in the background.
+	 *
+	 * @see org.eclipse.jdt.internal.corext.callhierarchy.MethodWrapper#findChildren(org.eclipse.core.runtime.IProgressMonitor, java.util.function.Consumer)
+	 */
+	@Override
+	protected Map<String, MethodCall> findChildren(IProgressMonitor progressMonitor, Consumer<MethodCall> newCalls) {
+		CallHierarchyCache cache= CallHierarchyCache.getDefault();
+		Map<String, MethodCall> callers= cache.getCallers(this, progressMonitor, newCalls);
+		cache.prefetch(this, callers);
+		return callers;
+	}
+
+	/**
+	 * Returns the key of the callers of this wrapper in the {@link CallHierarchyCache}.
+	 *
+	 * @return the cache key
+	 */
+	String getCacheKey() {
+		IMember member= getMember();
+		if (member.getElementType() == IJavaElement.FIELD)
+			return member.getHandleIdentifier() + '#' + getFieldSearchMode();
+		return member.getHandleIdentifier();
+	}
+
+	/**
+	 * Searches the callers of this wrapper's member without using the cache.
+	 *
+	 * @param progressMonitor the progress monitor
+	 * @param newCalls receives each caller when it is first found, or <code>null</code>
+	 * @return a map from handle identifier ({@link String}) to {@link MethodCall}
+	 */
+	Map<String, MethodCall> searchCallers(IProgressMonitor progressMonitor, Consumer<MethodCall> newCalls) {
 		try {
 
 			IProgressMonitor monitor= new SubProgressMonitor(progressMonitor, 95, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL);
@@ -115,7 +153,7 @@ public class CallerMethodWrapper extends MethodWrapper {
 			if (type != null) {
 				if (type.isAnonymous()) {
 					// search engine does not find reference to anonymous, see https://bugs.eclipse.org/bugs/show_bug.cgi?id=207774
-					CallSearchResultCollector resultCollector= new CallSearchResultCollector();
+					CallSearchResultCollector resultCollector= new CallSearchResultCollector(newCalls);
 					IJavaElement parent= type.getParent();
 					if (parent instanceof IMember) {
 						IMember parentMember= (IMember) parent;
@@ -148,7 +186,7 @@ public class CallerMethodWrapper extends MethodWrapper {
 			}
 
 			SearchEngine searchEngine= new SearchEngine();
-			MethodReferencesSearchRequestor searchRequestor= new MethodReferencesSearchRequestor();
+			MethodReferencesSearchRequestor searchRequestor= new MethodReferencesSearchRequestor(newCalls);
 			IJavaSearchScope defaultSearchScope= getSearchScope();
 			boolean isWorkspaceScope= SearchEngine.createWorkspaceScope().equals(defaultSearchScope);
 			IJavaSearchScope searchScope= isWorkspaceScope ? getAccurateSearchScope(defaultSearchScope, member) : defaultSearchScope;
@@ -177,6 +215,12 @@ public class CallerMethodWrapper extends MethodWrapper {
 		}
 	}
 
+	@Override
+	public void removeFromCache() {
+		super.removeFromCache();
+		CallHierarchyCache.getDefault().remove(this);
+	}
+
 	/**
 	 * Returns the value of expand with constructors mode.
 	 * 
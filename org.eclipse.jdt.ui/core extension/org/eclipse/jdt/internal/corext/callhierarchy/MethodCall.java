@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -32,13 +32,16 @@ public class MethodCall {
     }
 
     /**
+     * Returns the call locations. Since locations can be added while a search
+     * is running, a snapshot is returned.
      *
+     * @return the call locations, or <code>null</code> if none have been added
      */
-    public Collection<CallLocation> getCallLocations() {
-        return fCallLocations;
+    public synchronized Collection<CallLocation> getCallLocations() {
+        return fCallLocations != null ? new ArrayList<>(fCallLocations) : null;
     }
 
-    public CallLocation getFirstCallLocation() {
+    public synchronized CallLocation getFirstCallLocation() {
         if ((fCallLocations != null) && !fCallLocations.isEmpty()) {
             return fCallLocations.get(0);
         } else {
@@ -46,7 +49,7 @@ public class MethodCall {
         }
     }
 
-    public boolean hasCallLocations() {
+    public synchronized boolean hasCallLocations() {
         return fCallLocations != null && fCallLocations.size() > 0;
     }
 
@@ -67,7 +70,7 @@ public class MethodCall {
     /**
      * @param location
      */
-    public void addCallLocation(CallLocation location) {
+    public synchronized void addCallLocation(CallLocation location) {
         if (fCallLocations == null) {
             fCallLocations = new ArrayList<>();
         }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,6 +15,7 @@
 package org.eclipse.jdt.internal.corext.callhierarchy;
 
 import java.util.Map;
+import java.util.function.Consumer;
 
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IMember;
@@ -26,7 +27,14 @@ class MethodReferencesSearchRequestor extends SearchRequestor {
     private boolean fRequireExactMatch = true;
 
     MethodReferencesSearchRequestor() {
-        fSearchResults = new CallSearchResultCollector();
+        this(null);
+    }
+
+    /**
+     * @param newCalls receives each caller when it is first found, or <code>null</code>
+     */
+    MethodReferencesSearchRequestor(Consumer<MethodCall> newCalls) {
+        fSearchResults = new CallSearchResultCollector(newCalls);
     }
 
     public Map<String, MethodCall> getCallers() {
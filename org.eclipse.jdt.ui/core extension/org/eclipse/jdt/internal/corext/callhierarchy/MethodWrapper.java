@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -19,6 +19,7 @@ package org.eclipse.jdt.internal.corext.callhierarchy;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -84,8 +85,21 @@ public abstract class MethodWrapper extends PlatformObject {
 	}
 
     public MethodWrapper[] getCalls(IProgressMonitor progressMonitor) {
+        return getCalls(progressMonitor, null);
+    }
+
+	/**
+	 * Returns the calls of this wrapper. If the calls have to be searched, calls are passed to the
+	 * given consumer as soon as they are found, before the search has finished.
+	 *
+	 * @param progressMonitor the progress monitor
+	 * @param partialResults receives wrappers for the calls while they are searched, or
+	 *            <code>null</code>
+	 * @return all calls of this wrapper
+	 */
+    public MethodWrapper[] getCalls(IProgressMonitor progressMonitor, Consumer<MethodWrapper> partialResults) {
         if (fElements == null) {
-            doFindChildren(progressMonitor);
+            doFindChildren(progressMonitor, partialResults);
         }
 
         MethodWrapper[] result = new MethodWrapper[fElements.size()];
@@ -219,7 +233,7 @@ public abstract class MethodWrapper extends PlatformObject {
 	 */
     protected abstract MethodWrapper createMethodWrapper(MethodCall methodCall);
 
-    private void doFindChildren(IProgressMonitor progressMonitor) {
+    private void doFindChildren(IProgressMonitor progressMonitor, Consumer<MethodWrapper> partialResults) {
         Map<String, MethodCall> existingResults = lookupMethod(getMethodCall());
 
         if (existingResults != null && !existingResults.isEmpty()) {
@@ -233,7 +247,7 @@ public abstract class MethodWrapper extends PlatformObject {
             }
 
             try {
-                performSearch(progressMonitor);
+                performSearch(progressMonitor, partialResults);
             } catch (OperationCanceledException e){
             	fElements= null;
             	throw e;
@@ -282,6 +296,18 @@ public abstract class MethodWrapper extends PlatformObject {
      */
     protected abstract Map<String, MethodCall> findChildren(IProgressMonitor progressMonitor);
 
+	/**
+	 * This method finds the children of the current IMember and passes each child to the given
+	 * consumer when it is found. The default implementation passes no children to the consumer.
+	 *
+	 * @param progressMonitor a progress monitor
+	 * @param newCalls receives each child when it is first found, or <code>null</code>
+	 * @return a map from handle identifier ({@link String}) to {@link MethodCall}
+	 */
+    protected Map<String, MethodCall> findChildren(IProgressMonitor progressMonitor, Consumer<MethodCall> newCalls) {
+        return findChildren(progressMonitor);
+    }
+
     private Map<String, Map<String, MethodCall>> getMethodCache() {
         return fMethodCache;
     }
@@ -301,8 +327,12 @@ public abstract class MethodWrapper extends PlatformObject {
         return getMethodCache().get(methodCall.getKey());
     }
 
-    private void performSearch(IProgressMonitor progressMonitor) {
-        fElements = findChildren(progressMonitor);
+    private void performSearch(IProgressMonitor progressMonitor, Consumer<MethodWrapper> partialResults) {
+        Consumer<MethodCall> newCalls = null;
+        if (partialResults != null) {
+            newCalls = methodCall -> partialResults.accept(createMethodWrapper(methodCall));
+        }
+        fElements = findChildren(progressMonitor, newCalls);
 
         for (Iterator<String> iter = fElements.keySet().iterator(); iter.hasNext();) {
             checkCanceled(progressMonitor);
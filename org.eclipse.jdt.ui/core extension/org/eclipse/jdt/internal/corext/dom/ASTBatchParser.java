@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2016 IBM Corporation and others.
+ * Copyright (c) 2007, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,41 +13,173 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.dom;
 
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.SubProgressMonitor;
 
+import org.eclipse.core.resources.IResource;
+
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.ASTRequestor;
 import org.eclipse.jdt.core.dom.IBinding;
 
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
 /**
  * Creates AST from a set of compilation units. Uses the
  * batch parser. Splits the set of compilation units in subsets
  * such that it is unlikely that a out of memory exception will occur.
+ * <p>
+ * The size of a subset is bounded by the accumulated source size of its
+ * compilation units. The bound is adapted after each subset according to the
+ * usage of the old generation after the last garbage collection: it shrinks
+ * when the live data fill the heap and grows again while there is enough
+ * headroom. Garbage which has not been collected yet does not count.
+ * </p>
  *
  * @since 3.4
  */
 public class ASTBatchParser {
 
+	/**
+	 * Statistics about one subset of compilation units passed to
+	 * {@link ASTParser#createASTs(ICompilationUnit[], String[], ASTRequestor, IProgressMonitor)}.
+	 */
+	public static final class BatchStatistics {
+
+		private final int fUnitCount;
+		private final long fSourceSize;
+		private final long fElapsedTime;
+		private final long fHeapUsed;
+		private final long fHeapMax;
+
+		BatchStatistics(int unitCount, long sourceSize, long elapsedTime, long heapUsed, long heapMax) {
+			fUnitCount= unitCount;
+			fSourceSize= sourceSize;
+			fElapsedTime= elapsedTime;
+			fHeapUsed= heapUsed;
+			fHeapMax= heapMax;
+		}
+
+		/**
+		 * @return the number of compilation units in the batch
+		 */
+		public int getUnitCount() {
+			return fUnitCount;
+		}
+
+		/**
+		 * @return the estimated source size of the batch in characters
+		 */
+		public long getSourceSize() {
+			return fSourceSize;
+		}
+
+		/**
+		 * @return the time in milliseconds it took to create and report the ASTs of the batch
+		 */
+		public long getElapsedTime() {
+			return fElapsedTime;
+		}
+
+		/**
+		 * @return the heap in bytes used by live data after the batch has been processed, i.e.
+		 *         the usage of the old generation after the last garbage collection if the
+		 *         virtual machine reports it, or else the used heap
+		 */
+		public long getHeapUsed() {
+			return fHeapUsed;
+		}
+
+		/**
+		 * @return the maximum heap in bytes
+		 */
+		public long getHeapMax() {
+			return fHeapMax;
+		}
+
+		@Override
+		public String toString() {
+			return "ASTBatchParser: " + fUnitCount + " units, " + fSourceSize + " chars, " + fElapsedTime + " ms, heap " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+					+ (fHeapUsed >> 20) + "/" + (fHeapMax >> 20) + " MiB"; //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	/**
+	 * Source size assumed for a compilation unit whose size cannot be determined cheaply.
+	 */
+	private static final int AVERAGE_UNIT_SIZE= 8 * 1024;
+
+	/**
+	 * The maximal number of compilation units parsed at once, independent of their size.
+	 */
 	private static final int MAX_AT_ONCE;
+
+	/**
+	 * The initial source size budget of a batch, in characters.
+	 */
+	private static final long INITIAL_BUDGET;
+	private static final long MIN_BUDGET= 16 * AVERAGE_UNIT_SIZE;
+	private static final long MAX_BUDGET;
+
+	/**
+	 * If the used heap exceeds this ratio after a batch, the budget is halved.
+	 */
+	private static final double HIGH_HEAP_USAGE= 0.75;
+
+	/**
+	 * If the used heap stays below this ratio after a batch, the budget is increased by half.
+	 */
+	private static final double LOW_HEAP_USAGE= 0.5;
+
 	static {
 		long maxMemory= Runtime.getRuntime().maxMemory() / (1 << 20); // in MiB
-		
-		if      (maxMemory >= 2000) MAX_AT_ONCE= 400;
-		else if (maxMemory >= 1500) MAX_AT_ONCE= 300;
-		else if (maxMemory >= 1000) MAX_AT_ONCE= 200;
-		else if (maxMemory >=  500) MAX_AT_ONCE= 100;
-		else                        MAX_AT_ONCE=  25;
+
+		int units;
+		if      (maxMemory >= 2000) units= 400;
+		else if (maxMemory >= 1500) units= 300;
+		else if (maxMemory >= 1000) units= 200;
+		else if (maxMemory >=  500) units= 100;
+		else                        units=  25;
+
+		INITIAL_BUDGET= (long) units * AVERAGE_UNIT_SIZE;
+		MAX_BUDGET= 4 * INITIAL_BUDGET;
+		MAX_AT_ONCE= 4 * units;
+	}
+
+	/**
+	 * The memory pool of the old generation, which supports collection usage, or
+	 * <code>null</code> if the virtual machine has no such pool.
+	 */
+	private static final MemoryPoolMXBean OLD_GENERATION= findOldGeneration();
+
+	/**
+	 * The budget learned by the last batch of any parser, used as
+	 * starting point for new parsers.
+	 */
+	private static volatile long fgLastBudget= INITIAL_BUDGET;
+
+	private long fBudget;
+	private final List<BatchStatistics> fStatistics;
+
+	public ASTBatchParser() {
+		fBudget= fgLastBudget;
+		fStatistics= new ArrayList<>();
 	}
 
 	/**
@@ -81,21 +213,28 @@ public class ASTBatchParser {
 			ICompilationUnit[][] splited= splitByProject(compilationUnits);
 			for (int i= 0; i < splited.length; i++) {
 				ICompilationUnit[] units= splited[i];
+				long[] sizes= new long[units.length];
+				for (int k= 0; k < units.length; k++) {
+					sizes[k]= getSourceSize(units[k]);
+				}
 
-				if (units.length <= MAX_AT_ONCE) {
-					createParser(units[0].getJavaProject()).createASTs(units, bindingKeys, requestor, new SubProgressMonitor(monitor, units.length));
-				} else {
-					List<ICompilationUnit> list= Arrays.asList(units);
-					int end= 0;
-					int cursor= 0;
-					while (cursor < units.length) {
-						end= Math.min(end + MAX_AT_ONCE, units.length);
-						List<ICompilationUnit> toParse= list.subList(cursor, end);
-
-						createParser(units[0].getJavaProject()).createASTs(toParse.toArray(new ICompilationUnit[toParse.size()]), bindingKeys, requestor,
-								new SubProgressMonitor(monitor, toParse.size()));
-						cursor= end;
-					}
+				int cursor= 0;
+				while (cursor < units.length) {
+					long sourceSize= 0;
+					int end= cursor;
+					do {
+						sourceSize+= sizes[end];
+						end++;
+					} while (end < units.length && end - cursor < MAX_AT_ONCE && sourceSize + sizes[end] <= fBudget);
+
+					ICompilationUnit[] toParse= new ICompilationUnit[end - cursor];
+					System.arraycopy(units, cursor, toParse, 0, toParse.length);
+
+					long start= System.currentTimeMillis();
+					createParser(units[0].getJavaProject()).createASTs(toParse, bindingKeys, requestor, new SubProgressMonitor(monitor, toParse.length));
+					batchDone(toParse.length, sourceSize, System.currentTimeMillis() - start);
+
+					cursor= end;
 				}
 			}
 		} finally {
@@ -103,6 +242,94 @@ public class ASTBatchParser {
 		}
 	}
 
+	/**
+	 * Returns the statistics of all batches processed by this parser so far, in the
+	 * order in which they have been processed.
+	 *
+	 * @return the batch statistics
+	 */
+	public BatchStatistics[] getStatistics() {
+		return fStatistics.toArray(new BatchStatistics[fStatistics.size()]);
+	}
+
+	/**
+	 * Returns the estimated size of the source of <code>unit</code> in characters.
+	 * The estimate must be cheap to compute, it must not open <code>unit</code>.
+	 * <p>
+	 * Subclasses may override
+	 * </p>
+	 *
+	 * @param unit the compilation unit
+	 * @return the estimated source size
+	 */
+	protected long getSourceSize(ICompilationUnit unit) {
+		try {
+			if (unit.isOpen())
+				return unit.getBuffer().getLength();
+		} catch (JavaModelException e) {
+			// use size on disk
+		}
+
+		IResource resource= unit.getResource();
+		if (resource != null) {
+			IPath location= resource.getLocation();
+			if (location != null) {
+				long length= new File(location.toOSString()).length();
+				if (length > 0)
+					return length;
+			}
+		}
+		return AVERAGE_UNIT_SIZE;
+	}
+
+	private void batchDone(int unitCount, long sourceSize, long elapsedTime) {
+		MemoryUsage usage= OLD_GENERATION != null ? OLD_GENERATION.getCollectionUsage() : null;
+		if (usage == null || usage.getMax() <= 0)
+			usage= ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+		long max= usage.getMax() > 0 ? usage.getMax() : Runtime.getRuntime().maxMemory();
+
+		fBudget= computeBudget(fBudget, sourceSize, usage.getUsed(), max);
+		fgLastBudget= fBudget;
+
+		BatchStatistics statistics= new BatchStatistics(unitCount, sourceSize, elapsedTime, usage.getUsed(), max);
+		fStatistics.add(statistics);
+		if (JavaPlugin.DEBUG_AST_BATCH_PARSER)
+			System.out.println(statistics + ", next budget " + fBudget + " chars"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Computes the source size budget of the next batch.
+	 * <p>
+	 * The budget is halved if the live data use more than three quarters of the heap and
+	 * increased by half if they use less than half of the heap and the last batch used at least
+	 * half of the budget. The budget stays within fixed bounds that depend on the maximum heap.
+	 * </p>
+	 *
+	 * @param budget the source size budget of the last batch
+	 * @param sourceSize the source size of the last batch
+	 * @param used the heap used by live data after the last batch
+	 * @param max the maximum heap
+	 * @return the budget of the next batch
+	 */
+	public static long computeBudget(long budget, long sourceSize, long used, long max) {
+		double ratio= (double) used / max;
+		if (ratio > HIGH_HEAP_USAGE)
+			return Math.max(MIN_BUDGET, budget / 2);
+		if (ratio < LOW_HEAP_USAGE && sourceSize >= budget / 2)
+			return Math.min(MAX_BUDGET, budget + budget / 2);
+		return budget;
+	}
+
+	private static MemoryPoolMXBean findOldGeneration() {
+		for (Iterator<MemoryPoolMXBean> iter= ManagementFactory.getMemoryPoolMXBeans().iterator(); iter.hasNext();) {
+			MemoryPoolMXBean pool= iter.next();
+			// the young generation pools do not support usage thresholds
+			if (pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported() && pool.isCollectionUsageThresholdSupported())
+				return pool;
+		}
+		return null;
+	}
+
 	/**
 	 * Creates a new parser which can be used to create ASTs
 	 * for compilation units in <code>project</code>
@@ -159,4 +386,4 @@ public class ASTBatchParser {
 
 		return true;
 	}
-}
\ No newline at end of file
+}
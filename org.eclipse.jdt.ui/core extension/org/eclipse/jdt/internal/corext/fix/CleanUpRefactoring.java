@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,12 +14,16 @@
 package org.eclipse.jdt.internal.corext.fix;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.eclipse.swt.widgets.Display;
 
@@ -59,6 +63,7 @@ import org.eclipse.ltk.core.refactoring.RefactoringTickProvider;
 import org.eclipse.ltk.core.refactoring.TextChange;
 import org.eclipse.ltk.core.refactoring.TextEditBasedChangeGroup;
 import org.eclipse.ltk.core.refactoring.TextFileChange;
+import org.eclipse.ltk.internal.core.refactoring.WorkerPool;
 
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaProject;
@@ -226,9 +231,13 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		}
 
 		public void flush() {
+			flush(1);
+		}
+
+		public void flush(int count) {
 			super.internalWorked(fRealWork);
 			reset();
-			fFlushCount++;
+			fFlushCount+= count;
 		}
 
 		public void reset() {
@@ -299,6 +308,22 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 			return fUndoneElements;
 		}
 
+		/**
+		 * Integrates the solutions and undone elements collected by <code>shard</code>
+		 * into this requestor. Must only be called after <code>shard</code> has finished.
+		 *
+		 * @param shard the requestor which processed a part of the parse list
+		 */
+		public void merge(CleanUpASTRequestor shard) {
+			for (Iterator<Entry<ICompilationUnit, List<CleanUpChange>>> iter= shard.fSolutions.entrySet().iterator(); iter.hasNext();) {
+				Entry<ICompilationUnit, List<CleanUpChange>> entry= iter.next();
+				for (Iterator<CleanUpChange> changes= entry.getValue().iterator(); changes.hasNext();) {
+					integrateSolution(changes.next(), entry.getKey());
+				}
+			}
+			fUndoneElements.addAll(shard.fUndoneElements);
+		}
+
 		private ICleanUp[] calculateSolutions(CleanUpContext context, ICleanUp[] cleanUps) {
 			List<ICleanUp>result= new ArrayList<>();
 			CleanUpChange solution;
@@ -334,9 +359,11 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		private final Hashtable<ICompilationUnit, ICompilationUnit> fWorkingCopies; // map from primary to working copy
 		private final Map<String, String> fCleanUpOptions;
 		private final int fSize;
+		private final int fParallelism;
 		private int fIndex;
 
-		public CleanUpFixpointIterator(CleanUpTarget[] targets, ICleanUp[] cleanUps) {
+		public CleanUpFixpointIterator(CleanUpTarget[] targets, ICleanUp[] cleanUps, int parallelism) {
+			fParallelism= parallelism;
 			fSolutions= new Hashtable<>(targets.length);
 			fWorkingCopies= new Hashtable<>();
 
@@ -390,23 +417,16 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 				CleanUpRefactoringProgressMonitor cuMonitor= new CleanUpRefactoringProgressMonitor(monitor, parseList.size() + sourceList.size(), fSize, fIndex);
 				CleanUpASTRequestor requestor= new CleanUpASTRequestor(fParseList, fSolutions, cuMonitor);
 				if (parseList.size() > 0) {
-					ASTBatchParser parser= new ASTBatchParser() {
-						@Override
-						protected ASTParser createParser(IJavaProject project) {
-							ASTParser result= createCleanUpASTParser();
-							result.setProject(project);
-
-							Map<String, String> options= RefactoringASTParser.getCompilerOptions(project);
-							options.putAll(fCleanUpOptions);
-							result.setCompilerOptions(options);
-							return result;
+					ICompilationUnit[] units= parseList.toArray(new ICompilationUnit[parseList.size()]);
+					int shardCount= Math.min(fParallelism, units.length / MIN_UNITS_PER_SHARD);
+					if (shardCount > 1 && !WorkerPool.isWorkerThread()) {
+						parseInParallel(units, shardCount, requestor, cuMonitor);
+					} else {
+						try {
+							createBatchParser().createASTs(units, new String[0], requestor, cuMonitor);
+						} catch (FixCalculationException e) {
+							throw e.getException();
 						}
-					};
-					try {
-						ICompilationUnit[] units= parseList.toArray(new ICompilationUnit[parseList.size()]);
-						parser.createASTs(units, new String[0], requestor, cuMonitor);
-					} catch (FixCalculationException e) {
-						throw e.getException();
 					}
 				}
 
@@ -427,6 +447,98 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 			}
 		}
 
+		private ASTBatchParser createBatchParser() {
+			return new ASTBatchParser() {
+				@Override
+				protected ASTParser createParser(IJavaProject project) {
+					ASTParser result= createCleanUpASTParser();
+					result.setProject(project);
+
+					Map<String, String> options= RefactoringASTParser.getCompilerOptions(project);
+					options.putAll(fCleanUpOptions);
+					result.setCompilerOptions(options);
+					return result;
+				}
+			};
+		}
+
+		/**
+		 * Splits <code>units</code> into <code>shardCount</code> consecutive shards, parses and
+		 * cleans up each shard on a worker thread and merges the results into <code>requestor</code>
+		 * in shard order. The outcome is therefore the same as if all units had been processed
+		 * by <code>requestor</code> on the calling thread.
+		 *
+		 * @param units the compilation units to parse
+		 * @param shardCount the number of shards, greater than 1
+		 * @param requestor the requestor to merge the results into
+		 * @param monitor the monitor to report progress to, only accessed from the calling thread
+		 * @throws CoreException if a clean up failed to compute its fix
+		 */
+		private void parseInParallel(ICompilationUnit[] units, int shardCount, CleanUpASTRequestor requestor, final CleanUpRefactoringProgressMonitor monitor) throws CoreException {
+			final IProgressMonitor cancelMonitor= new NullProgressMonitor() {
+				@Override
+				public boolean isCanceled() {
+					return monitor.isCanceled();
+				}
+			};
+
+			int shardSize= (units.length + shardCount - 1) / shardCount;
+			List<ICompilationUnit[]> shards= new ArrayList<>(shardCount);
+			List<Future<CleanUpASTRequestor>> futures= new ArrayList<>(shardCount);
+
+			monitor.beginTask("", units.length); //$NON-NLS-1$
+			try {
+				WorkerPool pool= JavaPlugin.getDefault().getWorkerPool();
+				for (int start= 0; start < units.length; start+= shardSize) {
+					final ICompilationUnit[] shard= Arrays.copyOfRange(units, start, Math.min(start + shardSize, units.length));
+					shards.add(shard);
+					futures.add(pool.submit(new Callable<CleanUpASTRequestor>() {
+						@Override
+						public CleanUpASTRequestor call() throws Exception {
+							CleanUpRefactoringProgressMonitor shardMonitor= new CleanUpRefactoringProgressMonitor(cancelMonitor, shard.length, fSize, 0);
+							CleanUpASTRequestor shardRequestor= new CleanUpASTRequestor(fParseList, new Hashtable<ICompilationUnit, List<CleanUpChange>>(shard.length), shardMonitor);
+							createBatchParser().createASTs(shard, new String[0], shardRequestor, shardMonitor);
+							return shardRequestor;
+						}
+					}));
+				}
+
+				for (int i= 0; i < futures.size(); i++) {
+					ICompilationUnit[] shard= shards.get(i);
+					monitor.subTask(monitor.getSubTaskMessage(shard[0]));
+
+					CleanUpASTRequestor shardRequestor= futures.get(i).get();
+					requestor.merge(shardRequestor);
+
+					int done= shard.length - shardRequestor.getUndoneElements().size();
+					monitor.internalWorked(done);
+					monitor.flush(done);
+
+					if (monitor.isCanceled())
+						throw new OperationCanceledException();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new OperationCanceledException();
+			} catch (ExecutionException e) {
+				Throwable cause= e.getCause();
+				if (cause instanceof FixCalculationException)
+					throw ((FixCalculationException)cause).getException();
+				if (cause instanceof CoreException)
+					throw (CoreException)cause;
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException)cause;
+				if (cause instanceof Error)
+					throw (Error)cause;
+				throw new CoreException(new Status(IStatus.ERROR, JavaPlugin.getPluginId(), IJavaStatusConstants.INTERNAL_ERROR, cause.getMessage(), cause));
+			} finally {
+				for (Iterator<Future<CleanUpASTRequestor>> iter= futures.iterator(); iter.hasNext();) {
+					iter.next().cancel(true);
+				}
+				monitor.done();
+			}
+		}
+
 		public void dispose() {
 			for (Iterator<ICompilationUnit> iterator= fWorkingCopies.values().iterator(); iterator.hasNext();) {
 				ICompilationUnit cu= iterator.next();
@@ -516,6 +628,12 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 	 */
 	private static final int SLOW_CLEAN_UP_THRESHOLD= 2000;
 
+	/**
+	 * Minimal number of compilation units handed to one worker thread if clean up
+	 * runs in parallel. Smaller parse lists are processed on the calling thread.
+	 */
+	private static final int MIN_UNITS_PER_SHARD= 16;
+
 	private final List<ICleanUp> fCleanUps;
 	private final Hashtable<IJavaProject, List<CleanUpTarget>> fProjects;
 	private Change fChange;
@@ -524,6 +642,8 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 
 	private boolean fUseOptionsFromProfile;
 
+	private int fParallelism;
+
 	public CleanUpRefactoring() {
 		this(FixMessages.CleanUpRefactoring_Refactoring_name);
 	}
@@ -539,6 +659,44 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		fUseOptionsFromProfile= enabled;
 	}
 
+	/**
+	 * Sets the number of worker threads used to parse the compilation units of a project and to
+	 * compute their fixes. Projects are still cleaned up one after the other, since clean ups are
+	 * configured per project. Fixes are only computed concurrently if all clean ups have been
+	 * created by the {@link CleanUpRegistry} from an <code>org.eclipse.jdt.ui.cleanUps</code>
+	 * extension that declares them as <code>threadSafe</code>.
+	 *
+	 * @param parallelism the number of worker threads, <code>1</code> to process all compilation
+	 *            units on the calling thread, a negative value to use one worker per available
+	 *            processor, or <code>0</code> to use the value of the
+	 *            {@link CleanUpConstants#CLEAN_UP_PARALLELISM} preference
+	 */
+	public void setParallelism(int parallelism) {
+		fParallelism= parallelism;
+	}
+
+	/**
+	 * @return the number of worker threads used to compute the fixes, at least <code>1</code>
+	 * @see #setParallelism(int)
+	 */
+	public int getParallelism() {
+		int parallelism= fParallelism;
+		if (parallelism == 0)
+			parallelism= JavaPlugin.getDefault().getPreferenceStore().getInt(CleanUpConstants.CLEAN_UP_PARALLELISM);
+		if (parallelism < 1)
+			parallelism= Runtime.getRuntime().availableProcessors();
+		return parallelism;
+	}
+
+	private static boolean areThreadSafe(ICleanUp[] cleanUps) {
+		CleanUpRegistry registry= JavaPlugin.getDefault().getCleanUpRegistry();
+		for (int i= 0; i < cleanUps.length; i++) {
+			if (!registry.isThreadSafe(cleanUps[i]))
+				return false;
+		}
+		return true;
+	}
+
 	public void addCompilationUnit(ICompilationUnit unit) {
 		addCleanUpTarget(new CleanUpTarget(unit));
 	}
@@ -697,7 +855,7 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 	}
 
 	private Change[] cleanUpProject(IJavaProject project, CleanUpTarget[] targets, ICleanUp[] cleanUps, IProgressMonitor monitor) throws CoreException {
-		CleanUpFixpointIterator iter= new CleanUpFixpointIterator(targets, cleanUps);
+		CleanUpFixpointIterator iter= new CleanUpFixpointIterator(targets, cleanUps, areThreadSafe(cleanUps) ? getParallelism() : 1);
 
 		SubProgressMonitor subMonitor= new SubProgressMonitor(monitor, 2 * targets.length * cleanUps.length);
 		subMonitor.beginTask("", targets.length); //$NON-NLS-1$
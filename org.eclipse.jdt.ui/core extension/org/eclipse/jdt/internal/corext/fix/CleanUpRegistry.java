@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2011 IBM Corporation and others.
+ * Copyright (c) 2007, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,8 +15,10 @@ package org.eclipse.jdt.internal.corext.fix;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import com.ibm.icu.text.Collator;
 
@@ -159,10 +161,12 @@ public class CleanUpRegistry {
 		private static final String ATTRIBUTE_ID_CLASS= "class"; //$NON-NLS-1$
 		private static final String ATTRIBURE_ID_RUNAFTER= "runAfter"; //$NON-NLS-1$
 		private static final String ATTRIBUTE_ID_ID= "id"; //$NON-NLS-1$
+		private static final String ATTRIBUTE_ID_THREAD_SAFE= "threadSafe"; //$NON-NLS-1$
 
 		private final IConfigurationElement fElement;
 		private final String fId;
 		private final String fRunAfter;
+		private final boolean fThreadSafe;
 
 		/**
 		 * @param element the configuration element
@@ -171,6 +175,7 @@ public class CleanUpRegistry {
 			fElement= element;
 			fId= element.getAttribute(ATTRIBUTE_ID_ID);
 			fRunAfter= element.getAttribute(ATTRIBURE_ID_RUNAFTER);
+			fThreadSafe= Boolean.valueOf(element.getAttribute(ATTRIBUTE_ID_THREAD_SAFE)).booleanValue();
 		}
 
 		/**
@@ -188,6 +193,13 @@ public class CleanUpRegistry {
 			return fRunAfter;
 		}
 
+		/**
+		 * @return <code>true</code> if the fixes of this clean up may be computed concurrently
+		 */
+		public boolean isThreadSafe() {
+			return fThreadSafe;
+		}
+
 		/**
 		 * @return the clean up or <code>null</code> if the clean up could not be instantiated
 		 */
@@ -255,6 +267,12 @@ public class CleanUpRegistry {
 
 	private CleanUpInitializerDescriptor[] fCleanUpInitializerDescriptors;
 
+	/**
+	 * The clean ups created by this registry whose descriptor has the <code>threadSafe</code>
+	 * attribute.
+	 */
+	private final Set<ICleanUp> fThreadSafeCleanUps= Collections.newSetFromMap(new WeakHashMap<ICleanUp, Boolean>());
+
 	/**
 	 * Creates and returns the registered clean ups that don't fail upon creation.
 	 * 
@@ -277,13 +295,29 @@ public class CleanUpRegistry {
 		for (int i= 0; i < fCleanUpDescriptors.length; i++) {
 			if (ids == null || ids.contains(fCleanUpDescriptors[i].getId())) {
 				ICleanUp cleanUp= fCleanUpDescriptors[i].createCleanUp();
-				if (cleanUp != null)
+				if (cleanUp != null) {
 					result.add(cleanUp);
+					if (fCleanUpDescriptors[i].isThreadSafe())
+						fThreadSafeCleanUps.add(cleanUp);
+				}
 			}
 		}
 		return result.toArray(new ICleanUp[result.size()]);
 	}
 
+	/**
+	 * Tells whether the given clean up has been created by {@link #createCleanUps(Set)} from a
+	 * contribution with the <code>threadSafe</code> attribute, i.e. whether its fixes may be
+	 * created concurrently for different compilation units. Clean ups that have not been created
+	 * by this registry are not thread-safe.
+	 *
+	 * @param cleanUp the clean up
+	 * @return <code>true</code> if the clean up is thread-safe
+	 */
+	public synchronized boolean isThreadSafe(ICleanUp cleanUp) {
+		return fThreadSafeCleanUps.contains(cleanUp);
+	}
+
 	/**
 	 * @param kind the kind of clean up for which to retrieve the configuratin pages
 	 * 
@@ -19,6 +19,7 @@ package org.eclipse.jdt.internal.corext.template.java;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -83,6 +84,7 @@ import org.eclipse.jdt.internal.core.manipulation.util.Strings;
 import org.eclipse.jdt.internal.corext.codemanipulation.ContextSensitiveImportRewriteContext;
 import org.eclipse.jdt.internal.corext.template.java.CompilationUnitCompletion.Variable;
 import org.eclipse.jdt.internal.corext.util.JavaModelUtil;
+import org.eclipse.jdt.internal.corext.util.TypeNameIndex;
 
 import org.eclipse.jdt.ui.JavaUI;
 import org.eclipse.jdt.ui.PreferenceConstants;
@@ -684,7 +686,13 @@ public class JavaContext extends CompilationUnitContext {
 
 		ArrayList<TypeNameMatch> typeInfos= new ArrayList<>();
 		TypeNameMatchCollector requestor= new TypeNameMatchCollector(typeInfos);
-		new SearchEngine().searchAllTypeNames(null, 0, simpleTypeName.toCharArray(), SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE, getSearchForConstant(typeKinds), searchScope, requestor, IJavaSearchConstants.FORCE_IMMEDIATE_SEARCH, monitor);
+		/*
+		 * The type proposals of content assist are computed by the completion
+		 * engine of JDT Core, which cannot use the type name index. Type lookups
+		 * of templates run in the editor, so they use and create the index.
+		 */
+		if (!TypeNameIndex.getDefault().findTypes(Collections.singleton(simpleTypeName), searchScope, requestor::acceptTypeNameMatch, monitor))
+			new SearchEngine().searchAllTypeNames(null, 0, simpleTypeName.toCharArray(), SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE, getSearchForConstant(typeKinds), searchScope, requestor, IJavaSearchConstants.FORCE_IMMEDIATE_SEARCH, monitor);
 
 		ArrayList<TypeNameMatch> typeRefsFound= new ArrayList<>(typeInfos.size());
 		for (int i= 0, len= typeInfos.size(); i < len; i++) {
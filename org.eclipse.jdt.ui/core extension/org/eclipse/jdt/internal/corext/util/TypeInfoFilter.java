@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -128,6 +128,29 @@ public class TypeInfoFilter {
 		return fNameMatcher.getPattern();
 	}
 
+	/**
+	 * Returns a prefix of the simple names of all types which are matched by
+	 * this filter, ignoring case.
+	 *
+	 * @return the name prefix, may be empty
+	 */
+	public String getNamePrefix() {
+		String pattern= fNameMatcher.getPattern();
+		switch (fNameMatcher.getMatchKind()) {
+			case SearchPattern.R_PATTERN_MATCH:
+				int end= 0;
+				while (end < pattern.length() && pattern.charAt(end) != '*' && pattern.charAt(end) != '?')
+					end++;
+				return pattern.substring(0, end);
+			case SearchPattern.R_CAMELCASE_MATCH:
+			case SearchPattern.R_CAMELCASE_SAME_PART_COUNT_MATCH:
+				// the first character of a camel case pattern must match
+				return pattern.substring(0, Math.min(1, pattern.length()));
+			default:
+				return pattern;
+		}
+	}
+
 	public int getSearchFlags() {
 		return fNameMatcher.getMatchKind();
 	}
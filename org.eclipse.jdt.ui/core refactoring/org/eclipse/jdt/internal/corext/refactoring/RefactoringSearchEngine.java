@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -21,18 +21,25 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.SubProgressMonitor;
 
 import org.eclipse.core.resources.IResource;
 
 import org.eclipse.ltk.core.refactoring.IRefactoringStatusEntryComparator;
 import org.eclipse.ltk.core.refactoring.RefactoringStatus;
 import org.eclipse.ltk.core.refactoring.RefactoringStatusEntry;
+import org.eclipse.ltk.internal.core.refactoring.WorkerPool;
 
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaModelStatusConstants;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.WorkingCopyOwner;
@@ -44,12 +51,51 @@ import org.eclipse.jdt.core.search.SearchRequestor;
 
 import org.eclipse.jdt.internal.corext.util.SearchUtils;
 
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
 /**
  * Convenience wrapper for {@link SearchEngine} - performs searching and sorts the results by {@link IResource}.
  * TODO: throw CoreExceptions from search(..) methods instead of wrapped JavaModelExceptions.
  */
 public class RefactoringSearchEngine {
 
+	/**
+	 * A progress monitor for patterns which are searched in the worker pool. It only
+	 * forwards the cancellation of the monitor of the batched search, since
+	 * progress is reported by the calling thread.
+	 */
+	private static class SearchMonitor extends NullProgressMonitor {
+		private final IProgressMonitor fMonitor;
+
+		public SearchMonitor(IProgressMonitor monitor) {
+			fMonitor= monitor;
+		}
+
+		@Override
+		public boolean isCanceled() {
+			return super.isCanceled() || fMonitor.isCanceled();
+		}
+	}
+
+	/**
+	 * Passes the matches of concurrently searched patterns to a shared
+	 * requestor, one match at a time.
+	 */
+	private static class SynchronizedSearchRequestor extends SearchRequestor {
+		private final SearchRequestor fRequestor;
+
+		public SynchronizedSearchRequestor(SearchRequestor requestor) {
+			fRequestor= requestor;
+		}
+
+		@Override
+		public void acceptSearchMatch(SearchMatch match) throws CoreException {
+			synchronized (fRequestor) {
+				fRequestor.acceptSearchMatch(match);
+			}
+		}
+	}
+
 	private RefactoringSearchEngine(){
 		//no instances
 	}
@@ -150,6 +196,98 @@ public class RefactoringSearchEngine {
 		return groupByCu(requestor.getResults(), status);
 	}
 
+	/**
+	 * Searches several patterns at once and groups the resulting
+	 * {@link SearchMatch}es of all patterns by
+	 * {@link SearchResultGroup#getCompilationUnit()}.
+	 * <p>
+	 * Use this instead of consecutive searches for patterns which cannot be
+	 * combined with {@link SearchPattern#createOrPattern(SearchPattern, SearchPattern)}.
+	 * The patterns are searched concurrently on the worker pool of the plug-in,
+	 * so that the search takes about as long as the slowest pattern. If called
+	 * from a worker thread, the patterns are searched one after the other. The
+	 * requestor receives one match at a time, but the matches of different
+	 * patterns may be interleaved.
+	 * </p>
+	 *
+	 * @param patterns the search patterns
+	 * @param owner the working copy owner, or <code>null</code>
+	 * @param scope the search scope
+	 * @param requestor the requestor which collects the matches of all patterns
+	 * @param monitor the progress monitor
+	 * @param status an error is added here if inaccurate or non-cu matches have been found
+	 * @return a {@link SearchResultGroup}[], where each {@link SearchResultGroup}
+	 * 		has a different {@link SearchMatch#getResource() getResource()}s.
+	 * @throws JavaModelException when the search failed
+	 */
+	//TODO: throw CoreException
+	public static SearchResultGroup[] search(SearchPattern[] patterns, WorkingCopyOwner owner, IJavaSearchScope scope,
+			CollectingSearchRequestor requestor, IProgressMonitor monitor, RefactoringStatus status) throws JavaModelException {
+		if (monitor == null)
+			monitor= new NullProgressMonitor();
+		if (patterns.length == 1 || WorkerPool.isWorkerThread()) {
+			monitor.beginTask("", patterns.length); //$NON-NLS-1$
+			try {
+				for (int i= 0; i < patterns.length; i++)
+					internalSearch(owner, patterns[i], scope, requestor, new SubProgressMonitor(monitor, 1));
+			} finally {
+				monitor.done();
+			}
+			return groupByCu(requestor.getResults(), status);
+		}
+
+		// the first pattern is searched by the calling thread, which reports the progress
+		SearchRequestor synchronizedRequestor= new SynchronizedSearchRequestor(requestor);
+		SearchMonitor searchMonitor= new SearchMonitor(monitor);
+		List<Future<Void>> futures= new ArrayList<>(patterns.length - 1);
+		try {
+			WorkerPool pool= JavaPlugin.getDefault().getWorkerPool();
+			for (int i= 1; i < patterns.length; i++) {
+				SearchPattern pattern= patterns[i];
+				futures.add(pool.submit(() -> {
+					internalSearch(owner, pattern, scope, synchronizedRequestor, searchMonitor);
+					return null;
+				}));
+			}
+			internalSearch(owner, patterns[0], scope, synchronizedRequestor, monitor);
+			for (Iterator<Future<Void>> iter= futures.iterator(); iter.hasNext();)
+				getResult(iter.next());
+		} finally {
+			// stops the patterns which are still searched if the search failed
+			searchMonitor.setCanceled(true);
+			for (Iterator<Future<Void>> iter= futures.iterator(); iter.hasNext();)
+				iter.next().cancel(false);
+		}
+		return groupByCu(requestor.getResults(), status);
+	}
+
+	private static void internalSearch(WorkingCopyOwner owner, SearchPattern pattern, IJavaSearchScope scope, SearchRequestor requestor, IProgressMonitor monitor)
+			throws JavaModelException {
+		SearchEngine searchEngine= owner != null ? new SearchEngine(owner) : new SearchEngine();
+		try {
+			searchEngine.search(pattern, SearchUtils.getDefaultSearchParticipants(), scope, requestor, monitor);
+		} catch (CoreException e) {
+			throw new JavaModelException(e);
+		}
+	}
+
+	private static void getResult(Future<Void> future) throws JavaModelException {
+		try {
+			future.get();
+		} catch (InterruptedException e) {
+			throw new OperationCanceledException();
+		} catch (ExecutionException e) {
+			Throwable cause= e.getCause();
+			if (cause instanceof JavaModelException)
+				throw (JavaModelException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new JavaModelException(new Exception(cause), IJavaModelStatusConstants.INTERNAL_ERROR);
+		}
+	}
+
 	public static SearchResultGroup[] groupByCu(SearchMatch[] matches, RefactoringStatus status) {
 		return groupByCu(Arrays.asList(matches), status);
 	}
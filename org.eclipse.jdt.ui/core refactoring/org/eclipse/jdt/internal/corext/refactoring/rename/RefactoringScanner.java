@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -69,7 +69,16 @@ public class RefactoringScanner {
 	}
 
 	public void scan(ICompilationUnit cu)	throws JavaModelException {
-		char[] chars= cu.getBuffer().getCharacters();
+		scan(cu.getBuffer().getCharacters());
+	}
+
+	/**
+	 * Scan the given source.
+	 *
+	 * @param chars the contents of a compilation unit
+	 * @since 3.15
+	 */
+	public void scan(char[] chars) {
 		fMatches= new HashSet<>();
 		fScanner= ToolFactory.createScanner(true, true, false, true);
 		fScanner.setSource(chars);
@@ -93,12 +102,7 @@ public class RefactoringScanner {
 	 * @param text the text
 	 */
 	public void scan(String text) {
-		char[] chars= text.toCharArray();
-		fMatches= new HashSet<>();
-		fScanner= ToolFactory.createScanner(true, true, false, true);
-		fScanner.setSource(chars);
-		doScan();
-		fScanner= null;
+		scan(text.toCharArray());
 	}
 
 	private void doScan() {
@@ -115,6 +115,16 @@ public abstract class RenameMethodProcessor extends JavaRenameProcessor implemen
 	private GroupCategorySet fCategorySet;
 	private boolean fDelegateUpdating;
 	private boolean fDelegateDeprecation;
+	/**
+	 * The type hierarchies and ripple methods of this refactoring, or
+	 * <code>null</code> if not needed yet
+	 */
+	private RippleMethodCache fRippleMethodCache;
+	/**
+	 * <code>true</code> if this processor created the cache and disposes it,
+	 * <code>false</code> if it is shared by <code>RenameTypeProcessor</code>
+	 */
+	private boolean fOwnsRippleMethodCache;
 	protected boolean fInitialized= false;
 
 	/**
@@ -122,7 +132,7 @@ public abstract class RenameMethodProcessor extends JavaRenameProcessor implemen
 	 * @param method the method, or <code>null</code> if invoked by scripting
 	 */
 	protected RenameMethodProcessor(IMethod method) {
-		this(method, new TextChangeManager(true), null);
+		this(method, new TextChangeManager(true), null, null);
 		fIsComposite= false;
 	}
 	/**
@@ -133,10 +143,13 @@ public abstract class RenameMethodProcessor extends JavaRenameProcessor implemen
 	 *
 	 * @param method the method
 	 * @param manager the change manager
+	 * @param cache the cache of the rename type refactoring, which disposes it,
+	 *            or <code>null</code>
 	 * @param categorySet the group category set
 	 */
-	protected RenameMethodProcessor(IMethod method, TextChangeManager manager, GroupCategorySet categorySet) {
+	protected RenameMethodProcessor(IMethod method, TextChangeManager manager, RippleMethodCache cache, GroupCategorySet categorySet) {
 		initialize(method);
+		fRippleMethodCache= cache;
 		fChangeManager= manager;
 		fCategorySet= categorySet;
 		fDelegateUpdating= false;
@@ -246,9 +259,23 @@ public abstract class RenameMethodProcessor extends JavaRenameProcessor implemen
 		return fMethod;
 	}
 
+	/**
+	 * Returns the cache of the type hierarchies and ripple methods, which lives
+	 * until the change is created.
+	 *
+	 * @return the cache
+	 */
+	protected final RippleMethodCache getRippleMethodCache() {
+		if (fRippleMethodCache == null) {
+			fRippleMethodCache= new RippleMethodCache();
+			fOwnsRippleMethodCache= true;
+		}
+		return fRippleMethodCache;
+	}
+
 	private void initializeMethodsToRename(IProgressMonitor pm, ReferencesInBinaryContext binaryRefs) throws CoreException {
 		if (fMethodsToRename == null) {
-			IMethod[] rippleMethods= RippleMethodFinder2.getRelatedMethods(getMethod(), binaryRefs, pm, null);
+			IMethod[] rippleMethods= RippleMethodFinder2.getRelatedMethods(getMethod(), binaryRefs, pm, null, getRippleMethodCache());
 			fMethodsToRename= new HashSet<>();
 			for (IMethod method : rippleMethods) {
 				if (!method.isLambdaMethod()) {
@@ -763,6 +790,11 @@ public abstract class RenameMethodProcessor extends JavaRenameProcessor implemen
 			descriptor.setDeprecateDelegate(fDelegateDeprecation);
 			return new DynamicValidationRefactoringChange(descriptor, RefactoringCoreMessages.RenameMethodProcessor_change_name, list.toArray(new Change[list.size()]));
 		} finally {
+			if (fOwnsRippleMethodCache) {
+				fRippleMethodCache.dispose();
+				fRippleMethodCache= null;
+				fOwnsRippleMethodCache= false;
+			}
 			monitor.done();
 		}
 	}
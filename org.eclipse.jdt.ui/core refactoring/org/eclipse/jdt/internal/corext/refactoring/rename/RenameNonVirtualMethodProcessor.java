@@ -58,10 +58,11 @@ public class RenameNonVirtualMethodProcessor extends RenameMethodProcessor {
 	 *
 	 * @param method the method
 	 * @param manager the change manager
+	 * @param cache the cache of the rename type refactoring
 	 * @param categorySet the group category set
 	 */
-	RenameNonVirtualMethodProcessor(IMethod method, TextChangeManager manager, GroupCategorySet categorySet) {
-		super(method, manager, categorySet);
+	RenameNonVirtualMethodProcessor(IMethod method, TextChangeManager manager, RippleMethodCache cache, GroupCategorySet categorySet) {
+		super(method, manager, cache, categorySet);
 	}
 
 	/**
@@ -105,7 +106,7 @@ public class RenameNonVirtualMethodProcessor extends RenameMethodProcessor {
 			final IType declaring= method.getDeclaringType();
 			final String name= getNewElementName();
 			IMethod[] hierarchyMethods= hierarchyDeclaresMethodName(
-				new SubProgressMonitor(pm, 1), declaring.newTypeHierarchy(new SubProgressMonitor(pm, 1)), method, name);
+				new SubProgressMonitor(pm, 1), getRippleMethodCache().getHierarchy(declaring, null, new SubProgressMonitor(pm, 1)), method, name);
 
 			for (int i= 0; i < hierarchyMethods.length; i++) {
 				IMethod hierarchyMethod= hierarchyMethods[i];
@@ -159,6 +159,8 @@ public class RenameTypeProcessor extends JavaRenameProcessor implements ITextUpd
 	private boolean fUpdateSimilarElements;
 	private Map<IJavaElement, String> fFinalSimilarElementToName= null;
 	private int fRenamingStrategy;
+	// type hierarchies and ripple methods, shared with the method processors
+	private RippleMethodCache fRippleMethodCache= null;
 
 	// Preloaded information for the UI.
 	private LinkedHashMap<IJavaElement, String> fPreloadedElementToName= null;
@@ -1114,6 +1116,10 @@ public class RenameTypeProcessor extends JavaRenameProcessor implements ITextUpd
 			return result;
 		} finally {
 			fChangeManager= null;
+			if (fRippleMethodCache != null) {
+				fRippleMethodCache.dispose();
+				fRippleMethodCache= null;
+			}
 		}
 	}
 
@@ -1375,7 +1381,7 @@ public class RenameTypeProcessor extends JavaRenameProcessor implements ITextUpd
 					final IType declaringType= currentMethod.getDeclaringType();
 					ITypeHierarchy hierarchy= null;
 					if (!declaringType.isInterface())
-						hierarchy= declaringType.newTypeHierarchy(new NullProgressMonitor());
+						hierarchy= getRippleMethodCache().getHierarchy(declaringType, null, new NullProgressMonitor());
 
 					final IMethod topmost= MethodChecks.getTopmostMethod(currentMethod, hierarchy, new NullProgressMonitor());
 					if (topmost != null)
@@ -1383,7 +1389,7 @@ public class RenameTypeProcessor extends JavaRenameProcessor implements ITextUpd
 					if (handledTopLevelMethods.contains(currentMethod))
 						continue;
 					handledTopLevelMethods.add(currentMethod);
-					final IMethod[] ripples= RippleMethodFinder2.getRelatedMethods(currentMethod, new NullProgressMonitor(), null);
+					final IMethod[] ripples= RippleMethodFinder2.getRelatedMethods(currentMethod, true, new NullProgressMonitor(), null, getRippleMethodCache());
 
 					if (checkForWarnings(warnings, newName, ripples))
 						continue;
@@ -1392,7 +1398,7 @@ public class RenameTypeProcessor extends JavaRenameProcessor implements ITextUpd
 					if (status.hasFatalError())
 						return status;
 
-					processor= createVirtualMethodRenameProcessor(currentMethod, newName, ripples, hierarchy);
+					processor= createVirtualMethodRenameProcessor(currentMethod, newName, ripples);
 					fFinalSimilarElementToName.put(currentMethod, newName);
 					for (int i= 0; i < ripples.length; i++) {
 						fFinalSimilarElementToName.put(ripples[i], newName);
@@ -1651,14 +1657,20 @@ public class RenameTypeProcessor extends JavaRenameProcessor implements ITextUpd
 
 	// ----------------- Processor creation --------
 
-	private RenameMethodProcessor createVirtualMethodRenameProcessor(IMethod currentMethod, String newMethodName, IMethod[] ripples, ITypeHierarchy hierarchy) {
-		RenameMethodProcessor processor= new RenameVirtualMethodProcessor(currentMethod, ripples, fChangeManager, hierarchy, CATEGORY_METHOD_RENAME);
+	private RippleMethodCache getRippleMethodCache() {
+		if (fRippleMethodCache == null)
+			fRippleMethodCache= new RippleMethodCache();
+		return fRippleMethodCache;
+	}
+
+	private RenameMethodProcessor createVirtualMethodRenameProcessor(IMethod currentMethod, String newMethodName, IMethod[] ripples) {
+		RenameMethodProcessor processor= new RenameVirtualMethodProcessor(currentMethod, ripples, fChangeManager, getRippleMethodCache(), CATEGORY_METHOD_RENAME);
 		initMethodProcessor(processor, newMethodName);
 		return processor;
 	}
 
 	private RenameMethodProcessor createNonVirtualMethodRenameProcessor(IMethod currentMethod, String newMethodName) {
-		RenameMethodProcessor processor= new RenameNonVirtualMethodProcessor(currentMethod, fChangeManager, CATEGORY_METHOD_RENAME);
+		RenameMethodProcessor processor= new RenameNonVirtualMethodProcessor(currentMethod, fChangeManager, getRippleMethodCache(), CATEGORY_METHOD_RENAME);
 		initMethodProcessor(processor, newMethodName);
 		return processor;
 	}
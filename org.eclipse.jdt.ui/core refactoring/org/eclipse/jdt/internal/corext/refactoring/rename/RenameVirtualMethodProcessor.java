@@ -50,7 +50,6 @@ public class RenameVirtualMethodProcessor extends RenameMethodProcessor {
 
 	private IMethod fOriginalMethod;
 	private boolean fActivationChecked;
-	private ITypeHierarchy fCachedHierarchy= null;
 
 	/**
 	 * Creates a new rename method processor.
@@ -84,11 +83,10 @@ public class RenameVirtualMethodProcessor extends RenameMethodProcessor {
 	 * methods.
 	 *
 	 */
-	RenameVirtualMethodProcessor(IMethod topLevel, IMethod[] ripples, TextChangeManager changeManager, ITypeHierarchy hierarchy, GroupCategorySet categorySet) {
-		super(topLevel, changeManager, categorySet);
+	RenameVirtualMethodProcessor(IMethod topLevel, IMethod[] ripples, TextChangeManager changeManager, RippleMethodCache cache, GroupCategorySet categorySet) {
+		super(topLevel, changeManager, cache, categorySet);
 		fOriginalMethod= getMethod();
 		fActivationChecked= true; // is top level
-		fCachedHierarchy= hierarchy; // may be null
 		setMethodsToRename(ripples);
 	}
 
@@ -97,10 +95,7 @@ public class RenameVirtualMethodProcessor extends RenameMethodProcessor {
 	}
 
 	private ITypeHierarchy getCachedHierarchy(IType declaring, IProgressMonitor monitor) throws JavaModelException {
-		if (fCachedHierarchy != null && declaring.equals(fCachedHierarchy.getType()))
-			return fCachedHierarchy;
-		fCachedHierarchy= declaring.newTypeHierarchy(new SubProgressMonitor(monitor, 1));
-		return fCachedHierarchy;
+		return getRippleMethodCache().getHierarchy(declaring, null, new SubProgressMonitor(monitor, 1));
 	}
 
 	@Override
@@ -186,7 +181,6 @@ public class RenameVirtualMethodProcessor extends RenameMethodProcessor {
 					}
 				}
 			}
-			fCachedHierarchy= null;
 			return result;
 		} finally{
 			pm.done();
@@ -203,7 +197,7 @@ public class RenameVirtualMethodProcessor extends RenameMethodProcessor {
 			for (Iterator<IType> iter= types.iterator(); iter.hasNext(); ) {
 				final IMethod found= Checks.findMethod(method, iter.next());
 				final IType declaring= found.getDeclaringType();
-				result.addAll(Arrays.asList(hierarchyDeclaresMethodName(new SubProgressMonitor(pm, 1), declaring.newTypeHierarchy(new SubProgressMonitor(pm, 1)), found, newName)));
+				result.addAll(Arrays.asList(hierarchyDeclaresMethodName(new SubProgressMonitor(pm, 1), getCachedHierarchy(declaring, pm), found, newName)));
 			}
 			return result.toArray(new IMethod[result.size()]);
 		} finally {
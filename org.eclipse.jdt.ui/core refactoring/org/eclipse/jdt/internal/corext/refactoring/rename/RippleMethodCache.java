@@ -0,0 +1,331 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.refactoring.rename;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.ITypeHierarchy;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.WorkingCopyOwner;
+import org.eclipse.jdt.core.search.SearchMatch;
+
+/**
+ * Cache for the type hierarchies and ripple methods computed by the rename
+ * and change signature refactorings.
+ * <p>
+ * A cache is owned by a refactoring session: it is created by the processor
+ * which first needs it, shared with the processors it creates (e.g. the
+ * method processors of a rename type refactoring which renames similarly
+ * named methods) and disposed by its owner when the change is created.
+ * Type hierarchies are cached by focus type and working copy owner, ripple
+ * methods by method and working copy owner.
+ * </p>
+ * <p>
+ * The cache listens to Java element changes until it is disposed. A change
+ * which can affect a type hierarchy, i.e. anything but a change of a member
+ * body, clears all cached results, or only the results of the other working
+ * copy owners if it is confined to working copies which are not primary.
+ * </p>
+ */
+public final class RippleMethodCache {
+
+	/**
+	 * The maximal number of cached type hierarchies
+	 */
+	private static final int MAX_HIERARCHIES= 32;
+
+	/**
+	 * The maximal number of methods whose ripple methods are cached
+	 */
+	private static final int MAX_RIPPLES= 64;
+
+	/**
+	 * The delta flags of changes which cannot affect a type hierarchy
+	 */
+	private static final int IRRELEVANT_FLAGS= IJavaElementDelta.F_CONTENT | IJavaElementDelta.F_FINE_GRAINED | IJavaElementDelta.F_CHILDREN
+			| IJavaElementDelta.F_AST_AFFECTED | IJavaElementDelta.F_PRIMARY_RESOURCE | IJavaElementDelta.F_PRIMARY_WORKING_COPY;
+
+	/**
+	 * No cached results are affected by a change
+	 */
+	private static final int NONE= 0;
+
+	/**
+	 * Only the results of working copy owners other than the primary owner are
+	 * affected by a change
+	 */
+	private static final int WORKING_COPIES= 1;
+
+	/**
+	 * All cached results are affected by a change
+	 */
+	private static final int ALL= 2;
+
+	/**
+	 * The ripple methods of a method, and the search matches of the binary ones
+	 */
+	static final class Ripple {
+		final IMethod[] fMethods;
+		final Map<IMethod, SearchMatch> fDeclarationToMatch;
+
+		Ripple(IMethod[] methods, Map<IMethod, SearchMatch> declarationToMatch) {
+			fMethods= methods;
+			fDeclarationToMatch= declarationToMatch;
+		}
+	}
+
+	/**
+	 * The key of a cached result: an element, the working copy owner
+	 * (<code>null</code> for primary working copies) and whether binary
+	 * ripple methods are included
+	 */
+	private static final class Key {
+		private final IJavaElement fElement;
+		private final WorkingCopyOwner fOwner;
+		private final boolean fIncludeBinaries;
+
+		Key(IJavaElement element, WorkingCopyOwner owner, boolean includeBinaries) {
+			fElement= element;
+			fOwner= owner;
+			fIncludeBinaries= includeBinaries;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key other= (Key) obj;
+			return fIncludeBinaries == other.fIncludeBinaries && fElement.equals(other.fElement) && Objects.equals(fOwner, other.fOwner);
+		}
+
+		@Override
+		public int hashCode() {
+			return (fElement.hashCode() * 31 + Objects.hashCode(fOwner)) * 2 + (fIncludeBinaries ? 1 : 0);
+		}
+	}
+
+	/**
+	 * Clears the cache when the Java model changes. It references the cache
+	 * weakly and removes itself once a cache which was not disposed has been
+	 * collected.
+	 */
+	private static final class Invalidator implements IElementChangedListener {
+		private final WeakReference<RippleMethodCache> fCache;
+
+		Invalidator(RippleMethodCache cache) {
+			fCache= new WeakReference<>(cache);
+		}
+
+		@Override
+		public void elementChanged(ElementChangedEvent event) {
+			RippleMethodCache cache= fCache.get();
+			if (cache == null) {
+				JavaCore.removeElementChangedListener(this);
+				return;
+			}
+			int affected= getAffected(event.getDelta());
+			if (affected != NONE)
+				cache.clear(affected == ALL);
+		}
+
+		private static int getAffected(IJavaElementDelta delta) {
+			IJavaElement element= delta.getElement();
+			if (element instanceof ICompilationUnit && !element.equals(((ICompilationUnit) element).getPrimary()))
+				return isRelevant(delta) ? WORKING_COPIES : NONE;
+			if (isRelevantChange(delta))
+				return ALL;
+			int result= NONE;
+			IJavaElementDelta[] children= delta.getAffectedChildren();
+			for (int i= 0; i < children.length && result != ALL; i++)
+				result= Math.max(result, getAffected(children[i]));
+			return result;
+		}
+
+		private static boolean isRelevant(IJavaElementDelta delta) {
+			if (isRelevantChange(delta))
+				return true;
+			IJavaElementDelta[] children= delta.getAffectedChildren();
+			for (int i= 0; i < children.length; i++) {
+				if (isRelevant(children[i]))
+					return true;
+			}
+			return false;
+		}
+
+		private static boolean isRelevantChange(IJavaElementDelta delta) {
+			if (delta.getKind() != IJavaElementDelta.CHANGED)
+				return true;
+			int flags= delta.getFlags();
+			if ((flags & ~IRRELEVANT_FLAGS) != 0)
+				return true;
+			// a content change of a compilation unit or class file without a fine grained delta
+			return (flags & IJavaElementDelta.F_CONTENT) != 0 && (flags & IJavaElementDelta.F_FINE_GRAINED) == 0
+					&& delta.getElement().getElementType() < IJavaElement.TYPE;
+		}
+	}
+
+	/**
+	 * The type hierarchies by their focus type and working copy owner, least
+	 * recently used first
+	 */
+	private final LinkedHashMap<Key, ITypeHierarchy> fHierarchies= new LinkedHashMap<Key, ITypeHierarchy>(16, 0.75f, true) {
+		private static final long serialVersionUID= 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, ITypeHierarchy> eldest) {
+			return size() > MAX_HIERARCHIES;
+		}
+	};
+
+	/**
+	 * The ripple methods, least recently used first
+	 */
+	private final LinkedHashMap<Key, Ripple> fRipples= new LinkedHashMap<Key, Ripple>(16, 0.75f, true) {
+		private static final long serialVersionUID= 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Ripple> eldest) {
+			return size() > MAX_RIPPLES;
+		}
+	};
+
+	/**
+	 * The listener which clears this cache, or <code>null</code> if the cache
+	 * does not listen to changes
+	 */
+	private Invalidator fInvalidator;
+
+	/**
+	 * Creates a cache which is cleared on Java element changes until it is
+	 * disposed.
+	 */
+	public RippleMethodCache() {
+		this(true);
+	}
+
+	private RippleMethodCache(boolean listen) {
+		if (listen) {
+			fInvalidator= new Invalidator(this);
+			JavaCore.addElementChangedListener(fInvalidator, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+		}
+	}
+
+	/**
+	 * Creates a cache for a single search of ripple methods, which does not
+	 * listen to changes.
+	 *
+	 * @return the cache
+	 */
+	static RippleMethodCache createTransient() {
+		return new RippleMethodCache(false);
+	}
+
+	/**
+	 * Stops listening to changes and clears the cache.
+	 */
+	public void dispose() {
+		Invalidator invalidator;
+		synchronized (this) {
+			invalidator= fInvalidator;
+			fInvalidator= null;
+			fHierarchies.clear();
+			fRipples.clear();
+		}
+		if (invalidator != null)
+			JavaCore.removeElementChangedListener(invalidator);
+	}
+
+	/**
+	 * Clears the cached results.
+	 *
+	 * @param all <code>true</code> to clear all results, <code>false</code> to
+	 *            clear only the results of working copy owners other than the
+	 *            primary owner
+	 */
+	synchronized void clear(boolean all) {
+		if (all) {
+			fHierarchies.clear();
+			fRipples.clear();
+			return;
+		}
+		for (Iterator<Key> iter= fHierarchies.keySet().iterator(); iter.hasNext();) {
+			if (iter.next().fOwner != null)
+				iter.remove();
+		}
+		for (Iterator<Key> iter= fRipples.keySet().iterator(); iter.hasNext();) {
+			if (iter.next().fOwner != null)
+				iter.remove();
+		}
+	}
+
+	/**
+	 * Returns the type hierarchy of the given type, which is created if it is
+	 * not cached.
+	 *
+	 * @param type the focus type
+	 * @param owner the working copy owner, or <code>null</code>
+	 * @param monitor the progress monitor
+	 * @return the type hierarchy
+	 * @throws JavaModelException if the hierarchy cannot be created
+	 */
+	public ITypeHierarchy getHierarchy(IType type, WorkingCopyOwner owner, IProgressMonitor monitor) throws JavaModelException {
+		Key key= new Key(type, owner, false);
+		synchronized (this) {
+			ITypeHierarchy hierarchy= fHierarchies.get(key);
+			if (hierarchy != null)
+				return hierarchy;
+		}
+		ITypeHierarchy hierarchy= owner != null ? type.newTypeHierarchy(owner, monitor) : type.newTypeHierarchy(monitor);
+		synchronized (this) {
+			fHierarchies.put(key, hierarchy);
+		}
+		return hierarchy;
+	}
+
+	/**
+	 * @param method the method
+	 * @param includeBinaries <code>true</code> if binary ripple methods are included
+	 * @param owner the working copy owner, or <code>null</code>
+	 * @return the cached ripple methods, or <code>null</code>
+	 */
+	synchronized Ripple getRipple(IMethod method, boolean includeBinaries, WorkingCopyOwner owner) {
+		return fRipples.get(new Key(method, owner, includeBinaries));
+	}
+
+	/**
+	 * Caches the ripple methods of a method.
+	 *
+	 * @param method the method
+	 * @param includeBinaries <code>true</code> if binary ripple methods are included
+	 * @param owner the working copy owner, or <code>null</code>
+	 * @param ripple the ripple methods
+	 */
+	synchronized void putRipple(IMethod method, boolean includeBinaries, WorkingCopyOwner owner, Ripple ripple) {
+		fRipples.put(new Key(method, owner, includeBinaries), ripple);
+	}
+}
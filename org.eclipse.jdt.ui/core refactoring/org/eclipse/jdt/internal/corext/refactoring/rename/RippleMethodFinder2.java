@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -65,6 +65,7 @@ public class RippleMethodFinder2 {
 
 	private final boolean fExcludeBinaries;
 	private final ReferencesInBinaryContext fBinaryRefs;
+	private final RippleMethodCache fCache;
 	private Map<IMethod, SearchMatch> fDeclarationToMatch;
 
 	private static class MultiMap<K, V> {
@@ -131,25 +132,43 @@ public class RippleMethodFinder2 {
 	}
 
 
-	private RippleMethodFinder2(IMethod method, boolean excludeBinaries){
+	private RippleMethodFinder2(IMethod method, boolean excludeBinaries, RippleMethodCache cache){
 		fMethod= method;
 		fExcludeBinaries= excludeBinaries;
 		fBinaryRefs= null;
+		fCache= cache != null ? cache : RippleMethodCache.createTransient();
 	}
 
-	private RippleMethodFinder2(IMethod method, ReferencesInBinaryContext binaryRefs) {
+	private RippleMethodFinder2(IMethod method, ReferencesInBinaryContext binaryRefs, RippleMethodCache cache) {
 		fMethod= method;
 		fExcludeBinaries= true;
-		fDeclarationToMatch= new HashMap<>();
 		fBinaryRefs= binaryRefs;
+		fCache= cache != null ? cache : RippleMethodCache.createTransient();
 	}
 
 	public static IMethod[] getRelatedMethods(IMethod method, boolean excludeBinaries, IProgressMonitor pm, WorkingCopyOwner owner) throws CoreException {
+		return getRelatedMethods(method, excludeBinaries, pm, owner, null);
+	}
+
+	/**
+	 * Finds the ripple methods of a method, using the type hierarchies and
+	 * ripple methods of the given cache.
+	 *
+	 * @param method the method
+	 * @param excludeBinaries <code>true</code> if binary ripple methods are excluded
+	 * @param pm the progress monitor
+	 * @param owner the working copy owner, or <code>null</code>
+	 * @param cache the cache of the calling refactoring, or <code>null</code> to use
+	 *            a cache only for this call
+	 * @return the ripple methods
+	 * @throws CoreException if the ripple methods cannot be found
+	 */
+	public static IMethod[] getRelatedMethods(IMethod method, boolean excludeBinaries, IProgressMonitor pm, WorkingCopyOwner owner, RippleMethodCache cache) throws CoreException {
 		try{
 			if (! MethodChecks.isVirtual(method))
 				return new IMethod[]{ method };
 
-			return new RippleMethodFinder2(method, excludeBinaries).getAllRippleMethods(pm, owner);
+			return new RippleMethodFinder2(method, excludeBinaries, cache).getAllRippleMethods(pm, owner);
 		} finally{
 			pm.done();
 		}
@@ -159,31 +178,56 @@ public class RippleMethodFinder2 {
 	}
 
 	public static IMethod[] getRelatedMethods(IMethod method, ReferencesInBinaryContext binaryRefs, IProgressMonitor pm, WorkingCopyOwner owner) throws CoreException {
+		return getRelatedMethods(method, binaryRefs, pm, owner, null);
+	}
+
+	/**
+	 * Finds the ripple methods of a method, using the type hierarchies and
+	 * ripple methods of the given cache.
+	 *
+	 * @param method the method
+	 * @param binaryRefs the context to which the binary ripple methods are added
+	 * @param pm the progress monitor
+	 * @param owner the working copy owner, or <code>null</code>
+	 * @param cache the cache of the calling refactoring, or <code>null</code> to use
+	 *            a cache only for this call
+	 * @return the ripple methods
+	 * @throws CoreException if the ripple methods cannot be found
+	 */
+	public static IMethod[] getRelatedMethods(IMethod method, ReferencesInBinaryContext binaryRefs, IProgressMonitor pm, WorkingCopyOwner owner, RippleMethodCache cache) throws CoreException {
 		try {
 			if (! MethodChecks.isVirtual(method))
 				return new IMethod[]{ method };
 
-			return new RippleMethodFinder2(method, binaryRefs).getAllRippleMethods(pm, owner);
+			return new RippleMethodFinder2(method, binaryRefs, cache).getAllRippleMethods(pm, owner);
 		} finally{
 			pm.done();
 		}
 	}
 
 	private IMethod[] getAllRippleMethods(IProgressMonitor pm, WorkingCopyOwner owner) throws CoreException {
-		IMethod[] rippleMethods= findAllRippleMethods(pm, owner);
-		if (fDeclarationToMatch == null)
-			return rippleMethods;
+		boolean includeBinaries= fBinaryRefs != null || ! fExcludeBinaries;
+		RippleMethodCache.Ripple ripple= fCache.getRipple(fMethod, includeBinaries, owner);
+		if (ripple == null) {
+			if (includeBinaries)
+				fDeclarationToMatch= new HashMap<>();
+			ripple= new RippleMethodCache.Ripple(findAllRippleMethods(pm, owner), fDeclarationToMatch);
+			fDeclarationToMatch= null;
+			fCache.putRipple(fMethod, includeBinaries, owner, ripple);
+		}
+		IMethod[] rippleMethods= ripple.fMethods;
+		if (fBinaryRefs == null)
+			return rippleMethods.clone();
 
 		List<IMethod> filteredMethods= new ArrayList<>(rippleMethods.length / 2);
 		for (IMethod currentMethod : rippleMethods) {
-			Object match= fDeclarationToMatch.get(currentMethod);
+			SearchMatch match= ripple.fDeclarationToMatch.get(currentMethod);
 			if (match != null) {
-				fBinaryRefs.add((SearchMatch) match);
+				fBinaryRefs.add(match);
 			} else {
 				filteredMethods.add(currentMethod);
 			}
 		}
-		fDeclarationToMatch= null;
 		return toArray(filteredMethods);
 	}
 
@@ -345,7 +389,7 @@ public class RippleMethodFinder2 {
 
 		for (IType methodTypeSubtype : methodTypeSubtypes) {
 			checkCanceled(pm);
-			ITypeHierarchy subtypeHierarchy= methodTypeSubtype.newTypeHierarchy(owner, pm);
+			ITypeHierarchy subtypeHierarchy= fCache.getHierarchy(methodTypeSubtype, owner, pm);
 			IType[] subtypeSuperTypes= subtypeHierarchy.getAllSupertypes(methodTypeSubtype);
 			for (IType subtypeSuperType : subtypeSuperTypes) {
 				checkCanceled(pm);
@@ -391,7 +435,7 @@ public class RippleMethodFinder2 {
 			throws JavaModelException {
 		ITypeHierarchy hierarchy= getCachedHierarchy(type, owner, new SubProgressMonitor(pm, 1));
 		if (hierarchy == null)
-			hierarchy= type.newTypeHierarchy(owner, new SubProgressMonitor(pm, 1));
+			hierarchy= fCache.getHierarchy(type, owner, new SubProgressMonitor(pm, 1));
 		return hierarchy;
 	}
 
@@ -403,7 +447,7 @@ public class RippleMethodFinder2 {
 				IType root= iter.next();
 				ITypeHierarchy hierarchy= fRootHierarchies.get(root);
 				if (hierarchy == null) {
-					hierarchy= root.newTypeHierarchy(owner, new SubProgressMonitor(monitor, 1));
+					hierarchy= fCache.getHierarchy(root, owner, new SubProgressMonitor(monitor, 1));
 					fRootHierarchies.put(root, hierarchy);
 				}
 				if (hierarchy.contains(type))
@@ -428,7 +472,7 @@ public class RippleMethodFinder2 {
 					if (fBinaryRefs != null || ! (fExcludeBinaries && isBinary)) {
 						fDeclarations.add(method);
 					}
-					if (isBinary && fBinaryRefs != null) {
+					if (isBinary && fDeclarationToMatch != null) {
 						fDeclarationToMatch.put(method, match);
 					}
 				}
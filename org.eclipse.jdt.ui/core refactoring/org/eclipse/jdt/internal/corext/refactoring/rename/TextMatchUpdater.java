@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,11 +13,23 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.refactoring.rename;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
@@ -37,9 +49,11 @@ import org.eclipse.text.edits.ReplaceEdit;
 
 import org.eclipse.ltk.core.refactoring.GroupCategory;
 import org.eclipse.ltk.core.refactoring.GroupCategorySet;
+import org.eclipse.ltk.internal.core.refactoring.WorkerPool;
 
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaModelStatusConstants;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.search.IJavaSearchScope;
@@ -52,6 +66,18 @@ import org.eclipse.jdt.internal.corext.refactoring.rename.RefactoringScanner.Tex
 import org.eclipse.jdt.internal.corext.refactoring.tagging.ITextUpdating;
 import org.eclipse.jdt.internal.corext.refactoring.util.TextChangeManager;
 
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * Updates the textual occurrences of a name in comments and strings.
+ * <p>
+ * The compilation units in scope are scanned concurrently on the worker pool of
+ * the plug-in. Compilation units which are not open in a working copy are read
+ * directly from their files, and only files which contain the name are
+ * tokenized. The text edits are added on the calling thread, in the order of the
+ * compilation units.
+ * </p>
+ */
 class TextMatchUpdater {
 
 	private static final String TEXT_EDIT_LABEL= RefactoringCoreMessages.TextMatchUpdater_update;
@@ -61,27 +87,131 @@ class TextMatchUpdater {
 			RefactoringCoreMessages.TextMatchUpdater_textualMatches_name,
 			RefactoringCoreMessages.TextMatchUpdater_textualMatches_description));
 
+	/**
+	 * Scans one compilation unit on a worker thread. Returns <code>null</code> if the contents
+	 * could not be read and the compilation unit has to be scanned on the calling thread.
+	 */
+	private final class CuScanner implements Callable<Set<TextMatch>> {
+
+		private final IFile fFile;
+		private final String fCharset;
+		private final char[] fContents;
+
+		/**
+		 * @param file the file of the compilation unit, or <code>null</code> if the contents are
+		 *            given
+		 * @param charset the charset of the file, or <code>null</code>
+		 * @param contents the contents of the compilation unit, or <code>null</code> to read the
+		 *            file
+		 */
+		CuScanner(IFile file, String charset, char[] contents) {
+			fFile= file;
+			fCharset= charset;
+			fContents= contents;
+		}
+
+		@Override
+		public Set<TextMatch> call() {
+			if (fCanceled)
+				throw new OperationCanceledException();
+			return scan();
+		}
+
+		/**
+		 * @return the matches, or <code>null</code> if the contents could not be read
+		 */
+		Set<TextMatch> scan() {
+			char[] contents= fContents;
+			if (contents == null) {
+				contents= readContents();
+				if (contents == null)
+					return null;
+				if (contents.length == 0)
+					return Collections.emptySet();
+			} else if (indexOf(contents, fCurrentName.toCharArray()) == -1) {
+				return Collections.emptySet();
+			}
+			RefactoringScanner scanner= new RefactoringScanner(fCurrentName, fCurrentQualifier);
+			scanner.scan(contents);
+			return scanner.getMatches();
+		}
+
+		/**
+		 * @return the contents of the file, an empty array if the file does not contain the name,
+		 *         or <code>null</code> if the file could not be read
+		 */
+		private char[] readContents() {
+			byte[] bytes;
+			Charset charset;
+			try (InputStream stream= fFile.getContents(true)) {
+				charset= Charset.forName(fCharset);
+				bytes= readAll(stream);
+			} catch (CoreException | IOException | IllegalArgumentException e) {
+				return null;
+			}
+
+			byte[] name= getEncodedName(charset);
+			if (name != null && indexOf(bytes, name) == -1)
+				return new char[0];
+
+			String contents= new String(bytes, charset);
+			if (contents.length() > 0 && contents.charAt(0) == '\uFEFF')
+				contents= contents.substring(1);
+			if (name == null && contents.indexOf(fCurrentName) == -1)
+				return new char[0];
+			return contents.toCharArray();
+		}
+
+		/**
+		 * @param charset the charset of the file
+		 * @return the bytes of the name in the given charset, or <code>null</code> if the bytes
+		 *         of the name may depend on the context in the file
+		 */
+		private byte[] getEncodedName(Charset charset) {
+			if (StandardCharsets.UTF_8.equals(charset))
+				return fCurrentName.getBytes(charset);
+			byte[] ascii= fCurrentName.getBytes(StandardCharsets.US_ASCII);
+			if (new String(ascii, StandardCharsets.US_ASCII).equals(fCurrentName) && Arrays.equals(ascii, fCurrentName.getBytes(charset)))
+				return ascii;
+			return null;
+		}
+	}
+
 	private final IJavaSearchScope fScope;
 	private final TextChangeManager fManager;
 	private final SearchResultGroup[] fReferences;
 	private final boolean fOnlyQualified;
 
-	private final RefactoringScanner fScanner;
+	private final String fCurrentName;
+	private final String fCurrentQualifier;
 	private final String fNewName;
 	private final int fCurrentNameLength;
 
+	/**
+	 * The reference groups keyed by compilation unit, created lazily
+	 */
+	private Map<ICompilationUnit, List<SearchResultGroup>> fReferencesByCu;
+
+	/**
+	 * Set when the update has been canceled, so that pending scans are skipped
+	 */
+	private volatile boolean fCanceled;
+
 	private TextMatchUpdater(TextChangeManager manager, IJavaSearchScope scope, String currentName, String currentQualifier, String newName, SearchResultGroup[] references, boolean onlyQualified){
 		Assert.isNotNull(manager);
 		Assert.isNotNull(scope);
 		Assert.isNotNull(references);
+		Assert.isNotNull(currentName);
+		Assert.isNotNull(currentQualifier);
 		fManager= manager;
 		fScope= scope;
 		fReferences= references;
 		fOnlyQualified= onlyQualified;
 
 		fNewName= newName;
+		fCurrentName= currentName;
+		fCurrentQualifier= currentQualifier;
 		fCurrentNameLength= currentName.length();
-		fScanner= new RefactoringScanner(currentName, currentQualifier);
 	}
 
 	static void perform(IProgressMonitor pm, IJavaSearchScope scope, String currentName, String currentQualifier, String newName, TextChangeManager manager, SearchResultGroup[] references, boolean onlyQualified) throws JavaModelException{
@@ -96,13 +226,15 @@ class TextMatchUpdater {
 		try{
 			IProject[] projectsInScope= getProjectsInScope();
 
-			pm.beginTask("", projectsInScope.length); //$NON-NLS-1$
+			pm.beginTask("", projectsInScope.length * 5); //$NON-NLS-1$
 
+			List<ICompilationUnit> cus= new ArrayList<>();
 			for (int i =0 ; i < projectsInScope.length; i++){
 				if (pm.isCanceled())
 					throw new OperationCanceledException();
-				addTextMatches(projectsInScope[i], new SubProgressMonitor(pm, 1));
+				collectCompilationUnits(projectsInScope[i], cus, new SubProgressMonitor(pm, 1));
 			}
+			addTextMatches(cus, new SubProgressMonitor(pm, projectsInScope.length * 4));
 		} finally{
 			pm.done();
 		}
@@ -123,7 +255,7 @@ class TextMatchUpdater {
 		return projectsInScope.toArray(new IProject[projectsInScope.size()]);
 	}
 
-	private void addTextMatches(IResource resource, IProgressMonitor pm) throws JavaModelException{
+	private void collectCompilationUnits(IResource resource, List<ICompilationUnit> cus, IProgressMonitor pm) throws JavaModelException{
 		try{
 			String task= RefactoringCoreMessages.TextMatchUpdater_searching + resource.getFullPath();
 			if (resource instanceof IFile){
@@ -135,7 +267,7 @@ class TextMatchUpdater {
 					return;
 				if (! fScope.encloses(element))
 					return;
-				addCuTextMatches((ICompilationUnit) element);
+				cus.add((ICompilationUnit) element);
 
 			} else if (resource instanceof IContainer){
 				IResource[] members= ((IContainer) resource).members();
@@ -145,7 +277,7 @@ class TextMatchUpdater {
 					if (pm.isCanceled())
 						throw new OperationCanceledException();
 
-					addTextMatches(members[i], new SubProgressMonitor(pm, 1));
+					collectCompilationUnits(members[i], cus, new SubProgressMonitor(pm, 1));
 				}
 			}
 		} catch (JavaModelException e){
@@ -157,9 +289,75 @@ class TextMatchUpdater {
 		}
 	}
 
-	private void addCuTextMatches(ICompilationUnit cu) throws JavaModelException{
-		fScanner.scan(cu);
-		Set<TextMatch> matches= fScanner.getMatches(); //Set of TextMatch
+	private void addTextMatches(List<ICompilationUnit> cus, IProgressMonitor pm) throws JavaModelException {
+		pm.beginTask(RefactoringCoreMessages.TextMatchUpdater_searching, Math.max(cus.size(), 1));
+		List<CuScanner> scanners= new ArrayList<>(cus.size());
+		List<Future<Set<TextMatch>>> futures= cus.size() > 1 && !WorkerPool.isWorkerThread() ? new ArrayList<>(cus.size()) : null;
+		try {
+			WorkerPool pool= JavaPlugin.getDefault().getWorkerPool();
+			for (Iterator<ICompilationUnit> iter= cus.iterator(); iter.hasNext();) {
+				CuScanner scanner= createScanner(iter.next());
+				scanners.add(scanner);
+				if (futures != null)
+					futures.add(pool.submit(scanner));
+			}
+			for (int i= 0; i < scanners.size(); i++) {
+				if (pm.isCanceled())
+					throw new OperationCanceledException();
+				ICompilationUnit cu= cus.get(i);
+				Set<TextMatch> matches= futures != null ? futures.get(i).get() : scanners.get(i).scan();
+				if (matches == null) {
+					// fall back to the buffer of the compilation unit
+					RefactoringScanner scanner= new RefactoringScanner(fCurrentName, fCurrentQualifier);
+					scanner.scan(cu);
+					matches= scanner.getMatches();
+				}
+				addCuTextMatches(cu, matches);
+				pm.worked(1);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OperationCanceledException();
+		} catch (ExecutionException e) {
+			Throwable cause= e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new JavaModelException(cause, IJavaModelStatusConstants.CORE_EXCEPTION);
+		} finally {
+			fCanceled= true;
+			if (futures != null) {
+				for (Iterator<Future<Set<TextMatch>>> iter= futures.iterator(); iter.hasNext();) {
+					iter.next().cancel(true);
+				}
+			}
+			pm.done();
+		}
+	}
+
+	/**
+	 * Creates the scanner for the given compilation unit. Working copies and compilation units
+	 * with unsaved changes are read from their buffer on the calling thread.
+	 *
+	 * @param cu the compilation unit
+	 * @return the scanner
+	 * @throws JavaModelException if the buffer or the charset of the compilation unit cannot be
+	 *             accessed
+	 */
+	private CuScanner createScanner(ICompilationUnit cu) throws JavaModelException {
+		IResource resource= cu.getResource();
+		if (cu.isWorkingCopy() || cu.hasUnsavedChanges() || !(resource instanceof IFile))
+			return new CuScanner(null, null, cu.getBuffer().getCharacters());
+		IFile file= (IFile) resource;
+		try {
+			return new CuScanner(file, file.getCharset(), null);
+		} catch (CoreException e) {
+			throw new JavaModelException(e);
+		}
+	}
+
+	private void addCuTextMatches(ICompilationUnit cu, Set<TextMatch> matches) {
 		if (matches.size() == 0)
 			return;
 
@@ -169,25 +367,42 @@ class TextMatchUpdater {
 	}
 
 	private void removeReferences(ICompilationUnit cu, Set<TextMatch> matches) {
-		for (int i= 0; i < fReferences.length; i++) {
-			SearchResultGroup group= fReferences[i];
-			if (cu.equals(group.getCompilationUnit())) {
-				removeReferences(matches, group);
+		List<SearchResultGroup> groups= getReferencesByCu().get(cu);
+		if (groups == null)
+			return;
+		Set<Integer> referenceStarts= new HashSet<>();
+		for (Iterator<SearchResultGroup> iter= groups.iterator(); iter.hasNext();) {
+			SearchMatch[] searchResults= iter.next().getSearchResults();
+			for (int r= 0; r < searchResults.length; r++) {
+				//int start= searchResults[r].getStart(); // doesn't work for pack.ReferencedType
+				int unqualifiedStart= searchResults[r].getOffset() + searchResults[r].getLength() - fCurrentNameLength;
+				referenceStarts.add(Integer.valueOf(unqualifiedStart));
 			}
 		}
+		for (Iterator<TextMatch> iter= matches.iterator(); iter.hasNext();) {
+			TextMatch element= iter.next();
+			if (referenceStarts.contains(Integer.valueOf(element.getStartPosition())))
+				iter.remove();
+		}
 	}
 
-	private void removeReferences(Set<TextMatch> matches, SearchResultGroup group) {
-		SearchMatch[] searchResults= group.getSearchResults();
-		for (int r= 0; r < searchResults.length; r++) {
-			//int start= searchResults[r].getStart(); // doesn't work for pack.ReferencedType
-			int unqualifiedStart= searchResults[r].getOffset() + searchResults[r].getLength() - fCurrentNameLength;
-			for (Iterator<TextMatch> iter= matches.iterator(); iter.hasNext();) {
-				TextMatch element= iter.next();
-				if (element.getStartPosition() == unqualifiedStart)
-					iter.remove();
+	private Map<ICompilationUnit, List<SearchResultGroup>> getReferencesByCu() {
+		if (fReferencesByCu == null) {
+			fReferencesByCu= new HashMap<>();
+			for (int i= 0; i < fReferences.length; i++) {
+				SearchResultGroup group= fReferences[i];
+				ICompilationUnit cu= group.getCompilationUnit();
+				if (cu == null)
+					continue;
+				List<SearchResultGroup> groups= fReferencesByCu.get(cu);
+				if (groups == null) {
+					groups= new ArrayList<>(1);
+					fReferencesByCu.put(cu, groups);
+				}
+				groups.add(group);
 			}
 		}
+		return fReferencesByCu;
 	}
 
 	private void addTextUpdates(ICompilationUnit cu, Set<TextMatch> matches) {
@@ -204,4 +419,45 @@ class TextMatchUpdater {
 			}
 		}
 	}
+
+	private static byte[] readAll(InputStream stream) throws IOException {
+		ByteArrayOutputStream out= new ByteArrayOutputStream(8192);
+		byte[] buffer= new byte[8192];
+		int read;
+		while ((read= stream.read(buffer)) != -1)
+			out.write(buffer, 0, read);
+		return out.toByteArray();
+	}
+
+	private static int indexOf(byte[] bytes, byte[] pattern) {
+		if (pattern.length == 0)
+			return 0;
+		byte first= pattern[0];
+		for (int i= 0, max= bytes.length - pattern.length; i <= max; i++) {
+			if (bytes[i] != first)
+				continue;
+			int j= 1;
+			while (j < pattern.length && bytes[i + j] == pattern[j])
+				j++;
+			if (j == pattern.length)
+				return i;
+		}
+		return -1;
+	}
+
+	private static int indexOf(char[] chars, char[] pattern) {
+		if (pattern.length == 0)
+			return 0;
+		char first= pattern[0];
+		for (int i= 0, max= chars.length - pattern.length; i <= max; i++) {
+			if (chars[i] != first)
+				continue;
+			int j= 1;
+			while (j < pattern.length && chars[i + j] == pattern[j])
+				j++;
+			if (j == pattern.length)
+				return i;
+		}
+		return -1;
+	}
 }
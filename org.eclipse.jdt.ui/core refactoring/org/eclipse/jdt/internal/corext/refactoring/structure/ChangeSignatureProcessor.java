@@ -109,7 +109,6 @@ import org.eclipse.jdt.core.refactoring.participants.JavaParticipantManager;
 import org.eclipse.jdt.core.search.IJavaSearchConstants;
 import org.eclipse.jdt.core.search.IJavaSearchScope;
 import org.eclipse.jdt.core.search.MethodReferenceMatch;
-import org.eclipse.jdt.core.search.SearchEngine;
 import org.eclipse.jdt.core.search.SearchMatch;
 import org.eclipse.jdt.core.search.SearchPattern;
 
@@ -147,6 +146,7 @@ import org.eclipse.jdt.internal.corext.refactoring.delegates.DelegateMethodCreat
 import org.eclipse.jdt.internal.corext.refactoring.participants.JavaProcessors;
 import org.eclipse.jdt.internal.corext.refactoring.rename.MethodChecks;
 import org.eclipse.jdt.internal.corext.refactoring.rename.RefactoringAnalyzeUtil;
+import org.eclipse.jdt.internal.corext.refactoring.rename.RippleMethodCache;
 import org.eclipse.jdt.internal.corext.refactoring.rename.RippleMethodFinder2;
 import org.eclipse.jdt.internal.corext.refactoring.rename.TempOccurrenceAnalyzer;
 import org.eclipse.jdt.internal.corext.refactoring.tagging.IDelegateUpdating;
@@ -188,6 +188,12 @@ public class ChangeSignatureProcessor extends RefactoringProcessor implements ID
 	private IMethod fMethod;
 	private IMethod fTopMethod;
 	private IMethod[] fRippleMethods;
+	/**
+	 * The type hierarchies and ripple methods found while checking the final
+	 * conditions, which may be checked several times before the change is created,
+	 * or <code>null</code>
+	 */
+	private RippleMethodCache fRippleMethodCache;
 	private SearchResultGroup[] fOccurrences;
 	private ReturnTypeInfo fReturnTypeInfo;
 	private String fMethodName;
@@ -827,7 +833,9 @@ public class ChangeSignatureProcessor extends RefactoringProcessor implements ID
 			String binaryRefsDescription= Messages.format(RefactoringCoreMessages.ReferencesInBinaryContext_ref_in_binaries_description , BasicElementLabels.getJavaElementName(getMethodName()));
 			ReferencesInBinaryContext binaryRefs= new ReferencesInBinaryContext(binaryRefsDescription);
 
-			fRippleMethods= RippleMethodFinder2.getRelatedMethods(fMethod, binaryRefs, new SubProgressMonitor(pm, 1), null);
+			if (fRippleMethodCache == null)
+				fRippleMethodCache= new RippleMethodCache();
+			fRippleMethods= RippleMethodFinder2.getRelatedMethods(fMethod, binaryRefs, new SubProgressMonitor(pm, 1), null, fRippleMethodCache);
 			result.merge(checkVarargs());
 			if (result.hasFatalError())
 				return result;
@@ -1203,6 +1211,10 @@ public class ChangeSignatureProcessor extends RefactoringProcessor implements ID
 			return new DynamicValidationRefactoringChange(createDescriptor(), doGetRefactoringChangeName(), getAllChanges());
 		} finally {
 			clearManagers();
+			if (fRippleMethodCache != null) {
+				fRippleMethodCache.dispose();
+				fRippleMethodCache= null;
+			}
 			pm.done();
 		}
 	}
@@ -1611,14 +1623,7 @@ public class ChangeSignatureProcessor extends RefactoringProcessor implements ID
 //			pattern= occPattern;
 
 			// workaround for https://bugs.eclipse.org/bugs/show_bug.cgi?id=226151 : do two searches
-			try {
-				SearchEngine engine= new SearchEngine();
-				engine.search(declPattern, SearchUtils.getDefaultSearchParticipants(), createRefactoringScope(), requestor, new NullProgressMonitor());
-				engine.search(refPattern, SearchUtils.getDefaultSearchParticipants(), createRefactoringScope(), requestor, pm);
-			} catch (CoreException e) {
-				throw new JavaModelException(e);
-			}
-			return RefactoringSearchEngine.groupByCu(requestor.getResults(), status);
+			return RefactoringSearchEngine.search(new SearchPattern[] { refPattern, declPattern }, null, createRefactoringScope(), requestor, pm, status);
 
 		} else {
 			pattern= RefactoringSearchEngine.createOrPattern(fRippleMethods, IJavaSearchConstants.ALL_OCCURRENCES);
@@ -0,0 +1,479 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.jarinjarloader;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.ProtectionDomain;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Vector;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * This class will be compiled into the binary jar-in-jar-loader.zip. This ZIP is used for the
+ * "Runnable JAR File Exporter"
+ *
+ * A class loader for the classes and resources of the libraries in a runnable JAR, which does
+ * not extract the libraries. The libraries must be stored uncompressed in the runnable JAR, so
+ * that their entries can be read from the runnable JAR at fixed offsets. The central
+ * directories of the runnable JAR and of all libraries are read once, when the class loader is
+ * created.
+ *
+ * Signed libraries are not supported, since their classes must carry the signers which only a
+ * {@link java.util.jar.JarFile} verifies. The runnable JAR then uses the URL class loader.
+ */
+public class IndexedJarClassLoader extends ClassLoader {
+
+	private static final int LOCAL_HEADER_SIGNATURE= 0x04034b50;
+	private static final int LOCAL_HEADER_LENGTH= 30;
+	private static final int CENTRAL_HEADER_SIGNATURE= 0x02014b50;
+	private static final int CENTRAL_HEADER_LENGTH= 46;
+	private static final int END_SIGNATURE= 0x06054b50;
+	private static final int END_LENGTH= 22;
+	private static final int ZIP64_END_SIGNATURE= 0x06064b50;
+	private static final int ZIP64_END_LENGTH= 56;
+	private static final int ZIP64_LOCATOR_SIGNATURE= 0x07064b50;
+	private static final int ZIP64_LOCATOR_LENGTH= 20;
+	private static final int ZIP64_EXTRA_ID= 0x0001;
+	private static final long ZIP64_LIMIT= 0xFFFFFFFFL;
+	private static final int MAX_COMMENT_LENGTH= 0xFFFF;
+
+	/**
+	 * An entry of the runnable JAR or of one of its libraries
+	 */
+	private static final class Entry {
+		final Library library;
+		final String name;
+		final long headerOffset;
+		final int method;
+		final long compressedSize;
+		final long size;
+
+		Entry(Library library, String name, long headerOffset, int method, long compressedSize, long size) {
+			this.library= library;
+			this.name= name;
+			this.headerOffset= headerOffset;
+			this.method= method;
+			this.compressedSize= compressedSize;
+			this.size= size;
+		}
+	}
+
+	/**
+	 * A library on the class path, i.e. a JAR stored in the runnable JAR or a folder of the
+	 * runnable JAR
+	 */
+	private static final class Library {
+		/**
+		 * The prefix of the URLs of the resources of this library
+		 */
+		final String urlPrefix;
+		final String urlProtocol;
+
+		/**
+		 * The entries by name
+		 */
+		final Map entries= new HashMap();
+
+		/**
+		 * The manifest, or <code>null</code> if it has not been read yet
+		 */
+		Manifest manifest;
+		boolean manifestRead;
+
+		Library(String urlProtocol, String urlPrefix) {
+			this.urlProtocol= urlProtocol;
+			this.urlPrefix= urlPrefix;
+		}
+	}
+
+	private class EntryURLStreamHandler extends URLStreamHandler {
+		private final Entry entry;
+
+		EntryURLStreamHandler(Entry entry) {
+			this.entry= entry;
+		}
+
+		protected URLConnection openConnection(URL url) throws IOException {
+			return new EntryURLConnection(url, entry);
+		}
+	}
+
+	private class EntryURLConnection extends URLConnection {
+		private final Entry entry;
+
+		EntryURLConnection(URL url, Entry entry) {
+			super(url);
+			this.entry= entry;
+		}
+
+		public void connect() throws IOException {
+		}
+
+		public InputStream getInputStream() throws IOException {
+			return new ByteArrayInputStream(readEntry(entry));
+		}
+
+		public int getContentLength() {
+			return entry.size > Integer.MAX_VALUE ? -1 : (int) entry.size;
+		}
+	}
+
+	/**
+	 * The runnable JAR mapped into memory, or <code>null</code> if it is too large to be mapped
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * The runnable JAR if it is too large to be mapped into memory, or <code>null</code>
+	 */
+	private final RandomAccessFile file;
+
+	private final ProtectionDomain protectionDomain;
+
+	/**
+	 * The libraries in class path order
+	 */
+	private final Library[] libraries;
+
+	/**
+	 * The first entry on the class path by name
+	 */
+	private final Map entries= new HashMap();
+
+	/**
+	 * Creates a class loader for libraries in the given runnable JAR.
+	 *
+	 * @param jarFile the runnable JAR
+	 * @param classPath the paths of the libraries in the runnable JAR, either JARs stored
+	 *            uncompressed or folders ending with a '/'
+	 * @param parent the parent class loader
+	 * @param protectionDomain the protection domain of the loaded classes
+	 * @throws IOException if the runnable JAR cannot be read, or if a library is compressed or
+	 *             signed
+	 */
+	public IndexedJarClassLoader(File jarFile, String[] classPath, ClassLoader parent, ProtectionDomain protectionDomain) throws IOException {
+		super(parent);
+		this.protectionDomain= protectionDomain;
+		RandomAccessFile randomAccessFile= new RandomAccessFile(jarFile, "r"); //$NON-NLS-1$
+		long length= randomAccessFile.length();
+		if (length <= Integer.MAX_VALUE) {
+			try {
+				FileChannel channel= randomAccessFile.getChannel();
+				buffer= channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+			} finally {
+				randomAccessFile.close();
+			}
+			file= null;
+		} else {
+			buffer= null;
+			file= randomAccessFile;
+		}
+
+		Library root= new Library("rsrc", ""); //$NON-NLS-1$ //$NON-NLS-2$
+		readCentralDirectory(root, 0, length);
+		libraries= new Library[classPath.length];
+		for (int i= 0; i < classPath.length; i++) {
+			String path= classPath[i];
+			if (path.endsWith(JIJConstants.PATH_SEPARATOR)) {
+				libraries[i]= getFolder(root, JIJConstants.CURRENT_DIR.equals(path) ? "" : path); //$NON-NLS-1$
+			} else {
+				Entry jar= (Entry) root.entries.get(path);
+				if (jar == null)
+					throw new IOException("Library not found: " + path); //$NON-NLS-1$
+				if (jar.method != ZipEntry.STORED)
+					throw new IOException("Library is compressed: " + path); //$NON-NLS-1$
+				libraries[i]= new Library("jar", "rsrc:" + path + JIJConstants.JAR_INTERNAL_SEPARATOR); //$NON-NLS-1$ //$NON-NLS-2$
+				readCentralDirectory(libraries[i], getDataOffset(jar), jar.size);
+				if (isSigned(libraries[i]))
+					throw new IOException("Library is signed: " + path); //$NON-NLS-1$
+			}
+			for (Iterator iter= libraries[i].entries.values().iterator(); iter.hasNext();) {
+				Entry entry= (Entry) iter.next();
+				if (!entries.containsKey(entry.name))
+					entries.put(entry.name, entry);
+			}
+		}
+	}
+
+	/**
+	 * Tells whether the given library contains the signature files of a signed JAR.
+	 */
+	private static boolean isSigned(Library library) {
+		for (Iterator iter= library.entries.keySet().iterator(); iter.hasNext();) {
+			String name= ((String) iter.next()).toUpperCase(Locale.ENGLISH);
+			if (name.startsWith("META-INF/") && name.indexOf('/', 9) == -1 //$NON-NLS-1$
+					&& (name.endsWith(".SF") || name.endsWith(".RSA") || name.endsWith(".DSA") || name.endsWith(".EC"))) //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+				return true;
+		}
+		return false;
+	}
+
+	private static Library getFolder(Library root, String prefix) {
+		Library folder= new Library(root.urlProtocol, root.urlPrefix + prefix);
+		for (Iterator iter= root.entries.values().iterator(); iter.hasNext();) {
+			Entry entry= (Entry) iter.next();
+			if (entry.name.startsWith(prefix) && entry.name.length() > prefix.length()) {
+				String name= entry.name.substring(prefix.length());
+				folder.entries.put(name, new Entry(folder, name, entry.headerOffset, entry.method, entry.compressedSize, entry.size));
+			}
+		}
+		return folder;
+	}
+
+	protected Class findClass(String name) throws ClassNotFoundException {
+		Entry entry= (Entry) entries.get(name.replace('.', '/').concat(".class")); //$NON-NLS-1$
+		if (entry == null)
+			throw new ClassNotFoundException(name);
+		try {
+			byte[] bytes= readEntry(entry);
+			int lastDot= name.lastIndexOf('.');
+			if (lastDot != -1)
+				definePackage(name.substring(0, lastDot), entry.library);
+			return defineClass(name, bytes, 0, bytes.length, protectionDomain);
+		} catch (IOException e) {
+			throw new ClassNotFoundException(name, e);
+		}
+	}
+
+	private void definePackage(String packageName, Library library) throws IOException {
+		if (getPackage(packageName) != null)
+			return;
+		Manifest manifest= getManifest(library);
+		String path= packageName.replace('.', '/').concat("/"); //$NON-NLS-1$
+		try {
+			if (manifest == null) {
+				definePackage(packageName, null, null, null, null, null, null, null);
+			} else {
+				definePackage(packageName,
+						getAttribute(manifest, path, Attributes.Name.SPECIFICATION_TITLE),
+						getAttribute(manifest, path, Attributes.Name.SPECIFICATION_VERSION),
+						getAttribute(manifest, path, Attributes.Name.SPECIFICATION_VENDOR),
+						getAttribute(manifest, path, Attributes.Name.IMPLEMENTATION_TITLE),
+						getAttribute(manifest, path, Attributes.Name.IMPLEMENTATION_VERSION),
+						getAttribute(manifest, path, Attributes.Name.IMPLEMENTATION_VENDOR),
+						null);
+			}
+		} catch (IllegalArgumentException e) {
+			// defined by another thread
+		}
+	}
+
+	private Manifest getManifest(Library library) throws IOException {
+		synchronized (library) {
+			if (!library.manifestRead) {
+				Entry entry= (Entry) library.entries.get(JarFile.MANIFEST_NAME);
+				if (entry != null)
+					library.manifest= new Manifest(new ByteArrayInputStream(readEntry(entry)));
+				library.manifestRead= true;
+			}
+			return library.manifest;
+		}
+	}
+
+	private static String getAttribute(Manifest manifest, String path, Attributes.Name name) {
+		Attributes attributes= manifest.getAttributes(path);
+		String value= attributes != null ? attributes.getValue(name) : null;
+		return value != null ? value : manifest.getMainAttributes().getValue(name);
+	}
+
+	protected URL findResource(String name) {
+		Entry entry= (Entry) entries.get(name);
+		return entry != null ? getURL(entry) : null;
+	}
+
+	protected Enumeration findResources(String name) throws IOException {
+		Vector result= new Vector();
+		for (int i= 0; i < libraries.length; i++) {
+			Entry entry= (Entry) libraries[i].entries.get(name);
+			if (entry != null) {
+				URL url= getURL(entry);
+				if (url != null)
+					result.addElement(url);
+			}
+		}
+		return result.elements();
+	}
+
+	private URL getURL(Entry entry) {
+		try {
+			return new URL(entry.library.urlProtocol, "", -1, entry.library.urlPrefix + entry.name, new EntryURLStreamHandler(entry)); //$NON-NLS-1$
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Reads the central directory of the ZIP file in the given range of the runnable JAR.
+	 */
+	private void readCentralDirectory(Library library, long start, long length) throws IOException {
+		int tailLength= (int) Math.min(length, END_LENGTH + MAX_COMMENT_LENGTH);
+		byte[] tail= read(start + length - tailLength, tailLength);
+		int end= tailLength - END_LENGTH;
+		while (end >= 0 && getInt(tail, end) != END_SIGNATURE)
+			end--;
+		if (end < 0)
+			throw new IOException("Central directory not found"); //$NON-NLS-1$
+		long count= getShort(tail, end + 10);
+		long directoryOffset= getUnsignedInt(tail, end + 16);
+		long directoryLength= getUnsignedInt(tail, end + 12);
+		if (count == 0xFFFF || directoryOffset == ZIP64_LIMIT || directoryLength == ZIP64_LIMIT) {
+			long locatorOffset= start + length - tailLength + end - ZIP64_LOCATOR_LENGTH;
+			byte[] locator= read(locatorOffset, ZIP64_LOCATOR_LENGTH);
+			if (getInt(locator, 0) != ZIP64_LOCATOR_SIGNATURE)
+				throw new IOException("ZIP64 end of central directory not found"); //$NON-NLS-1$
+			byte[] zip64End= read(start + getLong(locator, 8), ZIP64_END_LENGTH);
+			if (getInt(zip64End, 0) != ZIP64_END_SIGNATURE)
+				throw new IOException("ZIP64 end of central directory not found"); //$NON-NLS-1$
+			count= getLong(zip64End, 32);
+			directoryLength= getLong(zip64End, 40);
+			directoryOffset= getLong(zip64End, 48);
+		}
+		if (directoryLength > Integer.MAX_VALUE)
+			throw new IOException("Central directory too large"); //$NON-NLS-1$
+		byte[] directory= read(start + directoryOffset, (int) directoryLength);
+		int position= 0;
+		for (long i= 0; i < count; i++) {
+			if (position + CENTRAL_HEADER_LENGTH > directory.length || getInt(directory, position) != CENTRAL_HEADER_SIGNATURE)
+				throw new IOException("Invalid central directory"); //$NON-NLS-1$
+			int method= getShort(directory, position + 10);
+			long compressedSize= getUnsignedInt(directory, position + 20);
+			long size= getUnsignedInt(directory, position + 24);
+			int nameLength= getShort(directory, position + 28);
+			int extraLength= getShort(directory, position + 30);
+			int commentLength= getShort(directory, position + 32);
+			long headerOffset= getUnsignedInt(directory, position + 42);
+			String name= getString(directory, position + CENTRAL_HEADER_LENGTH, nameLength);
+			if (size == ZIP64_LIMIT || compressedSize == ZIP64_LIMIT || headerOffset == ZIP64_LIMIT) {
+				// the ZIP64 field contains the values which do not fit, in this order
+				int extra= position + CENTRAL_HEADER_LENGTH + nameLength;
+				int extraEnd= extra + extraLength;
+				while (extra + 4 <= extraEnd && getShort(directory, extra) != ZIP64_EXTRA_ID)
+					extra+= 4 + getShort(directory, extra + 2);
+				if (extra + 4 <= extraEnd) {
+					int next= extra + 4;
+					if (size == ZIP64_LIMIT) {
+						size= getLong(directory, next);
+						next+= 8;
+					}
+					if (compressedSize == ZIP64_LIMIT) {
+						compressedSize= getLong(directory, next);
+						next+= 8;
+					}
+					if (headerOffset == ZIP64_LIMIT)
+						headerOffset= getLong(directory, next);
+				}
+			}
+			library.entries.put(name, new Entry(library, name, start + headerOffset, method, compressedSize, size));
+			position+= CENTRAL_HEADER_LENGTH + nameLength + extraLength + commentLength;
+		}
+	}
+
+	private long getDataOffset(Entry entry) throws IOException {
+		byte[] header= read(entry.headerOffset, LOCAL_HEADER_LENGTH);
+		if (getInt(header, 0) != LOCAL_HEADER_SIGNATURE)
+			throw new IOException("Invalid local header: " + entry.name); //$NON-NLS-1$
+		return entry.headerOffset + LOCAL_HEADER_LENGTH + getShort(header, 26) + getShort(header, 28);
+	}
+
+	private byte[] readEntry(Entry entry) throws IOException {
+		if (entry.size > Integer.MAX_VALUE || entry.compressedSize > Integer.MAX_VALUE - 1)
+			throw new IOException("Entry too large: " + entry.name); //$NON-NLS-1$
+		long dataOffset= getDataOffset(entry);
+		if (entry.method == ZipEntry.STORED)
+			return read(dataOffset, (int) entry.size);
+		if (entry.method != ZipEntry.DEFLATED)
+			throw new IOException("Unsupported compression method: " + entry.name); //$NON-NLS-1$
+		// the inflater needs an extra byte after the data if the ZLIB header is omitted
+		byte[] data= new byte[(int) entry.compressedSize + 1];
+		read(dataOffset, data, (int) entry.compressedSize);
+		byte[] result= new byte[(int) entry.size];
+		Inflater inflater= new Inflater(true);
+		try {
+			inflater.setInput(data);
+			int length= 0;
+			while (length < result.length) {
+				int count= inflater.inflate(result, length, result.length - length);
+				if (count == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()))
+					throw new EOFException("Unexpected end of entry: " + entry.name); //$NON-NLS-1$
+				length+= count;
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Invalid entry: " + entry.name + ": " + e.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+		} finally {
+			inflater.end();
+		}
+		return result;
+	}
+
+	private byte[] read(long position, int length) throws IOException {
+		byte[] bytes= new byte[length];
+		read(position, bytes, length);
+		return bytes;
+	}
+
+	private void read(long position, byte[] bytes, int length) throws IOException {
+		if (buffer != null) {
+			if (position < 0 || position + length > buffer.limit())
+				throw new EOFException();
+			ByteBuffer view= buffer.duplicate();
+			view.position((int) position);
+			view.get(bytes, 0, length);
+		} else {
+			synchronized (file) {
+				file.seek(position);
+				file.readFully(bytes, 0, length);
+			}
+		}
+	}
+
+	private static String getString(byte[] bytes, int offset, int length) throws UnsupportedEncodingException {
+		return new String(bytes, offset, length, JIJConstants.UTF8_ENCODING);
+	}
+
+	private static int getShort(byte[] bytes, int offset) {
+		return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8;
+	}
+
+	private static int getInt(byte[] bytes, int offset) {
+		return getShort(bytes, offset) | getShort(bytes, offset + 2) << 16;
+	}
+
+	private static long getUnsignedInt(byte[] bytes, int offset) {
+		return getInt(bytes, offset) & ZIP64_LIMIT;
+	}
+
+	private static long getLong(byte[] bytes, int offset) {
+		return getUnsignedInt(bytes, offset) | getUnsignedInt(bytes, offset + 4) << 32;
+	}
+}
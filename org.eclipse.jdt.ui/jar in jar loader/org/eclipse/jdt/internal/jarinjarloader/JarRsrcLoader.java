@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2009 IBM Corporation and others.
+ * Copyright (c) 2008, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,12 +16,15 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.jarinjarloader;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.net.URLDecoder;
+import java.security.ProtectionDomain;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
@@ -40,27 +43,58 @@ public class JarRsrcLoader {
 	private static class ManifestInfo {
 		String rsrcMainClass;
 		String[] rsrcClassPath;
+		boolean indexedClassPath;
 	}
 	
 	public static void main(String[] args) throws ClassNotFoundException, IllegalArgumentException, IllegalAccessException, InvocationTargetException, SecurityException, NoSuchMethodException, IOException {
 		ManifestInfo mi = getManifestInfo();
 		ClassLoader cl = Thread.currentThread().getContextClassLoader();
 		URL.setURLStreamHandlerFactory(new RsrcURLStreamHandlerFactory(cl));
-		URL[] rsrcUrls = new URL[mi.rsrcClassPath.length];
-		for (int i = 0; i < mi.rsrcClassPath.length; i++) {
-			String rsrcPath = mi.rsrcClassPath[i];
-			if (rsrcPath.endsWith(JIJConstants.PATH_SEPARATOR)) 
-				rsrcUrls[i] = new URL(JIJConstants.INTERNAL_URL_PROTOCOL_WITH_COLON + rsrcPath); 
-			else
-				rsrcUrls[i] = new URL(JIJConstants.JAR_INTERNAL_URL_PROTOCOL_WITH_COLON + rsrcPath + JIJConstants.JAR_INTERNAL_SEPARATOR);    
+		ClassLoader jceClassLoader = null;
+		if (mi.indexedClassPath)
+			jceClassLoader = createIndexedClassLoader(mi.rsrcClassPath);
+		if (jceClassLoader == null) {
+			URL[] rsrcUrls = new URL[mi.rsrcClassPath.length];
+			for (int i = 0; i < mi.rsrcClassPath.length; i++) {
+				String rsrcPath = mi.rsrcClassPath[i];
+				if (rsrcPath.endsWith(JIJConstants.PATH_SEPARATOR)) 
+					rsrcUrls[i] = new URL(JIJConstants.INTERNAL_URL_PROTOCOL_WITH_COLON + rsrcPath); 
+				else
+					rsrcUrls[i] = new URL(JIJConstants.JAR_INTERNAL_URL_PROTOCOL_WITH_COLON + rsrcPath + JIJConstants.JAR_INTERNAL_SEPARATOR);    
+			}
+			jceClassLoader = new URLClassLoader(rsrcUrls, getParentClassLoader());
 		}
-		ClassLoader jceClassLoader = new URLClassLoader(rsrcUrls, getParentClassLoader());
 		Thread.currentThread().setContextClassLoader(jceClassLoader);
 		Class c = Class.forName(mi.rsrcMainClass, true, jceClassLoader);
 		Method main = c.getMethod(JIJConstants.MAIN_METHOD_NAME, new Class[]{args.getClass()}); 
 		main.invoke((Object)null, new Object[]{args});
 	}
 
+	/**
+	 * Creates a class loader which reads the libraries directly from this runnable JAR. This
+	 * requires that the libraries are stored uncompressed.
+	 * 
+	 * @param rsrcClassPath the URL encoded paths of the libraries
+	 * @return the class loader, or <code>null</code> if the libraries cannot be indexed
+	 */
+	private static ClassLoader createIndexedClassLoader(String[] rsrcClassPath) throws InvocationTargetException, IllegalAccessException {
+		try {
+			ProtectionDomain protectionDomain = JarRsrcLoader.class.getProtectionDomain();
+			if (protectionDomain.getCodeSource() == null || protectionDomain.getCodeSource().getLocation() == null)
+				return null;
+			File jarFile = new File(URLDecoder.decode(protectionDomain.getCodeSource().getLocation().getFile(), JIJConstants.UTF8_ENCODING));
+			if (!jarFile.isFile())
+				return null;
+			String[] paths = new String[rsrcClassPath.length];
+			for (int i = 0; i < rsrcClassPath.length; i++)
+				paths[i] = URLDecoder.decode(rsrcClassPath[i], JIJConstants.UTF8_ENCODING);
+			return new IndexedJarClassLoader(jarFile, paths, getParentClassLoader(), protectionDomain);
+		} catch (IOException e) {
+			System.err.println("Could not index the libraries, they are extracted instead: " + e.getMessage()); //$NON-NLS-1$
+			return null;
+		}
+	}
+
 	private static ClassLoader getParentClassLoader() throws InvocationTargetException, IllegalAccessException {
 		// On Java8, it is ok to use a null parent class loader, but, starting with Java 9,
 		// we need to provide one that has access to the restricted list of packages that
@@ -92,6 +126,7 @@ public class JarRsrcLoader {
 					if (rsrcCP == null)
 						rsrcCP = JIJConstants.DEFAULT_REDIRECTED_CLASSPATH; 
 					result.rsrcClassPath = splitSpaces(rsrcCP);
+					result.indexedClassPath = Boolean.valueOf(mainAttribs.getValue(JIJConstants.INDEXED_CLASS_PATH_MANIFEST_NAME)).booleanValue();
 					if ((result.rsrcMainClass != null) && !result.rsrcMainClass.trim().equals(""))    //$NON-NLS-1$
 							return result;
 				}
@@ -81,6 +81,9 @@ import org.eclipse.ui.editors.text.EditorsUI;
 import org.eclipse.ui.editors.text.templates.ContributionContextTypeRegistry;
 import org.eclipse.ui.editors.text.templates.ContributionTemplateStore;
 
+import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
+import org.eclipse.ltk.internal.core.refactoring.WorkerPool;
+
 import org.eclipse.jdt.core.IBuffer;
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.JavaCore;
@@ -88,6 +91,7 @@ import org.eclipse.jdt.core.WorkingCopyOwner;
 import org.eclipse.jdt.core.manipulation.JavaManipulation;
 
 import org.eclipse.jdt.internal.core.manipulation.CodeTemplateContextType;
+import org.eclipse.jdt.internal.corext.callhierarchy.CallHierarchyCache;
 import org.eclipse.jdt.internal.corext.fix.CleanUpRegistry;
 import org.eclipse.jdt.internal.corext.template.java.AbstractJavaContextType;
 import org.eclipse.jdt.internal.corext.template.java.JavaContextType;
@@ -95,6 +99,7 @@ import org.eclipse.jdt.internal.corext.template.java.SWTContextType;
 import org.eclipse.jdt.internal.corext.util.OpenTypeHistory;
 import org.eclipse.jdt.internal.corext.util.QualifiedTypeNameHistory;
 import org.eclipse.jdt.internal.corext.util.TypeFilter;
+import org.eclipse.jdt.internal.corext.util.TypeNameIndex;
 
 import org.eclipse.jdt.ui.IContextMenuConstants;
 import org.eclipse.jdt.ui.JavaUI;
@@ -119,6 +124,7 @@ import org.eclipse.jdt.internal.ui.text.spelling.SpellCheckEngine;
 import org.eclipse.jdt.internal.ui.viewsupport.ImageDescriptorRegistry;
 import org.eclipse.jdt.internal.ui.viewsupport.ImagesOnFileSystemRegistry;
 import org.eclipse.jdt.internal.ui.viewsupport.ProblemMarkerManager;
+import org.eclipse.jdt.internal.ui.viewsupport.ProblemSeverityIndex;
 import org.eclipse.jdt.internal.ui.wizards.buildpaths.ClasspathAttributeConfigurationDescriptors;
 import org.eclipse.jdt.internal.ui.workingsets.DynamicSourcesWorkingSetUpdater;
 import org.eclipse.jdt.internal.ui.workingsets.IWorkingSetIDs;
@@ -168,6 +174,10 @@ public class JavaPlugin extends AbstractUIPlugin implements DebugOptionsListener
 
 	public static boolean DEBUG_RESULT_COLLECTOR;
 
+	public static boolean DEBUG_AST_BATCH_PARSER;
+
+	public static boolean DEBUG_SEMANTIC_HIGHLIGHTING;
+
 	private static JavaPlugin fgJavaPlugin;
 
 	private static LinkedHashMap<String, Long> fgRepeatedMessages= new LinkedHashMap<String, Long>(20, 0.75f, true) {
@@ -218,6 +228,7 @@ public class JavaPlugin extends AbstractUIPlugin implements DebugOptionsListener
 	private ClassFileDocumentProvider fClassFileDocumentProvider;
 	private JavaTextTools fJavaTextTools;
 	private ProblemMarkerManager fProblemMarkerManager;
+	private ProblemSeverityIndex fProblemSeverityIndex;
 	private ImageDescriptorRegistry fImageDescriptorRegistry;
 
 	private MembersOrderPreferenceCache fMembersOrderPreferenceCache;
@@ -503,6 +514,11 @@ public class JavaPlugin extends AbstractUIPlugin implements DebugOptionsListener
 				fJavaTextTools= null;
 			}
 
+			if (fProblemSeverityIndex != null) {
+				fProblemSeverityIndex.dispose();
+				fProblemSeverityIndex= null;
+			}
+
 			if (fTypeFilter != null) {
 				fTypeFilter.dispose();
 				fTypeFilter= null;
@@ -556,6 +572,10 @@ public class JavaPlugin extends AbstractUIPlugin implements DebugOptionsListener
 
 			OpenTypeHistory.shutdown();
 
+			TypeNameIndex.shutdown();
+
+			CallHierarchyCache.shutdown();
+
 			JavaManipulation.setPreferenceNodeId(null);
 		} finally {
 			super.stop(context);
@@ -621,6 +641,17 @@ public class JavaPlugin extends AbstractUIPlugin implements DebugOptionsListener
 		return fProblemMarkerManager;
 	}
 
+	/**
+	 * Returns the index of the maximal problem marker severities of resources.
+	 *
+	 * @return the problem severity index
+	 */
+	public synchronized ProblemSeverityIndex getProblemSeverityIndex() {
+		if (fProblemSeverityIndex == null)
+			fProblemSeverityIndex= new ProblemSeverityIndex();
+		return fProblemSeverityIndex;
+	}
+
 	public synchronized JavaTextTools getJavaTextTools() {
 		if (fJavaTextTools == null)
 			fJavaTextTools= new JavaTextTools(getPreferenceStore(), getJavaCorePluginPreferences());
@@ -955,6 +986,16 @@ public class JavaPlugin extends AbstractUIPlugin implements DebugOptionsListener
 		return fCleanUpRegistry;
 	}
 
+	/**
+	 * Returns the pool of worker threads on which the computations of this plug-in run
+	 * concurrently. It is the pool of the refactoring core plug-in.
+	 *
+	 * @return the worker pool, not null
+	 */
+	public WorkerPool getWorkerPool() {
+		return RefactoringCorePlugin.getDefault().getWorkerPool();
+	}
+
 	/**
 	 * Returns the Java content assist history.
 	 *
@@ -1062,5 +1103,7 @@ public class JavaPlugin extends AbstractUIPlugin implements DebugOptionsListener
 		DEBUG_BREADCRUMB_ITEM_DROP_DOWN= options.getBooleanOption("org.eclipse.jdt.ui/debug/BreadcrumbItemDropDown", false); //$NON-NLS-1$
 		DEBUG_TYPE_CONSTRAINTS= options.getBooleanOption("org.eclipse.jdt.ui/debug/TypeConstraints", false); //$NON-NLS-1$
 		DEBUG_RESULT_COLLECTOR= options.getBooleanOption("org.eclipse.jdt.ui/debug/ResultCollector", false); //$NON-NLS-1$
+		DEBUG_AST_BATCH_PARSER= options.getBooleanOption("org.eclipse.jdt.ui/debug/ASTBatchParser", false); //$NON-NLS-1$
+		DEBUG_SEMANTIC_HIGHLIGHTING= options.getBooleanOption("org.eclipse.jdt.ui/debug/SemanticHighlighting", false); //$NON-NLS-1$
 	}
 }
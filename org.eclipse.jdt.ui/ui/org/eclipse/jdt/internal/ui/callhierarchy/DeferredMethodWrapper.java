@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,6 +14,11 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.ui.callhierarchy;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import org.eclipse.swt.widgets.Display;
 
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -66,8 +71,28 @@ public class DeferredMethodWrapper extends MethodWrapperWorkbenchAdapter impleme
         this.fProvider = provider;
     }
 
-    private Object getCalls(IProgressMonitor monitor) {
-        return getMethodWrapper().getCalls(monitor);
+    /**
+     * Returns the calls of the method wrapper. Calls which are found while searching are passed
+     * to the collector immediately and are not returned.
+     *
+     * @param collector the collector
+     * @param monitor the progress monitor
+     * @return the calls which have not been passed to the collector yet
+     */
+    private Object[] getCalls(final IElementCollector collector, final IProgressMonitor monitor) {
+        final Set<String> added= new HashSet<>();
+        MethodWrapper[] calls= getMethodWrapper().getCalls(monitor, call -> {
+            added.add(call.getMethodCall().getKey());
+            collector.add(call, monitor);
+        });
+        if (added.isEmpty())
+            return calls;
+        List<MethodWrapper> remaining= new ArrayList<>();
+        for (int i= 0; i < calls.length; i++) {
+            if (!added.contains(calls[i].getMethodCall().getKey()))
+                remaining.add(calls[i]);
+        }
+        return remaining.toArray();
     }
 
     @Override
@@ -75,7 +100,7 @@ public class DeferredMethodWrapper extends MethodWrapperWorkbenchAdapter impleme
     	final DeferredMethodWrapper deferredMethodWrapper= (DeferredMethodWrapper)object;
     	try {
             fProvider.startFetching();
-            collector.add((Object[]) deferredMethodWrapper.getCalls(monitor), monitor);
+            collector.add(deferredMethodWrapper.getCalls(collector, monitor), monitor);
             collector.done();
         } catch (OperationCanceledException e) {
         	final MethodWrapper methodWrapper= deferredMethodWrapper.getMethodWrapper();
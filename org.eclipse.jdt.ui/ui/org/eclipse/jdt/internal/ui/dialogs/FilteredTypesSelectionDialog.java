@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -97,6 +97,7 @@ import org.eclipse.jdt.internal.corext.util.Strings;
 import org.eclipse.jdt.internal.corext.util.TypeFilter;
 import org.eclipse.jdt.internal.corext.util.TypeInfoFilter;
 import org.eclipse.jdt.internal.corext.util.TypeInfoRequestorAdapter;
+import org.eclipse.jdt.internal.corext.util.TypeNameIndex;
 
 import org.eclipse.jdt.launching.IVMInstall;
 import org.eclipse.jdt.launching.IVMInstallType;
@@ -475,9 +476,22 @@ public class FilteredTypesSelectionDialog extends FilteredItemsSelectionDialog i
 	protected void fillContentProvider(AbstractContentProvider provider, ItemsFilter itemsFilter, IProgressMonitor progressMonitor) throws CoreException {
 		TypeItemsFilter typeSearchFilter= (TypeItemsFilter) itemsFilter;
 		TypeSearchRequestor requestor= new TypeSearchRequestor(provider, typeSearchFilter);
+		progressMonitor.setTaskName(JavaUIMessages.FilteredTypesSelectionDialog_searchJob_taskName);
+
+		/*
+		 * The type name index only narrows down the types by a prefix of their
+		 * names, so its types are filtered by the complete pattern. While the
+		 * index is being built, the search engine is used.
+		 */
+		boolean found= TypeNameIndex.getDefault().findTypes(typeSearchFilter.getNamePrefix(), typeSearchFilter.getSearchScope(), match -> {
+			if (typeSearchFilter.matchItem(match))
+				requestor.acceptTypeNameMatch(match);
+		}, progressMonitor);
+		if (found)
+			return;
+
 		SearchEngine engine= new SearchEngine((WorkingCopyOwner) null);
 		String packPattern= typeSearchFilter.getPackagePattern();
-		progressMonitor.setTaskName(JavaUIMessages.FilteredTypesSelectionDialog_searchJob_taskName);
 
 		/*
 		 * Setting the filter into match everything mode avoids filtering twice
@@ -971,6 +985,10 @@ public class FilteredTypesSelectionDialog extends FilteredItemsSelectionDialog i
 			return fTypeInfoFilter.getPackagePattern();
 		}
 
+		public String getNamePrefix() {
+			return fTypeInfoFilter.getNamePrefix();
+		}
+
 		public int getPackageFlags() {
 			return fTypeInfoFilter.getPackageFlags();
 		}
@@ -59,8 +59,16 @@ public class ImportsCleanUp extends AbstractCleanUp {
     	if (compilationUnit == null)
     		return null;
 
-		return ImportsFix.createCleanUp(compilationUnit, fCodeGeneratorSettings,
-				isEnabled(CleanUpConstants.ORGANIZE_IMPORTS), fStatus);
+		if (fStatus == null)
+			return ImportsFix.createCleanUp(compilationUnit, fCodeGeneratorSettings, isEnabled(CleanUpConstants.ORGANIZE_IMPORTS), fStatus);
+
+		// createFix may be called concurrently by a parallel clean up
+		RefactoringStatus status= new RefactoringStatus();
+		ICleanUpFix fix= ImportsFix.createCleanUp(compilationUnit, fCodeGeneratorSettings, isEnabled(CleanUpConstants.ORGANIZE_IMPORTS), status);
+		synchronized (fStatus) {
+			fStatus.merge(status);
+		}
+		return fix;
 	}
 
     @Override
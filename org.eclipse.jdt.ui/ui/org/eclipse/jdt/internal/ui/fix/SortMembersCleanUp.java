@@ -65,14 +65,18 @@ public class SortMembersCleanUp extends AbstractCleanUp {
 		boolean sortMembers= isEnabled(CleanUpConstants.SORT_MEMBERS);
 		ICleanUpFix fix= SortMembersFix.createCleanUp(compilationUnit, sortMembers, sortMembers && isEnabled(CleanUpConstants.SORT_MEMBERS_ALL));
 		if (fix != null) {
-			if (fTouchedFiles == null) {
-				fTouchedFiles= new HashSet<>();
-			}
-			fTouchedFiles.add(((ICompilationUnit)compilationUnit.getJavaElement()).getResource());
+			addTouchedFile(((ICompilationUnit)compilationUnit.getJavaElement()).getResource());
 		}
 		return fix;
 	}
 
+	private synchronized void addTouchedFile(IResource resource) {
+		if (fTouchedFiles == null) {
+			fTouchedFiles= new HashSet<>();
+		}
+		fTouchedFiles.add(resource);
+	}
+
 	@Override
 	public RefactoringStatus checkPostConditions(IProgressMonitor monitor) throws CoreException {
 		if (fTouchedFiles == null) {
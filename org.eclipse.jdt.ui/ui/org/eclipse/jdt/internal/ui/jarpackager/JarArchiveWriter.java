@@ -0,0 +1,605 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.jarpackager;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+import org.eclipse.ltk.internal.core.refactoring.WorkerPool;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * Writes a JAR archive whose entries are compressed in parallel.
+ * <p>
+ * The content of each entry is deflated and checksummed on the worker pool of
+ * the plug-in, and the entries are written in the order in which they have
+ * been added, so the archive does not depend on the number of workers. The CRC
+ * and the sizes of an entry are computed in the same pass as the compressed
+ * data, so the content of a stored entry needs to be read only once. Entries
+ * which are already compressed, e.g. the entries of another archive, can be
+ * copied without being decompressed.
+ * </p>
+ * <p>
+ * The content of an entry which is larger than {@link #LARGE_ENTRY_SIZE} is
+ * compressed on the calling thread into a temporary file instead of being kept
+ * in memory.
+ * </p>
+ * <p>
+ * The archive has the same format as one written by a
+ * {@link java.util.jar.JarOutputStream}. Entries and archives which get too
+ * large for the ZIP format are written in the ZIP64 format.
+ * </p>
+ */
+public class JarArchiveWriter {
+
+	/**
+	 * The maximal number of entries which are compressed but not yet written
+	 */
+	private static final int MAX_PENDING_ENTRIES= 512;
+
+	/**
+	 * The maximal number of bytes of the entries which are compressed but not
+	 * yet written
+	 */
+	private static final long MAX_PENDING_BYTES= 64 * 1024 * 1024;
+
+	/**
+	 * The size from which the content of an entry is written to a temporary
+	 * file
+	 */
+	private static final int LARGE_ENTRY_SIZE= 8 * 1024 * 1024;
+
+	private static final int BUFFER_SIZE= 64 * 1024;
+
+	private static final int LOCAL_HEADER_SIGNATURE= 0x04034b50;
+
+	private static final int CENTRAL_HEADER_SIGNATURE= 0x02014b50;
+
+	private static final int END_SIGNATURE= 0x06054b50;
+
+	private static final int ZIP64_END_SIGNATURE= 0x06064b50;
+
+	private static final int ZIP64_LOCATOR_SIGNATURE= 0x07064b50;
+
+	private static final int ZIP64_EXTRA_ID= 0x0001;
+
+	/**
+	 * The extra field which marks the first entry of a JAR, see
+	 * {@link java.util.jar.JarOutputStream}
+	 */
+	private static final byte[] JAR_MAGIC= { (byte) 0xFE, (byte) 0xCA, 0, 0 };
+
+	/**
+	 * The general purpose flag for names encoded in UTF-8
+	 */
+	private static final int FLAG_UTF8= 0x800;
+
+	private static final long ZIP64_LIMIT= 0xFFFFFFFFL;
+
+	private static final int ZIP64_ENTRY_LIMIT= 0xFFFF;
+
+	/**
+	 * An entry with its content in the form in which it is written
+	 */
+	private static final class EntryData {
+		final byte[] fName;
+		final byte[] fExtra;
+		final int fMethod;
+		final long fTime;
+		final long fCrc;
+		final long fSize;
+
+		/**
+		 * The content, or <code>null</code> if it is in {@link #fDataFile} or
+		 * has been written
+		 */
+		byte[] fData;
+
+		/**
+		 * The temporary file with the content, or <code>null</code>
+		 */
+		File fDataFile;
+
+		final long fDataLength;
+		long fOffset;
+
+		EntryData(byte[] name, byte[] extra, int method, long time, long crc, long size, byte[] data, long dataLength) {
+			fName= name;
+			fExtra= extra;
+			fMethod= method;
+			fTime= time;
+			fCrc= crc;
+			fSize= size;
+			fData= data;
+			fDataLength= dataLength;
+		}
+
+		EntryData(byte[] name, byte[] extra, int method, long time, long crc, long size, File dataFile) {
+			this(name, extra, method, time, crc, size, null, dataFile.length());
+			fDataFile= dataFile;
+		}
+
+		boolean isZip64() {
+			return fSize >= ZIP64_LIMIT || fDataLength >= ZIP64_LIMIT || fOffset >= ZIP64_LIMIT;
+		}
+	}
+
+	private final OutputStream fOutput;
+
+	/**
+	 * The modification time of all entries, or -1 to use the time of each
+	 * entry
+	 */
+	private final long fFixedTime;
+
+	/**
+	 * The number of bytes written
+	 */
+	private long fOffset;
+
+	/**
+	 * The written entries, in order
+	 */
+	private final List<EntryData> fEntries= new ArrayList<>();
+
+	private final Set<String> fNames= new HashSet<>();
+
+	/**
+	 * The entries which have been added but are not yet written, in order
+	 */
+	private final LinkedList<Future<EntryData>> fPending= new LinkedList<>();
+
+	private final LinkedList<Long> fPendingSizes= new LinkedList<>();
+
+	private long fPendingBytes;
+
+	/**
+	 * The temporary files of the entries which are not yet written
+	 */
+	private final List<File> fTempFiles= new ArrayList<>();
+
+	private String fComment;
+
+	private boolean fClosed;
+
+	/**
+	 * Creates a writer for an archive.
+	 *
+	 * @param output the stream to write the archive to, which is closed by
+	 *            {@link #close()}
+	 * @param reproducible <code>true</code> to write all entries with the
+	 *            same fixed modification time, <code>false</code> to use the
+	 *            time of each entry
+	 */
+	public JarArchiveWriter(OutputStream output, boolean reproducible) {
+		fOutput= output;
+		// the earliest date which can be represented, in the local time zone so that the MS-DOS time is the same everywhere
+		fFixedTime= reproducible ? LocalDateTime.of(1980, 1, 1, 0, 0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : -1;
+	}
+
+	/**
+	 * Sets the comment of the archive.
+	 *
+	 * @param comment the comment, or <code>null</code>
+	 */
+	public void setComment(String comment) {
+		fComment= comment;
+	}
+
+	/**
+	 * Adds an entry with the given content. The content is stored if the
+	 * method of the entry is {@link ZipEntry#STORED}, otherwise it is
+	 * deflated. The size and CRC of the entry are ignored.
+	 *
+	 * @param entry the entry
+	 * @param content the uncompressed content, which must not be modified
+	 *            afterwards
+	 * @throws IOException if an entry with the same name has already been
+	 *             added, or if an I/O error occurred
+	 */
+	public void putEntry(ZipEntry entry, final byte[] content) throws IOException {
+		final byte[] name= getName(entry);
+		final byte[] extra= getExtra(entry);
+		final long time= getTime(entry);
+		Future<EntryData> future;
+		if (entry.getMethod() == ZipEntry.STORED) {
+			CRC32 crc= new CRC32();
+			crc.update(content);
+			future= CompletableFuture.completedFuture(new EntryData(name, extra, ZipEntry.STORED, time, crc.getValue(), content.length, content, content.length));
+		} else if (WorkerPool.isWorkerThread()) {
+			future= CompletableFuture.completedFuture(deflate(name, extra, time, content));
+		} else {
+			future= JavaPlugin.getDefault().getWorkerPool().submit(() -> deflate(name, extra, time, content));
+		}
+		addPending(future, content.length);
+	}
+
+	/**
+	 * Adds an entry with the given content. The content is read completely
+	 * and the stream is closed. Content which is larger than
+	 * {@link #LARGE_ENTRY_SIZE} is compressed into a temporary file on the
+	 * calling thread.
+	 *
+	 * @param entry the entry
+	 * @param content the uncompressed content
+	 * @throws IOException if an entry with the same name has already been
+	 *             added, or if an I/O error occurred
+	 * @see #putEntry(ZipEntry, byte[])
+	 */
+	public void putEntry(ZipEntry entry, InputStream content) throws IOException {
+		try {
+			byte[] buffer= new byte[Math.min(LARGE_ENTRY_SIZE, Math.max(8192, content.available()))];
+			int length= 0;
+			int count;
+			while (length < LARGE_ENTRY_SIZE && (count= content.read(buffer, length, buffer.length - length)) != -1) {
+				length+= count;
+				if (length == buffer.length && length < LARGE_ENTRY_SIZE)
+					buffer= Arrays.copyOf(buffer, Math.min(LARGE_ENTRY_SIZE, buffer.length * 2));
+			}
+			if (length < LARGE_ENTRY_SIZE)
+				putEntry(entry, length == buffer.length ? buffer : Arrays.copyOf(buffer, length));
+			else
+				putLargeEntry(entry, buffer, content);
+		} finally {
+			content.close();
+		}
+	}
+
+	/**
+	 * Compresses the content of an entry into a temporary file.
+	 *
+	 * @param entry the entry
+	 * @param prefix the content which has already been read from the stream
+	 * @param content the rest of the content
+	 */
+	private void putLargeEntry(ZipEntry entry, byte[] prefix, InputStream content) throws IOException {
+		byte[] name= getName(entry);
+		byte[] extra= getExtra(entry);
+		long time= getTime(entry);
+		int method= entry.getMethod() == ZipEntry.STORED ? ZipEntry.STORED : ZipEntry.DEFLATED;
+		File file= File.createTempFile("jarEntry", ".tmp"); //$NON-NLS-1$ //$NON-NLS-2$
+		fTempFiles.add(file);
+		CRC32 crc= new CRC32();
+		long size= 0;
+		Deflater deflater= method == ZipEntry.DEFLATED ? new Deflater(Deflater.DEFAULT_COMPRESSION, true) : null;
+		try {
+			OutputStream output= new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+			try {
+				DeflaterOutputStream deflaterOutput= deflater != null ? new DeflaterOutputStream(output, deflater, BUFFER_SIZE) : null;
+				OutputStream target= deflaterOutput != null ? deflaterOutput : output;
+				byte[] buffer= prefix;
+				int count= prefix.length;
+				do {
+					crc.update(buffer, 0, count);
+					target.write(buffer, 0, count);
+					size+= count;
+				} while ((count= content.read(buffer)) != -1);
+				if (deflaterOutput != null)
+					deflaterOutput.finish();
+			} finally {
+				output.close();
+			}
+		} finally {
+			if (deflater != null)
+				deflater.end();
+		}
+		addPending(CompletableFuture.completedFuture(new EntryData(name, extra, method, time, crc.getValue(), size, file)), 0);
+	}
+
+	/**
+	 * Adds an entry whose content has already been compressed with the method
+	 * of the entry, e.g. the raw data of an entry of another archive. The
+	 * entry must specify its CRC and uncompressed size.
+	 *
+	 * @param entry the entry
+	 * @param data the compressed content, which must not be modified
+	 *            afterwards
+	 * @throws IOException if an entry with the same name has already been
+	 *             added, or if an I/O error occurred
+	 */
+	public void putRawEntry(ZipEntry entry, byte[] data) throws IOException {
+		EntryData entryData= new EntryData(getName(entry), getExtra(entry), entry.getMethod(), getTime(entry), entry.getCrc(), entry.getSize(), data, data.length);
+		addPending(CompletableFuture.completedFuture(entryData), data.length);
+	}
+
+	/**
+	 * Writes the remaining entries and the central directory, and closes the
+	 * output stream.
+	 *
+	 * @throws IOException if an I/O error occurred
+	 */
+	public void close() throws IOException {
+		if (fClosed)
+			return;
+		fClosed= true;
+		try {
+			while (!fPending.isEmpty())
+				writeNextPending();
+			writeCentralDirectory();
+		} finally {
+			for (Future<EntryData> future : fPending)
+				future.cancel(false);
+			fPending.clear();
+			for (File file : fTempFiles)
+				file.delete();
+			fTempFiles.clear();
+			fOutput.close();
+		}
+	}
+
+	private byte[] getName(ZipEntry entry) throws IOException {
+		if (fClosed)
+			throw new IOException("Archive closed"); //$NON-NLS-1$
+		String name= entry.getName();
+		if (!fNames.add(name))
+			throw new ZipException("duplicate entry: " + name); //$NON-NLS-1$
+		return name.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private byte[] getExtra(ZipEntry entry) {
+		byte[] extra= entry.getExtra();
+		if (fNames.size() > 1)
+			return extra;
+		if (extra == null)
+			return JAR_MAGIC;
+		byte[] result= new byte[JAR_MAGIC.length + extra.length];
+		System.arraycopy(JAR_MAGIC, 0, result, 0, JAR_MAGIC.length);
+		System.arraycopy(extra, 0, result, JAR_MAGIC.length, extra.length);
+		return result;
+	}
+
+	private long getTime(ZipEntry entry) {
+		if (fFixedTime != -1)
+			return fFixedTime;
+		long time= entry.getTime();
+		return time != -1 ? time : System.currentTimeMillis();
+	}
+
+	private static EntryData deflate(byte[] name, byte[] extra, long time, byte[] content) {
+		CRC32 crc= new CRC32();
+		crc.update(content);
+		Deflater deflater= new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try {
+			deflater.setInput(content);
+			deflater.finish();
+			byte[] data= new byte[Math.max(64, content.length / 2)];
+			int length= 0;
+			while (!deflater.finished()) {
+				if (length == data.length) {
+					byte[] newData= new byte[data.length * 2];
+					System.arraycopy(data, 0, newData, 0, length);
+					data= newData;
+				}
+				length+= deflater.deflate(data, length, data.length - length);
+			}
+			return new EntryData(name, extra, ZipEntry.DEFLATED, time, crc.getValue(), content.length, data, length);
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private void addPending(Future<EntryData> future, long size) throws IOException {
+		fPending.add(future);
+		fPendingSizes.add(Long.valueOf(size));
+		fPendingBytes+= size;
+		while (!fPending.isEmpty() && (fPending.getFirst().isDone() || fPending.size() > MAX_PENDING_ENTRIES || fPendingBytes > MAX_PENDING_BYTES))
+			writeNextPending();
+	}
+
+	private void writeNextPending() throws IOException {
+		Future<EntryData> future= fPending.removeFirst();
+		fPendingBytes-= fPendingSizes.removeFirst().longValue();
+		EntryData entry;
+		try {
+			entry= future.get();
+		} catch (InterruptedException e) {
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			Throwable cause= e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IOException(cause);
+		}
+		writeLocalHeader(entry);
+		if (entry.fDataFile != null) {
+			Files.copy(entry.fDataFile.toPath(), fOutput);
+			entry.fDataFile.delete();
+			fTempFiles.remove(entry.fDataFile);
+			entry.fDataFile= null;
+		} else {
+			fOutput.write(entry.fData, 0, (int) entry.fDataLength);
+			// only the header is kept for the central directory
+			entry.fData= null;
+		}
+		fOffset+= entry.fDataLength;
+		fEntries.add(entry);
+	}
+
+	private void writeLocalHeader(EntryData entry) throws IOException {
+		entry.fOffset= fOffset;
+		boolean zip64= entry.fSize >= ZIP64_LIMIT || entry.fDataLength >= ZIP64_LIMIT;
+		byte[] extra= zip64 ? addZip64Extra(entry.fExtra, entry.fSize, entry.fDataLength, -1) : entry.fExtra;
+		writeInt(LOCAL_HEADER_SIGNATURE);
+		writeShort(getVersion(entry, zip64));
+		writeShort(FLAG_UTF8);
+		writeShort(entry.fMethod);
+		writeInt(toDosTime(entry.fTime));
+		writeInt(entry.fCrc);
+		writeInt(zip64 ? ZIP64_LIMIT : entry.fDataLength);
+		writeInt(zip64 ? ZIP64_LIMIT : entry.fSize);
+		writeShort(entry.fName.length);
+		writeShort(extra != null ? extra.length : 0);
+		writeBytes(entry.fName);
+		if (extra != null)
+			writeBytes(extra);
+	}
+
+	private void writeCentralDirectory() throws IOException {
+		long start= fOffset;
+		for (EntryData entry : fEntries) {
+			boolean zip64= entry.isZip64();
+			byte[] extra= zip64 ? addZip64Extra(entry.fExtra, entry.fSize, entry.fDataLength, entry.fOffset) : entry.fExtra;
+			int version= getVersion(entry, zip64);
+			writeInt(CENTRAL_HEADER_SIGNATURE);
+			writeShort(version);
+			writeShort(version);
+			writeShort(FLAG_UTF8);
+			writeShort(entry.fMethod);
+			writeInt(toDosTime(entry.fTime));
+			writeInt(entry.fCrc);
+			writeInt(zip64 ? ZIP64_LIMIT : entry.fDataLength);
+			writeInt(zip64 ? ZIP64_LIMIT : entry.fSize);
+			writeShort(entry.fName.length);
+			writeShort(extra != null ? extra.length : 0);
+			writeShort(0); // comment length
+			writeShort(0); // disk number
+			writeShort(0); // internal attributes
+			writeInt(0); // external attributes
+			writeInt(zip64 ? ZIP64_LIMIT : entry.fOffset);
+			writeBytes(entry.fName);
+			if (extra != null)
+				writeBytes(extra);
+		}
+		long size= fOffset - start;
+		int count= fEntries.size();
+		boolean zip64= count >= ZIP64_ENTRY_LIMIT || size >= ZIP64_LIMIT || start >= ZIP64_LIMIT;
+		if (zip64) {
+			long end= fOffset;
+			writeInt(ZIP64_END_SIGNATURE);
+			writeLong(44); // size of the remaining record
+			writeShort(45); // version made by
+			writeShort(45); // version needed
+			writeInt(0); // disk number
+			writeInt(0); // disk of the central directory
+			writeLong(count);
+			writeLong(count);
+			writeLong(size);
+			writeLong(start);
+			writeInt(ZIP64_LOCATOR_SIGNATURE);
+			writeInt(0); // disk of the ZIP64 end record
+			writeLong(end);
+			writeInt(1); // number of disks
+		}
+		byte[] comment= fComment != null ? fComment.getBytes(StandardCharsets.UTF_8) : new byte[0];
+		writeInt(END_SIGNATURE);
+		writeShort(0); // disk number
+		writeShort(0); // disk of the central directory
+		writeShort(zip64 ? ZIP64_ENTRY_LIMIT : count);
+		writeShort(zip64 ? ZIP64_ENTRY_LIMIT : count);
+		writeInt(zip64 ? ZIP64_LIMIT : size);
+		writeInt(zip64 ? ZIP64_LIMIT : start);
+		writeShort(Math.min(comment.length, 0xFFFF));
+		fOutput.write(comment, 0, Math.min(comment.length, 0xFFFF));
+	}
+
+	private static int getVersion(EntryData entry, boolean zip64) {
+		if (zip64)
+			return 45;
+		return entry.fMethod == ZipEntry.DEFLATED ? 20 : 10;
+	}
+
+	/**
+	 * Returns the given extra data with a ZIP64 extended information field in
+	 * front.
+	 */
+	private static byte[] addZip64Extra(byte[] extra, long size, long compressedSize, long offset) {
+		int length= offset != -1 ? 24 : 16;
+		int extraLength= extra != null ? extra.length : 0;
+		byte[] result= new byte[4 + length + extraLength];
+		putShort(result, 0, ZIP64_EXTRA_ID);
+		putShort(result, 2, length);
+		putLong(result, 4, size);
+		putLong(result, 12, compressedSize);
+		if (offset != -1)
+			putLong(result, 20, offset);
+		if (extra != null)
+			System.arraycopy(extra, 0, result, 4 + length, extraLength);
+		return result;
+	}
+
+	/**
+	 * Converts a time in milliseconds to the MS-DOS date and time format, in
+	 * the local time zone as {@link ZipEntry#setTime(long)} does.
+	 */
+	private static long toDosTime(long time) {
+		LocalDateTime date= LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
+		int year= date.getYear();
+		if (year < 1980)
+			return (1 << 21) | (1 << 16);
+		if (year > 2107)
+			year= 2107;
+		return (long) (year - 1980) << 25 | date.getMonthValue() << 21 | date.getDayOfMonth() << 16
+				| date.getHour() << 11 | date.getMinute() << 5 | date.getSecond() >> 1;
+	}
+
+	private static void putShort(byte[] bytes, int offset, int value) {
+		bytes[offset]= (byte) value;
+		bytes[offset + 1]= (byte) (value >>> 8);
+	}
+
+	private static void putLong(byte[] bytes, int offset, long value) {
+		for (int i= 0; i < 8; i++)
+			bytes[offset + i]= (byte) (value >>> (8 * i));
+	}
+
+	private void writeShort(int value) throws IOException {
+		fOutput.write(value & 0xFF);
+		fOutput.write((value >>> 8) & 0xFF);
+		fOffset+= 2;
+	}
+
+	private void writeInt(long value) throws IOException {
+		fOutput.write((int) (value & 0xFF));
+		fOutput.write((int) ((value >>> 8) & 0xFF));
+		fOutput.write((int) ((value >>> 16) & 0xFF));
+		fOutput.write((int) ((value >>> 24) & 0xFF));
+		fOffset+= 4;
+	}
+
+	private void writeLong(long value) throws IOException {
+		writeInt(value & ZIP64_LIMIT);
+		writeInt(value >>> 32);
+	}
+
+	private void writeBytes(byte[] bytes) throws IOException {
+		fOutput.write(bytes);
+		fOffset+= bytes.length;
+	}
+}
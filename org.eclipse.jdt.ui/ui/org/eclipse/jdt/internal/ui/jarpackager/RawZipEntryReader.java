@@ -0,0 +1,224 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.jarpackager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+
+/**
+ * Reads the compressed data of the entries of a ZIP archive, so that they can
+ * be copied to another archive by {@link JarArchiveWriter#putRawEntry(ZipEntry, byte[])}
+ * without being decompressed and compressed again.
+ * <p>
+ * Entries which cannot be copied, e.g. encrypted entries, are reported as
+ * unavailable. Clients then fall back to read the entries through a
+ * {@link java.util.zip.ZipFile}.
+ * </p>
+ */
+public class RawZipEntryReader {
+
+	private static final int LOCAL_HEADER_SIGNATURE= 0x04034b50;
+
+	private static final int CENTRAL_HEADER_SIGNATURE= 0x02014b50;
+
+	private static final int END_SIGNATURE= 0x06054b50;
+
+	private static final int ZIP64_END_SIGNATURE= 0x06064b50;
+
+	private static final int ZIP64_LOCATOR_SIGNATURE= 0x07064b50;
+
+	private static final int ZIP64_EXTRA_ID= 0x0001;
+
+	private static final int END_LENGTH= 22;
+
+	private static final int MAX_COMMENT_LENGTH= 0xFFFF;
+
+	private static final long ZIP64_LIMIT= 0xFFFFFFFFL;
+
+	private static final int FLAG_ENCRYPTED= 0x1;
+
+	/**
+	 * The location of the data of an entry
+	 */
+	private static final class RawEntry {
+		final long fHeaderOffset;
+		final long fCompressedSize;
+		final int fMethod;
+		final long fCrc;
+
+		RawEntry(long headerOffset, long compressedSize, int method, long crc) {
+			fHeaderOffset= headerOffset;
+			fCompressedSize= compressedSize;
+			fMethod= method;
+			fCrc= crc;
+		}
+	}
+
+	private final RandomAccessFile fFile;
+
+	/**
+	 * The entries which can be copied by name, or <code>null</code> if the
+	 * central directory could not be read
+	 */
+	private Map<String, RawEntry> fEntries;
+
+	/**
+	 * Opens the given archive.
+	 *
+	 * @param file the archive
+	 * @throws IOException if the archive cannot be opened
+	 */
+	public RawZipEntryReader(File file) throws IOException {
+		fFile= new RandomAccessFile(file, "r"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Returns the compressed data of the given entry.
+	 *
+	 * @param entry an entry of the archive, as returned by a
+	 *            {@link java.util.zip.ZipFile} for the archive
+	 * @return the data of the entry compressed with the method of the entry,
+	 *         or <code>null</code> if the data cannot be copied
+	 * @throws IOException if an I/O error occurred
+	 */
+	public byte[] readRawData(ZipEntry entry) throws IOException {
+		if (fEntries == null)
+			fEntries= readCentralDirectory();
+		RawEntry rawEntry= fEntries.get(entry.getName());
+		if (rawEntry == null || rawEntry.fMethod != entry.getMethod() || rawEntry.fCompressedSize != entry.getCompressedSize()
+				|| rawEntry.fCrc != entry.getCrc() || rawEntry.fCompressedSize > Integer.MAX_VALUE)
+			return null;
+		byte[] header= new byte[30];
+		fFile.seek(rawEntry.fHeaderOffset);
+		fFile.readFully(header);
+		if (getInt(header, 0) != LOCAL_HEADER_SIGNATURE)
+			return null;
+		fFile.seek(rawEntry.fHeaderOffset + header.length + getShort(header, 26) + getShort(header, 28));
+		byte[] data= new byte[(int) rawEntry.fCompressedSize];
+		fFile.readFully(data);
+		return data;
+	}
+
+	/**
+	 * Closes the archive.
+	 *
+	 * @throws IOException if an I/O error occurred
+	 */
+	public void close() throws IOException {
+		fFile.close();
+	}
+
+	private Map<String, RawEntry> readCentralDirectory() throws IOException {
+		Map<String, RawEntry> entries= new HashMap<>();
+		long length= fFile.length();
+		int tailLength= (int) Math.min(length, END_LENGTH + MAX_COMMENT_LENGTH);
+		byte[] tail= new byte[tailLength];
+		fFile.seek(length - tailLength);
+		fFile.readFully(tail);
+		int end= tailLength - END_LENGTH;
+		while (end >= 0 && getInt(tail, end) != END_SIGNATURE)
+			end--;
+		if (end < 0)
+			return entries;
+		long count= getShort(tail, end + 10);
+		long directoryOffset= getUnsignedInt(tail, end + 16);
+		if (count == 0xFFFF || directoryOffset == ZIP64_LIMIT) {
+			long locator= length - tailLength + end - 20;
+			if (locator < 0)
+				return entries;
+			byte[] locatorBytes= new byte[20];
+			fFile.seek(locator);
+			fFile.readFully(locatorBytes);
+			if (getInt(locatorBytes, 0) != ZIP64_LOCATOR_SIGNATURE)
+				return entries;
+			byte[] zip64End= new byte[56];
+			fFile.seek(getLong(locatorBytes, 8));
+			fFile.readFully(zip64End);
+			if (getInt(zip64End, 0) != ZIP64_END_SIGNATURE)
+				return entries;
+			count= getLong(zip64End, 32);
+			directoryOffset= getLong(zip64End, 48);
+		}
+		fFile.seek(directoryOffset);
+		byte[] header= new byte[46];
+		for (long i= 0; i < count; i++) {
+			fFile.readFully(header);
+			if (getInt(header, 0) != CENTRAL_HEADER_SIGNATURE)
+				break;
+			int flags= getShort(header, 8);
+			int method= getShort(header, 10);
+			long crc= getUnsignedInt(header, 16);
+			long compressedSize= getUnsignedInt(header, 20);
+			long size= getUnsignedInt(header, 24);
+			byte[] name= new byte[getShort(header, 28)];
+			byte[] extra= new byte[getShort(header, 30)];
+			int commentLength= getShort(header, 32);
+			long headerOffset= getUnsignedInt(header, 42);
+			fFile.readFully(name);
+			fFile.readFully(extra);
+			fFile.skipBytes(commentLength);
+			if (compressedSize == ZIP64_LIMIT || size == ZIP64_LIMIT || headerOffset == ZIP64_LIMIT) {
+				// the ZIP64 field contains the values which do not fit, in this order
+				int position= findExtra(extra, ZIP64_EXTRA_ID);
+				if (position == -1)
+					continue;
+				int fieldEnd= position + 4 + getShort(extra, position + 2);
+				int next= position + 4;
+				if (size == ZIP64_LIMIT && next + 8 <= fieldEnd) {
+					next+= 8;
+				}
+				if (compressedSize == ZIP64_LIMIT && next + 8 <= fieldEnd) {
+					compressedSize= getLong(extra, next);
+					next+= 8;
+				}
+				if (headerOffset == ZIP64_LIMIT && next + 8 <= fieldEnd)
+					headerOffset= getLong(extra, next);
+			}
+			if ((flags & FLAG_ENCRYPTED) == 0)
+				entries.put(new String(name, StandardCharsets.UTF_8), new RawEntry(headerOffset, compressedSize, method, crc));
+		}
+		return entries;
+	}
+
+	private static int findExtra(byte[] extra, int id) {
+		int position= 0;
+		while (position + 4 <= extra.length) {
+			if (getShort(extra, position) == id)
+				return position;
+			position+= 4 + getShort(extra, position + 2);
+		}
+		return -1;
+	}
+
+	private static int getShort(byte[] bytes, int offset) {
+		return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8;
+	}
+
+	private static int getInt(byte[] bytes, int offset) {
+		return getShort(bytes, offset) | getShort(bytes, offset + 2) << 16;
+	}
+
+	private static long getUnsignedInt(byte[] bytes, int offset) {
+		return getInt(bytes, offset) & ZIP64_LIMIT;
+	}
+
+	private static long getLong(byte[] bytes, int offset) {
+		return getUnsignedInt(bytes, offset) | getUnsignedInt(bytes, offset + 4) << 32;
+	}
+}
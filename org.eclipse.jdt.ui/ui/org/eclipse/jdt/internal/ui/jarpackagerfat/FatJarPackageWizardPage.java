@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2017 IBM Corporation and others.
+ * Copyright (c) 2007, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -168,6 +168,34 @@ public class FatJarPackageWizardPage extends AbstractJarDestinationWizardPage {
 		}
 	}
 
+	public static class PackageStoredLibraryHandler extends LibraryHandler {
+
+		public final static int ID= 4;
+
+		public PackageStoredLibraryHandler() {
+		}
+
+		@Override
+		public FatJarAntExporter getAntExporter(IPath antScriptLocation, IPath jarLocation, ILaunchConfiguration launchConfiguration) {
+			return new FatJarRsrcUrlAntExporter(antScriptLocation, jarLocation, launchConfiguration);
+		}
+
+		@Override
+		public FatJarBuilder getBuilder(JarPackageData jarPackageData) {
+			return new FatJarRsrcUrlBuilder(true);
+		}
+
+		@Override
+		public int getID() {
+			return ID;
+		}
+
+		@Override
+		public boolean isShowWarning() {
+			return false;
+		}
+	}
+
 	public static class CopyLibraryHandler extends LibraryHandler {
 
 		public final static int ID= 3;
@@ -289,6 +317,7 @@ public class FatJarPackageWizardPage extends AbstractJarDestinationWizardPage {
 	private Composite fLibraryHandlingGroup;
 	private Button fExtractJarsRadioButton;
 	private Button fPackageJarsRadioButton;
+	private Button fPackageStoredJarsRadioButton;
 	private Button fCopyJarFilesRadioButton;
 
 	public FatJarPackageWizardPage(JarPackageData jarPackage, IStructuredSelection selection) {
@@ -484,6 +513,17 @@ public class FatJarPackageWizardPage extends AbstractJarDestinationWizardPage {
 			}
 		});
 
+		fPackageStoredJarsRadioButton= new Button(fLibraryHandlingGroup, SWT.RADIO | SWT.LEFT);
+		fPackageStoredJarsRadioButton.setText(FatJarPackagerMessages.FatJarPackageWizardPage_packageStoredJars_text);
+		fPackageStoredJarsRadioButton.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
+		fPackageStoredJarsRadioButton.addListener(SWT.Selection, new Listener() {
+			@Override
+			public void handleEvent(Event event) {
+				if (((Button)event.widget).getSelection())
+					fLibraryHandler= new PackageStoredLibraryHandler();
+			}
+		});
+
 		fCopyJarFilesRadioButton= new Button(fLibraryHandlingGroup, SWT.RADIO | SWT.LEFT);
 		fCopyJarFilesRadioButton.setText(FatJarPackagerMessages.FatJarPackageWizardPage_copyJarFiles_text);
 		fCopyJarFilesRadioButton.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
@@ -507,12 +547,15 @@ public class FatJarPackageWizardPage extends AbstractJarDestinationWizardPage {
 		fLibraryHandler= libraryHandler;
 		fExtractJarsRadioButton.setSelection(libraryHandler.getID() == ExtractLibraryHandler.ID);
 		fPackageJarsRadioButton.setSelection(libraryHandler.getID() == PackageLibraryHandler.ID);
+		fPackageStoredJarsRadioButton.setSelection(libraryHandler.getID() == PackageStoredLibraryHandler.ID);
 		fCopyJarFilesRadioButton.setSelection(libraryHandler.getID() == CopyLibraryHandler.ID);
 	}
 
 	LibraryHandler createLibraryHandlerById(int handlerId) {
 		if (handlerId == PackageLibraryHandler.ID)
 			return new PackageLibraryHandler();
+		if (handlerId == PackageStoredLibraryHandler.ID)
+			return new PackageStoredLibraryHandler();
 		if (handlerId == CopyLibraryHandler.ID)
 			return new CopyLibraryHandler();
 		return new ExtractLibraryHandler();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2009 IBM Corporation and others.
+ * Copyright (c) 2007, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -46,6 +46,7 @@ public final class FatJarPackagerMessages extends NLS {
 	public static String FatJarPackageWizardPage_extractJars_text;
 
 	public static String FatJarPackageWizardPage_packageJars_text;
+	public static String FatJarPackageWizardPage_packageStoredJars_text;
 
 	public static String FatJarPackageWizardPage_copyJarFiles_text;
 
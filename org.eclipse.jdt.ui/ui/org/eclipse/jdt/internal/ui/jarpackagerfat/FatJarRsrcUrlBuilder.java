@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2011 IBM Corporation and others.
+ * Copyright (c) 2008, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -42,7 +42,6 @@ import org.eclipse.jdt.ui.jarpackager.IManifestProvider;
 import org.eclipse.jdt.ui.jarpackager.JarPackageData;
 
 import org.eclipse.jdt.internal.ui.JavaPlugin;
-import org.eclipse.jdt.internal.ui.jarpackager.JarPackagerUtil;
 
 /**
  * A jar builder which copies the referenced libraries into the generated jar and adds a special
@@ -55,8 +54,21 @@ public class FatJarRsrcUrlBuilder extends FatJarBuilder {
 	public static final String BUILDER_ID= "org.eclipse.jdt.ui.fat_jar_rsrc_url_builder"; //$NON-NLS-1$
 	public static final String JAR_RSRC_LOADER_ZIP= "jar-in-jar-loader.zip"; //$NON-NLS-1$
 	
+	private final boolean fStoreLibraries;
+
 	private Set<String> jarNames;
-	private JarPackageData fJarPackage;
+
+	public FatJarRsrcUrlBuilder() {
+		this(false);
+	}
+
+	/**
+	 * @param storeLibraries <code>true</code> to store the libraries uncompressed, so that the
+	 *            JAR in JAR loader can read their entries without extracting them
+	 */
+	public FatJarRsrcUrlBuilder(boolean storeLibraries) {
+		fStoreLibraries= storeLibraries;
+	}
 
 	@Override
 	public String getId() {
@@ -81,6 +93,13 @@ public class FatJarRsrcUrlBuilder extends FatJarBuilder {
 		return false;
 	}
 	
+	/**
+	 * @return <code>true</code> if the libraries are stored uncompressed
+	 */
+	public boolean isStoreLibraries() {
+		return fStoreLibraries;
+	}
+
 	@Override
 	public String getManifestClasspath() {
 		return "."; //$NON-NLS-1$
@@ -94,7 +113,6 @@ public class FatJarRsrcUrlBuilder extends FatJarBuilder {
 	@Override
 	public void open(JarPackageData jarPackage, Shell displayShell, MultiStatus status) throws CoreException {
 		super.open(jarPackage, displayShell, status);
-		fJarPackage= jarPackage;
 		jarNames= new HashSet<>();
 		try {
 			writeRsrcUrlClasses();
@@ -113,11 +131,11 @@ public class FatJarRsrcUrlBuilder extends FatJarBuilder {
 		jarNames.add(jarName);
 		JarEntry newEntry = new JarEntry(jarName);
 		newEntry.setMethod(ZipEntry.STORED);
-		byte[] readBuffer= new byte[4096];             
 		try {
-			if (!fJarPackage.isCompressed())
-				JarPackagerUtil.calculateCrcAndSize(newEntry, new FileInputStream(jarPathFile), readBuffer);
-			getJarWriter().addZipEntryStream(newEntry, new FileInputStream(jarPathFile), jarName);
+			if (fStoreLibraries)
+				getJarWriter().addStoredEntryStream(new FileInputStream(jarPathFile), jarName);
+			else
+				getJarWriter().addZipEntryStream(newEntry, new FileInputStream(jarPathFile), jarName);
 		} catch (FileNotFoundException e) {
 			throw new RuntimeException(e);
 		} catch (IOException e) {
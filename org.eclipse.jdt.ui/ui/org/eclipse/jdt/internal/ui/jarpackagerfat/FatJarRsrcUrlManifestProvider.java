@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2013 IBM Corporation and others.
+ * Copyright (c) 2008, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -35,8 +35,11 @@ import org.eclipse.jdt.internal.ui.JavaPlugin;
  */
 public class FatJarRsrcUrlManifestProvider extends FatJarManifestProvider {
 
+	private final FatJarRsrcUrlBuilder fBuilder;
+
 	public FatJarRsrcUrlManifestProvider(FatJarRsrcUrlBuilder builder) {
 		super(builder);
+		fBuilder= builder;
 	}
 
 	private void setManifestRsrcClasspath(Manifest ownManifest, JarPackageData jarPackage) {
@@ -54,6 +57,8 @@ public class FatJarRsrcUrlManifestProvider extends FatJarManifestProvider {
 		}
 		String manifestRsrcClasspath= getManifestRsrcClasspath(jarNames);
 		ownManifest.getMainAttributes().putValue(JIJConstants.REDIRECTED_CLASS_PATH_MANIFEST_NAME, manifestRsrcClasspath); 
+		if (fBuilder.isStoreLibraries())
+			ownManifest.getMainAttributes().putValue(JIJConstants.INDEXED_CLASS_PATH_MANIFEST_NAME, Boolean.TRUE.toString());
 	}
 
 	public String getManifestRsrcClasspath(ArrayList<String> jarNames) {
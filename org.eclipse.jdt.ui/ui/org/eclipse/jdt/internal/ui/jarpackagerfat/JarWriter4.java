@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2016 IBM Corporation and others.
+ * Copyright (c) 2007, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -38,6 +38,7 @@ import org.eclipse.jdt.ui.jarpackager.JarWriter3;
 
 import org.eclipse.jdt.internal.ui.jarpackager.JarPackagerMessages;
 import org.eclipse.jdt.internal.ui.jarpackager.JarPackagerUtil;
+import org.eclipse.jdt.internal.ui.jarpackager.RawZipEntryReader;
 import org.eclipse.jdt.internal.core.manipulation.util.BasicElementLabels;
 
 
@@ -48,6 +49,14 @@ public class JarWriter4 extends JarWriter3 {
 
 	private final JarPackageData fJarPackage;
 
+	/**
+	 * The reader for the raw data of the entries of the archive which is
+	 * currently copied, or <code>null</code>
+	 */
+	private RawZipEntryReader fRawReader;
+
+	private String fRawReaderName;
+
 	public JarWriter4(JarPackageData jarPackage, Shell parent) throws CoreException {
 		super(jarPackage, parent);
 		fJarPackage= jarPackage;
@@ -59,41 +68,79 @@ public class JarWriter4 extends JarWriter3 {
 
 		JarEntry newEntry= new JarEntry(path.replace(File.separatorChar, '/'));
 
-		if (fJarPackage.isCompressed())
-			newEntry.setMethod(ZipEntry.DEFLATED);
-			// Entry is filled automatically.
-		else {
-			newEntry.setMethod(ZipEntry.STORED);
-			newEntry.setSize(zipEntry.getSize());
-			newEntry.setCrc(zipEntry.getCrc());
-		}
+		// CRC and size are computed when the entry is written
+		int method= fJarPackage.isCompressed() ? ZipEntry.DEFLATED : ZipEntry.STORED;
+		newEntry.setMethod(method);
 
 		long lastModified= System.currentTimeMillis();
 
 		// Set modification time
 		newEntry.setTime(lastModified);
 
+		// Copy the compressed data if the entry does not need to be recompressed
+		if (zipEntry.getMethod() == method) {
+			byte[] data= getRawReader(zipFile).readRawData(zipEntry);
+			if (data != null) {
+				newEntry.setSize(zipEntry.getSize());
+				newEntry.setCompressedSize(zipEntry.getCompressedSize());
+				newEntry.setCrc(zipEntry.getCrc());
+				addRawEntry(newEntry, data);
+				return;
+			}
+		}
+
 		addEntry(newEntry, zipFile.getInputStream(zipEntry));
 	}
 
+	private RawZipEntryReader getRawReader(ZipFile zipFile) throws IOException {
+		if (!zipFile.getName().equals(fRawReaderName)) {
+			closeRawReader();
+			fRawReader= new RawZipEntryReader(new File(zipFile.getName()));
+			fRawReaderName= zipFile.getName();
+		}
+		return fRawReader;
+	}
+
+	private void closeRawReader() throws IOException {
+		if (fRawReader != null) {
+			fRawReaderName= null;
+			RawZipEntryReader reader= fRawReader;
+			fRawReader= null;
+			reader.close();
+		}
+	}
+
 	public void addZipEntryStream(ZipEntry zipEntry, InputStream is, String path) throws IOException {
 		if (fJarPackage.areDirectoryEntriesIncluded())
 			addDirectories(path);
 		JarEntry newEntry= new JarEntry(path.replace(File.separatorChar, '/'));
+		// CRC and size are computed when the entry is written
 		if (fJarPackage.isCompressed())
 			newEntry.setMethod(ZipEntry.DEFLATED);
-		// Entry is filled automatically.
-		else {
+		else
 			newEntry.setMethod(ZipEntry.STORED);
-			newEntry.setSize(zipEntry.getSize());
-			newEntry.setCrc(zipEntry.getCrc());
-		}
 		long lastModified= System.currentTimeMillis();
 		// Set modification time
 		newEntry.setTime(lastModified);
 		addEntry(newEntry, is);
 	}
 
+	/**
+	 * Adds an uncompressed entry, regardless of whether the JAR is compressed.
+	 *
+	 * @param is the content of the entry, which is closed
+	 * @param path the path of the entry
+	 * @throws IOException if an I/O error occurred
+	 */
+	public void addStoredEntryStream(InputStream is, String path) throws IOException {
+		if (fJarPackage.areDirectoryEntriesIncluded())
+			addDirectories(path);
+		JarEntry newEntry= new JarEntry(path.replace(File.separatorChar, '/'));
+		newEntry.setMethod(ZipEntry.STORED);
+		newEntry.setTime(System.currentTimeMillis());
+		addEntry(newEntry, is);
+	}
+
 	public void write(File file, IPath destinationPath) throws CoreException {
 		try {
 			addFile(file, destinationPath);
@@ -116,15 +163,24 @@ public class JarWriter4 extends JarWriter3 {
 
 		JarEntry newEntry= new JarEntry(path.toString().replace(File.separatorChar, '/'));
 
+		// CRC and size are computed when the entry is written
 		if (fJarPackage.isCompressed())
 			newEntry.setMethod(ZipEntry.DEFLATED);
-			// Entry is filled automatically.
-		else {
+		else
 			newEntry.setMethod(ZipEntry.STORED);
-			JarPackagerUtil.calculateCrcAndSize(newEntry, new FileInputStream(file), new byte[4096]);
-		}
 
 		newEntry.setTime(file.lastModified());
 		addEntry(newEntry, new FileInputStream(file));
 	}
+
+	@Override
+	public void close() throws CoreException {
+		try {
+			closeRawReader();
+		} catch (IOException ex) {
+			throw JarPackagerUtil.createCoreException(ex.getLocalizedMessage(), ex);
+		} finally {
+			super.close();
+		}
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -229,6 +229,64 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 		}
 	}
 
+	/**
+	 * A range of the document which has been changed. The range is kept up to date with later
+	 * changes of the document.
+	 */
+	private static class DirtyRegion {
+
+		/** The start offset, <code>-1</code> if the region is empty */
+		private int fStart= -1;
+		/** The end offset, exclusive */
+		private int fEnd= -1;
+
+		/**
+		 * Includes the range replaced by the given document change and updates the region to
+		 * the offsets after the change.
+		 *
+		 * @param offset the offset of the change
+		 * @param length the length of the replaced text
+		 * @param textLength the length of the new text
+		 */
+		public void include(int offset, int length, int textLength) {
+			int end= offset + textLength;
+			if (fStart == -1) {
+				fStart= offset;
+				fEnd= end;
+				return;
+			}
+			if (fEnd > offset)
+				fEnd= Math.max(end, fEnd + textLength - length);
+			fStart= Math.min(fStart, offset);
+			fEnd= Math.max(fEnd, end);
+		}
+
+		public void include(DirtyRegion region) {
+			if (region.fStart == -1)
+				return;
+			if (fStart == -1) {
+				fStart= region.fStart;
+				fEnd= region.fEnd;
+			} else {
+				fStart= Math.min(fStart, region.fStart);
+				fEnd= Math.max(fEnd, region.fEnd);
+			}
+		}
+
+		public boolean isEmpty() {
+			return fStart == -1;
+		}
+
+		public void clear() {
+			fStart= -1;
+			fEnd= -1;
+		}
+
+		public IRegion toRegion() {
+			return fStart == -1 ? null : new Region(fStart, fEnd - fStart);
+		}
+	}
+
 	/** Position updater */
 	private IPositionUpdater fPositionUpdater= new HighlightingPositionUpdater(getPositionCategory());
 
@@ -245,6 +303,25 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 	/** <code>true</code> iff the current reconcile is canceled. */
 	private boolean fIsCanceled= false;
 
+	/**
+	 * The range changed since the last reconcile was started, guarded by {@link #fDirtyRegionLock}.
+	 */
+	private final DirtyRegion fDirtyRegion= new DirtyRegion();
+	/**
+	 * The range changed before the last reconcile was started, which has not been reconciled
+	 * yet, guarded by {@link #fDirtyRegionLock}.
+	 */
+	private final DirtyRegion fReconcileRegion= new DirtyRegion();
+	/**
+	 * <code>true</code> iff the changed range is not known, e.g. because the input changed or
+	 * an update has been canceled, guarded by {@link #fDirtyRegionLock}.
+	 */
+	private boolean fIsDirtyRegionUnknown= true;
+	/**
+	 * Lock for the dirty regions.
+	 */
+	private final Object fDirtyRegionLock= new Object();
+
 	/**
 	 * Creates and returns a new highlighted position with the given offset, length and highlighting.
 	 * <p>
@@ -275,6 +352,85 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 		}
 	}
 
+	/**
+	 * Adds all current positions which start in the given range to the given list.
+	 * <p>
+	 * NOTE: Called from background thread.
+	 * </p>
+	 *
+	 * @param list The list
+	 * @param offset The range offset
+	 * @param length The range length
+	 */
+	public void addAllPositions(List<Position> list, int offset, int length) {
+		synchronized (fPositionLock) {
+			int i= computeIndexAtOffset(fPositions, offset), n= computeIndexAtOffset(fPositions, offset + length);
+			list.addAll(fPositions.subList(i, n));
+		}
+	}
+
+	/**
+	 * Marks the range which has been changed so far as the range to be reconciled by the next
+	 * reconcile.
+	 * <p>
+	 * NOTE: Called from background thread.
+	 * </p>
+	 */
+	public void aboutToBeReconciled() {
+		synchronized (fDirtyRegionLock) {
+			fReconcileRegion.include(fDirtyRegion);
+			fDirtyRegion.clear();
+		}
+	}
+
+	/**
+	 * Returns the range which has been changed before the running reconcile was started and has
+	 * not been reconciled yet.
+	 * <p>
+	 * NOTE: Called from background thread.
+	 * </p>
+	 *
+	 * @return the changed range or <code>null</code> if it is not known and all positions have to
+	 *         be reconciled
+	 */
+	public IRegion getReconcileRegion() {
+		synchronized (fDirtyRegionLock) {
+			return fIsDirtyRegionUnknown ? null : fReconcileRegion.toRegion();
+		}
+	}
+
+	/**
+	 * Marks the range returned by {@link #getReconcileRegion()} as reconciled, unless the current
+	 * reconcile is canceled.
+	 * <p>
+	 * NOTE: Called from background thread.
+	 * </p>
+	 */
+	public void reconcileRegionDone() {
+		IDocument document= fSourceViewer != null ? fSourceViewer.getDocument() : null;
+		if (document == null)
+			return;
+
+		// the canceled flag is set under the document lock before each change
+		synchronized (getLockObject(document)) {
+			if (fIsCanceled)
+				return;
+			synchronized (fDirtyRegionLock) {
+				fReconcileRegion.clear();
+				fIsDirtyRegionUnknown= false;
+			}
+		}
+	}
+
+	/**
+	 * Requests that all positions are reconciled by the next reconcile.
+	 */
+	public void invalidateReconcileRegion() {
+		synchronized (fDirtyRegionLock) {
+			fIsDirtyRegionUnknown= true;
+		}
+	}
+
 	/**
 	 * Create a text presentation in the background.
 	 * <p>
@@ -375,8 +531,11 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 
 		// TODO: double-check consistency with document.getPositions(...)
 		// TODO: reuse removed positions
-		if (isCanceled())
+		if (isCanceled()) {
+			// the reconciled range has already been marked as done
+			invalidateReconcileRegion();
 			return;
+		}
 
 		IDocument document= fSourceViewer.getDocument();
 		if (document == null)
@@ -600,6 +759,13 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 	 */
 	@Override
 	public void documentChanged(DocumentEvent event) {
+		String text= event.getText();
+		int textLength= text != null ? text.length() : 0;
+		synchronized (fDirtyRegionLock) {
+			fDirtyRegion.include(event.getOffset(), event.getLength(), textLength);
+			if (!fReconcileRegion.isEmpty())
+				fReconcileRegion.include(event.getOffset(), event.getLength(), textLength);
+		}
 	}
 
 	/**
@@ -743,6 +909,11 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 		synchronized (fPositionLock) {
 			fPositions.clear();
 		}
+		synchronized (fDirtyRegionLock) {
+			fDirtyRegion.clear();
+			fReconcileRegion.clear();
+			fIsDirtyRegionUnknown= true;
+		}
 	}
 
 	/**
@@ -15,6 +15,7 @@
 package org.eclipse.jdt.internal.ui.javaeditor;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 import org.eclipse.swt.widgets.Display;
@@ -26,6 +27,7 @@ import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITextInputListener;
 import org.eclipse.jface.text.Position;
 import org.eclipse.jface.text.TextPresentation;
@@ -34,14 +36,19 @@ import org.eclipse.jface.text.source.ISourceViewer;
 import org.eclipse.ui.IWorkbenchPartSite;
 
 import org.eclipse.jdt.core.ITypeRoot;
+import org.eclipse.jdt.core.compiler.IProblem;
 import org.eclipse.jdt.core.dom.AST;
 import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.Block;
 import org.eclipse.jdt.core.dom.BooleanLiteral;
 import org.eclipse.jdt.core.dom.CharacterLiteral;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.ConstructorInvocation;
 import org.eclipse.jdt.core.dom.Expression;
 import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.Initializer;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.NodeFinder;
 import org.eclipse.jdt.core.dom.NumberLiteral;
 import org.eclipse.jdt.core.dom.SimpleName;
 import org.eclipse.jdt.core.dom.SimpleType;
@@ -210,14 +217,13 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 		 */
 		private void addPosition(int offset, int length, Highlighting highlighting) {
 			boolean isExisting= false;
-			// TODO: use binary search
-			for (int i= 0, n= fRemovedPositions.size(); i < n; i++) {
+			for (int i= computeIndexAtOffset(fRemovedPositions, offset), n= fRemovedPositions.size(); i < n; i++) {
 				HighlightedPosition position= (HighlightedPosition) fRemovedPositions.get(i);
-				if (position == null)
-					continue;
-				if (position.isEqual(offset, length, highlighting)) {
+				if (position.getOffset() > offset)
+					break;
+				if (!fRetainedPositions.get(i) && position.isEqual(offset, length, highlighting)) {
 					isExisting= true;
-					fRemovedPositions.set(i, null);
+					fRetainedPositions.set(i);
 					fNOfRemovedPositions--;
 					break;
 				}
@@ -235,11 +241,12 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 		 * @param length The range length
 		 */
 		private void retainPositions(int offset, int length) {
-			// TODO: use binary search
-			for (int i= 0, n= fRemovedPositions.size(); i < n; i++) {
+			for (int i= computeIndexAtOffset(fRemovedPositions, offset), n= fRemovedPositions.size(); i < n; i++) {
 				HighlightedPosition position= (HighlightedPosition) fRemovedPositions.get(i);
-				if (position != null && position.isContained(offset, length)) {
-					fRemovedPositions.set(i, null);
+				if (position.getOffset() > offset + length)
+					break;
+				if (!fRetainedPositions.get(i) && position.isContained(offset, length)) {
+					fRetainedPositions.set(i);
 					fNOfRemovedPositions--;
 				}
 			}
@@ -262,8 +269,12 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 
 	/** Background job's added highlighted positions */
 	private List<Position> fAddedPositions= new ArrayList<>();
-	/** Background job's removed highlighted positions */
+	/** Background job's removed highlighted positions, ordered by offset */
 	private List<Position> fRemovedPositions= new ArrayList<>();
+	/**
+	 * Indices of the positions in {@link #fRemovedPositions} which are retained
+	 */
+	private BitSet fRetainedPositions= new BitSet();
 	/** Number of removed positions */
 	private int fNOfRemovedPositions;
 
@@ -301,7 +312,9 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 */
 	@Override
 	public void aboutToBeReconciled() {
-		// Do nothing
+		SemanticHighlightingPresenter presenter= fPresenter;
+		if (presenter != null)
+			presenter.aboutToBeReconciled();
 	}
 
 	/*
@@ -329,11 +342,13 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 			if (ast == null || fJobPresenter.isCanceled())
 				return;
 
-			ASTNode[] subtrees= getAffectedSubtrees(ast);
+			long start= JavaPlugin.DEBUG_SEMANTIC_HIGHLIGHTING ? System.currentTimeMillis() : 0;
+			IRegion region= forced ? null : fJobPresenter.getReconcileRegion();
+			ASTNode[] subtrees= getAffectedSubtrees(ast, region);
 			if (subtrees.length == 0)
 				return;
 
-			startReconcilingPositions();
+			startReconcilingPositions(subtrees, subtrees[0] != ast);
 
 			if (!fJobPresenter.isCanceled()) {
 				fJobDeprecatedMemberHighlighting= null;
@@ -351,8 +366,16 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 			if (!fJobPresenter.isCanceled())
 				textPresentation= fJobPresenter.createPresentation(fAddedPositions, fRemovedPositions);
 
-			if (!fJobPresenter.isCanceled())
+			if (!fJobPresenter.isCanceled()) {
 				updatePresentation(textPresentation, fAddedPositions, fRemovedPositions);
+				fJobPresenter.reconcileRegionDone();
+			}
+
+			if (JavaPlugin.DEBUG_SEMANTIC_HIGHLIGHTING) {
+				System.out.println("Semantic highlighting " + (subtrees[0] != ast ? "incremental" : "full") + " reconcile of " + subtrees[0].getLength() + " chars: " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+						+ fAddedPositions.size() + " added, " + fRemovedPositions.size() + " removed, " //$NON-NLS-1$ //$NON-NLS-2$
+						+ (System.currentTimeMillis() - start) + " ms" + (fJobPresenter.isCanceled() ? " (canceled)" : "")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			}
 
 			stopReconcilingPositions();
 		} finally {
@@ -367,19 +390,68 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	}
 
 	/**
-	 * @param node Root node
+	 * @param ast the compilation unit
+	 * @param region the range changed since the last reconcile, or <code>null</code> if
+	 *            unknown
 	 * @return Array of subtrees that may be affected by past document changes
 	 */
-	private ASTNode[] getAffectedSubtrees(ASTNode node) {
-		// TODO: only return nodes which are affected by document changes - would require an 'anchor' concept for taking distant effects into account
-		return new ASTNode[] { node };
+	private ASTNode[] getAffectedSubtrees(CompilationUnit ast, IRegion region) {
+		if (region != null) {
+			ASTNode body= getEnclosingBody(ast, region);
+			if (body != null)
+				return new ASTNode[] { body };
+		}
+		return new ASTNode[] { ast };
+	}
+
+	/**
+	 * Returns the body of the innermost method or initializer which strictly contains the given
+	 * range. Changes inside such a body only affect the highlighting of the body itself, unless
+	 * they changed the structure of the compilation unit, which is assumed if there are syntax
+	 * errors outside of the body.
+	 *
+	 * @param ast the compilation unit
+	 * @param region the changed range
+	 * @return the body or <code>null</code> if there is none or the whole compilation unit may
+	 *         be affected
+	 */
+	private static ASTNode getEnclosingBody(CompilationUnit ast, IRegion region) {
+		int start= region.getOffset();
+		int end= start + region.getLength();
+		ASTNode node= NodeFinder.perform(ast, start, region.getLength());
+		while (node != null) {
+			if (node instanceof Block && (node.getParent() instanceof MethodDeclaration || node.getParent() instanceof Initializer)
+					&& node.getStartPosition() < start && end < node.getStartPosition() + node.getLength())
+				break;
+			node= node.getParent();
+		}
+		if (node == null)
+			return null;
+
+		int bodyStart= node.getStartPosition();
+		int bodyEnd= bodyStart + node.getLength();
+		IProblem[] problems= ast.getProblems();
+		for (int i= 0; i < problems.length; i++) {
+			IProblem problem= problems[i];
+			if ((problem.getID() & IProblem.Syntax) != 0 && (problem.getSourceStart() < bodyStart || problem.getSourceEnd() >= bodyEnd))
+				return null;
+		}
+		return node;
 	}
 
 	/**
 	 * Start reconciling positions.
+	 *
+	 * @param subtrees the AST subtrees
+	 * @param isIncremental <code>true</code> iff only the positions in the subtrees are reconciled
 	 */
-	private void startReconcilingPositions() {
-		fJobPresenter.addAllPositions(fRemovedPositions);
+	private void startReconcilingPositions(ASTNode[] subtrees, boolean isIncremental) {
+		if (isIncremental) {
+			for (int i= 0; i < subtrees.length; i++)
+				fJobPresenter.addAllPositions(fRemovedPositions, subtrees[i].getStartPosition(), subtrees[i].getLength());
+		} else {
+			fJobPresenter.addAllPositions(fRemovedPositions);
+		}
 		fNOfRemovedPositions= fRemovedPositions.size();
 	}
 
@@ -389,20 +461,34 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 * @param subtrees the AST subtrees
 	 */
 	private void reconcilePositions(ASTNode[] subtrees) {
-		// FIXME: remove positions not covered by subtrees
-
-
-
 		for (int i= 0, n= subtrees.length; i < n; i++)
 			subtrees[i].accept(fCollector);
 		List<Position> oldPositions= fRemovedPositions;
 		List<Position> newPositions= new ArrayList<>(fNOfRemovedPositions);
-		for (int i= 0, n= oldPositions.size(); i < n; i ++) {
-			Position current= oldPositions.get(i);
-			if (current != null)
-				newPositions.add(current);
-		}
+		for (int i= fRetainedPositions.nextClearBit(0), n= oldPositions.size(); i < n; i= fRetainedPositions.nextClearBit(i + 1))
+			newPositions.add(oldPositions.get(i));
 		fRemovedPositions= newPositions;
+		fRetainedPositions.clear();
+	}
+
+	/**
+	 * Returns the index of the first position with an offset equal or greater than the given offset.
+	 *
+	 * @param positions the positions, must be ordered by offset
+	 * @param offset the offset
+	 * @return the index of the first position with an offset equal or greater than the given offset
+	 */
+	private static int computeIndexAtOffset(List<Position> positions, int offset) {
+		int i= -1;
+		int j= positions.size();
+		while (j - i > 1) {
+			int k= (i + j) >> 1;
+			if (positions.get(k).getOffset() >= offset)
+				j= k;
+			else
+				i= k;
+		}
+		return j;
 	}
 
 	/**
@@ -441,6 +527,7 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 */
 	private void stopReconcilingPositions() {
 		fRemovedPositions.clear();
+		fRetainedPositions.clear();
 		fNOfRemovedPositions= 0;
 		fAddedPositions.clear();
 	}
@@ -562,6 +649,9 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 * @since 3.2
 	 */
 	public void refresh() {
+		SemanticHighlightingPresenter presenter= fPresenter;
+		if (presenter != null)
+			presenter.invalidateReconcileRegion();
 		scheduleJob();
 	}
 }
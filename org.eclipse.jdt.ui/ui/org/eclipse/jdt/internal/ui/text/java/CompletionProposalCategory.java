@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2013 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -276,6 +276,38 @@ public final class CompletionProposalCategory {
 		return false;
 	}
 
+	/**
+	 * Returns <code>true</code> if a computer of this category for the given partition must be
+	 * called in the UI thread.
+	 *
+	 * @param partition the partition
+	 * @return <code>true</code> if the proposals of this category must be computed in the UI
+	 *         thread
+	 */
+	public boolean requiresUIThread(String partition) {
+		List<CompletionProposalComputerDescriptor> descriptors= fRegistry.getProposalComputerDescriptors(partition);
+		for (CompletionProposalComputerDescriptor desc : descriptors) {
+			if (desc.getCategory() == this && desc.requiresUIThread())
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Records that the proposals of this category for the given partition have not been
+	 * computed within the latency budget of a content assist invocation.
+	 *
+	 * @param partition the partition
+	 * @param budget the latency budget in milliseconds
+	 */
+	void recordTimeout(String partition, long budget) {
+		List<CompletionProposalComputerDescriptor> descriptors= fRegistry.getProposalComputerDescriptors(partition);
+		for (CompletionProposalComputerDescriptor desc : descriptors) {
+			if (desc.getCategory() == this)
+				desc.recordTimeout(budget);
+		}
+	}
+
 	/**
 	 * @return sortOrder
 	 */
@@ -324,6 +356,12 @@ public final class CompletionProposalCategory {
 	 * Safely computes completion proposals of all computers of this category through their
 	 * extension. If an extension is disabled, throws an exception or otherwise does not adhere to
 	 * the contract described in {@link IJavaCompletionProposalComputer}, it is disabled.
+	 * <p>
+	 * If the monitor is canceled, the remaining computers are not called and the error message of
+	 * this category is not changed, since a category computed in a background thread is canceled
+	 * when it exceeds the latency budget while the UI thread may already read the error message of
+	 * the next invocation.
+	 * </p>
 	 *
 	 * @param context the invocation context passed on to the extension
 	 * @param partition the partition type where to invocation occurred
@@ -332,15 +370,19 @@ public final class CompletionProposalCategory {
 	 *         {@link org.eclipse.jface.text.contentassist.ICompletionProposal})
 	 */
 	public List<ICompletionProposal> computeCompletionProposals(ContentAssistInvocationContext context, String partition, SubProgressMonitor monitor) {
-		fLastError= null;
+		String lastError= null;
 		List<ICompletionProposal> result= new ArrayList<>();
 		List<CompletionProposalComputerDescriptor> descriptors= new ArrayList<>(fRegistry.getProposalComputerDescriptors(partition));
 		for (CompletionProposalComputerDescriptor desc : descriptors) {
+			if (monitor.isCanceled())
+				return result;
 			if (desc.getCategory() == this)
 				result.addAll(desc.computeCompletionProposals(context, monitor));
-			if (fLastError == null && desc.getErrorMessage() != null)
-				fLastError= desc.getErrorMessage();
+			if (lastError == null && desc.getErrorMessage() != null)
+				lastError= desc.getErrorMessage();
 		}
+		if (!monitor.isCanceled())
+			fLastError= lastError;
 		return result;
 	}
 
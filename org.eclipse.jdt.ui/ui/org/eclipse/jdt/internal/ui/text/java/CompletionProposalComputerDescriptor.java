@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2012 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -67,6 +67,8 @@ final class CompletionProposalComputerDescriptor {
 	private static final String ACTIVATE= "activate"; //$NON-NLS-1$
 	/** The extension schema name of the needsSortingAfterFiltering attribute. */
 	private static final String NEEDS_SORTING_AFTER_FILTERING= "needsSortingAfterFiltering"; //$NON-NLS-1$
+	/** The extension schema name of the requiresUIThread attribute. */
+	private static final String REQUIRES_UI_THREAD= "requiresUIThread"; //$NON-NLS-1$
 	/** The extension schema name of the partition child elements. */
 	private static final String PARTITION= "partition"; //$NON-NLS-1$
 	/** Set of Java partition types. */
@@ -147,6 +149,33 @@ final class CompletionProposalComputerDescriptor {
 	 */
 	private boolean fNeedsSortingAfterFiltering;
 
+	/**
+	 * Tells whether the computer must be called in the UI thread.
+	 */
+	private final boolean fRequiresUIThread;
+
+	/**
+	 * The number of completed proposal computations, guarded by <code>this</code>.
+	 */
+	private int fInvocationCount;
+
+	/**
+	 * The total time of all completed proposal computations in milliseconds, guarded by
+	 * <code>this</code>.
+	 */
+	private long fTotalTime;
+
+	/**
+	 * The longest time of a proposal computation in milliseconds, guarded by <code>this</code>.
+	 */
+	private long fMaxTime;
+
+	/**
+	 * The number of proposal computations which did not complete within the latency budget of a
+	 * content assist invocation, guarded by <code>this</code>.
+	 */
+	private int fTimeoutCount;
+
 
 	/**
 	 * Creates a new descriptor.
@@ -192,6 +221,9 @@ final class CompletionProposalComputerDescriptor {
 		String needsSortingAfterFilteringAttribute= element.getAttribute(NEEDS_SORTING_AFTER_FILTERING);
 		fNeedsSortingAfterFiltering= Boolean.valueOf(needsSortingAfterFilteringAttribute).booleanValue();
 
+		String requiresUIThreadAttribute= element.getAttribute(REQUIRES_UI_THREAD);
+		fRequiresUIThread= requiresUIThreadAttribute == null || Boolean.valueOf(requiresUIThreadAttribute).booleanValue();
+
 		fClass= element.getAttribute(CLASS);
 		checkNotNull(fClass, CLASS);
 
@@ -332,8 +364,10 @@ final class CompletionProposalComputerDescriptor {
 				return Collections.emptyList();
 
 			try {
+				long start= System.currentTimeMillis();
 				PerformanceStats stats= startMeter(context, computer);
 				List<ICompletionProposal> proposals= computer.computeCompletionProposals(context, monitor);
+				recordLatency(System.currentTimeMillis() - start);
 				stopMeter(stats, COMPUTE_COMPLETION_PROPOSALS);
 
 				if (proposals != null) {
@@ -506,6 +540,48 @@ final class CompletionProposalComputerDescriptor {
 		}
 	}
 
+	/**
+	 * Adds the time of a completed proposal computation to the latency statistics.
+	 *
+	 * @param time the time in milliseconds
+	 */
+	private synchronized void recordLatency(long time) {
+		fInvocationCount++;
+		fTotalTime+= time;
+		fMaxTime= Math.max(fMaxTime, time);
+	}
+
+	/**
+	 * Records that a proposal computation in a background thread did not complete within the
+	 * latency budget of a content assist invocation. The first time this happens, a warning is
+	 * logged.
+	 *
+	 * @param budget the latency budget in milliseconds
+	 */
+	void recordTimeout(long budget) {
+		boolean first;
+		synchronized (this) {
+			first= fTimeoutCount++ == 0;
+		}
+		if (first) {
+			String blame= createBlameMessage();
+			Object[] args= { COMPUTE_COMPLETION_PROPOSALS, Long.valueOf(budget) };
+			String reason= Messages.format(JavaTextMessages.CompletionProposalComputerDescriptor_reason_budget, args);
+			JavaPlugin.log(new Status(IStatus.WARNING, JavaPlugin.getPluginId(), IStatus.OK, blame + " " + reason + " " + getLatencyStatistics(), null)); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	/**
+	 * Returns a message describing the latency statistics of this computer.
+	 *
+	 * @return the latency statistics message
+	 */
+	synchronized String getLatencyStatistics() {
+		long average= fInvocationCount == 0 ? 0 : fTotalTime / fInvocationCount;
+		Object[] args= { Long.valueOf(average), Long.valueOf(fMaxTime), Integer.valueOf(fTimeoutCount), Integer.valueOf(fInvocationCount) };
+		return Messages.format(JavaTextMessages.CompletionProposalComputerDescriptor_latency_statistics, args);
+	}
+
 	private IStatus createExceptionStatus(InvalidRegistryObjectException x) {
 		// extension has become invalid - log & disable
 		String blame= createBlameMessage();
@@ -538,7 +614,7 @@ final class CompletionProposalComputerDescriptor {
 		String blame= createBlameMessage();
 		Object[] args= {operation};
 		String reason= Messages.format(JavaTextMessages.CompletionProposalComputerDescriptor_reason_performance, args);
-		return new Status(IStatus.WARNING, JavaPlugin.getPluginId(), IStatus.OK, blame + " " + reason, null); //$NON-NLS-1$
+		return new Status(IStatus.WARNING, JavaPlugin.getPluginId(), IStatus.OK, blame + " " + reason + " " + getLatencyStatistics(), null); //$NON-NLS-1$ //$NON-NLS-2$
 	}
 
 	private String createBlameMessage() {
@@ -556,6 +632,15 @@ final class CompletionProposalComputerDescriptor {
 		return fCategory.isEnabled();
 	}
 
+	/**
+	 * Tells whether the computer must be called in the UI thread.
+	 *
+	 * @return <code>true</code> if the computer must be called in the UI thread
+	 */
+	boolean requiresUIThread() {
+		return fRequiresUIThread;
+	}
+
 	CompletionProposalCategory getCategory() {
 		return fCategory;
 	}
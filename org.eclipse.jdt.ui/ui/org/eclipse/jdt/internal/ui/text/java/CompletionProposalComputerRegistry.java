@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -31,6 +31,7 @@ import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Link;
 
 import org.eclipse.core.runtime.CoreException;
@@ -433,6 +434,11 @@ public final class CompletionProposalComputerRegistry {
 	 * @param status a status object that will be logged
 	 */
 	void informUser(CompletionProposalComputerDescriptor descriptor, IStatus status) {
+		if (Display.getCurrent() == null) {
+			// computers which do not require the UI thread are called in background threads
+			Display.getDefault().asyncExec(() -> informUser(descriptor, status));
+			return;
+		}
 		JavaPlugin.log(status);
         String title= JavaTextMessages.CompletionProposalComputerRegistry_error_dialog_title;
         CompletionProposalCategory category= descriptor.getCategory();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2016 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -23,15 +23,22 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.SelectionAdapter;
 import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.graphics.Point;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Link;
 import org.eclipse.swt.widgets.Shell;
 
@@ -50,12 +57,15 @@ import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.resource.JFaceResources;
 
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.ITextViewer;
 import org.eclipse.jface.text.contentassist.ContentAssistEvent;
 import org.eclipse.jface.text.contentassist.ContentAssistant;
 import org.eclipse.jface.text.contentassist.ICompletionListener;
 import org.eclipse.jface.text.contentassist.ICompletionListenerExtension;
 import org.eclipse.jface.text.contentassist.ICompletionProposal;
+import org.eclipse.jface.text.contentassist.ICompletionProposalExtension2;
 import org.eclipse.jface.text.contentassist.IContentAssistProcessor;
 import org.eclipse.jface.text.contentassist.IContentAssistantExtension2;
 import org.eclipse.jface.text.contentassist.IContentAssistantExtension3;
@@ -93,6 +103,11 @@ import org.eclipse.jdt.internal.ui.dialogs.OptionalMessageDialog;
  * <li><code>getErrorMessage</code> to change error reporting</li>
  * </ul>
  * </p>
+ * <p>
+ * The categories which do not require the UI thread are computed in background threads. The
+ * proposals of those which exceed the budget of an invocation are merged into the open proposal
+ * popup when they are computed.
+ * </p>
  *
  * @since 3.2
  */
@@ -123,6 +138,7 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 			}
 
 			fRepetition= 0;
+			fInSession= true;
 			if (event.assistant instanceof IContentAssistantExtension2) {
 				IContentAssistantExtension2 extension= (IContentAssistantExtension2) event.assistant;
 
@@ -176,10 +192,24 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 			if (event.processor != ContentAssistProcessor.this)
 				return;
 
+			// categories which are still computed in a background thread are notified when they are done
+			Set<CompletionProposalCategory> computing= new HashSet<>();
+			for (BackgroundComputation computation : fPendingComputations) {
+				if (!computing.contains(computation.fCategory) && computation.endSession())
+					computing.add(computation.fCategory);
+				else
+					computation.cancel();
+			}
+			fPendingComputations.clear();
+			fLateProposals.clear();
+			fProposals= Collections.emptyList();
+
 			for (CompletionProposalCategory cat : getCategoriesToNotify()) {
-				cat.sessionEnded();
+				if (!computing.contains(cat))
+					cat.sessionEnded();
 			}
 
+			fInSession= false;
 			fSelectedProposal= null;
 			fCategoryIteration= null;
 			fRepetition= -1;
@@ -222,6 +252,131 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 	 */
 	private static final String PREF_WARN_ABOUT_EMPTY_ASSIST_CATEGORY= "EmptyDefaultAssistCategory"; //$NON-NLS-1$
 
+	/**
+	 * The time in milliseconds after the start of an invocation until which the proposals of
+	 * categories that are computed in background threads are waited for. The proposals of categories
+	 * that take longer are merged into the open proposal popup when they are computed. A budget of
+	 * 0 computes all categories in the UI thread.
+	 */
+	private static final long CODE_ASSIST_BUDGET= Long.getLong("org.eclipse.jdt.ui.codeAssistBudget", 1000).longValue(); // ms //$NON-NLS-1$
+
+	/**
+	 * The selected range of the viewer which the computers called in a background thread get from
+	 * {@link #getSelectedRange(ITextViewer)}.
+	 */
+	private static final ThreadLocal<Point> fgSelectedRange= new ThreadLocal<>();
+
+	/**
+	 * The progress monitor of a category computed in a background thread. It is canceled when
+	 * the proposals of the category are not needed any more.
+	 */
+	private static class BackgroundMonitor extends NullProgressMonitor {
+		private volatile boolean fCanceled;
+
+		@Override
+		public boolean isCanceled() {
+			return fCanceled;
+		}
+
+		@Override
+		public void setCanceled(boolean canceled) {
+			fCanceled= canceled;
+		}
+	}
+
+	/**
+	 * The computation of the proposals of a category in a background thread. Computations of the
+	 * same category do not overlap, since the computers are not required to be thread safe. The
+	 * flags are guarded by the computation.
+	 */
+	private final class BackgroundComputation implements Callable<List<ICompletionProposal>> {
+		final CompletionProposalCategory fCategory;
+		private final ContentAssistInvocationContext fContext;
+		private final Point fSelectedRange;
+		private final Display fDisplay;
+		private final BackgroundMonitor fMonitor= new BackgroundMonitor();
+		private boolean fDone;
+		private boolean fLate;
+		private boolean fSessionEnded;
+
+		/**
+		 * Creates the computation of a category. Has to be called in the UI thread, since it takes
+		 * a snapshot of the viewer state.
+		 *
+		 * @param category the category
+		 * @param viewer the text viewer
+		 * @param offset the offset
+		 */
+		BackgroundComputation(CompletionProposalCategory category, ITextViewer viewer, int offset) {
+			fCategory= category;
+			fContext= createBackgroundContext(viewer, offset);
+			fSelectedRange= viewer.getSelectedRange();
+			fDisplay= Display.getCurrent();
+		}
+
+		@Override
+		public List<ICompletionProposal> call() {
+			List<ICompletionProposal> proposals= Collections.emptyList();
+			boolean late;
+			synchronized (fCategory) {
+				fgSelectedRange.set(fSelectedRange);
+				try {
+					proposals= fCategory.computeCompletionProposals(fContext, fPartition, new SubProgressMonitor(fMonitor, 1));
+				} finally {
+					fgSelectedRange.remove();
+					boolean sessionEnded;
+					synchronized (this) {
+						fDone= true;
+						late= fLate;
+						sessionEnded= fSessionEnded;
+					}
+					if (sessionEnded)
+						fCategory.sessionEnded();
+				}
+			}
+			if (late && fDisplay != null && !fDisplay.isDisposed()) {
+				List<ICompletionProposal> computed= proposals;
+				fDisplay.asyncExec(() -> lateProposalsComputed(this, computed));
+			}
+			return proposals;
+		}
+
+		/**
+		 * Marks the proposals as late, i.e. they are not waited for any more.
+		 *
+		 * @return <code>true</code> if the proposals are passed to the UI thread when they are
+		 *         computed, <code>false</code> if they have already been computed
+		 */
+		synchronized boolean setLate() {
+			if (fDone)
+				return false;
+			fLate= true;
+			return true;
+		}
+
+		/**
+		 * Cancels the computation at the end of the content assist session.
+		 *
+		 * @return <code>true</code> if the computation notifies its category about the end of the
+		 *         session, <code>false</code> if it is already done
+		 */
+		synchronized boolean endSession() {
+			fMonitor.setCanceled(true);
+			if (fDone)
+				return false;
+			fSessionEnded= true;
+			return true;
+		}
+
+		void cancel() {
+			fMonitor.setCanceled(true);
+		}
+
+		boolean isCanceled() {
+			return fMonitor.isCanceled();
+		}
+	}
+
 	private static final Comparator<CompletionProposalCategory> ORDER_COMPARATOR= new Comparator<CompletionProposalCategory>() {
 
 		@Override
@@ -261,6 +416,14 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 	 */
 	private boolean fNeedsSortingAfterFiltering;
 
+	/* late proposals, only accessed in the UI thread */
+	private boolean fInSession;
+	private final List<BackgroundComputation> fPendingComputations= new ArrayList<>();
+	private List<ICompletionProposal> fProposals= Collections.emptyList();
+	private final List<ICompletionProposal> fLateProposals= new ArrayList<>();
+	private int fInvocationOffset;
+	private boolean fMergingLateProposals;
+
 
 	public ContentAssistProcessor(ContentAssistant assistant, String partition) {
 		Assert.isNotNull(partition);
@@ -277,6 +440,9 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 	 */
 	@Override
 	public final ICompletionProposal[] computeCompletionProposals(ITextViewer viewer, int offset) {
+		if (fMergingLateProposals)
+			return mergeLateProposals(viewer, offset);
+
 		long start= JavaPlugin.DEBUG_RESULT_COLLECTOR ? System.currentTimeMillis() : 0;
 
 		clearState();
@@ -297,6 +463,8 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 		else
 			proposals= sortProposals(proposals, monitor, context);
 		fNumberOfComputedResults= proposals.size();
+		fProposals= proposals;
+		fInvocationOffset= offset;
 		long filter= JavaPlugin.DEBUG_RESULT_COLLECTOR ? System.currentTimeMillis() : 0;
 
 		ICompletionProposal[] result= proposals.toArray(new ICompletionProposal[proposals.size()]);
@@ -327,11 +495,61 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 	 * @return the list of proposals
 	 */
 	private List<ICompletionProposal> collectProposals(ITextViewer viewer, int offset, IProgressMonitor monitor, ContentAssistInvocationContext context) {
+		long deadline= System.currentTimeMillis() + CODE_ASSIST_BUDGET;
+		// the late proposals of a previous invocation are obsolete
+		for (BackgroundComputation computation : fPendingComputations)
+			computation.cancel();
+		fLateProposals.clear();
+
+		List<CompletionProposalCategory> providers= getCategories();
+		List<List<ICompletionProposal>> results= new ArrayList<>(providers.size());
+		List<BackgroundComputation> computations= new ArrayList<>(providers.size());
+		List<Future<List<ICompletionProposal>>> futures= new ArrayList<>(providers.size());
+		boolean collected= false;
+		try {
+			// start the categories which do not need the UI thread first, so that they run while the others are computed
+			for (CompletionProposalCategory cat : providers) {
+				if (CODE_ASSIST_BUDGET > 0 && !cat.requiresUIThread(fPartition)) {
+					BackgroundComputation computation= new BackgroundComputation(cat, viewer, offset);
+					computations.add(computation);
+					futures.add(JavaPlugin.getDefault().getWorkerPool().submit(computation));
+				} else {
+					computations.add(null);
+					futures.add(null);
+				}
+			}
+			for (int i= 0; i < providers.size(); i++) {
+				if (computations.get(i) == null)
+					results.add(providers.get(i).computeCompletionProposals(context, fPartition, new SubProgressMonitor(monitor, 1)));
+				else
+					results.add(null);
+			}
+			for (int i= 0; i < providers.size(); i++) {
+				if (computations.get(i) != null) {
+					results.set(i, getResult(computations.get(i), futures.get(i), deadline));
+					monitor.worked(1);
+				}
+			}
+			collected= true;
+		} finally {
+			if (!collected) {
+				for (BackgroundComputation computation : computations) {
+					if (computation != null)
+						computation.cancel();
+				}
+			}
+		}
+
 		boolean needsSortingAfterFiltering= false;
 		List<ICompletionProposal> proposals= new ArrayList<>();
-		List<CompletionProposalCategory> providers= getCategories();
-		for (CompletionProposalCategory cat : providers) {
-			List<ICompletionProposal> computed= cat.computeCompletionProposals(context, fPartition, new SubProgressMonitor(monitor, 1));
+		for (int i= 0; i < providers.size(); i++) {
+			CompletionProposalCategory cat= providers.get(i);
+			List<ICompletionProposal> computed= results.get(i);
+			if (computed == null) {
+				// the category has exceeded the budget, its proposals are merged when they are computed
+				fPendingComputations.add(computations.get(i));
+				continue;
+			}
 			proposals.addAll(computed);
 			needsSortingAfterFiltering= needsSortingAfterFiltering || (cat.isSortingAfterFilteringNeeded() && !computed.isEmpty());
 			if (fErrorMessage == null)
@@ -340,9 +558,102 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 		if (fNeedsSortingAfterFiltering && !needsSortingAfterFiltering)
 			fAssistant.setSorter(null);
 		fNeedsSortingAfterFiltering= needsSortingAfterFiltering;
+		if (fInSession && !fPendingComputations.isEmpty())
+			fAssistant.setShowEmptyList(true); // keep the popup open for the late proposals
 		return proposals;
 	}
 
+	/**
+	 * Waits for the proposals of a category which are computed in a background thread. If the
+	 * category exceeds the budget, its proposals are passed to the UI thread when they are computed.
+	 *
+	 * @param computation the computation of the category
+	 * @param future the proposals of the category
+	 * @param deadline the time until which the proposals are waited for
+	 * @return the proposals, or <code>null</code> if they have not been computed in time
+	 */
+	private List<ICompletionProposal> getResult(BackgroundComputation computation, Future<List<ICompletionProposal>> future, long deadline) {
+		try {
+			try {
+				return future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				if (!computation.setLate())
+					return future.get(); // computed in the meantime
+				computation.fCategory.recordTimeout(fPartition, CODE_ASSIST_BUDGET);
+				if (JavaPlugin.DEBUG_RESULT_COLLECTOR)
+					System.err.println("Code Assist (budget exceeded):\t" + computation.fCategory.getId()); //$NON-NLS-1$
+				return null;
+			}
+		} catch (ExecutionException e) {
+			JavaPlugin.log(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Merges the proposals of a category which has exceeded the budget into the open proposal
+	 * popup. Called in the UI thread.
+	 *
+	 * @param computation the computation of the category
+	 * @param proposals the proposals of the category
+	 */
+	private void lateProposalsComputed(BackgroundComputation computation, List<ICompletionProposal> proposals) {
+		if (!fPendingComputations.remove(computation) || !fInSession || computation.isCanceled() || proposals.isEmpty())
+			return;
+
+		fLateProposals.addAll(proposals);
+		if (fErrorMessage == null)
+			fErrorMessage= computation.fCategory.getErrorMessage();
+		if (computation.fCategory.isSortingAfterFilteringNeeded() && !fNeedsSortingAfterFiltering) {
+			fNeedsSortingAfterFiltering= true;
+			setContentAssistSorter();
+		}
+
+		// the open popup recomputes its proposals in repeated invocation mode only
+		int repetition= fRepetition;
+		fMergingLateProposals= true;
+		try {
+			fAssistant.setRepeatedInvocationMode(true);
+			fAssistant.showPossibleCompletions();
+		} finally {
+			fMergingLateProposals= false;
+			fAssistant.setRepeatedInvocationMode(fCategoryIteration != null && fCategoryIteration.size() > 1);
+			fRepetition= repetition;
+		}
+	}
+
+	/**
+	 * Returns the proposals shown last together with the late proposals. The proposals which are
+	 * not valid any more since the user has continued typing are removed.
+	 *
+	 * @param viewer the text viewer
+	 * @param offset the offset
+	 * @return the merged proposals
+	 */
+	private ICompletionProposal[] mergeLateProposals(ITextViewer viewer, int offset) {
+		List<ICompletionProposal> proposals= new ArrayList<>(fProposals);
+		proposals.addAll(fLateProposals);
+		fLateProposals.clear();
+
+		if (offset != fInvocationOffset) {
+			IDocument document= viewer.getDocument();
+			for (Iterator<ICompletionProposal> it= proposals.iterator(); it.hasNext();) {
+				ICompletionProposal proposal= it.next();
+				if (proposal instanceof ICompletionProposalExtension2 && !((ICompletionProposalExtension2) proposal).validate(document, offset, null))
+					it.remove();
+			}
+		}
+
+		if (!fNeedsSortingAfterFiltering)
+			proposals= sortProposals(proposals, new NullProgressMonitor(), createContext(viewer, offset));
+		fNumberOfComputedResults= proposals.size();
+		fProposals= proposals;
+		fInvocationOffset= offset;
+		return proposals.toArray(new ICompletionProposal[proposals.size()]);
+	}
+
 	/**
 	 * Filters and sorts the proposals. The passed list may be modified
 	 * and returned, or a new list may be created and returned.
@@ -482,6 +793,45 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 		return new ContentAssistInvocationContext(viewer, offset);
 	}
 
+	/**
+	 * Creates the context passed to the computers of a category which are called in a background
+	 * thread. Every such category gets its own context, since the lazily computed values of a
+	 * context are not synchronized. The context is created in the UI thread and has to be
+	 * initialized so far that the computers do not need to access the viewer.
+	 * <p>
+	 * The default implementation creates the context with {@link #createContext(ITextViewer, int)}
+	 * and computes its identifier prefix.
+	 * </p>
+	 *
+	 * @param viewer the text viewer
+	 * @param offset the offset
+	 * @return the context for one category
+	 */
+	protected ContentAssistInvocationContext createBackgroundContext(ITextViewer viewer, int offset) {
+		ContentAssistInvocationContext context= createContext(viewer, offset);
+		try {
+			context.computeIdentifierPrefix();
+		} catch (BadLocationException e) {
+			// the computers get the exception when they compute the prefix
+		}
+		return context;
+	}
+
+	/**
+	 * Returns the selected range of the viewer. The computers which are called in a background
+	 * thread must use this method instead of {@link ITextViewer#getSelectedRange()}, since they
+	 * get a snapshot of the selected range which is taken in the UI thread.
+	 *
+	 * @param viewer the viewer that content assist is invoked on
+	 * @return the selected range of the viewer
+	 */
+	public static Point getSelectedRange(ITextViewer viewer) {
+		Point selectedRange= fgSelectedRange.get();
+		if (selectedRange != null)
+			return new Point(selectedRange.x, selectedRange.y);
+		return viewer.getSelectedRange();
+	}
+
 	private List<CompletionProposalCategory> getCategories() {
 		if (fCategoryIteration == null)
 			return fCategories;
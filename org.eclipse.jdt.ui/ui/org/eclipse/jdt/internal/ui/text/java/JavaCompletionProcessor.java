@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -128,4 +128,15 @@ public class JavaCompletionProcessor extends ContentAssistProcessor {
 	protected ContentAssistInvocationContext createContext(ITextViewer viewer, int offset) {
 		return new JavaContentAssistInvocationContext(viewer, offset, fEditor);
 	}
+
+	/*
+	 * @see org.eclipse.jdt.internal.ui.text.java.ContentAssistProcessor#createBackgroundContext(org.eclipse.jface.text.ITextViewer, int)
+	 */
+	@Override
+	protected ContentAssistInvocationContext createBackgroundContext(ITextViewer viewer, int offset) {
+		JavaContentAssistInvocationContext context= (JavaContentAssistInvocationContext) super.createBackgroundContext(viewer, offset);
+		// the compilation unit is looked up from the editor input
+		context.getCompilationUnit();
+		return context;
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -21,6 +21,8 @@ import java.util.List;
 
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
 
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -132,10 +134,7 @@ public class JavaCompletionProposalComputer implements IJavaCompletionProposalCo
 
 	private String fErrorMessage;
 
-	private final IProgressMonitor fTimeoutProgressMonitor;
-
 	public JavaCompletionProposalComputer() {
-		fTimeoutProgressMonitor= createTimeoutProgressMonitor(JAVA_CODE_ASSIST_TIMEOUT);
 	}
 
 	protected int guessContextInformationPosition(ContentAssistInvocationContext context) {
@@ -212,12 +211,12 @@ public class JavaCompletionProposalComputer implements IJavaCompletionProposalCo
 	public List<ICompletionProposal> computeCompletionProposals(ContentAssistInvocationContext context, IProgressMonitor monitor) {
 		if (context instanceof JavaContentAssistInvocationContext) {
 			JavaContentAssistInvocationContext javaContext= (JavaContentAssistInvocationContext) context;
-			return internalComputeCompletionProposals(context.getInvocationOffset(), javaContext);
+			return internalComputeCompletionProposals(context.getInvocationOffset(), javaContext, monitor);
 		}
 		return Collections.emptyList();
 	}
 
-	private List<ICompletionProposal> internalComputeCompletionProposals(int offset, JavaContentAssistInvocationContext context) {
+	private List<ICompletionProposal> internalComputeCompletionProposals(int offset, JavaContentAssistInvocationContext context, IProgressMonitor monitor) {
 		ICompilationUnit unit= context.getCompilationUnit();
 		if (unit == null)
 			return Collections.emptyList();
@@ -247,20 +246,31 @@ public class JavaCompletionProposalComputer implements IJavaCompletionProposalCo
 		collector.setFavoriteReferences(getFavoriteStaticMembers());
 
 		try {
-			Point selection= viewer.getSelectedRange();
+			Point selection= ContentAssistProcessor.getSelectedRange(viewer);
 			if (selection.y > 0)
 				collector.setReplacementLength(selection.y);
-			unit.codeComplete(offset, collector, fTimeoutProgressMonitor);
+			unit.codeComplete(offset, collector, createTimeoutProgressMonitor(JAVA_CODE_ASSIST_TIMEOUT, monitor));
 		} catch (OperationCanceledException x) {
 			IBindingService bindingSvc= PlatformUI.getWorkbench().getAdapter(IBindingService.class);
 			String keyBinding= bindingSvc.getBestActiveBindingFormattedFor(IWorkbenchCommandConstants.EDIT_CONTENT_ASSIST);
 			fErrorMessage= Messages.format(JavaTextMessages.CompletionProcessor_error_javaCompletion_took_too_long_message, keyBinding);
 		} catch (JavaModelException x) {
-			Shell shell= viewer.getTextWidget().getShell();
-			if (x.isDoesNotExist() && !unit.getJavaProject().isOnClasspath(unit))
-				MessageDialog.openInformation(shell, JavaTextMessages.CompletionProcessor_error_notOnBuildPath_title, JavaTextMessages.CompletionProcessor_error_notOnBuildPath_message);
+			boolean notOnBuildPath= x.isDoesNotExist() && !unit.getJavaProject().isOnClasspath(unit);
+			Control control= viewer.getTextWidget();
+			Runnable runnable= () -> {
+				if (control.isDisposed())
+					return;
+				Shell shell= control.getShell();
+				if (notOnBuildPath)
+					MessageDialog.openInformation(shell, JavaTextMessages.CompletionProcessor_error_notOnBuildPath_title, JavaTextMessages.CompletionProcessor_error_notOnBuildPath_message);
+				else
+					ErrorDialog.openError(shell, JavaTextMessages.CompletionProcessor_error_accessing_title, JavaTextMessages.CompletionProcessor_error_accessing_message, x.getStatus());
+			};
+			// the proposals may be computed in a background thread
+			if (Display.getCurrent() != null)
+				runnable.run();
 			else
-				ErrorDialog.openError(shell, JavaTextMessages.CompletionProcessor_error_accessing_title, JavaTextMessages.CompletionProcessor_error_accessing_message, x.getStatus());
+				control.getDisplay().asyncExec(runnable);
 		}
 
 		ICompletionProposal[] javaProposals= collector.getJavaCompletionProposals();
@@ -284,13 +294,15 @@ public class JavaCompletionProposalComputer implements IJavaCompletionProposalCo
 	}
 
 	/**
-	 * Returns a new progress monitor that get cancelled after the given timeout.
+	 * Returns a new progress monitor that get cancelled after the given timeout or when the given
+	 * monitor is canceled.
 	 * 
 	 * @param timeout the timeout in ms
+	 * @param monitor the progress monitor of the computation, may be <code>null</code>
 	 * @return the progress monitor
 	 * @since 3.5
 	 */
-	private IProgressMonitor createTimeoutProgressMonitor(final long timeout) {
+	private IProgressMonitor createTimeoutProgressMonitor(final long timeout, final IProgressMonitor monitor) {
 		return new IProgressMonitor() {
 
 			private long fEndTime;
@@ -301,7 +313,7 @@ public class JavaCompletionProposalComputer implements IJavaCompletionProposalCo
 			}
 			@Override
 			public boolean isCanceled() {
-				return fEndTime <= System.currentTimeMillis();
+				return fEndTime <= System.currentTimeMillis() || monitor != null && monitor.isCanceled();
 			}
 			@Override
 			public void done() {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2017 IBM Corporation and others.
+ * Copyright (c) 2008, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -79,6 +79,7 @@ import org.eclipse.jdt.core.SourceRange;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
+import org.eclipse.jdt.core.dom.Comment;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.IBinding;
 import org.eclipse.jdt.core.dom.IVariableBinding;
@@ -567,6 +568,52 @@ public class JavadocContentAccess2 {
 		return sourceJavadoc;
 	}
 
+	/**
+	 * Gets the Javadoc of several members of a type rendered in HTML, like
+	 * {@link #getHTMLContent(IJavaElement, boolean)} with attached Javadoc. The
+	 * source of the type is parsed once for all members, instead of parsing the
+	 * comment of each member on its own.
+	 *
+	 * @param type the type whose source contains the members
+	 * @param members the members
+	 * @return the Javadoc in HTML by member, with <code>null</code> values for
+	 *         members which do not have a Javadoc comment
+	 * @throws CoreException if the Javadoc of a member cannot be accessed
+	 */
+	static Map<IMember, String> getHTMLContents(IType type, List<IMember> members) throws CoreException {
+		String source= null;
+		Map<Integer, Javadoc> javadocs= new HashMap<>();
+		IBuffer buf= type.getOpenable().getBuffer();
+		if (buf != null) {
+			source= buf.getContents();
+			CompilationUnit root= createAST(type, source);
+			List<Comment> comments= root.getCommentList();
+			for (Iterator<Comment> iter= comments.iterator(); iter.hasNext();) {
+				Comment comment= iter.next();
+				if (comment.isDocComment())
+					javadocs.put(Integer.valueOf(comment.getStartPosition()), (Javadoc) comment);
+			}
+		}
+		Map<IMember, String> result= new HashMap<>();
+		for (Iterator<IMember> iter= members.iterator(); iter.hasNext();) {
+			IMember member= iter.next();
+			String content= null;
+			ISourceRange javadocRange= source != null ? member.getJavadocRange() : null;
+			Javadoc javadoc= javadocRange != null ? javadocs.get(Integer.valueOf(javadocRange.getOffset())) : null;
+			if (javadoc != null) {
+				if (canInheritJavadoc(member))
+					content= new JavadocContentAccess2(member, javadoc, source, new JavadocLookup(member.getDeclaringType())).toHTML();
+				else
+					content= new JavadocContentAccess2(member, javadoc, source).toHTML();
+			}
+			// members without a comment of their own may inherit one
+			if (content == null || content.length() == 0 || content.trim().equals("{@inheritDoc}")) //$NON-NLS-1$
+				content= getHTMLContent(member, true);
+			result.put(member, content);
+		}
+		return result;
+	}
+
 	private static StringBuffer createSuperMethodReferences(final IMethod method) throws JavaModelException {
 		IType type= method.getDeclaringType();
 		ITypeHierarchy hierarchy= SuperTypeHierarchyCache.getTypeHierarchy(type);
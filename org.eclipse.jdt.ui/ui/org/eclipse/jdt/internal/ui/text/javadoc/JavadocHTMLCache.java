@@ -0,0 +1,470 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.javadoc;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.eclipse.core.resources.IResource;
+
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IMember;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaModelException;
+
+import org.eclipse.jdt.internal.corext.javadoc.JavaDocLocations;
+import org.eclipse.jdt.internal.corext.util.JavaModelUtil;
+import org.eclipse.jdt.internal.corext.util.SuperTypeHierarchyCache;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * Cache for the Javadoc HTML of members of libraries, as rendered by
+ * {@link JavadocContentAccess2#getHTMLContent(IJavaElement, boolean)}.
+ * <p>
+ * Rendering the Javadoc of a library member parses the attached source and
+ * walks the super types for inherited comments, which is too slow to be
+ * repeated for every hover. The HTML is cached by the handle identifier of the
+ * element and a stamp of its library, which changes when the archive, the
+ * source attachment or the Javadoc location change. The stamp of a method also
+ * covers the libraries of its super types, since its Javadoc may be inherited
+ * from them. Recently used entries are kept in memory, entries with content are
+ * also written to the state location of the plug-in. That an element has no
+ * Javadoc is only remembered in memory and for a limited time, since attached
+ * Javadoc may be missing because its location could not be reached.
+ * </p>
+ * <p>
+ * When the HTML of a member has to be rendered, the HTML of the other members
+ * of its type is rendered in the background, since they are likely to be
+ * hovered next. This is only done for libraries with attached source, so that
+ * attached Javadoc is not fetched from remote locations in the background.
+ * </p>
+ * <p>
+ * Members of source folders are not cached, since their Javadoc changes with
+ * every edit. Neither are methods which may inherit Javadoc from source folders.
+ * </p>
+ */
+public class JavadocHTMLCache {
+
+	/**
+	 * The version of the rendered HTML, to be incremented whenever
+	 * {@link JavadocContentAccess2} renders differently
+	 */
+	private static final int FORMAT_VERSION= 2;
+
+	/**
+	 * The maximal number of entries in memory
+	 */
+	private static final int MAX_ENTRIES= 256;
+
+	/**
+	 * The maximal number of entries on disk
+	 */
+	private static final int MAX_DISK_ENTRIES= 10000;
+
+	/**
+	 * The number of entries written between two checks of
+	 * {@link #MAX_DISK_ENTRIES}
+	 */
+	private static final int DISK_CHECK_INTERVAL= 500;
+
+	/**
+	 * The maximal number of members which are rendered in the background after
+	 * a member has been rendered
+	 */
+	private static final int MAX_PREFETCH= 100;
+
+	/**
+	 * The time in milliseconds after which the Javadoc of an element which had
+	 * none is rendered again
+	 */
+	private static final long NO_CONTENT_TIMEOUT= 5 * 60 * 1000;
+
+	private static final String CACHE_FOLDER= "javadocCache"; //$NON-NLS-1$
+
+	private static JavadocHTMLCache fgInstance;
+
+	private static final class CacheEntry {
+		final String fStamp;
+
+		/**
+		 * The HTML, or <code>null</code> if the element has no Javadoc
+		 */
+		final String fContent;
+
+		/**
+		 * The time when the entry has been created
+		 */
+		final long fTime;
+
+		CacheEntry(String stamp, String content) {
+			fStamp= stamp;
+			fContent= content;
+			fTime= System.currentTimeMillis();
+		}
+	}
+
+	private class PrefetchJob extends Job {
+
+		PrefetchJob() {
+			super(JavaDocMessages.JavadocHTMLCache_prefetch_job);
+			setSystem(true);
+			setPriority(Job.DECORATE);
+		}
+
+		@Override
+		public boolean belongsTo(Object family) {
+			return family == JavadocHTMLCache.this;
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			while (!monitor.isCanceled()) {
+				IType type;
+				synchronized (JavadocHTMLCache.this) {
+					type= fPrefetchQueue.poll();
+					if (type == null)
+						break;
+					fPrefetchTypes.remove(type);
+				}
+				try {
+					prefetch(type);
+				} catch (CoreException e) {
+					// rendered again when requested
+				}
+			}
+			return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+		}
+	}
+
+	/**
+	 * The entries by key, least recently used first
+	 */
+	private final LinkedHashMap<String, CacheEntry> fEntries= new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+		private static final long serialVersionUID= 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	/**
+	 * The types whose members are rendered in the background
+	 */
+	private final LinkedList<IType> fPrefetchQueue= new LinkedList<>();
+
+	private final Set<IType> fPrefetchTypes= new HashSet<>();
+
+	private final PrefetchJob fPrefetchJob= new PrefetchJob();
+
+	/**
+	 * The folder of the entries on disk, or <code>null</code> if entries are
+	 * only kept in memory
+	 */
+	private final File fFolder;
+
+	private final long fNoContentTimeout;
+
+	private int fWriteCount;
+
+	/**
+	 * Creates a cache. Clients should use the shared cache returned by
+	 * {@link #getDefault()}; the background jobs of a cache are members of the
+	 * family of the cache.
+	 *
+	 * @param folder the folder of the entries on disk, or <code>null</code> to keep
+	 *            entries in memory only
+	 * @param noContentTimeout the time in milliseconds after which the Javadoc of
+	 *            an element which had none is rendered again
+	 */
+	public JavadocHTMLCache(File folder, long noContentTimeout) {
+		fFolder= folder;
+		fNoContentTimeout= noContentTimeout;
+	}
+
+	/**
+	 * @return the shared cache
+	 */
+	public static synchronized JavadocHTMLCache getDefault() {
+		if (fgInstance == null) {
+			JavaPlugin plugin= JavaPlugin.getDefault();
+			File folder= plugin != null ? plugin.getStateLocation().append(CACHE_FOLDER).toFile() : null;
+			fgInstance= new JavadocHTMLCache(folder, NO_CONTENT_TIMEOUT);
+		}
+		return fgInstance;
+	}
+
+	/**
+	 * Gets the Javadoc of the given element rendered in HTML, from the cache if
+	 * possible.
+	 *
+	 * @param element the element to get the Javadoc of
+	 * @param useAttachedJavadoc if <code>true</code> Javadoc will be extracted from attached Javadoc
+	 *            if there's no source
+	 * @return the Javadoc comment content in HTML or <code>null</code> if the element
+	 *         does not have a Javadoc comment or if no source is available
+	 * @throws CoreException is thrown when the element's Javadoc cannot be accessed
+	 * @see JavadocContentAccess2#getHTMLContent(IJavaElement, boolean)
+	 */
+	public String getHTMLContent(IJavaElement element, boolean useAttachedJavadoc) throws CoreException {
+		String stamp= getStamp(element);
+		if (stamp == null)
+			return JavadocContentAccess2.getHTMLContent(element, useAttachedJavadoc);
+		String key= getKey(element, useAttachedJavadoc);
+		CacheEntry entry= getCachedEntry(key, stamp);
+		if (entry == null) {
+			entry= readEntry(key, stamp);
+			if (entry == null) {
+				prefetchMembers(element);
+				entry= new CacheEntry(stamp, JavadocContentAccess2.getHTMLContent(element, useAttachedJavadoc));
+				putEntry(key, entry);
+			} else {
+				synchronized (this) {
+					fEntries.put(key, entry);
+				}
+			}
+		}
+		return entry.fContent;
+	}
+
+	/**
+	 * Returns the entry in memory for the given key, unless its stamp differs
+	 * or it has no content and has timed out.
+	 */
+	private synchronized CacheEntry getCachedEntry(String key, String stamp) {
+		CacheEntry entry= fEntries.get(key);
+		if (entry == null || !entry.fStamp.equals(stamp))
+			return null;
+		if (entry.fContent == null && System.currentTimeMillis() - entry.fTime >= fNoContentTimeout) {
+			fEntries.remove(key);
+			return null;
+		}
+		return entry;
+	}
+
+	/**
+	 * Puts an entry in memory and, if it has content, writes it to disk.
+	 */
+	private void putEntry(String key, CacheEntry entry) {
+		synchronized (this) {
+			fEntries.put(key, entry);
+		}
+		if (entry.fContent != null)
+			writeEntry(key, entry);
+	}
+
+	/**
+	 * Renders the Javadoc of the other members of the type of the given
+	 * element in the background.
+	 */
+	private void prefetchMembers(IJavaElement element) throws JavaModelException {
+		IPackageFragmentRoot root= (IPackageFragmentRoot) element.getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT);
+		if (root.getSourceAttachmentPath() == null)
+			return;
+		IType type= element instanceof IType ? (IType) element : (IType) element.getAncestor(IJavaElement.TYPE);
+		if (type == null)
+			return;
+		synchronized (this) {
+			if (!fPrefetchTypes.add(type))
+				return;
+			fPrefetchQueue.add(type);
+		}
+		fPrefetchJob.schedule();
+	}
+
+	/**
+	 * Renders the Javadoc of the members of the given type which are not cached
+	 * yet. The source of the type is parsed once for all of them.
+	 */
+	private void prefetch(IType type) throws CoreException {
+		IJavaElement[] children= type.getChildren();
+		List<IMember> members= new ArrayList<>();
+		Map<IMember, String> stamps= new LinkedHashMap<>();
+		for (int i= 0; i < children.length && members.size() < MAX_PREFETCH; i++) {
+			if (!(children[i] instanceof IMember))
+				continue;
+			IMember member= (IMember) children[i];
+			String stamp= getStamp(member);
+			if (stamp == null)
+				continue;
+			String key= getKey(member, true);
+			if (getCachedEntry(key, stamp) != null || readEntry(key, stamp) != null)
+				continue;
+			members.add(member);
+			stamps.put(member, stamp);
+		}
+		if (members.isEmpty())
+			return;
+		Map<IMember, String> contents= JavadocContentAccess2.getHTMLContents(type, members);
+		for (Iterator<IMember> iter= members.iterator(); iter.hasNext();) {
+			IMember member= iter.next();
+			putEntry(getKey(member, true), new CacheEntry(stamps.get(member), contents.get(member)));
+		}
+	}
+
+	/**
+	 * Returns the stamp of the libraries which the Javadoc of the given
+	 * element is rendered from.
+	 *
+	 * @param element the element
+	 * @return the stamp, or <code>null</code> if the Javadoc of the element
+	 *         is not cached
+	 * @throws JavaModelException if the library cannot be accessed
+	 */
+	private static String getStamp(IJavaElement element) throws JavaModelException {
+		if (!(element instanceof IMember))
+			return null;
+		IPackageFragmentRoot root= (IPackageFragmentRoot) element.getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT);
+		if (root == null || root.getKind() != IPackageFragmentRoot.K_BINARY)
+			return null;
+		StringBuilder stamp= new StringBuilder();
+		stamp.append(FORMAT_VERSION);
+		appendStamp(stamp, root);
+		if (element instanceof IMethod && !((IMethod) element).isConstructor() && element.getJavaProject().exists()) {
+			// {@inheritDoc} and missing comments are resolved from the super types
+			IType type= ((IMethod) element).getDeclaringType();
+			IType[] superTypes= SuperTypeHierarchyCache.getTypeHierarchy(type).getAllSupertypes(type);
+			Map<String, IPackageFragmentRoot> superRoots= new TreeMap<>();
+			for (int i= 0; i < superTypes.length; i++) {
+				IPackageFragmentRoot superRoot= JavaModelUtil.getPackageFragmentRoot(superTypes[i]);
+				if (superRoot.getKind() != IPackageFragmentRoot.K_BINARY)
+					return null;
+				if (!superRoot.equals(root))
+					superRoots.put(superRoot.getPath().toString(), superRoot);
+			}
+			for (Iterator<IPackageFragmentRoot> iter= superRoots.values().iterator(); iter.hasNext();)
+				appendStamp(stamp, iter.next());
+		}
+		return stamp.toString();
+	}
+
+	private static void appendStamp(StringBuilder stamp, IPackageFragmentRoot root) throws JavaModelException {
+		appendFileStamp(stamp, root.getResource(), root.getPath());
+		IPath sourceAttachment= root.getSourceAttachmentPath();
+		if (sourceAttachment != null) {
+			IResource resource= root.getJavaModel().getWorkspace().getRoot().findMember(sourceAttachment);
+			appendFileStamp(stamp, resource, sourceAttachment);
+		}
+		URL javadocLocation= JavaDocLocations.getJavadocBaseLocation(root);
+		if (javadocLocation != null)
+			stamp.append('|').append(javadocLocation.toExternalForm());
+	}
+
+	private static void appendFileStamp(StringBuilder stamp, IResource resource, IPath path) {
+		File file= null;
+		if (resource != null) {
+			IPath location= resource.getLocation();
+			if (location != null)
+				file= location.toFile();
+		} else {
+			file= path.toFile();
+		}
+		stamp.append('|').append(path);
+		if (file != null)
+			stamp.append('|').append(file.length()).append('|').append(file.lastModified());
+	}
+
+	private static String getKey(IJavaElement element, boolean useAttachedJavadoc) {
+		return element.getHandleIdentifier() + (useAttachedJavadoc ? "|attached" : ""); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private static File getCacheFile(File folder, String key) {
+		return new File(folder, Integer.toHexString(key.hashCode()) + ".html"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Reads an entry from disk. An entry file consists of the key and the
+	 * stamp, each on its own line, followed by the content. Only entries with
+	 * content are written to disk.
+	 */
+	private CacheEntry readEntry(String key, String stamp) {
+		if (fFolder == null)
+			return null;
+		File file= getCacheFile(fFolder, key);
+		if (!file.isFile())
+			return null;
+		try {
+			String text= new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+			String header= key + '\n' + stamp + '\n';
+			if (!text.startsWith(header))
+				return null;
+			return new CacheEntry(stamp, text.substring(header.length()));
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private void writeEntry(String key, CacheEntry entry) {
+		if (fFolder == null)
+			return;
+		File file= getCacheFile(fFolder, key);
+		File temp= new File(file.getPath() + '.' + Thread.currentThread().getId() + ".tmp"); //$NON-NLS-1$
+		StringBuilder text= new StringBuilder();
+		text.append(key).append('\n').append(entry.fStamp).append('\n');
+		text.append(entry.fContent);
+		try {
+			fFolder.mkdirs();
+			Files.write(temp.toPath(), text.toString().getBytes(StandardCharsets.UTF_8));
+			if (file.exists() && !file.delete() || !temp.renameTo(file))
+				temp.delete();
+		} catch (IOException e) {
+			temp.delete();
+			JavaPlugin.log(e);
+			return;
+		}
+		boolean check;
+		synchronized (this) {
+			check= ++fWriteCount % DISK_CHECK_INTERVAL == 0;
+		}
+		if (check)
+			trimFolder(fFolder);
+	}
+
+	/**
+	 * Deletes the least recently written entries on disk if there are more
+	 * than {@link #MAX_DISK_ENTRIES}.
+	 */
+	private static void trimFolder(File folder) {
+		File[] files= folder.listFiles();
+		if (files == null || files.length <= MAX_DISK_ENTRIES)
+			return;
+		Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+		for (int i= 0; i < files.length - MAX_DISK_ENTRIES * 3 / 4; i++)
+			files[i].delete();
+	}
+}
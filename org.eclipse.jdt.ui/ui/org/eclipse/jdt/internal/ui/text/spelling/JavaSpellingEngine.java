@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,6 +13,14 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.ui.text.spelling;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
 import org.eclipse.core.runtime.AssertionFailedException;
 import org.eclipse.core.runtime.IProgressMonitor;
 
@@ -28,15 +36,128 @@ import org.eclipse.jdt.ui.PreferenceConstants;
 import org.eclipse.jdt.ui.text.IJavaPartitions;
 
 import org.eclipse.jdt.internal.ui.text.spelling.engine.ISpellChecker;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.ISpellEvent;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.ISpellEventListener;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.RankedWordProposal;
 
 
 /**
  * Java spelling engine
+ * <p>
+ * The spell events of the partitions of each document are remembered, so that
+ * only partitions whose content has changed since the last check are checked
+ * again. The events are forgotten whenever the state of the spell checker
+ * changes, see {@link ISpellChecker#getModificationStamp()}.
+ * </p>
  *
  * @since 3.1
  */
 public class JavaSpellingEngine extends SpellingEngine {
 
+	/**
+	 * The spell events of the partitions of a document in the last check.
+	 */
+	private static class PartitionEvents {
+
+		/** The spell checker which has created the events */
+		final ISpellChecker fChecker;
+
+		/** The modification stamp of the spell checker */
+		final long fStamp;
+
+		/** The line delimiter of the document */
+		final String fDelimiter;
+
+		/** The events keyed by partition type and content */
+		final Map<String, RecordedEvents> fEvents;
+
+		PartitionEvents(ISpellChecker checker, long stamp, String delimiter, Map<String, RecordedEvents> events) {
+			fChecker= checker;
+			fStamp= stamp;
+			fDelimiter= delimiter;
+			fEvents= events;
+		}
+	}
+
+	/**
+	 * The spell events of a partition.
+	 */
+	private static class RecordedEvents {
+
+		/** The offset of the partition when the events have been recorded */
+		final int fOffset;
+
+		/** The recorded events */
+		final List<ISpellEvent> fEvents= new ArrayList<>();
+
+		RecordedEvents(int offset) {
+			fOffset= offset;
+		}
+
+		/**
+		 * Sends the recorded events to the given listener.
+		 *
+		 * @param listener the listener
+		 * @param offset the current offset of the partition
+		 */
+		void replay(ISpellEventListener listener, int offset) {
+			for (int index= 0; index < fEvents.size(); index++) {
+				ISpellEvent event= fEvents.get(index);
+				listener.handle(offset == fOffset ? event : new MovedSpellEvent(event, offset - fOffset));
+			}
+		}
+	}
+
+	/**
+	 * A recorded spell event of a partition which has moved.
+	 */
+	private static class MovedSpellEvent implements ISpellEvent {
+
+		private final ISpellEvent fEvent;
+
+		private final int fDelta;
+
+		MovedSpellEvent(ISpellEvent event, int delta) {
+			fEvent= event;
+			fDelta= delta;
+		}
+
+		@Override
+		public int getBegin() {
+			return fEvent.getBegin() + fDelta;
+		}
+
+		@Override
+		public int getEnd() {
+			return fEvent.getEnd() + fDelta;
+		}
+
+		@Override
+		public Set<RankedWordProposal> getProposals() {
+			return fEvent.getProposals();
+		}
+
+		@Override
+		public String getWord() {
+			return fEvent.getWord();
+		}
+
+		@Override
+		public boolean isMatch() {
+			return fEvent.isMatch();
+		}
+
+		@Override
+		public boolean isStart() {
+			return fEvent.isStart();
+		}
+	}
+
+	/**
+	 * The spell events of the last check of each document
+	 */
+	private final Map<IDocument, PartitionEvents> fPartitionEvents= Collections.synchronizedMap(new WeakHashMap<IDocument, PartitionEvents>());
+
 
 	/*
 	 * @see org.eclipse.jdt.internal.ui.text.spelling.SpellingEngine#check(org.eclipse.jface.text.IDocument, org.eclipse.jface.text.IRegion[], org.eclipse.jdt.internal.ui.text.spelling.engine.ISpellChecker, org.eclipse.ui.texteditor.spelling.ISpellingProblemCollector, org.eclipse.core.runtime.IProgressMonitor)
@@ -45,6 +166,16 @@ public class JavaSpellingEngine extends SpellingEngine {
 	protected void check(IDocument document, IRegion[] regions, ISpellChecker checker, ISpellingProblemCollector collector, IProgressMonitor monitor) {
 		SpellEventListener listener= new SpellEventListener(collector, document);
 		boolean isIgnoringJavaStrings= PreferenceConstants.getPreferenceStore().getBoolean(PreferenceConstants.SPELLING_IGNORE_JAVA_STRINGS);
+
+		long stamp= checker.getModificationStamp();
+		String delimiter= TextUtilities.getDefaultLineDelimiter(document);
+		PartitionEvents previous= fPartitionEvents.get(document);
+		Map<String, RecordedEvents> previousEvents= Collections.emptyMap();
+		if (previous != null && previous.fChecker == checker && previous.fStamp == stamp && previous.fDelimiter.equals(delimiter))
+			previousEvents= previous.fEvents;
+		Map<String, RecordedEvents> events= new HashMap<>();
+		boolean complete= false;
+
 		try {
 			for (int i= 0; i < regions.length; i++) {
 				IRegion region= regions[i];
@@ -62,14 +193,48 @@ public class JavaSpellingEngine extends SpellingEngine {
 					if (isIgnoringJavaStrings && type.equals(IJavaPartitions.JAVA_STRING))
 						continue;
 
-					if (!type.equals(IDocument.DEFAULT_CONTENT_TYPE) && !type.equals(IJavaPartitions.JAVA_CHARACTER))
-						checker.execute(listener, new SpellCheckIterator(document, partition, checker.getLocale()));
+					if (!type.equals(IDocument.DEFAULT_CONTENT_TYPE) && !type.equals(IJavaPartitions.JAVA_CHARACTER)) {
+						// only partitions whose content has changed are checked again
+						String key= type + ':' + document.get(partition.getOffset(), partition.getLength());
+						RecordedEvents recorded= events.get(key);
+						if (recorded == null)
+							recorded= previousEvents.get(key);
+						if (recorded != null) {
+							recorded.replay(listener, partition.getOffset());
+						} else {
+							RecordedEvents newEvents= new RecordedEvents(partition.getOffset());
+							checker.execute(event -> {
+								newEvents.fEvents.add(event);
+								listener.handle(event);
+							}, new SpellCheckIterator(document, partition, checker.getLocale()));
+							recorded= newEvents;
+							// the events of a partition may be incomplete once the threshold is reached
+							if (listener.isProblemsThresholdReached())
+								return;
+						}
+						events.put(key, recorded);
+					}
 				}
 			}
+			complete= true;
 		} catch (BadLocationException x) {
 			// ignore: the document has been changed in another thread and will be checked again
 		} catch (AssertionFailedException x) {
 			// ignore: the document has been changed in another thread and will be checked again
+		} finally {
+			if (stamp != -1) {
+				if (!complete || !isWholeDocument(document, regions)) {
+					// keep the events of the partitions which have not been checked
+					Map<String, RecordedEvents> merged= new HashMap<>(previousEvents);
+					merged.putAll(events);
+					events= merged;
+				}
+				fPartitionEvents.put(document, new PartitionEvents(checker, stamp, delimiter, events));
+			}
 		}
 	}
+
+	private static boolean isWholeDocument(IDocument document, IRegion[] regions) {
+		return regions.length == 1 && regions[0].getOffset() == 0 && regions[0].getLength() == document.getLength();
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,6 +14,7 @@
 package org.eclipse.jdt.internal.ui.text.spelling.engine;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -21,18 +22,26 @@ import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.URLConnection;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CodingErrorAction;
 import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 
@@ -50,6 +59,13 @@ import org.eclipse.jdt.internal.core.manipulation.util.BasicElementLabels;
 
 /**
  * Partial implementation of a spell dictionary.
+ * <p>
+ * The word list is compiled into a {@link CompiledWordList} in the state
+ * location of the plug-in when it is loaded the first time. Later, the compiled
+ * word list is read instead of parsing the word list, as long as the word list,
+ * the encoding and the phonetic hash provider do not change. Words which are
+ * added after the word list has been loaded are kept in the hash buckets.
+ * </p>
  *
  * @since 3.0
  */
@@ -125,9 +141,26 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	/** The phonetic distance algorithm */
 	private IPhoneticDistanceAlgorithm fDistanceAlgorithm= new DefaultPhoneticDistanceAlgorithm();
 
+	/**
+	 * The source of modification stamps, shared by all dictionaries so that
+	 * stamps are never reused
+	 */
+	private static final AtomicLong fgModificationCounter= new AtomicLong();
+
+	/**
+	 * The name of the folder of the compiled word lists in the state location
+	 */
+	private static final String COMPILED_FOLDER= "spelling"; //$NON-NLS-1$
+
 	/** The mapping from phonetic hashes to word lists */
 	private final Map<ByteArrayWrapper, Object> fHashBuckets= new HashMap<>(getInitialSize(), LOAD_FACTOR);
 
+	/**
+	 * The compiled word list, or <code>null</code> if the words are in
+	 * {@link #fHashBuckets} only
+	 */
+	private volatile CompiledWordList fCompiledWords;
+
 	/** The phonetic hash provider */
 	private IPhoneticHashProvider fHashProvider= new DefaultPhoneticHashProvider();
 
@@ -145,6 +178,31 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	 */
 	boolean fIsStrippingNonLetters= true;
 
+	/**
+	 * The stamp of the last modification of the words of this dictionary.
+	 */
+	private volatile long fModificationStamp= nextModificationStamp();
+
+	/**
+	 * Returns a new modification stamp which is greater than all stamps
+	 * returned before.
+	 *
+	 * @return the new modification stamp
+	 */
+	static long nextModificationStamp() {
+		return fgModificationCounter.incrementAndGet();
+	}
+
+	/**
+	 * Returns the stamp of the last change of this dictionary. The stamp changes
+	 * whenever the result of {@link #isCorrect(String)} may change.
+	 *
+	 * @return the modification stamp
+	 */
+	public final long getModificationStamp() {
+		return fModificationStamp;
+	}
+
 	/**
 	 * Returns the initial size of dictionary.
 	 * 
@@ -163,14 +221,34 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	 * @return Array of candidates for the phonetic hash
 	 */
 	protected final Object getCandidates(final String hash) {
-		ByteArrayWrapper hashBytes;
+		byte[] hashBytes;
 		try {
-			hashBytes= new ByteArrayWrapper(hash.getBytes(UTF_8));
+			hashBytes= hash.getBytes(UTF_8);
 		} catch (UnsupportedEncodingException e) {
 			JavaPlugin.log(e);
 			return null;
 		}
-		return fHashBuckets.get(hashBytes);
+		Object candidates= fHashBuckets.get(new ByteArrayWrapper(hashBytes));
+		CompiledWordList compiledWords= fCompiledWords;
+		if (compiledWords == null)
+			return candidates;
+		Object compiledCandidates= compiledWords.getWords(hashBytes);
+		if (compiledCandidates == null)
+			return candidates;
+		if (candidates == null)
+			return compiledCandidates;
+
+		ArrayList<Object> merged= new ArrayList<>();
+		addCandidates(merged, compiledCandidates);
+		addCandidates(merged, candidates);
+		return merged;
+	}
+
+	private static void addCandidates(ArrayList<Object> list, Object candidates) {
+		if (candidates instanceof ArrayList)
+			list.addAll((ArrayList<?>)candidates);
+		else
+			list.add(candidates);
 	}
 
 	/**
@@ -328,7 +406,8 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	 * @since 3.3
 	 */
 	protected boolean isEmpty() {
-		return fHashBuckets.size() == 0;
+		CompiledWordList compiledWords= fCompiledWords;
+		return fHashBuckets.size() == 0 && (compiledWords == null || compiledWords.isEmpty());
 	}
 
 	/**
@@ -489,6 +568,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 		}
 
 		Object bucket= fHashBuckets.get(hashBytes);
+		fModificationStamp= nextModificationStamp();
 
 		if (bucket == null) {
 			fHashBuckets.put(hashBytes, wordBytes);
@@ -558,7 +638,10 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 
 	@Override
 	public void setStripNonLetters(boolean state) {
-		fIsStrippingNonLetters= state;
+		if (fIsStrippingNonLetters != state) {
+			fIsStrippingNonLetters= state;
+			fModificationStamp= nextModificationStamp();
+		}
 	}
 
 	/**
@@ -590,7 +673,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 
 	@Override
 	public synchronized final boolean isLoaded() {
-		return fLoaded || fHashBuckets.size() > 0;
+		return fLoaded || !isEmpty();
 	}
 
 	/**
@@ -606,6 +689,13 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 			 return fLoaded;
 
 		if (url != null) {
+			String source= getCompiledSource(url);
+			if (source != null && loadCompiled(url, source)) {
+				fModificationStamp= nextModificationStamp();
+				fMustLoad= false;
+				return true;
+			}
+
 			InputStream stream= null;
 			int line= 0;
 			try {
@@ -641,6 +731,8 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 						if (doRead)
 							hashWord(word);
 					}
+					if (source != null)
+						compile(url, source);
 					return true;
 				}
 			} catch (FileNotFoundException ex) {
@@ -673,6 +765,134 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 		return false;
 	}
 
+	/**
+	 * Returns the description of the given word list which a compiled word list
+	 * must match in order to be used instead of it.
+	 *
+	 * @param url the URL of the word list
+	 * @return the description of the word list, or <code>null</code> if the
+	 *         word list must not be compiled
+	 */
+	private String getCompiledSource(URL url) {
+		if (getCompiledFile(url) == null)
+			return null;
+		long length;
+		long modified;
+		try {
+			if ("file".equals(url.getProtocol())) { //$NON-NLS-1$
+				File file= new File(url.getPath());
+				length= file.length();
+				modified= file.lastModified();
+			} else {
+				URLConnection connection= url.openConnection();
+				try {
+					length= connection.getContentLengthLong();
+					modified= connection.getLastModified();
+				} finally {
+					connection.getInputStream().close();
+				}
+			}
+		} catch (IOException e) {
+			// read the word list
+			return null;
+		}
+		if (length <= 0 || modified <= 0)
+			return null;
+		return url.toExternalForm() + '\n' + getEncoding() + '\n' + fHashProvider.getClass().getName() + '\n' + length + '\n' + modified;
+	}
+
+	/**
+	 * Returns the file of the compiled word list of the given word list. The
+	 * name of the file is the SHA-1 digest of the URL.
+	 *
+	 * @param url the URL of the word list
+	 * @return the file, or <code>null</code> if there is no state location
+	 */
+	protected static File getCompiledFile(URL url) {
+		JavaPlugin plugin= JavaPlugin.getDefault();
+		if (plugin == null)
+			return null;
+		byte[] digest;
+		try {
+			digest= MessageDigest.getInstance("SHA-1").digest(url.toExternalForm().getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+		} catch (NoSuchAlgorithmException e) {
+			JavaPlugin.log(e);
+			return null;
+		}
+		StringBuffer name= new StringBuffer(digest.length * 2 + 16);
+		for (int index= 0; index < digest.length; index++) {
+			name.append(Character.forDigit((digest[index] >> 4) & 0xF, 16));
+			name.append(Character.forDigit(digest[index] & 0xF, 16));
+		}
+		name.append(".dictionary.bin"); //$NON-NLS-1$
+		IPath location= plugin.getStateLocation().append(COMPILED_FOLDER).append(name.toString());
+		return location.toFile();
+	}
+
+	/**
+	 * Reads the compiled word list of the given word list if it is up to date.
+	 *
+	 * @param url the URL of the word list
+	 * @param source the description of the word list
+	 * @return <code>true</code> if the compiled word list is used
+	 */
+	private boolean loadCompiled(URL url, String source) {
+		try {
+			fCompiledWords= CompiledWordList.open(getCompiledFile(url), source);
+		} catch (IOException e) {
+			JavaPlugin.log(e);
+		}
+		return fCompiledWords != null;
+	}
+
+	/**
+	 * Compiles the words in the heap into a compiled word list and uses it
+	 * instead of the words in the heap. Errors are logged and leave the words
+	 * in the heap.
+	 *
+	 * @param url the URL of the word list
+	 * @param source the description of the word list
+	 */
+	private void compile(URL url, String source) {
+		int size= fHashBuckets.size();
+		ByteArrayWrapper[] keys= fHashBuckets.keySet().toArray(new ByteArrayWrapper[size]);
+		Arrays.sort(keys, (key1, key2) -> CompiledWordList.compare(key1.byteArray, key2.byteArray));
+		byte[][] hashes= new byte[size][];
+		@SuppressWarnings("unchecked")
+		List<byte[]>[] words= new List[size];
+		for (int index= 0; index < size; index++) {
+			hashes[index]= keys[index].byteArray;
+			Object bucket= fHashBuckets.get(keys[index]);
+			if (bucket instanceof byte[]) {
+				words[index]= Collections.singletonList((byte[])bucket);
+			} else {
+				@SuppressWarnings("unchecked")
+				List<byte[]> bucketList= (List<byte[]>)bucket;
+				words[index]= bucketList;
+			}
+		}
+
+		File file= getCompiledFile(url);
+		File temp= new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+		try {
+			file.getParentFile().mkdirs();
+			CompiledWordList.write(temp, source, hashes, words);
+			if (file.exists() && !file.delete() || !temp.renameTo(file)) {
+				// keep the words in the hash buckets
+				temp.delete();
+				return;
+			}
+			CompiledWordList compiledWords= CompiledWordList.open(file, source);
+			if (compiledWords != null) {
+				fCompiledWords= compiledWords;
+				fHashBuckets.clear();
+			}
+		} catch (IOException e) {
+			temp.delete();
+			JavaPlugin.log(e);
+		}
+	}
+
 	/**
 	 * Compacts the dictionary.
 	 *
@@ -712,6 +932,8 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 		fLoaded= false;
 		fMustLoad= true;
 		fHashBuckets.clear();
+		fCompiledWords= null;
+		fModificationStamp= nextModificationStamp();
 	}
 
 	@Override
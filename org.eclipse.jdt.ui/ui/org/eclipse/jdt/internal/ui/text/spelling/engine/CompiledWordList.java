@@ -0,0 +1,284 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.spelling.engine;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Word list of a spell dictionary in a compiled binary format. The file is
+ * mapped read-only into memory instead of being parsed into hash buckets, so
+ * the words stay off the heap and are paged in on demand. The channel is closed
+ * after mapping; the mapping is released when the word list is garbage
+ * collected. Where the file cannot be mapped, it is read into the heap instead.
+ * <p>
+ * The words are grouped by their phonetic hash. The hashes are sorted, so that
+ * the words with a given hash are found by binary search.
+ * </p>
+ * <pre>
+ * file:   magic, version, source, bucket count, word count, bucket*, word*, pool
+ * source: length (unsigned short), UTF-8 bytes
+ * bucket: pool offset of the hash, index of the first word
+ * word:   pool offset of the word
+ * pool:   (length (unsigned short), UTF-8 bytes)*
+ * </pre>
+ * <p>
+ * The bucket table ends with a sentinel bucket whose first word is the word
+ * count. The source describes the word list the file has been compiled from;
+ * a file whose source does not match is outdated.
+ * </p>
+ */
+final class CompiledWordList {
+
+	private static final int MAGIC= 0x4A535044; // "JSPD"
+
+	private static final int VERSION= 1;
+
+	private static final int BUCKET_SIZE= 8;
+
+	private static final int WORD_SIZE= 4;
+
+	private final ByteBuffer fBuffer;
+
+	private final int fBucketCount;
+
+	private final int fBucketsOffset;
+
+	private final int fWordsOffset;
+
+	private final int fPoolOffset;
+
+	private CompiledWordList(ByteBuffer buffer, int bucketCount, int wordCount, int bucketsOffset) {
+		fBuffer= buffer;
+		fBucketCount= bucketCount;
+		fBucketsOffset= bucketsOffset;
+		fWordsOffset= bucketsOffset + (bucketCount + 1) * BUCKET_SIZE;
+		fPoolOffset= fWordsOffset + wordCount * WORD_SIZE;
+	}
+
+	/**
+	 * Reads the given compiled word list.
+	 *
+	 * @param file the compiled word list
+	 * @param source the description of the word list the file must have been
+	 *            compiled from
+	 * @return the word list, or <code>null</code> if the file does not exist
+	 *         or is outdated
+	 * @throws IOException if the file cannot be read
+	 */
+	static CompiledWordList open(File file, String source) throws IOException {
+		if (!file.isFile())
+			return null;
+		ByteBuffer buffer= map(file);
+		if (buffer.remaining() < 10 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+			return null;
+		byte[] expected= source.getBytes(StandardCharsets.UTF_8);
+		int length= buffer.getShort() & 0xFFFF;
+		if (length != expected.length || buffer.remaining() < length + 8)
+			return null;
+		for (int index= 0; index < length; index++) {
+			if (buffer.get() != expected[index])
+				return null;
+		}
+		int bucketCount= buffer.getInt();
+		int wordCount= buffer.getInt();
+		CompiledWordList list= new CompiledWordList(buffer, bucketCount, wordCount, buffer.position());
+		if (list.fPoolOffset > buffer.limit())
+			throw new IOException("Truncated word list: " + file); //$NON-NLS-1$
+		return list;
+	}
+
+	/**
+	 * Maps the given file read-only, or reads it into the heap if it cannot be
+	 * mapped.
+	 *
+	 * @param file the file
+	 * @return the content of the file
+	 * @throws IOException if the file cannot be read
+	 */
+	private static ByteBuffer map(File file) throws IOException {
+		try (FileChannel channel= FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} catch (IOException | UnsupportedOperationException e) {
+			// the address space may be exhausted, or the file system may not support mapping
+			return ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+		}
+	}
+
+	/**
+	 * Writes a compiled word list.
+	 *
+	 * @param file the file to write
+	 * @param source the description of the word list the file is compiled from
+	 * @param hashes the UTF-8 encoded phonetic hashes, sorted by
+	 *            {@link #compare(byte[], byte[])}
+	 * @param words the UTF-8 encoded words for each hash
+	 * @throws IOException if the file cannot be written
+	 */
+	static void write(File file, String source, byte[][] hashes, List<byte[]>[] words) throws IOException {
+		int wordCount= 0;
+		for (int index= 0; index < words.length; index++)
+			wordCount+= words[index].size();
+
+		try (DataOutputStream out= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			byte[] sourceBytes= source.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeShort(sourceBytes.length);
+			out.write(sourceBytes);
+			out.writeInt(hashes.length);
+			out.writeInt(wordCount);
+
+			int poolOffset= 0;
+			int firstWord= 0;
+			for (int index= 0; index < hashes.length; index++) {
+				out.writeInt(poolOffset);
+				out.writeInt(firstWord);
+				poolOffset+= 2 + hashes[index].length;
+				firstWord+= words[index].size();
+			}
+			out.writeInt(poolOffset);
+			out.writeInt(firstWord);
+
+			for (int index= 0; index < words.length; index++) {
+				for (byte[] word : words[index]) {
+					out.writeInt(poolOffset);
+					poolOffset+= 2 + word.length;
+				}
+			}
+
+			for (int index= 0; index < hashes.length; index++)
+				writeString(out, hashes[index]);
+			for (int index= 0; index < words.length; index++) {
+				for (byte[] word : words[index])
+					writeString(out, word);
+			}
+		}
+	}
+
+	private static void writeString(DataOutputStream out, byte[] bytes) throws IOException {
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Compares two UTF-8 encoded strings by their unsigned bytes.
+	 *
+	 * @param bytes1 the first string
+	 * @param bytes2 the second string
+	 * @return a negative number, zero, or a positive number as the first
+	 *         string is less than, equal to, or greater than the second
+	 */
+	static int compare(byte[] bytes1, byte[] bytes2) {
+		int length= Math.min(bytes1.length, bytes2.length);
+		for (int index= 0; index < length; index++) {
+			int difference= (bytes1[index] & 0xFF) - (bytes2[index] & 0xFF);
+			if (difference != 0)
+				return difference;
+		}
+		return bytes1.length - bytes2.length;
+	}
+
+	/**
+	 * @return <code>true</code> if the word list contains no words
+	 */
+	boolean isEmpty() {
+		return fBucketCount == 0;
+	}
+
+	/**
+	 * Returns the words with the given phonetic hash.
+	 *
+	 * @param hash the UTF-8 encoded phonetic hash
+	 * @return <code>null</code> if there are no words, a <code>byte[]</code>
+	 *         if there is one word, or an {@link ArrayList} of
+	 *         <code>byte[]</code> if there are several words
+	 */
+	Object getWords(byte[] hash) {
+		int bucket= findBucket(hash);
+		if (bucket < 0)
+			return null;
+		int first= fBuffer.getInt(fBucketsOffset + bucket * BUCKET_SIZE + 4);
+		int end= fBuffer.getInt(fBucketsOffset + (bucket + 1) * BUCKET_SIZE + 4);
+		if (end - first == 1)
+			return getWord(first);
+		ArrayList<byte[]> words= new ArrayList<>(end - first);
+		for (int index= first; index < end; index++)
+			words.add(getWord(index));
+		return words;
+	}
+
+	private int findBucket(byte[] hash) {
+		int low= 0;
+		int high= fBucketCount - 1;
+		while (low <= high) {
+			int middle= (low + high) >>> 1;
+			int result= compareAt(fBuffer.getInt(fBucketsOffset + middle * BUCKET_SIZE), hash);
+			if (result < 0)
+				low= middle + 1;
+			else if (result > 0)
+				high= middle - 1;
+			else
+				return middle;
+		}
+		return -1;
+	}
+
+	/**
+	 * Compares the string at the given pool offset with the given string. The
+	 * buffer is only accessed by absolute index, so that it can be read by
+	 * several threads.
+	 *
+	 * @param offset the pool offset of the string
+	 * @param bytes the UTF-8 encoded string
+	 * @return a negative number, zero, or a positive number as the string in
+	 *         the pool is less than, equal to, or greater than the given string
+	 */
+	private int compareAt(int offset, byte[] bytes) {
+		int position= fPoolOffset + offset;
+		int length= fBuffer.getShort(position) & 0xFFFF;
+		position+= 2;
+		int common= Math.min(length, bytes.length);
+		for (int index= 0; index < common; index++) {
+			int difference= (fBuffer.get(position + index) & 0xFF) - (bytes[index] & 0xFF);
+			if (difference != 0)
+				return difference;
+		}
+		return length - bytes.length;
+	}
+
+	private byte[] getWord(int index) {
+		int position= fPoolOffset + fBuffer.getInt(fWordsOffset + index * WORD_SIZE);
+		byte[] word= new byte[fBuffer.getShort(position) & 0xFFFF];
+		position+= 2;
+		for (int offset= 0; offset < word.length; offset++)
+			word[offset]= fBuffer.get(position + offset);
+		return word;
+	}
+
+	@Override
+	public String toString() {
+		return "CompiledWordList (" + fBucketCount + " hashes)"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -18,6 +18,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.runtime.Assert;
 
@@ -33,6 +34,29 @@ import org.eclipse.jdt.ui.PreferenceConstants;
  */
 public class DefaultSpellChecker implements ISpellChecker {
 
+	/**
+	 * Results of {@link DefaultSpellChecker#isCorrect(String)} for a state of
+	 * the dictionaries.
+	 */
+	private static class WordCache {
+
+		/** The modification stamp of the dictionaries */
+		final long fStamp;
+
+		/** The results keyed by word */
+		final ConcurrentHashMap<String, Boolean> fResults= new ConcurrentHashMap<>();
+
+		WordCache(long stamp) {
+			fStamp= stamp;
+		}
+	}
+
+	/**
+	 * The maximal number of words in the word cache. The cache is cleared when
+	 * it is full.
+	 */
+	private static final int MAX_CACHED_WORDS= 20000;
+
 	/** Array of URL prefixes */
 	public static final String[] URL_PREFIXES= new String[] { "http://", "https://", "www.", "ftp://", "ftps://", "news://", "mailto://" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$
 
@@ -146,6 +170,17 @@ public class DefaultSpellChecker implements ISpellChecker {
 	 */
 	private Locale fLocale;
 
+	/**
+	 * The stamp of the last change of the dictionaries or the ignored words.
+	 */
+	private volatile long fStamp= AbstractSpellDictionary.nextModificationStamp();
+
+	/**
+	 * The cached results of {@link #isCorrect(String)}, or <code>null</code>.
+	 * Shared by all editors, since there is one checker per locale.
+	 */
+	private volatile WordCache fWordCache;
+
 	/**
 	 * Creates a new default spell checker.
 	 *
@@ -164,6 +199,7 @@ public class DefaultSpellChecker implements ISpellChecker {
 	public final void addDictionary(final ISpellDictionary dictionary) {
 		// synchronizing is necessary as this is a write access
 		fDictionaries.add(dictionary);
+		modified();
 	}
 
 	@Override
@@ -200,13 +236,14 @@ public class DefaultSpellChecker implements ISpellChecker {
 			if (dictionary.acceptsWords())
 				dictionary.addWord(addable);
 		}
-
+		modified();
 	}
 
 	@Override
 	public final void checkWord(final String word) {
 		// synchronizing is necessary as this is a write access
 		fIgnored.remove(word.toLowerCase());
+		modified();
 	}
 
 	@Override
@@ -290,6 +327,7 @@ public class DefaultSpellChecker implements ISpellChecker {
 	public final void ignoreWord(final String word) {
 		// synchronizing is necessary as this is a write access
 		fIgnored.add(word.toLowerCase());
+		modified();
 	}
 
 	@Override
@@ -303,24 +341,86 @@ public class DefaultSpellChecker implements ISpellChecker {
 		if (fIgnored.contains(word.toLowerCase()))
 			return true;
 
+		long stamp= getStamp(copy);
+		WordCache cache= null;
+		if (stamp != -1) {
+			cache= fWordCache;
+			if (cache == null || cache.fStamp != stamp || cache.fResults.size() >= MAX_CACHED_WORDS) {
+				cache= new WordCache(stamp);
+				fWordCache= cache;
+			}
+			Boolean correct= cache.fResults.get(word);
+			if (correct != null)
+				return correct.booleanValue();
+		}
+
+		boolean correct= false;
 		ISpellDictionary dictionary= null;
-		for (final Iterator<ISpellDictionary> iterator= copy.iterator(); iterator.hasNext();) {
+		for (final Iterator<ISpellDictionary> iterator= copy.iterator(); iterator.hasNext() && !correct;) {
 
 			dictionary= iterator.next();
-			if (dictionary.isCorrect(word))
-				return true;
+			correct= dictionary.isCorrect(word);
 		}
-		return false;
+		if (cache != null)
+			cache.fResults.put(word, Boolean.valueOf(correct));
+		return correct;
 	}
 
 	@Override
 	public final void removeDictionary(final ISpellDictionary dictionary) {
 		// synchronizing is necessary as this is a write access
 		fDictionaries.remove(dictionary);
+		modified();
 	}
 
 	@Override
 	public Locale getLocale() {
 		return fLocale;
 	}
+
+	@Override
+	public long getModificationStamp() {
+		Set<ISpellDictionary> copy;
+		synchronized (fDictionaries) {
+			copy= new HashSet<>(fDictionaries);
+		}
+		long stamp= getStamp(copy);
+		if (stamp == -1)
+			return -1;
+
+		String[] keys= { PreferenceConstants.SPELLING_IGNORE_DIGITS, PreferenceConstants.SPELLING_IGNORE_MIXED, PreferenceConstants.SPELLING_IGNORE_SENTENCE,
+				PreferenceConstants.SPELLING_IGNORE_UPPER, PreferenceConstants.SPELLING_IGNORE_URLS, PreferenceConstants.SPELLING_IGNORE_NON_LETTERS,
+				PreferenceConstants.SPELLING_IGNORE_SINGLE_LETTERS };
+		for (int index= 0; index < keys.length; index++)
+			stamp= stamp << 1 | (fPreferences.getBoolean(keys[index]) ? 1 : 0);
+		return stamp;
+	}
+
+	/**
+	 * Returns the stamp of the last change of the given dictionaries or the
+	 * ignored words.
+	 *
+	 * @param dictionaries the dictionaries of this checker
+	 * @return the stamp, or <code>-1</code> if a dictionary does not provide a
+	 *         modification stamp
+	 */
+	private long getStamp(Set<ISpellDictionary> dictionaries) {
+		long stamp= fStamp;
+		for (Iterator<ISpellDictionary> iterator= dictionaries.iterator(); iterator.hasNext();) {
+			ISpellDictionary dictionary= iterator.next();
+			if (!(dictionary instanceof AbstractSpellDictionary))
+				return -1;
+			stamp= Math.max(stamp, ((AbstractSpellDictionary)dictionary).getModificationStamp());
+		}
+		return stamp;
+	}
+
+	/**
+	 * Invalidates the cached results after the dictionaries or the ignored
+	 * words have changed.
+	 */
+	private void modified() {
+		fStamp= AbstractSpellDictionary.nextModificationStamp();
+		fWordCache= null;
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -110,4 +110,15 @@ public interface ISpellChecker {
 	 * @since 3.3
 	 */
 	Locale getLocale();
+
+	/**
+	 * Returns a stamp of the state which affects the spell events of
+	 * {@link #execute(ISpellEventListener, ISpellCheckIterator)}, i.e. the
+	 * dictionaries, the ignored words and the spelling preferences. The stamp
+	 * changes whenever this state changes.
+	 *
+	 * @return the stamp, or <code>-1</code> if changes of the state cannot be
+	 *         tracked
+	 */
+	long getModificationStamp();
 }
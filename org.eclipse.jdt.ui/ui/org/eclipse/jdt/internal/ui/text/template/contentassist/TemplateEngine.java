@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -46,6 +46,7 @@ import org.eclipse.jdt.internal.corext.template.java.SWTContextType;
 
 import org.eclipse.jdt.internal.ui.JavaPlugin;
 import org.eclipse.jdt.internal.ui.JavaPluginImages;
+import org.eclipse.jdt.internal.ui.text.java.ContentAssistProcessor;
 
 
 public class TemplateEngine {
@@ -110,7 +111,7 @@ public class TemplateEngine {
 		if (!(fContextType instanceof CompilationUnitContextType))
 			return;
 
-		Point selection= viewer.getSelectedRange();
+		Point selection= ContentAssistProcessor.getSelectedRange(viewer);
 		Position position= new Position(completionPosition, selection.y);
 
 		// remember selected text
@@ -187,7 +188,7 @@ public class TemplateEngine {
 		if (viewer == null)
 			return false;
 
-		Point s= viewer.getSelectedRange();
+		Point s= ContentAssistProcessor.getSelectedRange(viewer);
 		if (s.y == 0)
 			return false;
 
@@ -0,0 +1,300 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.viewsupport;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IMarkerDelta;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.IWorkspaceRoot;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * Index of the maximal severity of the problem markers on and under each
+ * resource, so that error ticks of projects, folders and files do not need a
+ * search for markers.
+ * <p>
+ * The index counts the problem markers of each severity on each resource and
+ * in the subtree of each container. A project is scanned once when it is first
+ * queried; afterwards the counts are updated from the marker deltas of
+ * resource change events. The index remembers the severity of each marker by
+ * its id, so that a delta which has already been seen by the scan of a project
+ * does not change the counts.
+ * </p>
+ */
+public class ProblemSeverityIndex implements IResourceChangeListener {
+
+	/**
+	 * The marker counts of a resource, indexed by severity
+	 */
+	private static final class Entry {
+		final int[] fOwn= new int[3];
+		final int[] fTotal= new int[3];
+
+		/**
+		 * The severities of the markers on the resource by marker id, or
+		 * <code>null</code> if there are none
+		 */
+		Map<Long, Integer> fMarkers;
+
+		boolean isEmpty() {
+			return fTotal[IMarker.SEVERITY_INFO] == 0 && fTotal[IMarker.SEVERITY_WARNING] == 0 && fTotal[IMarker.SEVERITY_ERROR] == 0;
+		}
+
+		static int getMaxSeverity(int[] counts) {
+			for (int severity= IMarker.SEVERITY_ERROR; severity >= IMarker.SEVERITY_INFO; severity--) {
+				if (counts[severity] > 0)
+					return severity;
+			}
+			return -1;
+		}
+	}
+
+	private class DeltaVisitor implements IResourceDeltaVisitor {
+		@Override
+		public boolean visit(IResourceDelta delta) throws CoreException {
+			IResource resource= delta.getResource();
+			switch (resource.getType()) {
+				case IResource.ROOT:
+					return true;
+				case IResource.PROJECT:
+					if (!fProjects.contains(resource.getFullPath()))
+						return false;
+					if (delta.getKind() != IResourceDelta.CHANGED || (delta.getFlags() & IResourceDelta.OPEN) != 0) {
+						removeProject((IProject) resource);
+						return false;
+					}
+					break;
+				default:
+					break;
+			}
+			switch (delta.getKind()) {
+				case IResourceDelta.ADDED:
+					addMarkers(resource);
+					break;
+				case IResourceDelta.REMOVED:
+					removeMarkers(resource);
+					break;
+				default:
+					if ((delta.getFlags() & IResourceDelta.MARKERS) != 0)
+						updateMarkers(resource, delta.getMarkerDeltas());
+					break;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * The marker counts by the full path of the resources, only for resources
+	 * which have problem markers on them or in their subtree
+	 */
+	private final Map<IPath, Entry> fEntries= new HashMap<>();
+
+	/**
+	 * The full paths of the projects whose markers are indexed
+	 */
+	private final Set<IPath> fProjects= new HashSet<>();
+
+	public ProblemSeverityIndex() {
+		JavaPlugin.getWorkspace().addResourceChangeListener(this, IResourceChangeEvent.POST_CHANGE);
+	}
+
+	public void dispose() {
+		JavaPlugin.getWorkspace().removeResourceChangeListener(this);
+		synchronized (this) {
+			fEntries.clear();
+			fProjects.clear();
+		}
+	}
+
+	/**
+	 * Returns the maximal severity of the problem markers on the given
+	 * resource, or of the problem markers on the resource and all its
+	 * descendants.
+	 *
+	 * @param resource the resource
+	 * @param depth {@link IResource#DEPTH_ZERO} or {@link IResource#DEPTH_INFINITE};
+	 *            {@link IResource#DEPTH_ONE} is only supported for files
+	 * @return the maximal {@link IMarker#SEVERITY severity}, or -1 if there are no
+	 *         problem markers
+	 * @throws CoreException if the markers of a project cannot be read
+	 * @see IResource#findMaxProblemSeverity(String, boolean, int)
+	 */
+	public int findMaxProblemSeverity(IResource resource, int depth) throws CoreException {
+		if (depth == IResource.DEPTH_ONE && resource.getType() != IResource.FILE)
+			return resource.findMaxProblemSeverity(IMarker.PROBLEM, true, depth);
+		if (resource.getType() == IResource.ROOT) {
+			int severity= resource.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_ZERO);
+			if (depth == IResource.DEPTH_INFINITE) {
+				IProject[] projects= ((IWorkspaceRoot) resource).getProjects();
+				for (int i= 0; i < projects.length && severity < IMarker.SEVERITY_ERROR; i++)
+					severity= Math.max(severity, findMaxProblemSeverity(projects[i], depth));
+			}
+			return severity;
+		}
+		synchronized (this) {
+			if (!initialize(resource.getProject()))
+				return -1;
+			Entry entry= fEntries.get(resource.getFullPath());
+			if (entry == null)
+				return -1;
+			return Entry.getMaxSeverity(depth == IResource.DEPTH_ZERO ? entry.fOwn : entry.fTotal);
+		}
+	}
+
+	@Override
+	public void resourceChanged(IResourceChangeEvent event) {
+		IResourceDelta delta= event.getDelta();
+		if (delta == null)
+			return;
+		synchronized (this) {
+			if (fProjects.isEmpty())
+				return;
+			try {
+				delta.accept(new DeltaVisitor());
+			} catch (CoreException e) {
+				JavaPlugin.log(e);
+				fEntries.clear();
+				fProjects.clear();
+			}
+		}
+	}
+
+	private boolean initialize(IProject project) throws CoreException {
+		if (fProjects.contains(project.getFullPath()))
+			return true;
+		if (!project.isAccessible())
+			return false;
+		IMarker[] markers= project.findMarkers(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE);
+		for (int i= 0; i < markers.length; i++) {
+			IMarker marker= markers[i];
+			putMarker(marker.getResource(), marker.getId(), marker.getAttribute(IMarker.SEVERITY, -1));
+		}
+		fProjects.add(project.getFullPath());
+		return true;
+	}
+
+	private void removeProject(IProject project) {
+		IPath path= project.getFullPath();
+		fProjects.remove(path);
+		for (Iterator<IPath> iter= fEntries.keySet().iterator(); iter.hasNext();) {
+			if (path.isPrefixOf(iter.next()))
+				iter.remove();
+		}
+	}
+
+	private void addMarkers(IResource resource) throws CoreException {
+		if (!resource.exists())
+			return;
+		IMarker[] markers= resource.findMarkers(IMarker.PROBLEM, true, IResource.DEPTH_ZERO);
+		for (int i= 0; i < markers.length; i++)
+			putMarker(resource, markers[i].getId(), markers[i].getAttribute(IMarker.SEVERITY, -1));
+	}
+
+	/**
+	 * Removes the markers on a removed resource. The markers on its
+	 * descendants are removed when their deltas are visited.
+	 */
+	private void removeMarkers(IResource resource) {
+		Entry entry= fEntries.get(resource.getFullPath());
+		if (entry == null || entry.fMarkers == null)
+			return;
+		Long[] ids= entry.fMarkers.keySet().toArray(new Long[entry.fMarkers.size()]);
+		for (int i= 0; i < ids.length; i++)
+			removeMarker(resource, ids[i].longValue());
+	}
+
+	private void updateMarkers(IResource resource, IMarkerDelta[] markerDeltas) {
+		for (int i= 0; i < markerDeltas.length; i++) {
+			IMarkerDelta markerDelta= markerDeltas[i];
+			if (!markerDelta.isSubtypeOf(IMarker.PROBLEM))
+				continue;
+			switch (markerDelta.getKind()) {
+				case IResourceDelta.ADDED:
+					putMarker(resource, markerDelta.getId(), markerDelta.getAttribute(IMarker.SEVERITY, -1));
+					break;
+				case IResourceDelta.REMOVED:
+					removeMarker(resource, markerDelta.getId());
+					break;
+				case IResourceDelta.CHANGED:
+					putMarker(resource, markerDelta.getId(), markerDelta.getMarker().getAttribute(IMarker.SEVERITY, -1));
+					break;
+				default:
+					break;
+			}
+		}
+	}
+
+	private void putMarker(IResource resource, long id, int severity) {
+		Entry entry= fEntries.get(resource.getFullPath());
+		Integer oldSeverity= entry != null && entry.fMarkers != null ? entry.fMarkers.get(Long.valueOf(id)) : null;
+		if (oldSeverity != null) {
+			if (oldSeverity.intValue() == severity)
+				return;
+			removeMarker(resource, id);
+		}
+		if (severity < IMarker.SEVERITY_INFO || severity > IMarker.SEVERITY_ERROR)
+			return;
+		entry= getEntry(resource);
+		if (entry.fMarkers == null)
+			entry.fMarkers= new HashMap<>(4);
+		entry.fMarkers.put(Long.valueOf(id), Integer.valueOf(severity));
+		entry.fOwn[severity]++;
+		for (IResource current= resource; current.getType() != IResource.ROOT; current= current.getParent())
+			getEntry(current).fTotal[severity]++;
+	}
+
+	private void removeMarker(IResource resource, long id) {
+		Entry entry= fEntries.get(resource.getFullPath());
+		if (entry == null || entry.fMarkers == null)
+			return;
+		Integer oldSeverity= entry.fMarkers.remove(Long.valueOf(id));
+		if (oldSeverity == null)
+			return;
+		int severity= oldSeverity.intValue();
+		entry.fOwn[severity]--;
+		if (entry.fMarkers.isEmpty())
+			entry.fMarkers= null;
+		for (IResource current= resource; current.getType() != IResource.ROOT; current= current.getParent()) {
+			Entry currentEntry= fEntries.get(current.getFullPath());
+			currentEntry.fTotal[severity]--;
+			if (currentEntry.isEmpty())
+				fEntries.remove(current.getFullPath());
+		}
+	}
+
+	private Entry getEntry(IResource resource) {
+		IPath path= resource.getFullPath();
+		Entry entry= fEntries.get(path);
+		if (entry == null) {
+			entry= new Entry();
+			fEntries.put(path, entry);
+		}
+		return entry;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -134,6 +134,9 @@ public class JarPackageData {
 	// Add directory entries to the jar
 	private boolean fIncludeDirectoryEntries;
 
+	// Use a fixed modification time for all entries
+	private boolean fReproducible;
+
 	// Projects for which to store refactoring information
 	private IProject[] fRefactoringProjects= {};
 
@@ -1057,6 +1060,33 @@ public class JarPackageData {
 		fIncludeDirectoryEntries = includeDirectoryEntries;
 	}
 
+	/**
+	 * Tells whether the JAR is reproducible, i.e. whether all its entries have
+	 * the same fixed modification time, so that exporting the same files again
+	 * creates an identical JAR.
+	 *
+	 * @return <code>true</code> if the JAR is reproducible
+	 *
+	 * @since 3.16
+	 */
+	public boolean isReproducible() {
+		return fReproducible;
+	}
+
+	/**
+	 * Sets whether the JAR is reproducible.
+	 *
+	 * @param reproducible <code>true</code> to use a fixed modification time
+	 *            for all entries, <code>false</code> to use the modification
+	 *            times of the exported files
+	 *
+	 * @since 3.16
+	 * @see #isReproducible()
+	 */
+	public void setReproducible(boolean reproducible) {
+		fReproducible= reproducible;
+	}
+
 	/**
 	 * Returns the projects for which refactoring information should be stored.
 	 * <p>
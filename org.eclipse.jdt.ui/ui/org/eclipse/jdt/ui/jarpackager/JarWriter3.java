@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,8 +15,8 @@
  *******************************************************************************/
 package org.eclipse.jdt.ui.jarpackager;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -32,7 +32,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.jar.JarEntry;
-import java.util.jar.JarOutputStream;
+import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 import java.util.zip.ZipEntry;
 
@@ -62,6 +62,7 @@ import org.eclipse.ltk.core.refactoring.RefactoringDescriptorProxy;
 import org.eclipse.jdt.internal.corext.util.Messages;
 
 import org.eclipse.jdt.internal.ui.JavaPlugin;
+import org.eclipse.jdt.internal.ui.jarpackager.JarArchiveWriter;
 import org.eclipse.jdt.internal.ui.jarpackager.JarPackagerMessages;
 import org.eclipse.jdt.internal.ui.jarpackager.JarPackagerUtil;
 import org.eclipse.jdt.internal.core.manipulation.util.BasicElementLabels;
@@ -80,7 +81,12 @@ public class JarWriter3 {
 
 	private Set<String> fDirectories= new HashSet<>();
 
-	private JarOutputStream fJarOutputStream;
+	/**
+	 * The size of the buffer of the output stream
+	 */
+	private static final int BUFFER_SIZE= 64 * 1024;
+
+	private JarArchiveWriter fArchiveWriter;
 
 	private JarPackageData fJarPackage;
 
@@ -104,14 +110,16 @@ public class JarWriter3 {
 			throw new OperationCanceledException();
 
 		try {
+			fArchiveWriter= new JarArchiveWriter(new BufferedOutputStream(new FileOutputStream(fJarPackage.getAbsoluteJarLocation().toFile()), BUFFER_SIZE), fJarPackage.isReproducible());
 			if (fJarPackage.usesManifest() && fJarPackage.areGeneratedFilesExported()) {
 				Manifest manifest= fJarPackage.getManifestProvider().create(fJarPackage);
-				fJarOutputStream= new JarOutputStream(new BufferedOutputStream(new FileOutputStream(fJarPackage.getAbsoluteJarLocation().toFile())), manifest);
-			} else
-				fJarOutputStream= new JarOutputStream(new BufferedOutputStream(new FileOutputStream(fJarPackage.getAbsoluteJarLocation().toFile())));
+				ByteArrayOutputStream manifestContent= new ByteArrayOutputStream();
+				manifest.write(manifestContent);
+				fArchiveWriter.putEntry(new JarEntry(JarFile.MANIFEST_NAME), manifestContent.toByteArray());
+			}
 			String comment= jarPackage.getComment();
 			if (comment != null)
-				fJarOutputStream.setComment(comment);
+				fArchiveWriter.setComment(comment);
 			if (fJarPackage.isRefactoringAware()) {
 				Assert.isTrue(fJarPackage.areDirectoryEntriesIncluded());
 				final IPath metaPath= new Path(JarPackagerUtil.getMetaEntry());
@@ -162,7 +170,7 @@ public class JarWriter3 {
 		}
 
 		for (int i= directories.size() - 1; i >= 0; --i) {
-			fJarOutputStream.putNextEntry(directories.get(i));
+			fArchiveWriter.putEntry(directories.get(i), new byte[0]);
 		}
 	}
 
@@ -210,7 +218,7 @@ public class JarWriter3 {
 		}
 
 		for (int i= directories.size() - 1; i >= 0; --i) {
-			fJarOutputStream.putNextEntry(directories.get(i));
+			fArchiveWriter.putEntry(directories.get(i), new byte[0]);
 		}
 	}
 
@@ -226,15 +234,12 @@ public class JarWriter3 {
 	 */
 	protected void addFile(IFile resource, IPath path) throws IOException, CoreException {
 		JarEntry newEntry= new JarEntry(path.toString().replace(File.separatorChar, '/'));
-		byte[] readBuffer= new byte[4096];
 
+		// CRC and size are computed when the entry is written
 		if (fJarPackage.isCompressed())
 			newEntry.setMethod(ZipEntry.DEFLATED);
-			// Entry is filled automatically.
-		else {
+		else
 			newEntry.setMethod(ZipEntry.STORED);
-			JarPackagerUtil.calculateCrcAndSize(newEntry, resource.getContents(false), readBuffer);
-		}
 
 		long lastModified= System.currentTimeMillis();
 		URI locationURI= resource.getLocationURI();
@@ -254,34 +259,34 @@ public class JarWriter3 {
 
 	/**
 	 * Write the given entry describing the given content to the
-	 * current archive
+	 * current archive. The size and CRC of a stored entry are computed
+	 * from the content, and the content is compressed in the background.
 	 *
 	 * @param   entry            the entry to write
-	 * @param   content          the content to write
+	 * @param   content          the content to write, which is closed
 	 *
 	 * @throws IOException       If an I/O error occurred
 	 *
 	 * @since 3.4
 	 */
 	protected void addEntry(JarEntry entry, InputStream content) throws IOException {
-		byte[] readBuffer= new byte[4096];
-		try {
-			fJarOutputStream.putNextEntry(entry);
-			int count;
-			while ((count= content.read(readBuffer, 0, readBuffer.length)) != -1)
-				fJarOutputStream.write(readBuffer, 0, count);
-		} finally  {
-			if (content != null)
-				content.close();
-
-			/*
-			 * Commented out because some JREs throw an NPE if a stream
-			 * is closed twice. This works because
-			 * a) putNextEntry closes the previous entry
-			 * b) closing the stream closes the last entry
-			 */
-			// fJarOutputStream.closeEntry();
-		}
+		fArchiveWriter.putEntry(entry, content);
+	}
+
+	/**
+	 * Write the given entry with content which is already compressed with the
+	 * method of the entry to the current archive, e.g. an entry copied from
+	 * another archive.
+	 *
+	 * @param   entry            the entry to write, with its CRC and uncompressed size
+	 * @param   data             the compressed content
+	 *
+	 * @throws IOException       If an I/O error occurred
+	 *
+	 * @since 3.16
+	 */
+	protected void addRawEntry(JarEntry entry, byte[] data) throws IOException {
+		fArchiveWriter.putRawEntry(entry, data);
 	}
 
 	/**
@@ -386,9 +391,9 @@ public class JarWriter3 {
 	 *             used to return information in the status object.
 	 */
 	public void close() throws CoreException {
-		if (fJarOutputStream != null)
+		if (fArchiveWriter != null)
 			try {
-				fJarOutputStream.close();
+				fArchiveWriter.close();
 				registerInWorkspaceIfNeeded();
 			} catch (IOException ex) {
 				throw JarPackagerUtil.createCoreException(ex.getLocalizedMessage(), ex);
@@ -465,26 +470,11 @@ public class JarWriter3 {
 		Assert.isNotNull(file);
 		Assert.isNotNull(path);
 		final JarEntry entry= new JarEntry(path.toString().replace(File.separatorChar, '/'));
-		byte[] buffer= new byte[4096];
 		if (data.isCompressed())
 			entry.setMethod(ZipEntry.DEFLATED);
-		else {
+		else
 			entry.setMethod(ZipEntry.STORED);
-			JarPackagerUtil.calculateCrcAndSize(entry, new BufferedInputStream(new FileInputStream(file)), buffer);
-		}
 		entry.setTime(System.currentTimeMillis());
-		final InputStream stream= new BufferedInputStream(new FileInputStream(file));
-		try {
-			fJarOutputStream.putNextEntry(entry);
-			int count;
-			while ((count= stream.read(buffer, 0, buffer.length)) != -1)
-				fJarOutputStream.write(buffer, 0, count);
-		} finally {
-			try {
-				stream.close();
-			} catch (IOException exception) {
-				// Do nothing
-			}
-		}
+		fArchiveWriter.putEntry(entry, new FileInputStream(file));
 	}
 }
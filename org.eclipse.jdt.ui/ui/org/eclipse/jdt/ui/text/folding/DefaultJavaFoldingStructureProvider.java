@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2011 IBM Corporation and others.
+ * Copyright (c) 2006, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -365,13 +365,82 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 
 				fUpdatingCount++;
 				try {
-					update(createContext(false));
+					Set<IJavaElement> members= isIncrementalUpdateSupported() ? collectChangedMembers(delta) : null;
+					if (members == null || !update(createContext(false), members))
+						update(createContext(false));
 				} finally {
 					fUpdatingCount--;
 				}
 			}
 		}
 
+		/**
+		 * Collects the members whose folding regions have to be recomputed for the given delta.
+		 * Members that are contained in another collected member are not part of the result.
+		 *
+		 * @param delta the Java element delta of the input element
+		 * @return the changed members, or <code>null</code> if the delta describes a change that
+		 *         requires the whole folding structure to be recomputed
+		 */
+		private Set<IJavaElement> collectChangedMembers(IJavaElementDelta delta) {
+			IJavaElementDelta[] children= delta.getAffectedChildren();
+			if (children.length == 0 || (delta.getFlags() & ~INPUT_DELTA_FLAGS) != 0)
+				return null; // the change is not within a member
+
+			Set<IJavaElement> members= new HashSet<>();
+			for (int i= 0; i < children.length; i++) {
+				if (!collectChangedMembers(children[i], members))
+					return null;
+			}
+
+			for (Iterator<IJavaElement> iter= members.iterator(); iter.hasNext();) {
+				IJavaElement parent= iter.next().getParent();
+				if (parent != null && isContained(parent, members))
+					iter.remove();
+			}
+			return members;
+		}
+
+		private boolean collectChangedMembers(IJavaElementDelta delta, Set<IJavaElement> members) {
+			if (delta.getKind() != IJavaElementDelta.CHANGED || (delta.getFlags() & ~MEMBER_DELTA_FLAGS) != 0)
+				return false;
+
+			IJavaElement element= delta.getElement();
+			switch (element.getElementType()) {
+				case IJavaElement.IMPORT_CONTAINER:
+					members.add(element);
+					return true;
+				case IJavaElement.TYPE:
+					if (isInnerType((IType) element))
+						break;
+					// the comments of a top-level type may contain the header comment
+					if ((delta.getFlags() & ~(IJavaElementDelta.F_CHILDREN | IJavaElementDelta.F_FINE_GRAINED)) != 0)
+						return false;
+					return collectChangedMembers(delta.getAffectedChildren(), members);
+				case IJavaElement.METHOD:
+				case IJavaElement.FIELD:
+				case IJavaElement.INITIALIZER:
+					break;
+				default:
+					return false;
+			}
+
+			IJavaElementDelta[] children= delta.getAffectedChildren();
+			if (children.length == 0 || (delta.getFlags() & IJavaElementDelta.F_CONTENT) != 0) {
+				members.add(element);
+				return true;
+			}
+			return collectChangedMembers(children, members);
+		}
+
+		private boolean collectChangedMembers(IJavaElementDelta[] deltas, Set<IJavaElement> members) {
+			for (int i= 0; i < deltas.length; i++) {
+				if (!collectChangedMembers(deltas[i], members))
+					return false;
+			}
+			return true;
+		}
+
 		/**
 		 * Ignore the delta if there are errors on the caret line.
 		 * <p>
@@ -729,6 +798,16 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 
 	private volatile int fUpdatingCount= 0;
 
+	/**
+	 * The flags of a delta of the input element that allow to update only the changed members.
+	 */
+	private static final int INPUT_DELTA_FLAGS= IJavaElementDelta.F_CONTENT | IJavaElementDelta.F_CHILDREN | IJavaElementDelta.F_FINE_GRAINED | IJavaElementDelta.F_AST_AFFECTED;
+
+	/**
+	 * The flags of a delta of a member that allow to update only the changed members.
+	 */
+	private static final int MEMBER_DELTA_FLAGS= IJavaElementDelta.F_CONTENT | IJavaElementDelta.F_CHILDREN | IJavaElementDelta.F_FINE_GRAINED | IJavaElementDelta.F_MODIFIERS | IJavaElementDelta.F_ANNOTATIONS;
+
 	/**
 	 * Creates a new folding provider. It must be
 	 * {@link #install(ITextEditor, ProjectionViewer) installed} on an editor/viewer pair before it
@@ -893,13 +972,54 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 		if (ctx == null)
 			return;
 
+		computeFoldingStructure(ctx);
+		update(ctx, computeCurrentStructure(ctx, null));
+	}
+
+	/**
+	 * Recomputes the folding regions of the given members and their descendants only. The
+	 * regions of all other elements are kept; their positions are updated by the document.
+	 *
+	 * @param ctx the computation context
+	 * @param members the changed members, none of them a top-level type
+	 * @return <code>false</code> if the folding structure could not be updated partially
+	 */
+	private boolean update(FoldingStructureComputationContext ctx, Set<IJavaElement> members) {
+		if (ctx == null)
+			return true;
+		if (!(fInput instanceof ISourceReference) || !(fInput instanceof IParent))
+			return false;
+
+		try {
+			String source= ((ISourceReference) fInput).getSource();
+			if (source == null)
+				return false;
+
+			// the header comment belongs to the first type, which is not recomputed
+			IJavaElement[] children= ((IParent) fInput).getChildren();
+			for (int i= 0; i < children.length; i++) {
+				if (children[i] instanceof IType) {
+					ctx.setFirstType((IType) children[i]);
+					break;
+				}
+			}
+
+			ctx.getScanner().setSource(source.toCharArray());
+			computeFoldingStructure(members.toArray(new IJavaElement[members.size()]), ctx);
+		} catch (JavaModelException x) {
+			return false;
+		}
+
+		update(ctx, computeCurrentStructure(ctx, members));
+		return true;
+	}
+
+	private void update(FoldingStructureComputationContext ctx, Map<IJavaElement, List<Tuple>> oldStructure) {
 		Map<JavaProjectionAnnotation, Position> additions= new HashMap<>();
 		List<JavaProjectionAnnotation> deletions= new ArrayList<>();
 		List<JavaProjectionAnnotation> updates= new ArrayList<>();
 
-		computeFoldingStructure(ctx);
 		Map<JavaProjectionAnnotation, Position> newStructure= ctx.fMap;
-		Map<IJavaElement, List<Tuple>> oldStructure= computeCurrentStructure(ctx);
 
 		Iterator<JavaProjectionAnnotation> e= newStructure.keySet().iterator();
 		while (e.hasNext()) {
@@ -998,6 +1118,23 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 		}
 	}
 
+	/**
+	 * Tells whether a change of the input element recomputes the folding structure of the changed
+	 * members only, instead of the folding structure of all elements.
+	 * <p>
+	 * The default implementation returns <code>true</code> for this class only. Subclasses that
+	 * extend {@link #computeFoldingStructure(IJavaElement, FoldingStructureComputationContext)}
+	 * may override this method to return <code>true</code> if the projection annotations they
+	 * compute for an element do not depend on other elements.
+	 * </p>
+	 *
+	 * @return <code>true</code> if only the changed members are updated
+	 * @since 3.16
+	 */
+	protected boolean isIncrementalUpdateSupported() {
+		return getClass() == DefaultJavaFoldingStructureProvider.class;
+	}
+
 	/**
 	 * Computes the folding structure for a given {@link IJavaElement java element}. Computed
 	 * projection annotations are
@@ -1013,6 +1150,10 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 	 * javadoc or before the package or import declarations).</li>
 	 * </ul>
 	 * </p>
+	 * <p>
+	 * If {@link #isIncrementalUpdateSupported()} returns <code>true</code>, this method is only
+	 * called for the changed members on a change of the input element.
+	 * </p>
 	 *
 	 * @param element the java element to compute the folding structure for
 	 * @param ctx the computation context
@@ -1392,7 +1533,15 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 		return null;
 	}
 
-	private Map<IJavaElement, List<Tuple>> computeCurrentStructure(FoldingStructureComputationContext ctx) {
+	/**
+	 * Returns the current folding annotations by element, sorted by offset.
+	 *
+	 * @param ctx the context
+	 * @param members the members whose annotations are returned together with the annotations
+	 *            of their descendants, or <code>null</code> for all annotations
+	 * @return the current annotations
+	 */
+	private Map<IJavaElement, List<Tuple>> computeCurrentStructure(FoldingStructureComputationContext ctx, Set<IJavaElement> members) {
 		Map<IJavaElement, List<Tuple>> map= new HashMap<>();
 		ProjectionAnnotationModel model= ctx.getModel();
 		Iterator<Annotation> e= model.getAnnotationIterator();
@@ -1400,6 +1549,8 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 			Object annotation= e.next();
 			if (annotation instanceof JavaProjectionAnnotation) {
 				JavaProjectionAnnotation java= (JavaProjectionAnnotation) annotation;
+				if (members != null && !isContained(java.getElement(), members))
+					continue;
 				Position position= model.getPosition(java);
 				Assert.isNotNull(position);
 				List<Tuple> list= map.get(java.getElement());
@@ -1424,6 +1575,22 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 		return map;
 	}
 
+	/**
+	 * Returns <code>true</code> if <code>element</code> or one of its ancestors is contained in
+	 * <code>members</code>.
+	 *
+	 * @param element the element to test, may be <code>null</code>
+	 * @param members the members
+	 * @return <code>true</code> if <code>element</code> is contained in one of the members
+	 */
+	private static boolean isContained(IJavaElement element, Set<IJavaElement> members) {
+		for (IJavaElement current= element; current != null; current= current.getParent()) {
+			if (members.contains(current))
+				return true;
+		}
+		return false;
+	}
+
 	/*
 	 * @see IJavaFoldingStructureProviderExtension#collapseMembers()
 	 * @since 3.2
@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.core.refactoring.tests.history;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.CoreException;
+
+import org.eclipse.ltk.core.refactoring.RefactoringDescriptor;
+import org.eclipse.ltk.core.refactoring.RefactoringDescriptorProxy;
+import org.eclipse.ltk.internal.core.refactoring.history.RefactoringHistoryLog;
+
+public class RefactoringHistoryLogTests extends TestCase {
+
+	private static final String PROJECT= "project";
+
+	private File fFolder;
+
+	private RefactoringHistoryLog fLog;
+
+	private static RefactoringDescriptor createDescriptor(int index) {
+		Map<String, String> arguments= new HashMap<>();
+		arguments.put("argument", "value " + index);
+		MockRefactoringDescriptor descriptor= new MockRefactoringDescriptor(PROJECT, "Description " + index, "Comment " + index, arguments, RefactoringDescriptor.BREAKING_CHANGE);
+		descriptor.setTimeStamp(1000 + index);
+		return descriptor;
+	}
+
+	private static void delete(File file) {
+		File[] files= file.listFiles();
+		if (files != null) {
+			for (int index= 0; index < files.length; index++)
+				delete(files[index]);
+		}
+		file.delete();
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fFolder= File.createTempFile("history", "");
+		fFolder.delete();
+		fFolder.mkdirs();
+		fLog= new RefactoringHistoryLog(fFolder, PROJECT);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fLog.close();
+		delete(fFolder);
+	}
+
+	private void putDescriptors(int count) throws CoreException, IOException {
+		for (int index= 0; index < count; index++)
+			fLog.put(createDescriptor(index));
+	}
+
+	private void reopen() throws IOException {
+		fLog.close();
+		fLog= new RefactoringHistoryLog(fFolder, PROJECT);
+		fLog.open();
+	}
+
+	public void testEmptyLog() throws Exception {
+		assertFalse(fLog.exists());
+		fLog.open();
+		assertTrue(fLog.exists());
+		assertEquals(0, fLog.size());
+		assertEquals(0, fLog.readProxies(0, Long.MAX_VALUE).length);
+		assertNull(fLog.readDescriptor(1000));
+	}
+
+	public void testReadDescriptor() throws Exception {
+		putDescriptors(5);
+		MockRefactoringDescriptor descriptor= (MockRefactoringDescriptor) fLog.readDescriptor(1003);
+		assertNotNull(descriptor);
+		assertEquals(MockRefactoringDescriptor.ID, descriptor.getID());
+		assertEquals(1003, descriptor.getTimeStamp());
+		assertEquals(PROJECT, descriptor.getProject());
+		assertEquals("Description 3", descriptor.getDescription());
+		assertEquals("Comment 3", descriptor.getComment());
+		assertEquals(RefactoringDescriptor.BREAKING_CHANGE, descriptor.getFlags());
+		assertEquals("value 3", descriptor.getArguments().get("argument"));
+	}
+
+	public void testReadProxies() throws Exception {
+		putDescriptors(100);
+		RefactoringDescriptorProxy[] proxies= fLog.readProxies(1010, 1019);
+		assertEquals(10, proxies.length);
+		for (int index= 0; index < proxies.length; index++) {
+			assertEquals(1010 + index, proxies[index].getTimeStamp());
+			assertEquals("Description " + (10 + index), proxies[index].getDescription());
+			assertEquals(PROJECT, proxies[index].getProject());
+		}
+	}
+
+	public void testReopen() throws Exception {
+		putDescriptors(70);
+		reopen();
+		assertEquals(70, fLog.size());
+		assertEquals(70, fLog.readProxies(0, Long.MAX_VALUE).length);
+		assertEquals("Description 69", fLog.readDescriptor(1069).getDescription());
+		fLog.put(createDescriptor(70));
+		reopen();
+		assertEquals(71, fLog.size());
+	}
+
+	public void testReopenAtIndexInterval() throws Exception {
+		// the log writes its index every 32 records
+		putDescriptors(32);
+		RefactoringHistoryLog log= new RefactoringHistoryLog(fFolder, PROJECT);
+		log.open();
+		assertEquals(32, log.size());
+		assertEquals("Description 31", log.readDescriptor(1031).getDescription());
+		reopen();
+		assertEquals(32, fLog.size());
+		assertEquals(32, fLog.readDescriptors().length);
+	}
+
+	public void testRemoveAtIndexInterval() throws Exception {
+		// the remove record is the 32nd record, after which the log writes its index
+		putDescriptors(31);
+		fLog.remove(new long[] { 1030 });
+		RefactoringHistoryLog log= new RefactoringHistoryLog(fFolder, PROJECT);
+		log.open();
+		assertEquals(30, log.size());
+		assertNull(log.readDescriptor(1030));
+		reopen();
+		assertEquals(30, fLog.size());
+		assertNull(fLog.readDescriptor(1030));
+	}
+
+	public void testRemove() throws Exception {
+		putDescriptors(10);
+		fLog.remove(new long[] { 1002, 1005 });
+		assertEquals(8, fLog.size());
+		assertNull(fLog.readDescriptor(1002));
+		assertNull(fLog.readDescriptor(1005));
+		reopen();
+		assertEquals(8, fLog.size());
+		assertEquals(8, fLog.readDescriptors().length);
+	}
+
+	public void testSetComment() throws Exception {
+		putDescriptors(10);
+		assertTrue(fLog.setComment(1004, "New comment"));
+		assertFalse(fLog.setComment(2000, "New comment"));
+		reopen();
+		assertEquals(10, fLog.size());
+		assertEquals("New comment", fLog.readDescriptor(1004).getComment());
+		assertEquals("Comment 5", fLog.readDescriptor(1005).getComment());
+	}
+
+	public void testDelete() throws Exception {
+		putDescriptors(3);
+		assertTrue(fLog.delete());
+		assertFalse(fLog.exists());
+	}
+
+	public void testDeleteAfterRead() throws Exception {
+		putDescriptors(3);
+		assertEquals(3, fLog.readProxies(0, Long.MAX_VALUE).length);
+		assertNotNull(fLog.readDescriptor(1001));
+		assertTrue(fLog.delete());
+		assertFalse(fLog.exists());
+		assertFalse(new File(fFolder, RefactoringHistoryLog.NAME_LOG_INDEX_FILE).exists());
+	}
+
+	public void testMoveOpenLog() throws Exception {
+		putDescriptors(40);
+		assertEquals(40, fLog.readProxies(0, Long.MAX_VALUE).length);
+		File moved= new File(fFolder.getPath() + "moved");
+		assertTrue(fFolder.renameTo(moved));
+		try {
+			RefactoringHistoryLog log= new RefactoringHistoryLog(moved, PROJECT);
+			log.open();
+			assertEquals(40, log.size());
+			assertEquals("Description 39", log.readDescriptor(1039).getDescription());
+			log.close();
+		} finally {
+			assertTrue(moved.renameTo(fFolder));
+		}
+	}
+}
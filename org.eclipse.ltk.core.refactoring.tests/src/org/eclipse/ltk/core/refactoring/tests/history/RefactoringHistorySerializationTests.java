@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2008 IBM Corporation and others.
+ * Copyright (c) 2006, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -444,4 +444,69 @@ public class RefactoringHistorySerializationTests extends TestCase {
 		compareWrittenDescriptor(session, true, xml);
 	}
 
-}
\ No newline at end of file
+	public void testWriteDescriptor9() throws Exception {
+		String version= "1.0";
+		String comment= null;
+		RefactoringSessionDescriptor session= new RefactoringSessionDescriptor(new RefactoringDescriptor[0], version, comment);
+		String xml= "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + "<session version=\"1.0\"/>" + "";
+		compareWrittenDescriptor(session, true, xml);
+	}
+
+	public void testWriteDescriptor10() throws Exception {
+		MockRefactoringDescriptor descriptor= new MockRefactoringDescriptor(null, "A <mock> & 'refactoring'", "A \"mock\"\tcomment\r\n", RefactoringDescriptor.NONE);
+		descriptor.setTimeStamp(1234);
+		Map<String, String> arguments= descriptor.getArguments();
+		arguments.put("arg0", "a > b");
+		String version= "1.0";
+		String comment= null;
+		RefactoringSessionDescriptor session= new RefactoringSessionDescriptor(new RefactoringDescriptor[] { descriptor}, version, comment);
+		String xml= "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + "<session version=\"1.0\">\n" + "<refactoring arg0=\"a &gt; b\" comment=\"A &quot;mock&quot;&#x09;comment&#x0D;&#x0A;\" description=\"A &lt;mock&gt; &amp; &apos;refactoring&apos;\" id=\"org.eclipse.ltk.core.mock\" stamp=\"1234\"/>\n" + "</session>" + "";
+		compareWrittenDescriptor(session, true, xml);
+		compareReadHistory(new RefactoringDescriptor[] { descriptor}, RefactoringDescriptor.NONE, xml, false);
+	}
+
+	public void testWriteDescriptor11() throws Exception {
+		MockRefactoringDescriptor descriptor= new MockRefactoringDescriptor(null, "A mock refactoring", null, RefactoringDescriptor.NONE);
+		descriptor.setTimeStamp(1234);
+		Map<String, String> arguments= descriptor.getArguments();
+		arguments.put("alpha", "a");
+		arguments.put("Zeta", "z");
+		arguments.put("Beta", "b");
+		arguments.put("\u00e9lan", "e");
+		String version= "1.0";
+		String comment= null;
+		RefactoringSessionDescriptor session= new RefactoringSessionDescriptor(new RefactoringDescriptor[] { descriptor}, version, comment);
+		String xml= "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + "<session version=\"1.0\">\n" + "<refactoring Beta=\"b\" Zeta=\"z\" alpha=\"a\" description=\"A mock refactoring\" id=\"org.eclipse.ltk.core.mock\" stamp=\"1234\" \u00e9lan=\"e\"/>\n" + "</session>" + "";
+		compareWrittenDescriptor(session, true, xml);
+	}
+
+	public void testWriteDescriptor12() throws Exception {
+		MockRefactoringDescriptor first= new MockRefactoringDescriptor(null, "A mock refactoring", null, RefactoringDescriptor.NONE);
+		MockRefactoringDescriptor second= new MockRefactoringDescriptor(null, "A malformed refactoring", null, RefactoringDescriptor.NONE);
+		second.getArguments().put("an argument", "value");
+		RefactoringSessionDescriptor session= new RefactoringSessionDescriptor(new RefactoringDescriptor[] { first, second}, "1.0", null);
+		ByteArrayOutputStream stream= new ByteArrayOutputStream();
+		try {
+			RefactoringCore.getHistoryService().writeRefactoringSession(session, stream, true);
+			fail("Malformed arguments must not be written");
+		} catch (CoreException exception) {
+			assertEquals(IRefactoringCoreStatusCodes.REFACTORING_HISTORY_FORMAT_ERROR, exception.getStatus().getCode());
+		}
+		assertEquals("Nothing must be written for a malformed session", 0, stream.size());
+	}
+
+	public void testWriteDescriptor13() throws Exception {
+		MockRefactoringDescriptor first= new MockRefactoringDescriptor(null, "A mock refactoring", null, RefactoringDescriptor.NONE);
+		MockRefactoringDescriptor second= new MockRefactoringDescriptor(null, "A malformed refactoring", null, RefactoringDescriptor.NONE);
+		second.getArguments().put("an argument", "value");
+		RefactoringDescriptorProxy[] proxies= { new RefactoringDescriptorProxyAdapter(first), new RefactoringDescriptorProxyAdapter(second)};
+		ByteArrayOutputStream stream= new ByteArrayOutputStream();
+		try {
+			RefactoringCore.getHistoryService().writeRefactoringDescriptors(proxies, stream, RefactoringDescriptor.NONE, true, null);
+			fail("Malformed arguments must not be written");
+		} catch (CoreException exception) {
+			assertEquals(IRefactoringCoreStatusCodes.REFACTORING_HISTORY_FORMAT_ERROR, exception.getStatus().getCode());
+		}
+		assertEquals("Nothing must be written for malformed descriptors", 0, stream.size());
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2015 IBM Corporation and others.
+ * Copyright (c) 2006, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,6 +13,7 @@
  *******************************************************************************/
 package org.eclipse.ltk.core.refactoring.tests.history;
 
+import java.io.File;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
@@ -20,7 +21,9 @@ import java.util.Set;
 import org.osgi.service.prefs.BackingStoreException;
 
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.InstanceScope;
 
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
@@ -39,9 +42,11 @@ import org.eclipse.ltk.core.refactoring.history.RefactoringExecutionEvent;
 import org.eclipse.ltk.core.refactoring.history.RefactoringHistory;
 import org.eclipse.ltk.core.refactoring.history.RefactoringHistoryEvent;
 import org.eclipse.ltk.core.refactoring.tests.util.SimpleTestProject;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
 import org.eclipse.ltk.internal.core.refactoring.RefactoringPreferenceConstants;
 import org.eclipse.ltk.internal.core.refactoring.history.RefactoringDescriptorProxyAdapter;
 import org.eclipse.ltk.internal.core.refactoring.history.RefactoringHistoryImplementation;
+import org.eclipse.ltk.internal.core.refactoring.history.RefactoringHistoryLog;
 import org.eclipse.ltk.internal.core.refactoring.history.RefactoringHistoryService;
 
 import junit.framework.TestCase;
@@ -188,6 +193,20 @@ public class RefactoringHistoryServiceTests extends TestCase {
 		RefactoringHistoryService.setSharedRefactoringHistory(fProject.getProject(), shared, null);
 	}
 
+	private void setBinaryRefactoringHistory(boolean binary) throws BackingStoreException {
+		final IEclipsePreferences preferences= InstanceScope.INSTANCE.getNode(RefactoringCore.ID_PLUGIN);
+		preferences.putBoolean(RefactoringPreferenceConstants.PREFERENCE_BINARY_REFACTORING_HISTORY, binary);
+		preferences.flush();
+	}
+
+	private static File getStateHistoryFolder(IProject project) {
+		return RefactoringCorePlugin.getDefault().getStateLocation().append(RefactoringHistoryService.NAME_HISTORY_FOLDER).append(project.getName()).toFile();
+	}
+
+	private static File getProjectHistoryFolder(IProject project) {
+		return project.getLocation().append(RefactoringHistoryService.NAME_HISTORY_FOLDER).toFile();
+	}
+
 	@Override
 	protected void setUp() throws Exception {
 		super.setUp();
@@ -701,4 +720,64 @@ public class RefactoringHistoryServiceTests extends TestCase {
 		assertDescendingSortOrder(proxies);
 	}
 
-}
\ No newline at end of file
+	public void testBinaryHistoryUnshare() throws Exception {
+		final IProject project= fProject.getProject();
+		final RefactoringHistoryService service= RefactoringHistoryService.getInstance();
+		setBinaryRefactoringHistory(true);
+		try {
+			setSharedRefactoringHistory(false);
+			assertEquals("Refactoring history has wrong size", TOTAL_PROJECT_NUMBER, service.getProjectHistory(project, null).getDescriptors().length);
+			final File folder= getStateHistoryFolder(project);
+			assertTrue("Refactoring history log should exist", new File(folder, RefactoringHistoryLog.NAME_LOG_FILE).isFile());
+			executeRefactoring(project.getName(), TOTALZ_HISTORY_NUMBER, RefactoringDescriptor.NONE);
+			assertEquals("Refactoring history has wrong size", TOTAL_PROJECT_NUMBER + 1, service.getProjectHistory(project, null).getDescriptors().length);
+		} finally {
+			setBinaryRefactoringHistory(false);
+		}
+	}
+
+	public void testBinaryHistoryShare() throws Exception {
+		final IProject project= fProject.getProject();
+		final RefactoringHistoryService service= RefactoringHistoryService.getInstance();
+		setBinaryRefactoringHistory(true);
+		try {
+			setSharedRefactoringHistory(false);
+			executeRefactoring(project.getName(), TOTALZ_HISTORY_NUMBER, RefactoringDescriptor.NONE);
+			assertTrue("Refactoring history log should exist", new File(getStateHistoryFolder(project), RefactoringHistoryLog.NAME_LOG_FILE).isFile());
+			setSharedRefactoringHistory(true);
+			assertFalse("Refactoring history folder should not exist", getStateHistoryFolder(project).exists());
+			final File folder= getProjectHistoryFolder(project);
+			assertFalse("Shared refactoring history must not contain a log", new File(folder, RefactoringHistoryLog.NAME_LOG_FILE).exists());
+			assertFalse("Shared refactoring history must not contain a log index", new File(folder, RefactoringHistoryLog.NAME_LOG_INDEX_FILE).exists());
+			assertEquals("Refactoring history has wrong size", TOTAL_PROJECT_NUMBER + 1, service.getProjectHistory(project, null).getDescriptors().length);
+			executeRefactoring(project.getName(), TOTALZ_HISTORY_NUMBER + 1, RefactoringDescriptor.NONE);
+			assertEquals("Refactoring history has wrong size", TOTAL_PROJECT_NUMBER + 2, service.getProjectHistory(project, null).getDescriptors().length);
+		} finally {
+			setBinaryRefactoringHistory(false);
+		}
+	}
+
+	public void testBinaryHistoryMove() throws Exception {
+		final IProject project= fProject.getProject();
+		final RefactoringHistoryService service= RefactoringHistoryService.getInstance();
+		final IProject moved= ResourcesPlugin.getWorkspace().getRoot().getProject(project.getName() + "Moved");
+		setBinaryRefactoringHistory(true);
+		try {
+			setSharedRefactoringHistory(false);
+			executeRefactoring(project.getName(), TOTALZ_HISTORY_NUMBER, RefactoringDescriptor.NONE);
+			project.move(new Path(moved.getName()), true, null);
+			try {
+				assertFalse("Refactoring history folder should not exist", getStateHistoryFolder(project).exists());
+				final File folder= getStateHistoryFolder(moved);
+				assertTrue("Refactoring history log should exist", new File(folder, RefactoringHistoryLog.NAME_LOG_FILE).isFile());
+				assertTrue("Refactoring history log index should exist", new File(folder, RefactoringHistoryLog.NAME_LOG_INDEX_FILE).isFile());
+				assertEquals("Refactoring history has wrong size", TOTAL_PROJECT_NUMBER + 1, service.getProjectHistory(moved, null).getDescriptors().length);
+			} finally {
+				moved.move(new Path(project.getName()), true, null);
+			}
+			assertEquals("Refactoring history has wrong size", TOTAL_PROJECT_NUMBER + 1, service.getProjectHistory(project, null).getDescriptors().length);
+		} finally {
+			setBinaryRefactoringHistory(false);
+		}
+	}
+}
@@ -20,6 +20,7 @@ public class RefactoringHistoryTests {
 
 	public static Test suite() {
 		TestSuite suite= new TestSuite(RefactoringHistoryTests.class.getName());
+		suite.addTestSuite(RefactoringHistoryLogTests.class);
 		suite.addTestSuite(RefactoringHistorySerializationTests.class);
 		suite.addTestSuite(RefactoringHistoryServiceTests.class);
 		return suite;
@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.core.refactoring.tests.participants;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+
+/**
+ * The element to be renamed by thread-safe and sequential participants. It
+ * names the participants in the order in which they are loaded and holds the
+ * documents changed by the thread-safe participants.
+ */
+public class ElementConcurrent {
+
+	/**
+	 * If set, the first thread-safe participant fails to check its conditions
+	 */
+	public boolean fFailing;
+
+	private final Map<String, AtomicInteger> fCounts= new ConcurrentHashMap<>();
+
+	private final Map<String, IDocument> fDocuments= new ConcurrentHashMap<>();
+
+	public String nextName(String prefix) {
+		return prefix + fCounts.computeIfAbsent(prefix, key -> new AtomicInteger()).incrementAndGet();
+	}
+
+	public IDocument getDocument(String name) {
+		return fDocuments.computeIfAbsent(name, key -> new Document());
+	}
+
+	public Map<String, IDocument> getDocuments() {
+		return fDocuments;
+	}
+}
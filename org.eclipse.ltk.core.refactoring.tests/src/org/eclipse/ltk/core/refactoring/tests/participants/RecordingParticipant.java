@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.core.refactoring.tests.participants;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import org.eclipse.ltk.core.refactoring.Change;
+import org.eclipse.ltk.core.refactoring.RefactoringStatus;
+import org.eclipse.ltk.core.refactoring.participants.CheckConditionsContext;
+import org.eclipse.ltk.core.refactoring.participants.RenameParticipant;
+
+/**
+ * A participant for {@link ElementConcurrent} which records the threads on which
+ * its conditions are checked and its change is created.
+ */
+public abstract class RecordingParticipant extends RenameParticipant {
+
+	private ElementConcurrent fElement;
+
+	private String fName;
+
+	private volatile Thread fCheckThread;
+
+	private volatile Thread fCreateThread;
+
+	protected abstract String getPrefix();
+
+	@Override
+	protected boolean initialize(Object element) {
+		fElement= (ElementConcurrent) element;
+		fName= fElement.nextName(getPrefix());
+		return true;
+	}
+
+	@Override
+	public String getName() {
+		return fName;
+	}
+
+	public ElementConcurrent getElement() {
+		return fElement;
+	}
+
+	public boolean isFirst() {
+		return fName.equals(getPrefix() + 1);
+	}
+
+	public Thread getCheckThread() {
+		return fCheckThread;
+	}
+
+	public Thread getCreateThread() {
+		return fCreateThread;
+	}
+
+	@Override
+	public RefactoringStatus checkConditions(IProgressMonitor pm, CheckConditionsContext context) throws OperationCanceledException {
+		fCheckThread= Thread.currentThread();
+		return RefactoringStatus.createWarningStatus(fName);
+	}
+
+	@Override
+	public Change createChange(IProgressMonitor pm) throws CoreException, OperationCanceledException {
+		fCreateThread= Thread.currentThread();
+		return null;
+	}
+}
@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.core.refactoring.tests.participants;
+
+import java.util.Iterator;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import org.eclipse.jface.text.IDocument;
+
+import org.eclipse.ltk.core.refactoring.Change;
+
+/**
+ * A participant which is not declared as thread-safe. It counts the text changes
+ * of the thread-safe participants which it can see.
+ */
+public class SequentialParticipant extends RecordingParticipant {
+
+	private int fVisibleChanges;
+
+	@Override
+	protected String getPrefix() {
+		return "sequential";
+	}
+
+	public int getVisibleChanges() {
+		return fVisibleChanges;
+	}
+
+	@Override
+	public Change createChange(IProgressMonitor pm) throws CoreException, OperationCanceledException {
+		for (Iterator<IDocument> iter= getElement().getDocuments().values().iterator(); iter.hasNext();) {
+			if (getTextChange(iter.next()) != null)
+				fVisibleChanges++;
+		}
+		return super.createChange(pm);
+	}
+}
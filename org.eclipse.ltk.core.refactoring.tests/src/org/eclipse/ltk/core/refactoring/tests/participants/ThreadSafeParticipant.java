@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.core.refactoring.tests.participants;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import org.eclipse.text.edits.InsertEdit;
+
+import org.eclipse.ltk.core.refactoring.Change;
+import org.eclipse.ltk.core.refactoring.DocumentChange;
+import org.eclipse.ltk.core.refactoring.RefactoringStatus;
+import org.eclipse.ltk.core.refactoring.participants.CheckConditionsContext;
+
+/**
+ * A participant which is declared as thread-safe. It changes a document of its own
+ * and reports a warning with its name.
+ */
+public class ThreadSafeParticipant extends RecordingParticipant {
+
+	@Override
+	protected String getPrefix() {
+		return "threadSafe";
+	}
+
+	@Override
+	public RefactoringStatus checkConditions(IProgressMonitor pm, CheckConditionsContext context) throws OperationCanceledException {
+		RefactoringStatus result= super.checkConditions(pm, context);
+		if (isFirst()) {
+			if (getElement().fFailing)
+				throw new IllegalStateException(getName());
+			// finish after the other participants
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				throw new OperationCanceledException();
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public Change createChange(IProgressMonitor pm) throws CoreException, OperationCanceledException {
+		super.createChange(pm);
+		DocumentChange change= new DocumentChange(getName(), getElement().getDocument(getName()));
+		change.setEdit(new InsertEdit(0, getName()));
+		return change;
+	}
+}
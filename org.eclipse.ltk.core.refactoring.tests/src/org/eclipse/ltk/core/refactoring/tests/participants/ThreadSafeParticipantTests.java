@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.core.refactoring.tests.participants;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import org.eclipse.ltk.core.refactoring.Change;
+import org.eclipse.ltk.core.refactoring.NullChange;
+import org.eclipse.ltk.core.refactoring.RefactoringStatus;
+import org.eclipse.ltk.core.refactoring.RefactoringStatusEntry;
+import org.eclipse.ltk.core.refactoring.participants.CheckConditionsContext;
+import org.eclipse.ltk.core.refactoring.participants.ParticipantManager;
+import org.eclipse.ltk.core.refactoring.participants.RefactoringParticipant;
+import org.eclipse.ltk.core.refactoring.participants.RenameArguments;
+import org.eclipse.ltk.core.refactoring.participants.RenameProcessor;
+import org.eclipse.ltk.core.refactoring.participants.RenameRefactoring;
+import org.eclipse.ltk.core.refactoring.participants.SharableParticipants;
+
+/**
+ * Tests refactorings with participants which are declared as thread-safe and
+ * participants which are not.
+ */
+public class ThreadSafeParticipantTests extends TestCase {
+
+	private static class Processor extends RenameProcessor {
+
+		private ElementConcurrent fElement;
+
+		private RecordingParticipant[] fParticipants;
+
+		public Processor(ElementConcurrent element) {
+			fElement= element;
+		}
+		@Override
+		public Object[] getElements() {
+			return new Object[] { fElement };
+		}
+		@Override
+		public String getIdentifier() {
+			return "org.eclipse.ltk.core.refactoring.tests.ThreadSafeProcessor";
+		}
+		@Override
+		public String getProcessorName() {
+			return "processor";
+		}
+		@Override
+		public boolean isApplicable() throws CoreException {
+			return true;
+		}
+		@Override
+		public RefactoringStatus checkInitialConditions(IProgressMonitor pm) throws CoreException, OperationCanceledException {
+			return new RefactoringStatus();
+		}
+		@Override
+		public RefactoringStatus checkFinalConditions(IProgressMonitor pm, CheckConditionsContext context) throws CoreException, OperationCanceledException {
+			return new RefactoringStatus();
+		}
+		@Override
+		public Change createChange(IProgressMonitor pm) throws CoreException, OperationCanceledException {
+			return new NullChange();
+		}
+		@Override
+		public RefactoringParticipant[] loadParticipants(RefactoringStatus status, SharableParticipants sharedParticipants) throws CoreException {
+			RefactoringParticipant[] participants= ParticipantManager.loadRenameParticipants(status, this, fElement, new RenameArguments("test", true), new String[0], sharedParticipants);
+			fParticipants= new RecordingParticipant[participants.length];
+			System.arraycopy(participants, 0, fParticipants, 0, participants.length);
+			return participants;
+		}
+	}
+
+	private ElementConcurrent fElement;
+
+	private Processor fProcessor;
+
+	private RenameRefactoring fRefactoring;
+
+	@Override
+	protected void setUp() throws Exception {
+		fElement= new ElementConcurrent();
+		fProcessor= new Processor(fElement);
+		fRefactoring= new RenameRefactoring(fProcessor);
+	}
+
+	private RefactoringStatus checkConditions() throws CoreException {
+		RefactoringStatus status= fRefactoring.checkInitialConditions(new NullProgressMonitor());
+		status.merge(fRefactoring.checkFinalConditions(new NullProgressMonitor()));
+		return status;
+	}
+
+	private List<RecordingParticipant> getParticipants(Class<? extends RecordingParticipant> clazz) {
+		List<RecordingParticipant> result= new ArrayList<>();
+		for (int i= 0; i < fProcessor.fParticipants.length; i++) {
+			if (clazz.isInstance(fProcessor.fParticipants[i]))
+				result.add(fProcessor.fParticipants[i]);
+		}
+		return result;
+	}
+
+	public void testThreads() throws Exception {
+		checkConditions();
+		fRefactoring.createChange(new NullProgressMonitor());
+
+		List<RecordingParticipant> threadSafe= getParticipants(ThreadSafeParticipant.class);
+		List<RecordingParticipant> sequential= getParticipants(SequentialParticipant.class);
+		assertEquals(2, threadSafe.size());
+		assertEquals(1, sequential.size());
+		for (int i= 0; i < threadSafe.size(); i++) {
+			RecordingParticipant participant= threadSafe.get(i);
+			assertNotNull(participant.getCheckThread());
+			assertNotSame(Thread.currentThread(), participant.getCheckThread());
+			assertNotNull(participant.getCreateThread());
+			assertNotSame(Thread.currentThread(), participant.getCreateThread());
+		}
+		assertSame(Thread.currentThread(), sequential.get(0).getCheckThread());
+		assertSame(Thread.currentThread(), sequential.get(0).getCreateThread());
+	}
+
+	public void testStatusOrder() throws Exception {
+		RefactoringStatus status= checkConditions();
+
+		// the first thread-safe participant finishes last, but its status still comes first
+		RefactoringStatusEntry[] entries= status.getEntries();
+		assertEquals(fProcessor.fParticipants.length, entries.length);
+		for (int i= 0; i < entries.length; i++)
+			assertEquals(fProcessor.fParticipants[i].getName(), entries[i].getMessage());
+	}
+
+	public void testTextChanges() throws Exception {
+		checkConditions();
+		Change change= fRefactoring.createChange(new NullProgressMonitor());
+
+		// the sequential participants see the text changes of the thread-safe ones
+		SequentialParticipant sequential= (SequentialParticipant) getParticipants(SequentialParticipant.class).get(0);
+		assertEquals(2, sequential.getVisibleChanges());
+
+		change.initializeValidationData(new NullProgressMonitor());
+		change.perform(new NullProgressMonitor());
+		List<RecordingParticipant> threadSafe= getParticipants(ThreadSafeParticipant.class);
+		for (int i= 0; i < threadSafe.size(); i++) {
+			String name= threadSafe.get(i).getName();
+			assertEquals(name, fElement.getDocument(name).get());
+		}
+	}
+
+	public void testFailingThreadSafeParticipant() throws Exception {
+		fElement.fFailing= true;
+		RefactoringStatus status= checkConditions();
+		assertTrue(status.hasError());
+
+		fRefactoring.createChange(new NullProgressMonitor());
+		List<RecordingParticipant> threadSafe= getParticipants(ThreadSafeParticipant.class);
+		assertTrue(threadSafe.get(0).isFirst());
+		// the failing participant has been removed
+		assertNull(threadSafe.get(0).getCreateThread());
+		assertNotNull(threadSafe.get(1).getCreateThread());
+		assertNotNull(getParticipants(SequentialParticipant.class).get(0).getCreateThread());
+	}
+}
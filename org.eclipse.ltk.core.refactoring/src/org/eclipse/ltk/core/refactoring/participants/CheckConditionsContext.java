@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -49,6 +49,10 @@ import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
  * participants.
  * </p>
  * <p>
+ * Since 3.10, the context and the checkers provided by the refactoring framework
+ * may be used by several participants concurrently.
+ * </p>
+ * <p>
  * Note: this class is not intended to be extended by clients.
  * </p>
  *
@@ -68,7 +72,7 @@ public class CheckConditionsContext {
 	 * @return the condition checker or <code>null</code> if
 	 *  no checker is registered for the given type
 	 */
-	public <T extends IConditionChecker> T getChecker(Class<T> clazz) {
+	public synchronized <T extends IConditionChecker> T getChecker(Class<T> clazz) {
 		return clazz.cast(fCheckers.get(clazz));
 	}
 
@@ -81,7 +85,7 @@ public class CheckConditionsContext {
 	 * @throws CoreException if a checker of the same type already
 	 *  exists
 	 */
-	public void add(IConditionChecker checker) throws CoreException {
+	public synchronized void add(IConditionChecker checker) throws CoreException {
 		IConditionChecker old= fCheckers.put(checker.getClass(), checker);
 		if (old != null) {
 			fCheckers.put(checker.getClass(), old);
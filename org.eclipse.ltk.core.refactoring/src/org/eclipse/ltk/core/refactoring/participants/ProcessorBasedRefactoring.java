@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -21,6 +21,8 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -28,6 +30,7 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.PerformanceStats;
+import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubProgressMonitor;
 
@@ -45,6 +48,7 @@ import org.eclipse.ltk.internal.core.refactoring.Messages;
 import org.eclipse.ltk.internal.core.refactoring.ParticipantDescriptor;
 import org.eclipse.ltk.internal.core.refactoring.RefactoringCoreMessages;
 import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
+import org.eclipse.ltk.internal.core.refactoring.WorkerPool;
 
 /**
  * An base implementation for refactorings that are split into
@@ -56,6 +60,9 @@ import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
  * <p>Since 3.4, this class is non abstract and can be instantiated. {@link #getProcessor()} will
  * return the processor passed in {@link #ProcessorBasedRefactoring(RefactoringProcessor)} or
  * the processor set by {@link #setProcessor(RefactoringProcessor)}.
+ * <p>Since 3.10, the conditions and changes of participants which are declared as thread-safe
+ * are checked and created concurrently with the ones of the other participants, see
+ * {@link RefactoringParticipant}.
  *
  * @since 3.0
  */
@@ -64,6 +71,8 @@ public class ProcessorBasedRefactoring extends Refactoring {
 	private static final String PERF_CHECK_CONDITIONS= "org.eclipse.ltk.core.refactoring/perf/participants/checkConditions"; //$NON-NLS-1$
 	private static final String PERF_CREATE_CHANGES= "org.eclipse.ltk.core.refactoring/perf/participants/createChanges"; //$NON-NLS-1$
 
+	private static final boolean DEBUG_PARTICIPANTS= "true".equalsIgnoreCase(Platform.getDebugOption("org.eclipse.ltk.core.refactoring/debug/participants")); //$NON-NLS-1$//$NON-NLS-2$
+
 	private RefactoringProcessor fProcessor;
 
 	private List<RefactoringParticipant> fParticipants;
@@ -129,6 +138,24 @@ public class ProcessorBasedRefactoring extends Refactoring {
 		}
 	}
 
+	/**
+	 * A progress monitor for participants which run in the pool. It only
+	 * forwards the cancellation of the monitor of the refactoring, since
+	 * progress can only be reported by the thread which runs the refactoring.
+	 */
+	private static class ParticipantMonitor extends NullProgressMonitor {
+		private final IProgressMonitor fMonitor;
+
+		public ParticipantMonitor(IProgressMonitor monitor) {
+			fMonitor= monitor;
+		}
+
+		@Override
+		public boolean isCanceled() {
+			return super.isCanceled() || fMonitor.isCanceled();
+		}
+	}
+
 	/**
 	 * Creates a new processor based refactoring. Clients must override {@link #getProcessor()} to return a processor or set the
 	 * processor with {@link #setProcessor(RefactoringProcessor)}.
@@ -247,30 +274,68 @@ public class ProcessorBasedRefactoring extends Refactoring {
 		IProgressMonitor sm= new SubProgressMonitor(pm, 2);
 
 		sm.beginTask("", fParticipants.size()); //$NON-NLS-1$
-		for (Iterator<RefactoringParticipant> iter= fParticipants.iterator(); iter.hasNext() && !result.hasFatalError(); ) {
-
-			RefactoringParticipant participant= iter.next();
+		RefactoringParticipant[] participants= fParticipants.toArray(new RefactoringParticipant[fParticipants.size()]);
+		RefactoringStatus[] statuses= new RefactoringStatus[participants.length];
+		RuntimeException[] failures= new RuntimeException[participants.length];
+		List<Future<RefactoringStatus>> futures= new ArrayList<>(participants.length);
+		IProgressMonitor participantMonitor= new ParticipantMonitor(sm);
+		try {
+			// thread-safe participants are checked in the pool while the others are checked here
+			boolean concurrent= canRunConcurrently();
+			for (int i= 0; i < participants.length; i++) {
+				RefactoringParticipant participant= participants[i];
+				if (concurrent && isThreadSafe(participant))
+					futures.add(getWorkerPool().submit(() -> checkConditions(participant, participantMonitor, context, true)));
+				else
+					futures.add(null);
+			}
+			boolean fatal= false;
+			for (int i= 0; i < participants.length && !fatal; i++) {
+				if (futures.get(i) != null)
+					continue;
+				try {
+					statuses[i]= checkConditions(participants[i], new SubProgressMonitor(sm, 1), context, false);
+					fatal= statuses[i].hasFatalError();
+				} catch (OperationCanceledException e) {
+					throw e;
+				} catch (RuntimeException e) {
+					failures[i]= e;
+				}
 
-			final PerformanceStats stats= PerformanceStats.getStats(PERF_CHECK_CONDITIONS, getName() + ", " + participant.getName()); //$NON-NLS-1$
-			stats.startRun();
+				if (sm.isCanceled())
+					throw new OperationCanceledException();
+			}
+			for (int i= 0; i < participants.length; i++) {
+				if (futures.get(i) == null)
+					continue;
+				try {
+					statuses[i]= getResult(futures.get(i));
+				} catch (OperationCanceledException e) {
+					throw e;
+				} catch (RuntimeException e) {
+					failures[i]= e;
+				}
+				sm.worked(1);
+			}
+		} finally {
+			participantMonitor.setCanceled(true);
+			cancel(futures);
+		}
+		if (sm.isCanceled())
+			throw new OperationCanceledException();
 
-			try {
-				result.merge(participant.checkConditions(new SubProgressMonitor(sm, 1), context));
-			} catch (OperationCanceledException e) {
-				throw e;
-			} catch (RuntimeException e) {
+		// merge the results in the order of the participants
+		for (int i= 0; i < participants.length && !result.hasFatalError(); i++) {
+			if (failures[i] != null) {
 				// remove the participant so that it will be ignored during change execution.
-				RefactoringCorePlugin.log(e);
+				RefactoringCorePlugin.log(failures[i]);
 				result.merge(RefactoringStatus.createErrorStatus(Messages.format(
 					RefactoringCoreMessages.ProcessorBasedRefactoring_check_condition_participant_failed,
-					participant.getName())));
-				iter.remove();
+					participants[i].getName())));
+				fParticipants.remove(participants[i]);
+			} else if (statuses[i] != null) {
+				result.merge(statuses[i]);
 			}
-
-			stats.endRun();
-
-			if (sm.isCanceled())
-				throw new OperationCanceledException();
 		}
 		sm.done();
 		if (result.hasFatalError()) {
@@ -295,47 +360,70 @@ public class ProcessorBasedRefactoring extends Refactoring {
 		fTextChangeMap= new HashMap<>();
 		addToTextChangeMap(processorChange);
 
+		RefactoringParticipant[] participants= fParticipants.toArray(new RefactoringParticipant[fParticipants.size()]);
+		Change[][] participantChanges= new Change[participants.length][];
+		List<Future<Change[]>> futures= new ArrayList<>(participants.length);
+		IProgressMonitor participantMonitor= new ParticipantMonitor(pm);
+		try {
+			// thread-safe participants only see the text changes of the processor, so
+			// their changes are created before the ones of the other participants
+			boolean concurrent= canRunConcurrently();
+			for (int i= 0; i < participants.length; i++) {
+				RefactoringParticipant participant= participants[i];
+				if (concurrent && isThreadSafe(participant))
+					futures.add(getWorkerPool().submit(() -> createChanges(participant, participantMonitor, participantMonitor, true)));
+				else
+					futures.add(null);
+			}
+			for (int i= 0; i < participants.length; i++) {
+				if (futures.get(i) == null)
+					continue;
+				participantChanges[i]= getResult(futures.get(i));
+				pm.worked(2);
+				if (pm.isCanceled())
+					throw new OperationCanceledException();
+			}
+			for (int i= 0; i < participants.length; i++) {
+				if (participantChanges[i] != null) {
+					addToTextChangeMap(participantChanges[i][0]);
+					addToTextChangeMap(participantChanges[i][1]);
+				}
+			}
+			for (int i= 0; i < participants.length; i++) {
+				if (futures.get(i) != null)
+					continue;
+				participantChanges[i]= createChanges(participants[i], new SubProgressMonitor(pm, 1), new SubProgressMonitor(pm, 1), false);
+				addToTextChangeMap(participantChanges[i][0]);
+				addToTextChangeMap(participantChanges[i][1]);
+
+				if (pm.isCanceled())
+					throw new OperationCanceledException();
+			}
+		} finally {
+			participantMonitor.setCanceled(true);
+			cancel(futures);
+		}
+
 		List<Change> changes= new ArrayList<>();
 		List<Change> preChanges= new ArrayList<>();
 		Map<Change, RefactoringParticipant> participantMap= new HashMap<>();
-		for (Iterator<RefactoringParticipant> iter= fParticipants.iterator(); iter.hasNext();) {
-			final RefactoringParticipant participant= iter.next();
-
-			try {
-				final PerformanceStats stats= PerformanceStats.getStats(PERF_CREATE_CHANGES, getName() + ", " + participant.getName()); //$NON-NLS-1$
-				stats.startRun();
-
-				Change preChange= participant.createPreChange(new SubProgressMonitor(pm, 1));
-				Change change= participant.createChange(new SubProgressMonitor(pm, 1));
-
-				stats.endRun();
-
-				if (preChange != null) {
-					if (fPreChangeParticipants == null)
-						fPreChangeParticipants= new ArrayList<>();
-					fPreChangeParticipants.add(participant);
-					preChanges.add(preChange);
-					participantMap.put(preChange, participant);
-					addToTextChangeMap(preChange);
-				}
-
-				if (change != null) {
-					changes.add(change);
-					participantMap.put(change, participant);
-					addToTextChangeMap(change);
-				}
+		for (int i= 0; i < participants.length; i++) {
+			RefactoringParticipant participant= participants[i];
+			Change preChange= participantChanges[i][0];
+			Change change= participantChanges[i][1];
+
+			if (preChange != null) {
+				if (fPreChangeParticipants == null)
+					fPreChangeParticipants= new ArrayList<>();
+				fPreChangeParticipants.add(participant);
+				preChanges.add(preChange);
+				participantMap.put(preChange, participant);
+			}
 
-			} catch (CoreException e) {
-				disableParticipant(participant, e);
-				throw e;
-			} catch (OperationCanceledException e) {
-				throw e;
-			} catch (RuntimeException e) {
-				disableParticipant(participant, e);
-				throw e;
+			if (change != null) {
+				changes.add(change);
+				participantMap.put(change, participant);
 			}
-			if (pm.isCanceled())
-				throw new OperationCanceledException();
 		}
 
 		fTextChangeMap= null;
@@ -421,6 +509,104 @@ public class ProcessorBasedRefactoring extends Refactoring {
 	}
 
 
+	private RefactoringStatus checkConditions(RefactoringParticipant participant, IProgressMonitor pm, CheckConditionsContext context, boolean concurrent) {
+		final PerformanceStats stats= PerformanceStats.getStats(PERF_CHECK_CONDITIONS, getName() + ", " + participant.getName()); //$NON-NLS-1$
+		long start= System.currentTimeMillis();
+		stats.startRun();
+		try {
+			return participant.checkConditions(pm, context);
+		} finally {
+			stats.endRun();
+			trace("checkConditions", participant, start, concurrent); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Creates the pre change and the change of the given participant. The participant
+	 * is disabled if it fails.
+	 *
+	 * @param participant the participant
+	 * @param preChangeMonitor the progress monitor for the pre change
+	 * @param changeMonitor the progress monitor for the change
+	 * @param concurrent whether the participant runs concurrently with other participants
+	 * @return the pre change and the change, each possibly <code>null</code>
+	 * @throws CoreException if the participant fails
+	 */
+	private Change[] createChanges(RefactoringParticipant participant, IProgressMonitor preChangeMonitor, IProgressMonitor changeMonitor, boolean concurrent) throws CoreException {
+		try {
+			final PerformanceStats stats= PerformanceStats.getStats(PERF_CREATE_CHANGES, getName() + ", " + participant.getName()); //$NON-NLS-1$
+			long start= System.currentTimeMillis();
+			stats.startRun();
+
+			Change preChange= participant.createPreChange(preChangeMonitor);
+			Change change= participant.createChange(changeMonitor);
+
+			stats.endRun();
+			trace("createChange", participant, start, concurrent); //$NON-NLS-1$
+
+			return new Change[] { preChange, change };
+		} catch (CoreException e) {
+			disableParticipant(participant, e);
+			throw e;
+		} catch (OperationCanceledException e) {
+			throw e;
+		} catch (RuntimeException e) {
+			disableParticipant(participant, e);
+			throw e;
+		}
+	}
+
+	private void trace(String operation, RefactoringParticipant participant, long start, boolean concurrent) {
+		if (DEBUG_PARTICIPANTS) {
+			System.out.println("ProcessorBasedRefactoring#" + operation + ": " + getName() + ", " + participant.getName() //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					+ " took " + (System.currentTimeMillis() - start) + "ms" + (concurrent ? " (concurrent)" : "")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		}
+	}
+
+	private static boolean isThreadSafe(RefactoringParticipant participant) {
+		ParticipantDescriptor descriptor= participant.getDescriptor();
+		return descriptor != null && descriptor.isThreadSafe();
+	}
+
+	/**
+	 * Returns whether participants may run in the pool, i.e. whether the
+	 * refactoring is not itself executed on a thread of the pool.
+	 *
+	 * @return <code>true</code> if thread-safe participants may run in the pool
+	 */
+	private static boolean canRunConcurrently() {
+		return !WorkerPool.isWorkerThread();
+	}
+
+	private static WorkerPool getWorkerPool() {
+		return RefactoringCorePlugin.getDefault().getWorkerPool();
+	}
+
+	private static <T> T getResult(Future<T> future) throws CoreException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			throw new OperationCanceledException();
+		} catch (ExecutionException e) {
+			Throwable cause= e.getCause();
+			if (cause instanceof CoreException)
+				throw (CoreException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new CoreException(new Status(IStatus.ERROR, RefactoringCorePlugin.getPluginId(), IStatus.ERROR, cause.getMessage(), cause));
+		}
+	}
+
+	private static void cancel(List<? extends Future<?>> futures) {
+		for (Iterator<? extends Future<?>> iter= futures.iterator(); iter.hasNext();) {
+			Future<?> future= iter.next();
+			if (future != null)
+				future.cancel(false);
+		}
+	}
+
 	private static void disableParticipant(final RefactoringParticipant participant, Throwable e) {
 		ParticipantDescriptor descriptor= participant.getDescriptor();
 		descriptor.disable();
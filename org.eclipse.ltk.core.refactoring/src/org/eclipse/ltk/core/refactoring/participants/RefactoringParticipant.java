@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -63,6 +63,15 @@ import org.eclipse.ltk.internal.core.refactoring.ParticipantDescriptor;
  * to add changes that will be executed <em>before</em> the main refactoring changes
  * are executed.
  * </p>
+ * <p>
+ * Since 3.10, a participant can declare itself as thread-safe with the <code>threadSafe</code>
+ * attribute of its extension. The condition checking and change creation of thread-safe
+ * participants may run in background threads concurrently with the ones of other participants.
+ * Such a participant must not modify shared state other than through the condition checkers
+ * of the {@link CheckConditionsContext}, must not modify the text changes returned by
+ * {@link #getTextChange(Object)} and only sees the text changes of the processor. Since the
+ * thread running the refactoring may hold scheduling rules, it must not begin any rules itself.
+ * </p>
  *
  * @see RefactoringProcessor
  * @see ISharableParticipant
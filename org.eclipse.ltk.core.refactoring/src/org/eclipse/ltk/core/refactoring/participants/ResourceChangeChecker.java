@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -17,10 +17,12 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 
 import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IResourceDelta;
 import org.eclipse.core.resources.IResourceDeltaVisitor;
@@ -39,6 +41,10 @@ import org.eclipse.ltk.core.refactoring.RefactoringStatus;
  * <p>
  * Note: this class is not intended to be extended by clients.
  * </p>
+ * <p>
+ * Since 3.10, the delta factory of the checker may be used by several
+ * participants concurrently.
+ * </p>
  *
  * @see ResourceChangeValidator
  *
@@ -48,10 +54,58 @@ import org.eclipse.ltk.core.refactoring.RefactoringStatus;
  */
 public class ResourceChangeChecker implements IConditionChecker {
 
+	/**
+	 * Serializes the access to a delta factory, so that participants which
+	 * check their conditions concurrently can share it.
+	 */
+	private static class SynchronizedDeltaFactory implements IResourceChangeDescriptionFactory {
+
+		private final IResourceChangeDescriptionFactory fDelegate;
+
+		public SynchronizedDeltaFactory(IResourceChangeDescriptionFactory delegate) {
+			fDelegate= delegate;
+		}
+
+		@Override
+		public synchronized void change(IFile file) {
+			fDelegate.change(file);
+		}
+
+		@Override
+		public synchronized void close(IProject project) {
+			fDelegate.close(project);
+		}
+
+		@Override
+		public synchronized void copy(IResource resource, IPath destination) {
+			fDelegate.copy(resource, destination);
+		}
+
+		@Override
+		public synchronized void create(IResource resource) {
+			fDelegate.create(resource);
+		}
+
+		@Override
+		public synchronized void delete(IResource resource) {
+			fDelegate.delete(resource);
+		}
+
+		@Override
+		public synchronized IResourceDelta getDelta() {
+			return fDelegate.getDelta();
+		}
+
+		@Override
+		public synchronized void move(IResource resource, IPath destination) {
+			fDelegate.move(resource, destination);
+		}
+	}
+
 	private IResourceChangeDescriptionFactory fDeltaFactory;
 
 	public ResourceChangeChecker() {
-		fDeltaFactory= ResourceChangeValidator.getValidator().createDeltaFactory();
+		fDeltaFactory= new SynchronizedDeltaFactory(ResourceChangeValidator.getValidator().createDeltaFactory());
 	}
 
 	/**
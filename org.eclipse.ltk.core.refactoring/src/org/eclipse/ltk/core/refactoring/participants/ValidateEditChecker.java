@@ -77,7 +77,7 @@ public class ValidateEditChecker implements IConditionChecker {
 	 *
 	 * @param file the file to add
 	 */
-	public void addFile(IFile file) {
+	public synchronized void addFile(IFile file) {
 		Assert.isNotNull(file);
 		fFiles.add(file);
 	}
@@ -87,14 +87,17 @@ public class ValidateEditChecker implements IConditionChecker {
 	 *
 	 * @param files the array of files to add
 	 */
-	public void addFiles(IFile[] files) {
+	public synchronized void addFiles(IFile[] files) {
 		Assert.isNotNull(files);
 		fFiles.addAll(Arrays.asList(files));
 	}
 
 	@Override
 	public RefactoringStatus check(IProgressMonitor monitor) throws CoreException {
-		IResource[] resources= fFiles.toArray(new IResource[fFiles.size()]);
+		IResource[] resources;
+		synchronized (this) {
+			resources= fFiles.toArray(new IResource[fFiles.size()]);
+		}
 		RefactoringStatus result= new RefactoringStatus();
 		IStatus status= Resources.checkInSync(resources);
 		if (!status.isOK())
@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.internal.core.refactoring;
+
+import org.eclipse.ltk.core.refactoring.RefactoringDescriptor;
+
+/**
+ * An acceptor for refactoring descriptors which are read incrementally from
+ * a refactoring session.
+ *
+ * @see RefactoringSessionReader#readSession(org.xml.sax.InputSource, IRefactoringDescriptorAcceptor)
+ */
+public interface IRefactoringDescriptorAcceptor {
+
+	/**
+	 * Accepts a refactoring descriptor which has been read from a refactoring
+	 * session.
+	 * <p>
+	 * The descriptors are passed in the order they occur in the session.
+	 * Implementations may throw an
+	 * {@link org.eclipse.core.runtime.OperationCanceledException} to abort
+	 * reading.
+	 * </p>
+	 *
+	 * @param descriptor
+	 *            the refactoring descriptor
+	 */
+	public void acceptRefactoring(RefactoringDescriptor descriptor);
+}
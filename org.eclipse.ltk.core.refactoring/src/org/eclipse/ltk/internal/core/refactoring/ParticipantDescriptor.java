@@ -38,6 +38,7 @@ public class ParticipantDescriptor {
 	private static final String NAME= "name";  //$NON-NLS-1$
 	private static final String CLASS= "class"; //$NON-NLS-1$
 	private static final String PROCESS_ON_CANCEL= "processOnCancel";  //$NON-NLS-1$
+	private static final String THREAD_SAFE= "threadSafe";  //$NON-NLS-1$
 
 	public ParticipantDescriptor(IConfigurationElement element) {
 		fConfigurationElement= element;
@@ -103,6 +104,13 @@ public class ParticipantDescriptor {
 		return Boolean.valueOf(attr).booleanValue();
 	}
 
+	public boolean isThreadSafe() {
+		String attr= fConfigurationElement.getAttribute(THREAD_SAFE);
+		if (attr == null)
+			return false;
+		return Boolean.valueOf(attr).booleanValue();
+	}
+
 	private boolean convert(EvaluationResult eval) {
 		if (eval == EvaluationResult.FALSE)
 			return false;
@@ -187,6 +187,8 @@ public final class RefactoringCoreMessages extends NLS {
 
 	public static String RefactoringCorePlugin_participant_removed;
 
+	public static String RefactoringHistoryLog_invalid_format;
+
 	public static String RefactoringHistoryManager_empty_argument;
 
 	public static String RefactoringHistoryManager_error_reading_file;
@@ -215,6 +217,8 @@ public final class RefactoringCoreMessages extends NLS {
 
 	public static String RefactoringSessionReader_unsupported_version_information;
 
+	public static String RefactoringSessionWriter_write_error;
+
 	public static String RefactoringUndoContext_label;
 
 	public static String Resources_fileModified;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -45,6 +45,8 @@ public class RefactoringCorePlugin extends Plugin {
 
 	private IRefactoringHistoryListener fRefactoringHistoryListener= null;
 
+	private WorkerPool fWorkerPool;
+
 	public RefactoringCorePlugin() {
 		fgDefault= this;
 	}
@@ -113,6 +115,18 @@ public class RefactoringCorePlugin extends Plugin {
 		return fgUndoManager;
 	}
 
+	/**
+	 * Returns the pool on which thread-safe participants and the concurrent
+	 * computations of friend plug-ins run.
+	 *
+	 * @return the worker pool of this plug-in
+	 */
+	public synchronized WorkerPool getWorkerPool() {
+		if (fWorkerPool == null)
+			fWorkerPool= new WorkerPool();
+		return fWorkerPool;
+	}
+
 	@Override
 	public void start(BundleContext context) throws Exception {
 		super.start(context);
@@ -138,6 +152,10 @@ public class RefactoringCorePlugin extends Plugin {
 		if (fRefactoringHistoryListener != null)
 			service.removeHistoryListener(fRefactoringHistoryListener);
 		RefactoringContributionManager.getInstance().disconnect();
+		synchronized (this) {
+			if (fWorkerPool != null)
+				fWorkerPool.shutdown();
+		}
 		super.stop(context);
 	}
 
@@ -23,6 +23,9 @@ public final class RefactoringPreferenceConstants {
 	/** The shared refactoring history preference */
 	public static final String PREFERENCE_SHARED_REFACTORING_HISTORY= "org.eclipse.ltk.core.refactoring.enable.project.refactoring.history"; //$NON-NLS-1$
 
+	/** The binary refactoring history preference */
+	public static final String PREFERENCE_BINARY_REFACTORING_HISTORY= "org.eclipse.ltk.core.refactoring.binary.refactoring.history"; //$NON-NLS-1$
+
 	private RefactoringPreferenceConstants() {
 		// Not for instantiation
 	}
@@ -33,6 +33,7 @@ import org.xml.sax.SAXParseException;
 import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.DefaultHandler;
 
+import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -62,6 +63,12 @@ public final class RefactoringSessionReader extends DefaultHandler {
 
 	private final boolean fCreateDefaultDescriptors;
 
+	/**
+	 * The acceptor of the refactoring descriptors, or <code>null</code> if the
+	 * descriptors are collected in a refactoring session descriptor
+	 */
+	private IRefactoringDescriptorAcceptor fAcceptor= null;
+
 	/**
 	 * The current list of refactoring descriptors, or <code>null</code>
 	 * (element type: <code>RefactoringDescriptor</code>)
@@ -139,13 +146,9 @@ public final class RefactoringSessionReader extends DefaultHandler {
 		try {
 			source.setSystemId("/"); //$NON-NLS-1$
 			createParser(SAXParserFactory.newInstance()).parse(source, this);
-			if (!fSessionFound)
-				throw new CoreException(new Status(IStatus.ERROR, RefactoringCorePlugin.getPluginId(), IRefactoringCoreStatusCodes.REFACTORING_HISTORY_FORMAT_ERROR, RefactoringCoreMessages.RefactoringSessionReader_no_session, null));
+			checkSession();
 			if (fRefactoringDescriptors != null) {
-				if (fVersion == null || "".equals(fVersion)) //$NON-NLS-1$
-					throw new CoreException(new Status(IStatus.ERROR, RefactoringCorePlugin.getPluginId(), IRefactoringCoreStatusCodes.MISSING_REFACTORING_HISTORY_VERSION, RefactoringCoreMessages.RefactoringSessionReader_missing_version_information, null));
-				if (!IRefactoringSerializationConstants.CURRENT_VERSION.equals(fVersion))
-					throw new CoreException(new Status(IStatus.ERROR, RefactoringCorePlugin.getPluginId(), IRefactoringCoreStatusCodes.UNSUPPORTED_REFACTORING_HISTORY_VERSION, RefactoringCoreMessages.RefactoringSessionReader_unsupported_version_information, null));
+				checkVersion();
 				return new RefactoringSessionDescriptor(fRefactoringDescriptors.toArray(new RefactoringDescriptor[fRefactoringDescriptors.size()]), fVersion, fComment);
 			}
 		} catch (IOException exception) {
@@ -170,6 +173,81 @@ public final class RefactoringSessionReader extends DefaultHandler {
 		return null;
 	}
 
+	/**
+	 * Reads the refactoring descriptors of a refactoring session from the
+	 * specified input object and passes them to the acceptor as soon as they
+	 * have been read.
+	 * <p>
+	 * In contrast to {@link #readSession(InputSource)}, the descriptors are
+	 * not collected, which keeps the memory consumption independent of the
+	 * size of the session.
+	 * </p>
+	 *
+	 * @param source
+	 *            the input source
+	 * @param acceptor
+	 *            the acceptor of the refactoring descriptors
+	 * @return the comment of the refactoring session, or <code>null</code>
+	 * @throws CoreException
+	 *             if an error occurs while reading form the input source
+	 */
+	public String readSession(final InputSource source, final IRefactoringDescriptorAcceptor acceptor) throws CoreException {
+		Assert.isNotNull(acceptor);
+		fSessionFound= false;
+		fAcceptor= acceptor;
+		try {
+			source.setSystemId("/"); //$NON-NLS-1$
+			createParser(SAXParserFactory.newInstance()).parse(source, this);
+			checkSession();
+			return fComment;
+		} catch (IOException exception) {
+			throwCoreException(exception, exception.getLocalizedMessage());
+		} catch (ParserConfigurationException exception) {
+			throwCoreException(exception, exception.getLocalizedMessage());
+		} catch (SAXParseException exception) {
+			String message= Messages.format(RefactoringCoreMessages.RefactoringSessionReader_invalid_contents_at,
+					new Object[] {
+							Integer.toString(exception.getLineNumber()),
+							Integer.toString(exception.getColumnNumber())
+			});
+			throwCoreException(exception, message);
+		} catch (SAXException exception) {
+			if (exception.getException() instanceof CoreException)
+				throw (CoreException) exception.getException();
+			throwCoreException(exception, exception.getLocalizedMessage());
+		} finally {
+			fAcceptor= null;
+			fVersion= null;
+			fComment= null;
+			fLocator= null;
+		}
+		return null;
+	}
+
+	/**
+	 * Checks whether a refactoring session has been found.
+	 *
+	 * @throws CoreException
+	 *             if no session has been found
+	 */
+	private void checkSession() throws CoreException {
+		if (!fSessionFound)
+			throw new CoreException(new Status(IStatus.ERROR, RefactoringCorePlugin.getPluginId(), IRefactoringCoreStatusCodes.REFACTORING_HISTORY_FORMAT_ERROR, RefactoringCoreMessages.RefactoringSessionReader_no_session, null));
+	}
+
+	/**
+	 * Checks whether the version of the refactoring session is supported.
+	 *
+	 * @throws CoreException
+	 *             if the version is missing or not supported
+	 */
+	private void checkVersion() throws CoreException {
+		if (fVersion == null || "".equals(fVersion)) //$NON-NLS-1$
+			throw new CoreException(new Status(IStatus.ERROR, RefactoringCorePlugin.getPluginId(), IRefactoringCoreStatusCodes.MISSING_REFACTORING_HISTORY_VERSION, RefactoringCoreMessages.RefactoringSessionReader_missing_version_information, null));
+		if (!IRefactoringSerializationConstants.CURRENT_VERSION.equals(fVersion))
+			throw new CoreException(new Status(IStatus.ERROR, RefactoringCorePlugin.getPluginId(), IRefactoringCoreStatusCodes.UNSUPPORTED_REFACTORING_HISTORY_VERSION, RefactoringCoreMessages.RefactoringSessionReader_unsupported_version_information, null));
+	}
+
 	private void throwCoreException(Exception exception, String message) throws CoreException {
 		throw new CoreException(new Status(IStatus.ERROR,
 				RefactoringCorePlugin.getPluginId(),
@@ -248,9 +326,20 @@ public final class RefactoringSessionReader extends DefaultHandler {
 			} catch (NumberFormatException exception) {
 				// Do nothing
 			}
-			if (fRefactoringDescriptors == null)
-				fRefactoringDescriptors= new ArrayList<>();
-			fRefactoringDescriptors.add(descriptor);
+			if (fAcceptor != null) {
+				try {
+					// The session element precedes the refactorings, so its attributes are known here
+					checkSession();
+					checkVersion();
+				} catch (CoreException exception) {
+					throw new SAXException(exception);
+				}
+				fAcceptor.acceptRefactoring(descriptor);
+			} else {
+				if (fRefactoringDescriptors == null)
+					fRefactoringDescriptors= new ArrayList<>();
+				fRefactoringDescriptors.add(descriptor);
+			}
 
 		} else if (IRefactoringSerializationConstants.ELEMENT_SESSION.equals(qualifiedName)) {
 			fSessionFound= true;
@@ -0,0 +1,286 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.internal.core.refactoring;
+
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.core.runtime.Assert;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+
+import org.eclipse.ltk.core.refactoring.IRefactoringCoreStatusCodes;
+import org.eclipse.ltk.core.refactoring.RefactoringDescriptor;
+
+/**
+ * Streaming writer for XML-based refactoring sessions.
+ * <p>
+ * In contrast to {@link RefactoringSessionTransformer}, this writer does not
+ * build a DOM of the session, but writes each refactoring directly to the
+ * underlying stream. The produced XML is identical to the one of a transformed
+ * and printed session.
+ * </p>
+ * <p>
+ * Since the session is not buffered, the output written so far is left in the
+ * stream if writing fails. Clients which must not leave an incomplete session
+ * behind have to check the refactorings before writing them, or discard the
+ * output.
+ * </p>
+ */
+public final class RefactoringSessionWriter {
+
+	/**
+	 * Comparator for attribute names. DOM attribute maps keep their
+	 * attributes in the order of {@link String#compareTo(String)}.
+	 */
+	private static final class AttributeComparator implements Comparator<String[]> {
+
+		@Override
+		public int compare(final String[] o1, final String[] o2) {
+			return o1[0].compareTo(o2[0]);
+		}
+	}
+
+	/** The xml declaration */
+	private static final String XML_VERSION= "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"; //$NON-NLS-1$
+
+	/** The attribute comparator */
+	private final AttributeComparator fComparator= new AttributeComparator();
+
+	/** Has the start tag of the session been closed? */
+	private boolean fContent= false;
+
+	/** Should project information be included? */
+	private final boolean fProjects;
+
+	/** Is the writer currently processing a session? */
+	private boolean fSession= false;
+
+	/** The underlying writer */
+	private final PrintWriter fWriter;
+
+	/**
+	 * Creates a new refactoring session writer.
+	 *
+	 * @param stream
+	 *            the output stream to write to
+	 * @param projects
+	 *            <code>true</code> to include project information,
+	 *            <code>false</code> otherwise
+	 */
+	public RefactoringSessionWriter(final OutputStream stream, final boolean projects) {
+		Assert.isNotNull(stream);
+		fWriter= new PrintWriter(new BufferedWriter(new OutputStreamWriter(stream, Charset.forName(IRefactoringSerializationConstants.OUTPUT_ENCODING))));
+		fProjects= projects;
+	}
+
+	/**
+	 * Begins a refactoring session.
+	 * <p>
+	 * Calls to {@link RefactoringSessionWriter#beginSession(String, String)}
+	 * must be balanced with calls to {@link RefactoringSessionWriter#endSession()}.
+	 * If the writer is already processing a session, nothing happens.
+	 * </p>
+	 *
+	 * @param comment
+	 *            the comment associated with the refactoring session, or
+	 *            <code>null</code>
+	 * @param version
+	 *            the non-empty version tag
+	 */
+	public void beginSession(final String comment, final String version) {
+		Assert.isNotNull(version);
+		if (!fSession) {
+			fSession= true;
+			fContent= false;
+			final List<String[]> attributes= new ArrayList<>(2);
+			attributes.add(new String[] { IRefactoringSerializationConstants.ATTRIBUTE_VERSION, version });
+			if (comment != null && !"".equals(comment)) //$NON-NLS-1$
+				attributes.add(new String[] { IRefactoringSerializationConstants.ATTRIBUTE_COMMENT, comment });
+			fWriter.println(XML_VERSION);
+			fWriter.print('<');
+			fWriter.print(IRefactoringSerializationConstants.ELEMENT_SESSION);
+			writeAttributes(attributes);
+		}
+	}
+
+	/**
+	 * Ends the current refactoring session and flushes the writer.
+	 * <p>
+	 * If no refactoring session is currently processed, this call has no
+	 * effect.
+	 * </p>
+	 *
+	 * @throws CoreException
+	 *             if an error occurs while writing to the stream
+	 */
+	public void endSession() throws CoreException {
+		if (fSession) {
+			fSession= false;
+			if (fContent) {
+				fWriter.println();
+				fWriter.print("</"); //$NON-NLS-1$
+				fWriter.print(IRefactoringSerializationConstants.ELEMENT_SESSION);
+				fWriter.print('>');
+			} else
+				fWriter.print("/>"); //$NON-NLS-1$
+			flush();
+		}
+	}
+
+	/**
+	 * Flushes the writer.
+	 *
+	 * @throws CoreException
+	 *             if an error occurs while writing to the stream
+	 */
+	public void flush() throws CoreException {
+		fWriter.flush();
+		if (fWriter.checkError())
+			throw new CoreException(new Status(IStatus.ERROR, RefactoringCorePlugin.getPluginId(), IRefactoringCoreStatusCodes.REFACTORING_HISTORY_IO_ERROR, RefactoringCoreMessages.RefactoringSessionWriter_write_error, null));
+	}
+
+	/**
+	 * Writes a refactoring specified by the given arguments.
+	 * <p>
+	 * If no refactoring session is currently processed, this call has no
+	 * effect.
+	 * </p>
+	 *
+	 * @param id
+	 *            the unique identifier of the refactoring
+	 * @param stamp
+	 *            the time stamp of the refactoring, or <code>-1</code>
+	 * @param project
+	 *            the non-empty name of the project this refactoring is
+	 *            associated with, or <code>null</code>
+	 * @param description
+	 *            a human-readable description of the refactoring
+	 * @param comment
+	 *            the comment associated with the refactoring, or
+	 *            <code>null</code>
+	 * @param flags
+	 *            the flags associated with refactoring
+	 * @param arguments
+	 *            the refactoring arguments, or <code>null</code>
+	 */
+	public void writeRefactoring(final String id, final long stamp, final String project, final String description, final String comment, final int flags, final Map<String, String> arguments) {
+		Assert.isNotNull(id);
+		Assert.isNotNull(description);
+		Assert.isTrue(flags >= RefactoringDescriptor.NONE);
+		if (fSession) {
+			final List<String[]> attributes= new ArrayList<>(arguments != null ? arguments.size() + 6 : 6);
+			attributes.add(new String[] { IRefactoringSerializationConstants.ATTRIBUTE_ID, id });
+			if (stamp >= 0)
+				attributes.add(new String[] { IRefactoringSerializationConstants.ATTRIBUTE_STAMP, Long.toString(stamp) });
+			if (flags != RefactoringDescriptor.NONE)
+				attributes.add(new String[] { IRefactoringSerializationConstants.ATTRIBUTE_FLAGS, String.valueOf(flags) });
+			attributes.add(new String[] { IRefactoringSerializationConstants.ATTRIBUTE_DESCRIPTION, description });
+			if (comment != null && !"".equals(comment)) //$NON-NLS-1$
+				attributes.add(new String[] { IRefactoringSerializationConstants.ATTRIBUTE_COMMENT, comment });
+			if (project != null && fProjects)
+				attributes.add(new String[] { IRefactoringSerializationConstants.ATTRIBUTE_PROJECT, project });
+			if (arguments != null) {
+				for (final Iterator<Entry<String, String>> iterator= arguments.entrySet().iterator(); iterator.hasNext();) {
+					final Entry<String, String> entry= iterator.next();
+					Assert.isTrue(!"".equals(entry.getKey())); //$NON-NLS-1$
+					attributes.add(new String[] { entry.getKey(), entry.getValue() });
+				}
+			}
+			if (!fContent) {
+				fContent= true;
+				fWriter.print('>');
+			}
+			fWriter.println();
+			fWriter.print('<');
+			fWriter.print(IRefactoringSerializationConstants.ELEMENT_REFACTORING);
+			writeAttributes(attributes);
+			fWriter.print("/>"); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Writes the specified attributes in ascending order of their names. If
+	 * an attribute name occurs more than once, the last value wins.
+	 *
+	 * @param attributes
+	 *            the attributes as name/value pairs
+	 */
+	private void writeAttributes(final List<String[]> attributes) {
+		Collections.sort(attributes, fComparator);
+		for (int index= 0; index < attributes.size(); index++) {
+			final String[] attribute= attributes.get(index);
+			if (index + 1 < attributes.size() && attribute[0].equals(attributes.get(index + 1)[0]))
+				continue;
+			fWriter.print(' ');
+			fWriter.print(attribute[0]);
+			fWriter.print("=\""); //$NON-NLS-1$
+			writeEscaped(attribute[1]);
+			fWriter.print('"');
+		}
+	}
+
+	/**
+	 * Writes the specified string, encoding special XML characters into the
+	 * equivalent character references.
+	 *
+	 * @param string
+	 *            the string to write
+	 */
+	private void writeEscaped(final String string) {
+		final int length= string.length();
+		for (int index= 0; index < length; index++) {
+			final char character= string.charAt(index);
+			switch (character) {
+				case '<':
+					fWriter.print("&lt;"); //$NON-NLS-1$
+					break;
+				case '>':
+					fWriter.print("&gt;"); //$NON-NLS-1$
+					break;
+				case '"':
+					fWriter.print("&quot;"); //$NON-NLS-1$
+					break;
+				case '\'':
+					fWriter.print("&apos;"); //$NON-NLS-1$
+					break;
+				case '&':
+					fWriter.print("&amp;"); //$NON-NLS-1$
+					break;
+				case '\r':
+					fWriter.print("&#x0D;"); //$NON-NLS-1$
+					break;
+				case '\n':
+					fWriter.print("&#x0A;"); //$NON-NLS-1$
+					break;
+				case '\u0009':
+					fWriter.print("&#x09;"); //$NON-NLS-1$
+					break;
+				default:
+					fWriter.print(character);
+			}
+		}
+	}
+}
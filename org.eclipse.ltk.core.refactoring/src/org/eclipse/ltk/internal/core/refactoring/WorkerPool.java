@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.internal.core.refactoring;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The pool of daemon threads on which the refactoring core plug-in runs thread-safe
+ * participants. Friend plug-ins share it for their short concurrent computations,
+ * e.g. the Java UI plug-in for the shards of a clean up or for text match scans. It
+ * has one thread per available processor; idle threads terminate after a minute.
+ * <p>
+ * Tasks must not wait for other tasks of the pool, since all threads of the pool
+ * may be busy. Code that may run on a worker thread therefore checks
+ * {@link #isWorkerThread()} and computes its tasks on the calling thread instead.
+ * </p>
+ * <p>
+ * The pool is shut down when the plug-in is stopped.
+ * </p>
+ *
+ * @see RefactoringCorePlugin#getWorkerPool()
+ */
+public final class WorkerPool {
+
+	private static final class WorkerThread extends Thread {
+		private static final AtomicInteger fgCount= new AtomicInteger();
+
+		WorkerThread(Runnable runnable) {
+			super(runnable, "Refactoring Worker " + fgCount.incrementAndGet()); //$NON-NLS-1$
+			setDaemon(true);
+		}
+	}
+
+	private ThreadPoolExecutor fExecutor;
+
+	private boolean fShutdown;
+
+	/**
+	 * Submits a task to the pool.
+	 *
+	 * @param task the task
+	 * @return the future of the task
+	 * @throws RejectedExecutionException if the pool has been shut down
+	 */
+	public synchronized <T> Future<T> submit(Callable<T> task) {
+		if (fShutdown)
+			throw new RejectedExecutionException();
+		if (fExecutor == null) {
+			int threads= Runtime.getRuntime().availableProcessors();
+			fExecutor= new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), runnable -> new WorkerThread(runnable));
+			fExecutor.allowCoreThreadTimeOut(true);
+		}
+		return fExecutor.submit(task);
+	}
+
+	/**
+	 * Cancels the running tasks and terminates the threads of the pool.
+	 */
+	public synchronized void shutdown() {
+		fShutdown= true;
+		if (fExecutor != null) {
+			fExecutor.shutdownNow();
+			fExecutor= null;
+		}
+	}
+
+	/**
+	 * Returns whether the current thread is a thread of the pool.
+	 *
+	 * @return <code>true</code> if the current thread belongs to the pool
+	 */
+	public static boolean isWorkerThread() {
+		return Thread.currentThread() instanceof WorkerThread;
+	}
+}
@@ -0,0 +1,588 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.internal.core.refactoring.history;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.core.runtime.Assert;
+import org.eclipse.core.runtime.CoreException;
+
+import org.eclipse.ltk.core.refactoring.RefactoringDescriptor;
+import org.eclipse.ltk.core.refactoring.RefactoringDescriptorProxy;
+import org.eclipse.ltk.internal.core.refactoring.Messages;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringCoreMessages;
+
+/**
+ * Compact, append-only store of the refactoring descriptors of one refactoring
+ * history location.
+ * <p>
+ * The descriptors are kept in a single log file of binary records. A record
+ * either puts a descriptor (replacing any previous descriptor with the same
+ * time stamp) or removes the descriptor with a time stamp. A sorted index of
+ * the time stamps of the live descriptors and the offsets of their records is
+ * kept in memory and persisted next to the log, such that opening a log only
+ * has to scan the records appended since the index has last been written.
+ * </p>
+ * <p>
+ * Records are read with positional reads. The log file is only kept open for
+ * the duration of an operation, such that the history folder can be moved or
+ * deleted while the log is open.
+ * </p>
+ * <p>
+ * Since every project has its own history location, the log is partitioned by
+ * project in the same way as the XML-based refactoring history.
+ * </p>
+ */
+public final class RefactoringHistoryLog {
+
+	/** The name of the log file */
+	public static final String NAME_LOG_FILE= "refactorings.log"; //$NON-NLS-1$
+
+	/** The name of the index file */
+	public static final String NAME_LOG_INDEX_FILE= "refactorings.log.index"; //$NON-NLS-1$
+
+	/** The magic number of the log file */
+	private static final int LOG_MAGIC= 0x524C4F47;
+
+	/** The magic number of the index file */
+	private static final int INDEX_MAGIC= 0x52494458;
+
+	/** The version of the file formats */
+	private static final int VERSION= 1;
+
+	/** The size of the log header */
+	private static final int LOG_HEADER_SIZE= 8;
+
+	/** The size of the index header */
+	private static final int INDEX_HEADER_SIZE= 20;
+
+	/** The record kind of a put record */
+	private static final byte KIND_PUT= 1;
+
+	/** The record kind of a remove record */
+	private static final byte KIND_REMOVE= 2;
+
+	/** The number of appended records after which the index is written */
+	private static final int INDEX_INTERVAL= 32;
+
+	/** The encoding of strings */
+	private static final Charset UTF8= Charset.forName("UTF-8"); //$NON-NLS-1$
+
+	/** The log file */
+	private final File fLogFile;
+
+	/** The index file */
+	private final File fIndexFile;
+
+	/** The non-empty name of the project, or <code>null</code> for the workspace */
+	private final String fProject;
+
+	/** The sorted time stamps of the live descriptors */
+	private long[] fStamps= new long[64];
+
+	/** The offsets of the records of the live descriptors */
+	private long[] fOffsets= new long[64];
+
+	/** The number of live descriptors */
+	private int fCount= 0;
+
+	/** The length of the valid part of the log */
+	private long fLength= 0;
+
+	/** The number of records not covered by the persisted index */
+	private int fUnindexed= 0;
+
+	/** Has the log been opened? */
+	private boolean fOpen= false;
+
+	/**
+	 * Creates a new refactoring history log.
+	 *
+	 * @param folder
+	 *            the history folder containing the log
+	 * @param project
+	 *            the non-empty name of the project, or <code>null</code> for
+	 *            the workspace
+	 */
+	public RefactoringHistoryLog(final File folder, final String project) {
+		Assert.isNotNull(folder);
+		Assert.isTrue(project == null || !"".equals(project)); //$NON-NLS-1$
+		fLogFile= new File(folder, NAME_LOG_FILE);
+		fIndexFile= new File(folder, NAME_LOG_INDEX_FILE);
+		fProject= project;
+	}
+
+	/**
+	 * Returns whether the log file exists.
+	 *
+	 * @return <code>true</code> if the log exists, <code>false</code>
+	 *         otherwise
+	 */
+	public boolean exists() {
+		return fLogFile.isFile();
+	}
+
+	/**
+	 * Opens the log, creating it if it does not exist yet.
+	 *
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	public synchronized void open() throws IOException {
+		if (fOpen)
+			return;
+		if (!fLogFile.isFile()) {
+			fLogFile.getParentFile().mkdirs();
+			try (DataOutputStream output= new DataOutputStream(new FileOutputStream(fLogFile))) {
+				output.writeInt(LOG_MAGIC);
+				output.writeInt(VERSION);
+			}
+			fIndexFile.delete();
+		}
+		fCount= 0;
+		fLength= LOG_HEADER_SIZE;
+		fUnindexed= 0;
+		try (RandomAccessFile file= new RandomAccessFile(fLogFile, "r")) { //$NON-NLS-1$
+			final long length= file.length();
+			if (length < LOG_HEADER_SIZE || file.readInt() != LOG_MAGIC || file.readInt() != VERSION)
+				throw new IOException(Messages.format(RefactoringCoreMessages.RefactoringHistoryLog_invalid_format, fLogFile.getAbsolutePath()));
+			readIndex(length);
+			scan(file.getChannel(), length);
+		}
+		fOpen= true;
+	}
+
+	/**
+	 * Closes the log, persisting the index if necessary.
+	 *
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	public synchronized void close() throws IOException {
+		if (fOpen && fUnindexed > 0)
+			writeIndex();
+		fOpen= false;
+	}
+
+	/**
+	 * Deletes the log and its index.
+	 *
+	 * @return <code>true</code> if the log has been deleted, <code>false</code>
+	 *         otherwise
+	 */
+	public synchronized boolean delete() {
+		fOpen= false;
+		fCount= 0;
+		fIndexFile.delete();
+		return fLogFile.delete();
+	}
+
+	/**
+	 * Returns the number of descriptors in the log.
+	 *
+	 * @return the number of descriptors
+	 */
+	public synchronized int size() {
+		return fCount;
+	}
+
+	/**
+	 * Adds the specified refactoring descriptor to the log. A descriptor with
+	 * the same time stamp is replaced.
+	 *
+	 * @param descriptor
+	 *            the refactoring descriptor to add
+	 * @throws CoreException
+	 *             if the arguments of the descriptor are malformed
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	public synchronized void put(final RefactoringDescriptor descriptor) throws CoreException, IOException {
+		Map<String, String> arguments= RefactoringHistoryManager.getArgumentMap(descriptor);
+		if (arguments != null)
+			RefactoringHistoryManager.checkArgumentMap(arguments);
+		else
+			arguments= new HashMap<>(0);
+		put(descriptor.getTimeStamp(), descriptor.getID(), descriptor.getDescription(), descriptor.getComment(), descriptor.getFlags(), arguments);
+	}
+
+	/**
+	 * Adds the specified refactoring descriptors to the log.
+	 *
+	 * @param descriptors
+	 *            the refactoring descriptors to add
+	 * @throws CoreException
+	 *             if the arguments of a descriptor are malformed
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	public synchronized void putAll(final RefactoringDescriptor[] descriptors) throws CoreException, IOException {
+		for (int index= 0; index < descriptors.length; index++)
+			put(descriptors[index]);
+	}
+
+	/**
+	 * Removes the descriptors with the specified time stamps from the log.
+	 *
+	 * @param stamps
+	 *            the time stamps of the descriptors to remove
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	public synchronized void remove(final long[] stamps) throws IOException {
+		ensureOpen();
+		final ByteArrayOutputStream bytes= new ByteArrayOutputStream(stamps.length * 13);
+		final DataOutputStream output= new DataOutputStream(bytes);
+		for (int index= 0; index < stamps.length; index++) {
+			if (Arrays.binarySearch(fStamps, 0, fCount, stamps[index]) >= 0) {
+				output.writeInt(9);
+				output.writeByte(KIND_REMOVE);
+				output.writeLong(stamps[index]);
+			}
+		}
+		if (bytes.size() > 0) {
+			append(bytes.toByteArray(), bytes.size() / 13);
+			for (int index= 0; index < stamps.length; index++)
+				removeEntry(stamps[index]);
+			indexIfNecessary();
+		}
+	}
+
+	/**
+	 * Sets the comment of the descriptor with the specified time stamp.
+	 *
+	 * @param stamp
+	 *            the time stamp of the descriptor
+	 * @param comment
+	 *            the new comment
+	 * @return <code>true</code> if the descriptor has been found,
+	 *         <code>false</code> otherwise
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	public synchronized boolean setComment(final long stamp, final String comment) throws IOException {
+		ensureOpen();
+		final int position= Arrays.binarySearch(fStamps, 0, fCount, stamp);
+		if (position < 0)
+			return false;
+		final ByteBuffer buffer= readRecord(fOffsets[position]);
+		final String id= readString(buffer);
+		final String description= readString(buffer);
+		readString(buffer);
+		final int flags= buffer.getInt();
+		put(stamp, id, description, comment, flags, readArguments(buffer));
+		return true;
+	}
+
+	/**
+	 * Reads the refactoring descriptor proxies whose time stamps lie in the
+	 * specified range.
+	 *
+	 * @param start
+	 *            the start time stamp, inclusive
+	 * @param end
+	 *            the end time stamp, inclusive
+	 * @return the proxies, in ascending order of their time stamps
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	public synchronized RefactoringDescriptorProxy[] readProxies(final long start, final long end) throws IOException {
+		ensureOpen();
+		final int first= lowerBound(start);
+		int last= first;
+		while (last < fCount && fStamps[last] <= end)
+			last++;
+		final RefactoringDescriptorProxy[] proxies= new RefactoringDescriptorProxy[last - first];
+		if (proxies.length > 0) {
+			try (RandomAccessFile file= new RandomAccessFile(fLogFile, "r")) { //$NON-NLS-1$
+				final FileChannel channel= file.getChannel();
+				for (int index= first; index < last; index++) {
+					final ByteBuffer buffer= readRecord(channel, fOffsets[index]);
+					readString(buffer);
+					proxies[index - first]= new DefaultRefactoringDescriptorProxy(readString(buffer), fProject, fStamps[index]);
+				}
+			}
+		}
+		return proxies;
+	}
+
+	/**
+	 * Reads the refactoring descriptor with the specified time stamp.
+	 *
+	 * @param stamp
+	 *            the time stamp
+	 * @return the refactoring descriptor, or <code>null</code> if the log
+	 *         does not contain a descriptor with this time stamp
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	public synchronized RefactoringDescriptor readDescriptor(final long stamp) throws IOException {
+		ensureOpen();
+		final int position= Arrays.binarySearch(fStamps, 0, fCount, stamp);
+		if (position < 0)
+			return null;
+		final ByteBuffer buffer= readRecord(fOffsets[position]);
+		final String id= readString(buffer);
+		final String description= readString(buffer);
+		final String comment= readString(buffer);
+		final int flags= buffer.getInt();
+		final Map<String, String> arguments= readArguments(buffer);
+		final RefactoringDescriptor descriptor= RefactoringContributionManager.getInstance().createDescriptor(id, fProject, description, comment, arguments, flags);
+		descriptor.setTimeStamp(stamp);
+		return descriptor;
+	}
+
+	/**
+	 * Returns the descriptors of the log in ascending order of their time
+	 * stamps.
+	 *
+	 * @return the refactoring descriptors
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	public synchronized RefactoringDescriptor[] readDescriptors() throws IOException {
+		ensureOpen();
+		final List<RefactoringDescriptor> list= new ArrayList<>(fCount);
+		final long[] stamps= Arrays.copyOf(fStamps, fCount);
+		for (int index= 0; index < stamps.length; index++) {
+			final RefactoringDescriptor descriptor= readDescriptor(stamps[index]);
+			if (descriptor != null)
+				list.add(descriptor);
+		}
+		return list.toArray(new RefactoringDescriptor[list.size()]);
+	}
+
+	private void ensureOpen() throws IOException {
+		if (!fOpen)
+			open();
+	}
+
+	private void put(final long stamp, final String id, final String description, final String comment, final int flags, final Map<String, String> arguments) throws IOException {
+		ensureOpen();
+		final ByteArrayOutputStream bytes= new ByteArrayOutputStream(256);
+		final DataOutputStream output= new DataOutputStream(bytes);
+		output.writeInt(0);
+		output.writeByte(KIND_PUT);
+		output.writeLong(stamp);
+		writeString(output, id);
+		writeString(output, description);
+		writeString(output, comment);
+		output.writeInt(flags);
+		output.writeInt(arguments.size());
+		for (final Iterator<Entry<String, String>> iterator= arguments.entrySet().iterator(); iterator.hasNext();) {
+			final Entry<String, String> entry= iterator.next();
+			writeString(output, entry.getKey());
+			writeString(output, entry.getValue());
+		}
+		final byte[] record= bytes.toByteArray();
+		ByteBuffer.wrap(record).putInt(0, record.length - 4);
+		final long offset= fLength;
+		append(record, 1);
+		putEntry(stamp, offset);
+		indexIfNecessary();
+	}
+
+	private void append(final byte[] records, final int count) throws IOException {
+		try (RandomAccessFile file= new RandomAccessFile(fLogFile, "rw")) { //$NON-NLS-1$
+			final FileChannel channel= file.getChannel();
+			channel.write(ByteBuffer.wrap(records), fLength);
+			channel.truncate(fLength + records.length);
+		}
+		fLength+= records.length;
+		fUnindexed+= count;
+	}
+
+	/**
+	 * Persists the index if enough records have been appended since it has
+	 * last been written. Must only be called once the in-memory index covers
+	 * all appended records.
+	 *
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	private void indexIfNecessary() throws IOException {
+		if (fUnindexed >= INDEX_INTERVAL)
+			writeIndex();
+	}
+
+	private ByteBuffer readRecord(final long offset) throws IOException {
+		try (RandomAccessFile file= new RandomAccessFile(fLogFile, "r")) { //$NON-NLS-1$
+			return readRecord(file.getChannel(), offset);
+		}
+	}
+
+	private static ByteBuffer readRecord(final FileChannel channel, final long offset) throws IOException {
+		final ByteBuffer header= ByteBuffer.allocate(4);
+		readFully(channel, header, offset);
+		final ByteBuffer buffer= ByteBuffer.allocate(header.getInt());
+		readFully(channel, buffer, offset + 4);
+		buffer.position(9); // skip kind and time stamp
+		return buffer;
+	}
+
+	private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0)
+				throw new EOFException();
+		}
+		buffer.flip();
+	}
+
+	private void scan(final FileChannel channel, final long limit) throws IOException {
+		final ByteBuffer buffer= ByteBuffer.allocate((int) (limit - fLength));
+		readFully(channel, buffer, fLength);
+		final long base= fLength;
+		long offset= fLength;
+		while (offset + 13 <= limit) {
+			final int position= (int) (offset - base);
+			final int length= buffer.getInt(position);
+			if (length < 9 || offset + 4 + length > limit)
+				break; // truncated record, will be overwritten by the next append
+			final byte kind= buffer.get(position + 4);
+			final long stamp= buffer.getLong(position + 5);
+			if (kind == KIND_PUT)
+				putEntry(stamp, offset);
+			else if (kind == KIND_REMOVE)
+				removeEntry(stamp);
+			else
+				break;
+			offset+= 4 + length;
+			fUnindexed++;
+		}
+		fLength= offset;
+	}
+
+	private boolean readIndex(final long logLength) {
+		if (!fIndexFile.isFile())
+			return false;
+		try (DataInputStream input= new DataInputStream(new BufferedInputStream(new FileInputStream(fIndexFile)))) {
+			if (input.readInt() != INDEX_MAGIC || input.readInt() != VERSION)
+				return false;
+			final long covered= input.readLong();
+			final int count= input.readInt();
+			if (covered < LOG_HEADER_SIZE || covered > logLength || count < 0 || fIndexFile.length() != INDEX_HEADER_SIZE + 16L * count)
+				return false;
+			final long[] stamps= new long[Math.max(count, 64)];
+			final long[] offsets= new long[stamps.length];
+			for (int index= 0; index < count; index++) {
+				stamps[index]= input.readLong();
+				offsets[index]= input.readLong();
+			}
+			fStamps= stamps;
+			fOffsets= offsets;
+			fCount= count;
+			fLength= covered;
+			return true;
+		} catch (IOException exception) {
+			fCount= 0;
+			fLength= LOG_HEADER_SIZE;
+			return false;
+		}
+	}
+
+	private void writeIndex() throws IOException {
+		try (DataOutputStream output= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fIndexFile)))) {
+			output.writeInt(INDEX_MAGIC);
+			output.writeInt(VERSION);
+			output.writeLong(fLength);
+			output.writeInt(fCount);
+			for (int index= 0; index < fCount; index++) {
+				output.writeLong(fStamps[index]);
+				output.writeLong(fOffsets[index]);
+			}
+		}
+		fUnindexed= 0;
+	}
+
+	private int lowerBound(final long stamp) {
+		final int position= Arrays.binarySearch(fStamps, 0, fCount, stamp);
+		return position >= 0 ? position : -(position + 1);
+	}
+
+	private void putEntry(final long stamp, final long offset) {
+		int position= Arrays.binarySearch(fStamps, 0, fCount, stamp);
+		if (position >= 0) {
+			fOffsets[position]= offset;
+			return;
+		}
+		position= -(position + 1);
+		if (fCount == fStamps.length) {
+			fStamps= Arrays.copyOf(fStamps, fCount * 2);
+			fOffsets= Arrays.copyOf(fOffsets, fCount * 2);
+		}
+		System.arraycopy(fStamps, position, fStamps, position + 1, fCount - position);
+		System.arraycopy(fOffsets, position, fOffsets, position + 1, fCount - position);
+		fStamps[position]= stamp;
+		fOffsets[position]= offset;
+		fCount++;
+	}
+
+	private void removeEntry(final long stamp) {
+		final int position= Arrays.binarySearch(fStamps, 0, fCount, stamp);
+		if (position >= 0) {
+			System.arraycopy(fStamps, position + 1, fStamps, position, fCount - position - 1);
+			System.arraycopy(fOffsets, position + 1, fOffsets, position, fCount - position - 1);
+			fCount--;
+		}
+	}
+
+	private static Map<String, String> readArguments(final ByteBuffer buffer) {
+		final int count= buffer.getInt();
+		final Map<String, String> arguments= new HashMap<>(count);
+		for (int index= 0; index < count; index++) {
+			final String key= readString(buffer);
+			arguments.put(key, readString(buffer));
+		}
+		return arguments;
+	}
+
+	private static String readString(final ByteBuffer buffer) {
+		final int length= buffer.getInt();
+		if (length < 0)
+			return null;
+		final byte[] bytes= new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, UTF8);
+	}
+
+	private static void writeString(final DataOutputStream output, final String string) throws IOException {
+		if (string == null) {
+			output.writeInt(-1);
+		} else {
+			final byte[] bytes= string.getBytes(UTF8);
+			output.writeInt(bytes.length);
+			output.write(bytes);
+		}
+	}
+}
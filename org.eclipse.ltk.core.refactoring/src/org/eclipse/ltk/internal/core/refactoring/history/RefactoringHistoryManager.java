@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2015 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,6 +16,7 @@ package org.eclipse.ltk.internal.core.refactoring.history;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -32,6 +33,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -78,12 +80,14 @@ import org.eclipse.ltk.core.refactoring.RefactoringDescriptorProxy;
 import org.eclipse.ltk.core.refactoring.RefactoringSessionDescriptor;
 import org.eclipse.ltk.core.refactoring.history.RefactoringHistory;
 import org.eclipse.ltk.internal.core.refactoring.BasicElementLabels;
+import org.eclipse.ltk.internal.core.refactoring.IRefactoringDescriptorAcceptor;
 import org.eclipse.ltk.internal.core.refactoring.IRefactoringSerializationConstants;
 import org.eclipse.ltk.internal.core.refactoring.Messages;
 import org.eclipse.ltk.internal.core.refactoring.RefactoringCoreMessages;
 import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
 import org.eclipse.ltk.internal.core.refactoring.RefactoringSessionReader;
 import org.eclipse.ltk.internal.core.refactoring.RefactoringSessionTransformer;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringSessionWriter;
 
 /**
  * Manager for persistable refactoring histories.
@@ -313,9 +317,13 @@ public final class RefactoringHistoryManager {
 	private static void readRefactoringDescriptors(final InputStream stream, final Collection<RefactoringDescriptor> collection, final IProgressMonitor monitor) throws CoreException {
 		try {
 			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_retrieving_history, 1);
-			final RefactoringDescriptor[] results= new RefactoringSessionReader(true, null).readSession(new InputSource(new BufferedInputStream(stream))).getRefactorings();
-			for (int index= 0; index < results.length; index++)
-				collection.add(results[index]);
+			new RefactoringSessionReader(true, null).readSession(new InputSource(new BufferedInputStream(stream)), new IRefactoringDescriptorAcceptor() {
+
+				@Override
+				public void acceptRefactoring(final RefactoringDescriptor descriptor) {
+					collection.add(descriptor);
+				}
+			});
 		} finally {
 			monitor.done();
 		}
@@ -467,22 +475,41 @@ public final class RefactoringHistoryManager {
 	 *             if an error occurs while transforming the descriptor
 	 */
 	private static Document transformDescriptor(final RefactoringDescriptor descriptor, final boolean projects) throws CoreException {
+		return transformDescriptors(new RefactoringDescriptor[] { descriptor }, projects);
+	}
+
+	/**
+	 * Transforms the specified refactoring descriptors into a DOM node.
+	 *
+	 * @param descriptors
+	 *            the descriptors to transform
+	 * @param projects
+	 *            <code>true</code> to include project information,
+	 *            <code>false</code> otherwise
+	 * @return the DOM node representing the refactoring descriptors
+	 * @throws CoreException
+	 *             if an error occurs while transforming the descriptors
+	 */
+	private static Document transformDescriptors(final RefactoringDescriptor[] descriptors, final boolean projects) throws CoreException {
 		final RefactoringSessionTransformer transformer= new RefactoringSessionTransformer(projects);
 		try {
 			transformer.beginSession(null, IRefactoringSerializationConstants.CURRENT_VERSION);
-			try {
-				final String id= descriptor.getID();
-				transformer.beginRefactoring(id, descriptor.getTimeStamp(), descriptor.getProject(), descriptor.getDescription(), descriptor.getComment(), descriptor.getFlags());
-				final Map<String, String> arguments= getArgumentMap(descriptor);
-				if (arguments != null) {
-					checkArgumentMap(arguments);
-					for (final Iterator<Entry<String, String>> iterator= arguments.entrySet().iterator(); iterator.hasNext();) {
-						final Entry<String, String> entry= iterator.next();
-						transformer.createArgument(entry.getKey(), entry.getValue());
+			for (int index= 0; index < descriptors.length; index++) {
+				final RefactoringDescriptor descriptor= descriptors[index];
+				try {
+					final String id= descriptor.getID();
+					transformer.beginRefactoring(id, descriptor.getTimeStamp(), descriptor.getProject(), descriptor.getDescription(), descriptor.getComment(), descriptor.getFlags());
+					final Map<String, String> arguments= getArgumentMap(descriptor);
+					if (arguments != null) {
+						checkArgumentMap(arguments);
+						for (final Iterator<Entry<String, String>> iterator= arguments.entrySet().iterator(); iterator.hasNext();) {
+							final Entry<String, String> entry= iterator.next();
+							transformer.createArgument(entry.getKey(), entry.getValue());
+						}
 					}
+				} finally {
+					transformer.endRefactoring();
 				}
-			} finally {
-				transformer.endRefactoring();
 			}
 		} finally {
 			transformer.endSession();
@@ -718,38 +745,48 @@ public final class RefactoringHistoryManager {
 	 *            <code>false</code> otherwise
 	 * @throws CoreException
 	 *             if an error occurs while writing the refactoring session
-	 *             descriptor
+	 *             descriptor. Nothing is written if the arguments of a
+	 *             refactoring descriptor are malformed.
 	 */
 	public static void writeRefactoringSession(final OutputStream stream, final RefactoringSessionDescriptor descriptor, final boolean stamps) throws CoreException {
-		final RefactoringSessionTransformer transformer= new RefactoringSessionTransformer(true);
+		final RefactoringSessionWriter writer= new RefactoringSessionWriter(stream, true);
 		final RefactoringDescriptor[] descriptors= descriptor.getRefactorings();
-		try {
-			transformer.beginSession(descriptor.getComment(), descriptor.getVersion());
-			for (int index= 0; index < descriptors.length; index++) {
-				final RefactoringDescriptor current= descriptors[index];
-				if (current != null) {
-					try {
-						long stamp= stamps ? current.getTimeStamp() : -1;
-						transformer.beginRefactoring(current.getID(), stamp, current.getProject(), current.getDescription(), current.getComment(), current.getFlags());
-						final Map<String, String> arguments= getArgumentMap(current);
-						if (arguments != null) {
-							checkArgumentMap(arguments);
-							for (final Iterator<Entry<String, String>> iterator= arguments.entrySet().iterator(); iterator.hasNext();) {
-								final Entry<String, String> entry= iterator.next();
-								transformer.createArgument(entry.getKey(), entry.getValue());
-							}
-						}
-					} finally {
-						transformer.endRefactoring();
-					}
-				}
+		for (int index= 0; index < descriptors.length; index++) {
+			if (descriptors[index] != null) {
+				final Map<String, String> arguments= getArgumentMap(descriptors[index]);
+				if (arguments != null)
+					checkArgumentMap(arguments);
 			}
-		} finally {
-			transformer.endSession();
 		}
-		final Document result= transformer.getResult();
-		writeNode(stream, result);
-			}
+		writer.beginSession(descriptor.getComment(), descriptor.getVersion());
+		for (int index= 0; index < descriptors.length; index++) {
+			final RefactoringDescriptor current= descriptors[index];
+			if (current != null)
+				writeRefactoringDescriptor(writer, current, stamps);
+		}
+		writer.endSession();
+	}
+
+	/**
+	 * Writes the specified refactoring descriptor to the refactoring session
+	 * writer.
+	 *
+	 * @param writer
+	 *            the refactoring session writer
+	 * @param descriptor
+	 *            the refactoring descriptor to write
+	 * @param stamps
+	 *            <code>true</code> to write time stamps as well,
+	 *            <code>false</code> otherwise
+	 * @throws CoreException
+	 *             if the arguments of the refactoring descriptor are malformed
+	 */
+	private static void writeRefactoringDescriptor(final RefactoringSessionWriter writer, final RefactoringDescriptor descriptor, final boolean stamps) throws CoreException {
+		final Map<String, String> arguments= getArgumentMap(descriptor);
+		if (arguments != null)
+			checkArgumentMap(arguments);
+		writer.writeRefactoring(descriptor.getID(), stamps ? descriptor.getTimeStamp() : -1, descriptor.getProject(), descriptor.getDescription(), descriptor.getComment(), descriptor.getFlags(), arguments);
+	}
 
 	private static void writeNode(final OutputStream stream, Document document) {
 		OutputStreamWriter outputStreamWriter= new OutputStreamWriter(stream, Charset.forName("UTF-8")); //$NON-NLS-1$
@@ -774,6 +811,15 @@ public final class RefactoringHistoryManager {
 	/** The history file store */
 	private final IFileStore fHistoryStore;
 
+	/**
+	 * The binary refactoring history log, or <code>null</code> if the history
+	 * is stored in the XML-based history tree
+	 */
+	private RefactoringHistoryLog fHistoryLog= null;
+
+	/** Has the history log been initialized? */
+	private boolean fHistoryLogInitialized= false;
+
 	/**
 	 * The non-empty name of the managed project, or <code>null</code> for the
 	 * workspace
@@ -815,7 +861,16 @@ public final class RefactoringHistoryManager {
 		try {
 			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_updating_history, 18);
 			final long stamp= descriptor.getTimeStamp();
-			if (stamp >= 0) {
+			final RefactoringHistoryLog log= getHistoryLog();
+			if (log != null) {
+				if (stamp >= 0) {
+					try {
+						log.put(descriptor);
+					} catch (IOException exception) {
+						throw createCoreException(exception);
+					}
+				}
+			} else if (stamp >= 0) {
 				final IPath path= stampToPath(stamp);
 				final IFileStore folder= fHistoryStore.getFileStore(path);
 				final IFileStore history= folder.getChild(RefactoringHistoryService.NAME_HISTORY_FILE);
@@ -892,6 +947,231 @@ public final class RefactoringHistoryManager {
 		}
 	}
 
+	/**
+	 * Returns the binary refactoring history log of the managed history.
+	 * <p>
+	 * If the binary refactoring history is enabled and the log does not exist
+	 * yet, the XML-based history tree is migrated into a new log. If it is
+	 * disabled and a log exists, the log is exported back into the history
+	 * tree. Shared refactoring histories stored in project folders are
+	 * always kept in the history tree; a log found there is exported as well.
+	 * </p>
+	 *
+	 * @return the history log, or <code>null</code> if the history is stored
+	 *         in the XML-based history tree
+	 */
+	private RefactoringHistoryLog getHistoryLog() {
+		if (!fHistoryLogInitialized) {
+			fHistoryLogInitialized= true;
+			try {
+				final File folder= fHistoryStore.toLocalFile(EFS.NONE, null);
+				if (folder != null) {
+					final RefactoringHistoryLog log= new RefactoringHistoryLog(folder, fProjectName);
+					if (RefactoringHistoryService.hasBinaryRefactoringHistory() && RefactoringCorePlugin.getDefault().getStateLocation().isPrefixOf(new Path(folder.getAbsolutePath()))) {
+						if (!log.exists())
+							importHistoryTree(log, new NullProgressMonitor());
+						log.open();
+						fHistoryLog= log;
+					} else if (log.exists())
+						exportHistoryLog(log, new NullProgressMonitor());
+				}
+			} catch (CoreException exception) {
+				RefactoringCorePlugin.log(exception);
+			} catch (IOException exception) {
+				RefactoringCorePlugin.log(exception);
+			}
+		}
+		return fHistoryLog;
+	}
+
+	/**
+	 * Closes the binary refactoring history log of the managed history, if it
+	 * has been opened. The history folder may be moved or deleted afterwards.
+	 */
+	void closeHistoryLog() {
+		if (fHistoryLog != null) {
+			try {
+				fHistoryLog.close();
+			} catch (IOException exception) {
+				RefactoringCorePlugin.log(exception);
+			}
+		}
+		fHistoryLog= null;
+		fHistoryLogInitialized= false;
+	}
+
+	/**
+	 * Exports the binary refactoring history log of the managed history, if
+	 * there is one, into the XML-based history tree. This is done before the
+	 * history is shared, since shared histories are always stored in the
+	 * history tree.
+	 *
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @throws CoreException
+	 *             if an error occurs while exporting the log
+	 */
+	void exportHistoryLog(final IProgressMonitor monitor) throws CoreException {
+		closeHistoryLog();
+		final File folder= fHistoryStore.toLocalFile(EFS.NONE, null);
+		if (folder != null) {
+			final RefactoringHistoryLog log= new RefactoringHistoryLog(folder, fProjectName);
+			if (log.exists()) {
+				try {
+					exportHistoryLog(log, monitor);
+				} catch (IOException exception) {
+					throw createCoreException(exception);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Migrates the XML-based history tree of the managed history into the
+	 * specified empty history log and removes the history tree afterwards.
+	 *
+	 * @param log
+	 *            the history log
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @throws CoreException
+	 *             if an error occurs while reading the history tree
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	private void importHistoryTree(final RefactoringHistoryLog log, final IProgressMonitor monitor) throws CoreException, IOException {
+		try {
+			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_updating_history, 300);
+			final Set<RefactoringDescriptorProxy> set= new HashSet<>();
+			if (fHistoryStore.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 10, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists())
+				readRefactoringDescriptorProxies(fHistoryStore, fProjectName, set, 0, Long.MAX_VALUE, new SubProgressMonitor(monitor, 90), RefactoringCoreMessages.RefactoringHistoryService_updating_history);
+			final RefactoringDescriptorProxy[] proxies= set.toArray(new RefactoringDescriptorProxy[set.size()]);
+			sortRefactoringDescriptorsAscending(proxies);
+			final IProgressMonitor subMonitor= new SubProgressMonitor(monitor, 180);
+			try {
+				subMonitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_updating_history, proxies.length);
+				log.open();
+				for (int index= 0; index < proxies.length; index++) {
+					final RefactoringDescriptor descriptor= requestTreeDescriptor(proxies[index], new SubProgressMonitor(subMonitor, 1));
+					if (descriptor != null)
+						log.put(descriptor);
+				}
+				log.close();
+			} finally {
+				subMonitor.done();
+			}
+			final IFileStore[] stores= fHistoryStore.childStores(EFS.NONE, new SubProgressMonitor(monitor, 10, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
+			for (int index= 0; index < stores.length; index++) {
+				if (isHistoryTreeFolder(stores[index]))
+					stores[index].delete(EFS.NONE, new SubProgressMonitor(monitor, 10 / stores.length, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
+			}
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Exports the specified history log into the XML-based history tree of
+	 * the managed history and deletes the log afterwards.
+	 *
+	 * @param log
+	 *            the history log
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @throws CoreException
+	 *             if an error occurs while writing the history tree
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	private void exportHistoryLog(final RefactoringHistoryLog log, final IProgressMonitor monitor) throws CoreException, IOException {
+		try {
+			final RefactoringDescriptor[] descriptors= log.readDescriptors();
+			final Map<IPath, List<RefactoringDescriptor>> paths= new LinkedHashMap<>();
+			for (int index= 0; index < descriptors.length; index++) {
+				final IPath path= stampToPath(descriptors[index].getTimeStamp());
+				List<RefactoringDescriptor> list= paths.get(path);
+				if (list == null) {
+					list= new ArrayList<>();
+					paths.put(path, list);
+				}
+				list.add(descriptors[index]);
+			}
+			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_updating_history, 2 * paths.size() + 1);
+			for (final Iterator<Entry<IPath, List<RefactoringDescriptor>>> iterator= paths.entrySet().iterator(); iterator.hasNext();) {
+				final Entry<IPath, List<RefactoringDescriptor>> entry= iterator.next();
+				final List<RefactoringDescriptor> list= entry.getValue();
+				final IFileStore folder= fHistoryStore.getFileStore(entry.getKey());
+				final RefactoringDescriptorProxy[] proxies= new RefactoringDescriptorProxy[list.size()];
+				for (int index= 0; index < proxies.length; index++) {
+					final RefactoringDescriptor descriptor= list.get(index);
+					proxies[index]= new DefaultRefactoringDescriptorProxy(descriptor.getDescription(), descriptor.getProject(), descriptor.getTimeStamp());
+				}
+				writeHistoryEntry(folder.getChild(RefactoringHistoryService.NAME_HISTORY_FILE), transformDescriptors(list.toArray(new RefactoringDescriptor[list.size()]), false), new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL), RefactoringCoreMessages.RefactoringHistoryService_updating_history);
+				writeIndexEntry(folder.getChild(RefactoringHistoryService.NAME_INDEX_FILE), proxies, EFS.NONE, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL), RefactoringCoreMessages.RefactoringHistoryService_updating_history);
+			}
+			log.delete();
+			monitor.worked(1);
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Returns whether the specified file store is a year folder of the
+	 * XML-based history tree.
+	 *
+	 * @param store
+	 *            the file store
+	 * @return <code>true</code> if the store is part of the history tree,
+	 *         <code>false</code> otherwise
+	 */
+	private static boolean isHistoryTreeFolder(final IFileStore store) {
+		final String name= store.getName();
+		if (name.length() == 0 || !store.fetchInfo().isDirectory())
+			return false;
+		for (int index= 0; index < name.length(); index++) {
+			if (!Character.isDigit(name.charAt(index)))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Reads refactoring descriptor proxies from the binary history log of the
+	 * specified history location, if it has one.
+	 *
+	 * @param store
+	 *            the history file store
+	 * @param collection
+	 *            the collection of proxies to fill in
+	 * @param start
+	 *            the start time stamp, inclusive
+	 * @param end
+	 *            the end time stamp, inclusive
+	 * @return <code>true</code> if the location has a history log,
+	 *         <code>false</code> otherwise
+	 * @throws CoreException
+	 *             if the location cannot be accessed
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	private static boolean readHistoryLogProxies(final IFileStore store, final Collection<RefactoringDescriptorProxy> collection, final long start, final long end) throws CoreException, IOException {
+		if (!RefactoringHistoryService.hasBinaryRefactoringHistory())
+			return false;
+		final File folder= store.toLocalFile(EFS.NONE, null);
+		if (folder == null)
+			return false;
+		final RefactoringHistoryLog log= new RefactoringHistoryLog(folder, null);
+		if (!log.exists())
+			return false;
+		try {
+			collection.addAll(Arrays.asList(log.readProxies(start, end)));
+		} finally {
+			log.close();
+		}
+		return true;
+	}
+
 	/**
 	 * Returns the cached refactoring history document.
 	 *
@@ -966,13 +1246,23 @@ public final class RefactoringHistoryManager {
 			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_retrieving_history, 200);
 			final Set<RefactoringDescriptorProxy> set= new HashSet<>();
 			try {
-				if (fHistoryStore.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 20, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists())
+				final RefactoringHistoryLog log= getHistoryLog();
+				if (log != null) {
+					set.addAll(Arrays.asList(log.readProxies(start, end)));
+					monitor.worked(100);
+				} else if (fHistoryStore.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 20, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists())
 					readRefactoringDescriptorProxies(fHistoryStore, fProjectName, set, start, end, new SubProgressMonitor(monitor, 80), RefactoringCoreMessages.RefactoringHistoryService_retrieving_history);
 				final IFileStore store= EFS.getLocalFileSystem().getStore(RefactoringCorePlugin.getDefault().getStateLocation()).getChild(RefactoringHistoryService.NAME_HISTORY_FOLDER).getChild(RefactoringHistoryService.NAME_WORKSPACE_PROJECT);
-				if (store.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 20, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists())
+				if (log != null && store.equals(fHistoryStore))
+					monitor.worked(100);
+				else if (readHistoryLogProxies(store, set, start, end))
+					monitor.worked(100);
+				else if (store.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 20, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists())
 					readRefactoringDescriptorProxies(store, null, set, start, end, new SubProgressMonitor(monitor, 80), RefactoringCoreMessages.RefactoringHistoryService_retrieving_history);
 			} catch (CoreException exception) {
 				RefactoringCorePlugin.log(exception);
+			} catch (IOException exception) {
+				RefactoringCorePlugin.log(exception);
 			}
 			final RefactoringDescriptorProxy[] proxies= new RefactoringDescriptorProxy[set.size()];
 			set.toArray(proxies);
@@ -1087,6 +1377,21 @@ public final class RefactoringHistoryManager {
 	 *             if an error occurs
 	 */
 	void removeRefactoringDescriptors(final RefactoringDescriptorProxy[] proxies, final IProgressMonitor monitor, final String task) throws CoreException {
+		final RefactoringHistoryLog log= getHistoryLog();
+		if (log != null) {
+			try {
+				monitor.beginTask(task, 1);
+				final long[] stamps= new long[proxies.length];
+				for (int index= 0; index < proxies.length; index++)
+					stamps[index]= proxies[index].getTimeStamp();
+				log.remove(stamps);
+			} catch (IOException exception) {
+				throw createCoreException(exception);
+			} finally {
+				monitor.done();
+			}
+			return;
+		}
 		try {
 			final Map<IPath, Collection<RefactoringDescriptorProxy>> paths= new HashMap<>();
 			monitor.beginTask(task, proxies.length + 300);
@@ -1127,6 +1432,32 @@ public final class RefactoringHistoryManager {
 	 * @return the associated refactoring descriptor, or <code>null</code>
 	 */
 	RefactoringDescriptor requestDescriptor(final RefactoringDescriptorProxy proxy, final IProgressMonitor monitor) {
+		final RefactoringHistoryLog log= getHistoryLog();
+		if (log != null) {
+			try {
+				monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_resolving_information, 1);
+				return log.readDescriptor(proxy.getTimeStamp());
+			} catch (IOException exception) {
+				RefactoringCorePlugin.log(exception);
+			} finally {
+				monitor.done();
+			}
+			return null;
+		}
+		return requestTreeDescriptor(proxy, monitor);
+	}
+
+	/**
+	 * Requests the resolved refactoring descriptor associated with the given
+	 * proxy from the XML-based history tree.
+	 *
+	 * @param proxy
+	 *            the refactoring descriptor proxy
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @return the associated refactoring descriptor, or <code>null</code>
+	 */
+	private RefactoringDescriptor requestTreeDescriptor(final RefactoringDescriptorProxy proxy, final IProgressMonitor monitor) {
 		try {
 			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_resolving_information, 2);
 			final long stamp= proxy.getTimeStamp();
@@ -1181,7 +1512,14 @@ public final class RefactoringHistoryManager {
 		try {
 			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_updating_history, 100);
 			final long stamp= proxy.getTimeStamp();
-			if (stamp >= 0) {
+			final RefactoringHistoryLog log= getHistoryLog();
+			if (log != null) {
+				try {
+					log.setComment(stamp, comment);
+				} catch (IOException exception) {
+					throw createCoreException(exception);
+				}
+			} else if (stamp >= 0) {
 				final IPath path= stampToPath(stamp);
 				final IFileStore folder= fHistoryStore.getFileStore(path);
 				final IFileStore history= folder.getChild(RefactoringHistoryService.NAME_HISTORY_FILE);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2016 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -18,7 +18,6 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
@@ -78,6 +77,7 @@ import org.eclipse.ltk.core.refactoring.history.IRefactoringHistoryService;
 import org.eclipse.ltk.core.refactoring.history.RefactoringExecutionEvent;
 import org.eclipse.ltk.core.refactoring.history.RefactoringHistory;
 import org.eclipse.ltk.core.refactoring.history.RefactoringHistoryEvent;
+import org.eclipse.ltk.internal.core.refactoring.IRefactoringDescriptorAcceptor;
 import org.eclipse.ltk.internal.core.refactoring.IRefactoringSerializationConstants;
 import org.eclipse.ltk.internal.core.refactoring.RefactoringCoreMessages;
 import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
@@ -204,6 +204,20 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 		return false;
 	}
 
+	/**
+	 * Determines whether the internally persisted refactoring histories are
+	 * stored in an indexed binary log instead of the XML-based history tree.
+	 * <p>
+	 * Shared refactoring histories are always stored in the history tree.
+	 * </p>
+	 *
+	 * @return <code>true</code> if the binary refactoring history is enabled,
+	 *         <code>false</code> otherwise
+	 */
+	public static boolean hasBinaryRefactoringHistory() {
+		return Platform.getPreferencesService().getBoolean(RefactoringCorePlugin.getPluginId(), RefactoringPreferenceConstants.PREFERENCE_BINARY_REFACTORING_HISTORY, false, null);
+	}
+
 	/**
 	 * Determines whether a project has a shared refactoring history.
 	 * <p>
@@ -250,10 +264,14 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 			if (uri != null) {
 				try {
 					final IFileStore history= EFS.getLocalFileSystem().getStore(RefactoringCorePlugin.getDefault().getStateLocation()).getChild(NAME_HISTORY_FOLDER);
+					final RefactoringHistoryService service= getInstance();
 					if (enable) {
 						final IFileStore source= history.getChild(name);
+						service.releaseManager(source);
 						if (source.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 20)).exists()) {
+							new RefactoringHistoryManager(source, name).exportHistoryLog(new SubProgressMonitor(monitor, 20));
 							IFileStore destination= EFS.getStore(uri).getChild(NAME_HISTORY_FOLDER);
+							service.releaseManager(destination);
 							if (destination.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 20)).exists())
 								destination.delete(EFS.NONE, new SubProgressMonitor(monitor, 20));
 							destination.mkdir(EFS.NONE, new SubProgressMonitor(monitor, 20));
@@ -262,8 +280,10 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 						}
 					} else {
 						final IFileStore source= EFS.getStore(uri).getChild(NAME_HISTORY_FOLDER);
+						service.releaseManager(source);
 						if (source.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 20)).exists()) {
 							IFileStore destination= history.getChild(name);
+							service.releaseManager(destination);
 							if (destination.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 20)).exists())
 								destination.delete(EFS.NONE, new SubProgressMonitor(monitor, 20));
 							destination.mkdir(EFS.NONE, new SubProgressMonitor(monitor, 20));
@@ -314,7 +334,11 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 
 		@Override
 		protected boolean removeEldestEntry(Map.Entry<IFileStore, RefactoringHistoryManager> entry) {
-			return size() > MAX_MANAGERS;
+			if (size() > MAX_MANAGERS) {
+				entry.getValue().closeHistoryLog();
+				return true;
+			}
+			return false;
 		}
 	};
 
@@ -525,14 +549,17 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 			final IFileStore stateStore= EFS.getLocalFileSystem().getStore(RefactoringCorePlugin.getDefault().getStateLocation());
 			if (name.equals(NAME_WORKSPACE_PROJECT)) {
 				final IFileStore metaStore= stateStore.getChild(NAME_HISTORY_FOLDER).getChild(name);
+				releaseManager(metaStore);
 				metaStore.delete(EFS.NONE, new SubProgressMonitor(monitor, 100));
 			} else {
 				final URI uri= project.getLocationURI();
 				if (uri != null && project.isAccessible()) {
 					try {
 						final IFileStore metaStore= stateStore.getChild(NAME_HISTORY_FOLDER).getChild(name);
+						releaseManager(metaStore);
 						metaStore.delete(EFS.NONE, new SubProgressMonitor(monitor, 20));
 						final IFileStore projectStore= EFS.getStore(uri).getChild(NAME_HISTORY_FOLDER);
+						releaseManager(projectStore);
 						projectStore.delete(EFS.NONE, new SubProgressMonitor(monitor, 20));
 					} finally {
 						project.refreshLocal(IResource.DEPTH_INFINITE, new SubProgressMonitor(monitor, 60));
@@ -547,6 +574,8 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 	@Override
 	public void disconnect() {
 		if (fReferenceCount > 0) {
+			for (final Iterator<RefactoringHistoryManager> iterator= fManagerCache.values().iterator(); iterator.hasNext();)
+				iterator.next().closeHistoryLog();
 			fManagerCache.clear();
 			fReferenceCount--;
 		}
@@ -740,23 +769,17 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 	public RefactoringHistory readRefactoringHistory(final InputStream stream, final int flags) throws CoreException {
 		Assert.isNotNull(stream);
 		Assert.isTrue(flags >= RefactoringDescriptor.NONE);
-		final List<RefactoringDescriptor> list= new ArrayList<>();
-		final RefactoringSessionDescriptor descriptor= new RefactoringSessionReader(false, null).readSession(new InputSource(stream));
-		if (descriptor != null) {
-			final RefactoringDescriptor[] descriptors= descriptor.getRefactorings();
-			if (flags > RefactoringDescriptor.NONE) {
-				for (int index= 0; index < descriptors.length; index++) {
-					final int current= descriptors[index].getFlags();
-					if ((current | flags) == current)
-						list.add(descriptors[index]);
-				}
-			} else
-				list.addAll(Arrays.asList(descriptors));
-		}
-		final RefactoringDescriptorProxy[] proxies= new RefactoringDescriptorProxy[list.size()];
-		for (int index= 0; index < list.size(); index++)
-			proxies[index]= new RefactoringDescriptorProxyAdapter(list.get(index));
-		return new RefactoringHistoryImplementation(proxies);
+		final List<RefactoringDescriptorProxy> list= new ArrayList<>();
+		new RefactoringSessionReader(false, null).readSession(new InputSource(stream), new IRefactoringDescriptorAcceptor() {
+
+			@Override
+			public void acceptRefactoring(final RefactoringDescriptor descriptor) {
+				final int current= descriptor.getFlags();
+				if ((current | flags) == current)
+					list.add(new RefactoringDescriptorProxyAdapter(descriptor));
+			}
+		});
+		return new RefactoringHistoryImplementation(list.toArray(new RefactoringDescriptorProxy[list.size()]));
 	}
 
 	@Override
@@ -831,6 +854,7 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 			}
 			final RefactoringDescriptor[] descriptors= new RefactoringDescriptor[list.size()];
 			list.toArray(descriptors);
+			// validates all arguments before the first byte is written
 			RefactoringHistoryManager.writeRefactoringSession(stream, new RefactoringSessionDescriptor(descriptors, IRefactoringSerializationConstants.CURRENT_VERSION, null), time);
 		} finally {
 			disconnect();
@@ -861,8 +885,10 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 			final String oldName= oldProject.getName();
 			final String newName= newProject.getName();
 			final IFileStore oldStore= historyStore.getChild(oldName);
+			releaseManager(oldStore);
 			if (oldStore.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 10, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists()) {
 				final IFileStore newStore= historyStore.getChild(newName);
+				releaseManager(newStore);
 				if (newStore.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 10, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists())
 					newStore.delete(EFS.NONE, new SubProgressMonitor(monitor, 20, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
 				oldStore.move(newStore, EFS.OVERWRITE, new SubProgressMonitor(monitor, 20, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
@@ -987,6 +1013,20 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 		return null;
 	}
 
+	/**
+	 * Removes the refactoring history manager of the specified history
+	 * location from the cache and closes its history log, such that the
+	 * location can be moved or deleted.
+	 *
+	 * @param store
+	 *            the file store describing the history location
+	 */
+	private void releaseManager(final IFileStore store) {
+		final RefactoringHistoryManager manager= fManagerCache.remove(store);
+		if (manager != null)
+			manager.closeHistoryLog();
+	}
+
 	/**
 	 * Returns the cached refactoring history manager for the specified
 	 * history location.